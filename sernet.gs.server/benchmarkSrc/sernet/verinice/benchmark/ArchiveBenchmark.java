@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.ICommandService;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.service.commands.ExportCommand;
+import sernet.verinice.service.commands.SyncCommand;
+import sernet.verinice.service.commands.SyncParameter;
+import sernet.verinice.service.commands.SyncParameterException;
+
+/**
+ * Benchmarks of the export of an organization to a verinice archive and of
+ * the import of this archive. The archive is imported with the update option,
+ * every invocation updates the elements imported by the first one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    private static final String SOURCE_ID = "benchmark";
+
+    @State(Scope.Benchmark)
+    public static class ArchiveState extends DatasetState {
+
+        ICommandService commandService;
+
+        byte[] archive;
+
+        @Setup(Level.Trial)
+        public void exportArchive() throws CommandException {
+            commandService = BenchmarkContext.getBean("commandService");
+            archive = export(commandService, dataset.getOrganization());
+        }
+    }
+
+    @Benchmark
+    public byte[] exportOrganization(ArchiveState state) throws CommandException {
+        return export(state.commandService, state.dataset.getOrganization());
+    }
+
+    @Benchmark
+    public Object importArchive(ArchiveState state)
+            throws CommandException, SyncParameterException {
+        SyncParameter parameter = new SyncParameter(true, true, false, false);
+        SyncCommand command = new SyncCommand(parameter, state.archive);
+        return state.commandService.executeCommand(command).getImportedElementUUIDs();
+    }
+
+    private static byte[] export(ICommandService commandService, CnATreeElement organization)
+            throws CommandException {
+        ExportCommand command = new ExportCommand(Collections.singletonList(organization),
+                SOURCE_ID, false);
+        return commandService.executeCommand(command).getResult();
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import java.util.function.Supplier;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sernet.verinice.service.test.ContextConfiguration;
+
+/**
+ * Starts the Spring context of the server tests once per benchmark JVM. The
+ * context uses the same configuration as the JUnit tests, see
+ * {@link ContextConfiguration}, with an embedded in-memory database.
+ */
+public final class BenchmarkContext {
+
+    private static ClassPathXmlApplicationContext context;
+
+    private BenchmarkContext() {
+    }
+
+    public static synchronized ApplicationContext get() {
+        if (context == null) {
+            String[] locations = ContextConfiguration.class
+                    .getAnnotation(org.springframework.test.context.ContextConfiguration.class)
+                    .locations();
+            context = new ClassPathXmlApplicationContext(locations);
+            context.registerShutdownHook();
+        }
+        return context;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T getBean(String name) {
+        return (T) get().getBean(name);
+    }
+
+    /**
+     * Executes the supplier in a new transaction of the server.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T inTransaction(Supplier<T> supplier) {
+        PlatformTransactionManager transactionManager = getBean("txManager");
+        return (T) new TransactionTemplate(transactionManager)
+                .execute(status -> supplier.get());
+    }
+}
@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sernet.verinice.interfaces.CommandException;
+
+/**
+ * Benchmark state with a {@link SyntheticDataset}. The size of the dataset is
+ * set by JMH parameter <code>size</code>, e.g. <code>-p size=1000</code>.
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+
+    @Param({ "100" })
+    public int size;
+
+    protected SyntheticDataset dataset;
+
+    @Setup(Level.Trial)
+    public void createDataset() throws CommandException {
+        dataset = SyntheticDataset.create(size);
+    }
+
+    public SyntheticDataset getDataset() {
+        return dataset;
+    }
+}
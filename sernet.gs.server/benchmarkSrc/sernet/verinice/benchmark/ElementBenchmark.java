@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.ICommandService;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.search.JsonBuilder;
+import sernet.verinice.service.commands.LoadSubtreeIds;
+
+/**
+ * Benchmarks of single elements: JSON documents for the search index,
+ * property access and loading the ids of a subtree. Each operation processes
+ * all assets of the dataset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElementBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ElementState extends DatasetState {
+
+        List<CnATreeElement> assets;
+
+        JsonBuilder jsonBuilder;
+
+        ICommandService commandService;
+
+        @Setup(Level.Trial)
+        public void loadAssets() {
+            List<Integer> dbIds = dataset.getAssets().stream().map(CnATreeElement::getDbId)
+                    .collect(Collectors.toList());
+            IBaseDao<CnATreeElement, Integer> elementDao = BenchmarkContext
+                    .getBean("cnaTreeElementDao");
+            assets = BenchmarkContext.inTransaction(() -> {
+                DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class)
+                        .add(Restrictions.in("dbId", dbIds));
+                new RetrieveInfo().setProperties(true).setPermissions(true)
+                        .configureCriteria(criteria);
+                criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+                return elementDao.findByCriteria(criteria);
+            });
+            jsonBuilder = new JsonBuilder();
+            commandService = BenchmarkContext.getBean("commandService");
+        }
+    }
+
+    @Benchmark
+    public void getJson(ElementState state, Blackhole blackhole) {
+        for (CnATreeElement asset : state.assets) {
+            blackhole.consume(state.jsonBuilder.getJson(asset));
+        }
+    }
+
+    @Benchmark
+    public void getPropertyValue(ElementState state, Blackhole blackhole) {
+        for (CnATreeElement asset : state.assets) {
+            blackhole.consume(asset.getEntity().getPropertyValue(Asset.PROP_NAME));
+            blackhole.consume(asset.getEntity().getPropertyValue(Asset.PROP_ABBR));
+            blackhole.consume(
+                    asset.getEntity().getPropertyValue(Asset.ASSET_VALUE_CONFIDENTIALITY));
+        }
+    }
+
+    @Benchmark
+    public Object loadSubtreeIds(ElementState state) throws CommandException {
+        LoadSubtreeIds command = new LoadSubtreeIds(state.dataset.getOrganization());
+        return state.commandService.executeCommand(command).getDbIdsOfSubtree();
+    }
+}
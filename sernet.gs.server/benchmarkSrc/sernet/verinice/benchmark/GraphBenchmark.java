@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sernet.verinice.graph.GraphService;
+import sernet.verinice.interfaces.graph.GraphElementLoader;
+import sernet.verinice.interfaces.graph.VeriniceGraph;
+import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.IncidentScenario;
+import sernet.verinice.service.linktable.LinkTableConfiguration;
+import sernet.verinice.service.linktable.generator.GraphLinkedTableCreator;
+
+/**
+ * Benchmarks of the graph of an organization and of link tables created from
+ * the graph.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class GraphState extends DatasetState {
+
+        GraphService graphService;
+
+        GraphElementLoader loader;
+
+        VeriniceGraph graph;
+
+        LinkTableConfiguration linkTableConfiguration;
+
+        @Setup(Level.Trial)
+        public void createGraph() {
+            graphService = BenchmarkContext.getBean("graphService");
+            loader = new GraphElementLoader();
+            loader.setScopeId(dataset.getOrganization().getDbId());
+            loader.setTypeIds(new String[] { Asset.TYPE_ID, IncidentScenario.TYPE_ID,
+                    Control.TYPE_ID });
+            graph = BenchmarkContext
+                    .inTransaction(() -> graphService.create(Collections.singletonList(loader)));
+            linkTableConfiguration = new LinkTableConfiguration.Builder()
+                    .addScopeId(dataset.getOrganization().getDbId())
+                    .addColumnPath("asset.asset_name")
+                    .addColumnPath("asset/incident_scenario.incident_scenario_name")
+                    .addColumnPath("asset/incident_scenario/control.control_name")
+                    .build();
+        }
+    }
+
+    /**
+     * Loads the graph from the database, the graph cache is cleared before.
+     */
+    @Benchmark
+    public VeriniceGraph createGraph(GraphState state) {
+        state.graphService.getGraphCache().clear();
+        return BenchmarkContext.inTransaction(
+                () -> state.graphService.create(Collections.singletonList(state.loader)));
+    }
+
+    /**
+     * Returns the graph from the graph cache.
+     */
+    @Benchmark
+    public VeriniceGraph createCachedGraph(GraphState state) {
+        return BenchmarkContext.inTransaction(
+                () -> state.graphService.create(Collections.singletonList(state.loader)));
+    }
+
+    @Benchmark
+    public Object createLinkTable(GraphState state) {
+        return new GraphLinkedTableCreator().createTable(state.graph,
+                state.linkTableConfiguration);
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sernet.verinice.graph.GraphService;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.graph.GraphElementLoader;
+import sernet.verinice.interfaces.graph.VeriniceGraph;
+import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.IncidentScenario;
+import sernet.verinice.model.iso27k.Threat;
+import sernet.verinice.model.iso27k.Vulnerability;
+import sernet.verinice.service.risk.RiskAnalysisJob;
+
+/**
+ * Benchmark of the ISO 27005 risk analysis of an organization. The graph is
+ * loaded before each invocation, only the analysis itself is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RiskAnalysisBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RiskAnalysisState extends DatasetState {
+
+        GraphService graphService;
+
+        IBaseDao<CnALink, Serializable> cnaLinkDao;
+
+        IBaseDao<CnATreeElement, Serializable> elementDao;
+
+        VeriniceGraph graph;
+
+        @Setup(Level.Trial)
+        public void init() {
+            graphService = BenchmarkContext.getBean("graphService");
+            cnaLinkDao = BenchmarkContext.getBean("cnaLinkDao");
+            elementDao = BenchmarkContext.getBean("cnaTreeElementDao");
+        }
+
+        @Setup(Level.Invocation)
+        public void loadGraph() {
+            GraphElementLoader loader = new GraphElementLoader();
+            loader.setScopeId(dataset.getOrganization().getDbId());
+            loader.setTypeIds(new String[] { Asset.TYPE_ID, IncidentScenario.TYPE_ID,
+                    Control.TYPE_ID, Threat.TYPE_ID, Vulnerability.TYPE_ID });
+            graphService.getGraphCache().clear();
+            graph = BenchmarkContext
+                    .inTransaction(() -> graphService.create(Collections.singletonList(loader)));
+        }
+    }
+
+    @Benchmark
+    public void runRiskAnalysis(RiskAnalysisState state) {
+        BenchmarkContext.inTransaction(() -> {
+            RiskAnalysisJob job = new RiskAnalysisJob(state.graph, state.cnaLinkDao);
+            job.setElementDao(state.elementDao);
+            job.runRiskAnalysis();
+            return null;
+        });
+    }
+}
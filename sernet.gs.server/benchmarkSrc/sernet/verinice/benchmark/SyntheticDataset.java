@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.hibernate.criterion.DetachedCriteria;
+
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.ICommandService;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.common.Link;
+import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.model.iso27k.AssetGroup;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.ControlGroup;
+import sernet.verinice.model.iso27k.ISO27KModel;
+import sernet.verinice.model.iso27k.IncidentScenario;
+import sernet.verinice.model.iso27k.IncidentScenarioGroup;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.service.commands.CreateElement;
+import sernet.verinice.service.commands.CreateMultipleLinks;
+import sernet.verinice.service.model.LoadModel;
+
+/**
+ * Creates a synthetic ISO 27000 organization for benchmarks. The
+ * organization contains <code>size</code> assets, incident scenarios and
+ * controls each. Every scenario is linked to two assets and every control to
+ * two scenarios, the assets are linked in a chain.
+ */
+public final class SyntheticDataset {
+
+    private static final String REL_ASSET_ASSET = "rel_asset_asset";
+
+    private static final int LINK_BATCH_SIZE = 500;
+
+    private final ICommandService commandService;
+
+    private Organization organization;
+
+    private final List<CnATreeElement> assets = new ArrayList<>();
+
+    private final List<CnATreeElement> scenarios = new ArrayList<>();
+
+    private final List<CnATreeElement> controls = new ArrayList<>();
+
+    private SyntheticDataset(ICommandService commandService) {
+        this.commandService = commandService;
+    }
+
+    public static SyntheticDataset create(int size) throws CommandException {
+        SyntheticDataset dataset = new SyntheticDataset(
+                BenchmarkContext.getBean("commandService"));
+        dataset.createOrganization(size);
+        return dataset;
+    }
+
+    private void createOrganization(int size) throws CommandException {
+        organization = createElement(loadModel(), Organization.class,
+                SyntheticDataset.class.getSimpleName());
+        CnATreeElement assetGroup = getGroup(AssetGroup.TYPE_ID);
+        CnATreeElement scenarioGroup = getGroup(IncidentScenarioGroup.TYPE_ID);
+        CnATreeElement controlGroup = getGroup(ControlGroup.TYPE_ID);
+        for (int i = 0; i < size; i++) {
+            assets.add(createElement(assetGroup, Asset.class, "Asset " + i));
+            scenarios.add(createElement(scenarioGroup, IncidentScenario.class, "Scenario " + i));
+            controls.add(createElement(controlGroup, Control.class, "Control " + i));
+        }
+        List<Link> links = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            CnATreeElement nextAsset = assets.get((i + 1) % size);
+            CnATreeElement nextScenario = scenarios.get((i + 1) % size);
+            links.add(new Link(scenarios.get(i), assets.get(i),
+                    IncidentScenario.REL_INCSCEN_ASSET));
+            links.add(new Link(scenarios.get(i), nextAsset, IncidentScenario.REL_INCSCEN_ASSET));
+            links.add(new Link(controls.get(i), scenarios.get(i), Control.REL_CONTROL_INCSCEN));
+            links.add(new Link(controls.get(i), nextScenario, Control.REL_CONTROL_INCSCEN));
+            if (i + 1 < size) {
+                links.add(new Link(assets.get(i), nextAsset, REL_ASSET_ASSET));
+            }
+            if (links.size() >= LINK_BATCH_SIZE) {
+                createLinks(links);
+            }
+        }
+        createLinks(links);
+    }
+
+    private ISO27KModel loadModel() throws CommandException {
+        IBaseDao<CnATreeElement, Integer> elementDao = BenchmarkContext
+                .getBean("cnaTreeElementDao");
+        if (elementDao.findByCriteria(DetachedCriteria.forClass(ISO27KModel.class)).isEmpty()) {
+            elementDao.merge(new ISO27KModel());
+        }
+        return commandService.executeCommand(new LoadModel<>(ISO27KModel.class)).getModel();
+    }
+
+    private CnATreeElement getGroup(String typeId) {
+        return organization.getChildren().stream()
+                .filter(child -> typeId.equals(child.getTypeId())).findFirst()
+                .orElseThrow(() -> new IllegalStateException("Group not found: " + typeId));
+    }
+
+    private <T extends CnATreeElement> T createElement(CnATreeElement container, Class<T> type,
+            String title) throws CommandException {
+        CreateElement<T> command = new CreateElement<>(container, type, title);
+        command.setInheritAuditPermissions(true);
+        return commandService.executeCommand(command).getNewElement();
+    }
+
+    private void createLinks(List<Link> links) throws CommandException {
+        if (!links.isEmpty()) {
+            commandService.executeCommand(new CreateMultipleLinks(new ArrayList<>(links)));
+            links.clear();
+        }
+    }
+
+    public Organization getOrganization() {
+        return organization;
+    }
+
+    public List<CnATreeElement> getAssets() {
+        return Collections.unmodifiableList(assets);
+    }
+
+    public List<CnATreeElement> getScenarios() {
+        return Collections.unmodifiableList(scenarios);
+    }
+
+    public List<CnATreeElement> getControls() {
+        return Collections.unmodifiableList(controls);
+    }
+}
@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.gs.server;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.remoting.httpinvoker.HttpInvokerServiceExporter;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
+import org.springframework.web.util.NestedServletException;
+
+import sernet.verinice.service.remoting.CompactObjectOutputStream;
+import sernet.verinice.service.remoting.CompressedTransport;
+import sernet.verinice.service.remoting.CompressedTransport.CountingInputStream;
+import sernet.verinice.service.remoting.CompressedTransport.CountingOutputStream;
+import sernet.verinice.service.remoting.TransportMetrics;
+
+/**
+ * HttpInvoker exporter which supports the compressed transport mode of the
+ * verinice client, see {@link CompressedTransport}.
+ *
+ * Requests with a gzip content encoding are decompressed, responses are
+ * compressed if the client accepts gzip. Results are written with a
+ * {@link CompactObjectOutputStream}. Payload sizes and latencies are
+ * recorded in {@link TransportMetrics}.
+ */
+public class CompressingHttpInvokerServiceExporter extends HttpInvokerServiceExporter {
+
+    private static final TransportMetrics METRICS = new TransportMetrics("Server");
+
+    private static final ThreadLocal<CountingInputStream> REQUEST_COUNTER = new ThreadLocal<>();
+    private static final ThreadLocal<CountingOutputStream> RESPONSE_COUNTER = new ThreadLocal<>();
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        long start = System.currentTimeMillis();
+        try {
+            RemoteInvocation invocation = readRemoteInvocation(request);
+            RemoteInvocationResult result = invokeAndCreateResult(invocation, getProxy());
+            writeRemoteInvocationResult(request, response, result);
+            METRICS.record(
+                    TransportMetrics.getInvocationName(invocation.getMethodName(),
+                            invocation.getArguments()),
+                    getCount(REQUEST_COUNTER.get()), getCount(RESPONSE_COUNTER.get()),
+                    System.currentTimeMillis() - start);
+        } catch (ClassNotFoundException ex) {
+            throw new NestedServletException("Class not found during deserialization", ex);
+        } finally {
+            REQUEST_COUNTER.remove();
+            RESPONSE_COUNTER.remove();
+        }
+    }
+
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is)
+            throws IOException {
+        CountingInputStream counter = new CountingInputStream(is);
+        REQUEST_COUNTER.set(counter);
+        if (CompressedTransport
+                .isGzip(request.getHeader(CompressedTransport.HEADER_CONTENT_ENCODING))) {
+            return new GZIPInputStream(counter);
+        }
+        return counter;
+    }
+
+    @Override
+    protected OutputStream decorateOutputStream(HttpServletRequest request,
+            HttpServletResponse response, OutputStream os) throws IOException {
+        CountingOutputStream counter = new CountingOutputStream(os);
+        RESPONSE_COUNTER.set(counter);
+        response.setHeader(CompressedTransport.HEADER_TRANSPORT,
+                CompressedTransport.ENCODING_GZIP);
+        if (CompressedTransport
+                .isGzip(request.getHeader(CompressedTransport.HEADER_ACCEPT_ENCODING))) {
+            response.setHeader(CompressedTransport.HEADER_CONTENT_ENCODING,
+                    CompressedTransport.ENCODING_GZIP);
+            return CompressedTransport.createGzipOutputStream(counter);
+        }
+        return counter;
+    }
+
+    @Override
+    protected ObjectOutputStream createObjectOutputStream(OutputStream os) throws IOException {
+        return new CompactObjectOutputStream(os);
+    }
+
+    private static long getCount(CountingInputStream counter) {
+        return (counter != null) ? counter.getCount() : 0;
+    }
+
+    private static long getCount(CountingOutputStream counter) {
+        return (counter != null) ? counter.getCount() : 0;
+    }
+
+    public static TransportMetrics getMetrics() {
+        return METRICS;
+    }
+}
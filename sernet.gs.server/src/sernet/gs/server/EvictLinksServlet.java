@@ -17,38 +17,49 @@
  ******************************************************************************/
 package sernet.gs.server;
 
+import java.util.Arrays;
+
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.log4j.Logger;
-import org.hibernate.SessionFactory;
 
 import sernet.gs.service.ServerInitializer;
 import sernet.hui.common.VeriniceContext;
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
+import sernet.verinice.hibernate.ClusterCacheInvalidator.RegionStatistics;
 
 /**
  * This servlet provides a HTTP endpoint to evict links from 2nd level hibernate
- * cache.
+ * cache. If veriniceserver.cache.cluster.enabled is set, the links are evicted
+ * on all server nodes.
  */
 public class EvictLinksServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
 
     private static final Logger LOG = Logger.getLogger(EvictLinksServlet.class);
-    private final SessionFactory sessionFactory;
+    private final ClusterCacheInvalidator clusterCacheInvalidator;
 
     public EvictLinksServlet() {
         ServerInitializer.inheritVeriniceContextState();
-        sessionFactory = (SessionFactory) VeriniceContext.get(VeriniceContext.SESSION_FACTORY);
+        clusterCacheInvalidator = (ClusterCacheInvalidator) VeriniceContext
+                .get(VeriniceContext.CLUSTER_CACHE_INVALIDATOR);
     }
 
     @Override
     public void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException {
+        if (LOG.isInfoEnabled() && clusterCacheInvalidator.isEnabled()) {
+            for (RegionStatistics statistics : clusterCacheInvalidator.getRegionStatistics()
+                    .values()) {
+                LOG.info(statistics);
+            }
+        }
         LOG.info("evicting links from 2nd level cache");
-        sessionFactory.evictCollection("sernet.verinice.model.common.CnATreeElement.linksDown");
-        sessionFactory.evictCollection("sernet.verinice.model.common.CnATreeElement.linksUp");
+        clusterCacheInvalidator.evictAll(Arrays.asList(ClusterCacheInvalidator.ROLE_LINKS_DOWN,
+                ClusterCacheInvalidator.ROLE_LINKS_UP));
     }
 
 }
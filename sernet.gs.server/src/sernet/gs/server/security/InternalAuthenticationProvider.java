@@ -18,6 +18,7 @@
 package sernet.gs.server.security;
 
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Set;
 
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -118,7 +119,7 @@ public final class InternalAuthenticationProvider implements AuthenticationProvi
 
 	/**
 	 * This method is called upon invocation of the {@link HibernateCommandService#executeCommand(ICommand)}
-	 * method.
+	 * and {@link HibernateCommandService#executeCommands(List, boolean)} methods.
 	 * 
 	 * <p>Is purpose is to provide privileged and non-privileged access for {@link ICommand} instances
 	 * that are started by the server itself.</p>
@@ -132,7 +133,8 @@ public final class InternalAuthenticationProvider implements AuthenticationProvi
 	 * {@link SecurityContext}.</p>
 	 * 
 	 * <p>The instances which are allowed to be passed to the <code>executeCommand</code> method are
-	 * configured through this class' Spring configuration.</p>
+	 * configured through this class' Spring configuration. A batch passed to
+	 * <code>executeCommands</code> is authenticated if all of its commands are allowed.</p>
 	 * 
 	 * @param pjp
 	 * @return
@@ -147,11 +149,13 @@ public final class InternalAuthenticationProvider implements AuthenticationProvi
 		if (ctx.getAuthentication() == null || !auth.isAuthenticated())
 		{
 			Object arg = pjp.getArgs()[0];
-			if (!(arg instanceof ICommand)){
-				throw new IllegalStateException("Argument is either null or not of type " + ICommand.class.getName() + ".");
-			}
-			if (!allowedInstances.containsKey(arg)){
-				throw new IllegalStateException("It was not configured that this instance can receive an Authentication instance.");
+			if (arg instanceof List) {
+				// HibernateCommandService.executeCommands: all commands of the batch have to be allowed
+				for (Object command : (List<?>) arg) {
+					checkAllowedInstance(command);
+				}
+			} else {
+				checkAllowedInstance(arg);
 			}
 			ctx.setAuthentication(authentication);
 		}
@@ -172,4 +176,13 @@ public final class InternalAuthenticationProvider implements AuthenticationProvi
 		return result;
 	}
 
+	private void checkAllowedInstance(Object arg) {
+		if (!(arg instanceof ICommand)){
+			throw new IllegalStateException("Argument is either null or not of type " + ICommand.class.getName() + ".");
+		}
+		if (!allowedInstances.containsKey(arg)){
+			throw new IllegalStateException("It was not configured that this instance can receive an Authentication instance.");
+		}
+	}
+
 }
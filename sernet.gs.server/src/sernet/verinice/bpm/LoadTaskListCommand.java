@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.bpm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Query;
+import org.hibernate.Session;
+import org.jbpm.api.ProcessEngine;
+import org.jbpm.api.cmd.Command;
+import org.jbpm.api.cmd.Environment;
+import org.jbpm.api.task.Task;
+import org.jbpm.pvm.internal.model.ExecutionImpl;
+import org.jbpm.pvm.internal.type.Variable;
+
+import sernet.gs.service.CollectionUtil;
+import sernet.verinice.interfaces.IDao;
+
+/**
+ * Loads a page of jBPM tasks together with the process variables of the
+ * tasks. The variables of all tasks are loaded with a constant number of
+ * queries instead of two jBPM commands per task.
+ * 
+ * The command is executed by {@link ProcessEngine#execute(Command)}. The jBPM
+ * environment is needed to convert serialized variable values.
+ */
+public class LoadTaskListCommand implements Command<List<LoadTaskListCommand.TaskData>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String HQL_LOBS = "select lob "
+            + "from org.jbpm.pvm.internal.type.variable.BlobVariable as var "
+            + "inner join var.lob as lob, org.jbpm.pvm.internal.task.TaskImpl as task "
+            + "where (var.execution = task.processInstance or var.execution = task.execution) "
+            + "and task.dbid in (:dbIds)";
+
+    private static final String HQL_PROCESS_VARIABLES = "select task.dbid, var, execution "
+            + "from org.jbpm.pvm.internal.task.TaskImpl as task, "
+            + "org.jbpm.pvm.internal.type.Variable as var inner join var.execution as execution "
+            + "where execution = task.processInstance and task.dbid in (:dbIds)";
+
+    private static final String HQL_EXECUTION_VARIABLES = "select task.dbid, var, execution "
+            + "from org.jbpm.pvm.internal.task.TaskImpl as task, "
+            + "org.jbpm.pvm.internal.type.Variable as var inner join var.execution as execution "
+            + "where execution = task.execution and execution <> task.processInstance "
+            + "and task.dbid in (:dbIds)";
+
+    private static final String HQL_OUTCOME_KEYS = "select task.dbid, "
+            + "task.execution.processDefinitionId, task.activityName "
+            + "from org.jbpm.pvm.internal.task.TaskImpl as task where task.dbid in (:dbIds)";
+
+    private final String hql;
+
+    private final Object[] params;
+
+    private final Integer firstResult;
+
+    private final Integer maxResults;
+
+    /**
+     * @param hql
+     *            A HQL query for tasks, every result is a task or an array
+     *            with the task as first item
+     * @param params
+     *            The positional parameters of the query
+     * @param firstResult
+     *            Index of the first task, null to start with the first one
+     * @param maxResults
+     *            Maximum number of tasks, null to load all tasks
+     */
+    public LoadTaskListCommand(String hql, Object[] params, Integer firstResult,
+            Integer maxResults) {
+        this.hql = hql;
+        this.params = params;
+        this.firstResult = firstResult;
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public List<TaskData> execute(Environment environment) {
+        Session session = environment.get(Session.class);
+        Query query = session.createQuery(hql);
+        for (int i = 0; i < params.length; i++) {
+            query.setParameter(i, params[i]);
+        }
+        if (firstResult != null) {
+            query.setFirstResult(firstResult);
+        }
+        if (maxResults != null) {
+            query.setMaxResults(maxResults);
+        }
+        Map<Long, TaskData> taskDataMap = new LinkedHashMap<>();
+        for (Object result : query.list()) {
+            Task task = (Task) ((result instanceof Object[]) ? ((Object[]) result)[0] : result);
+            taskDataMap.putIfAbsent(Long.valueOf(task.getId()), new TaskData(task));
+        }
+        for (List<Long> dbIds : CollectionUtil.partition(new ArrayList<>(taskDataMap.keySet()),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            loadVariables(session, dbIds, taskDataMap);
+            loadOutcomeKeys(session, dbIds, taskDataMap);
+        }
+        return new ArrayList<>(taskDataMap.values());
+    }
+
+    private void loadVariables(Session session, List<Long> dbIds,
+            Map<Long, TaskData> taskDataMap) {
+        // Lobs are loaded first to initialize the lob of every blob variable
+        // from the session
+        session.createQuery(HQL_LOBS).setParameterList("dbIds", dbIds).list();
+        // Variables of the execution of a task overwrite variables of the
+        // process instance with the same key
+        addVariables(session.createQuery(HQL_PROCESS_VARIABLES)
+                .setParameterList("dbIds", dbIds).list(), taskDataMap);
+        addVariables(session.createQuery(HQL_EXECUTION_VARIABLES)
+                .setParameterList("dbIds", dbIds).list(), taskDataMap);
+    }
+
+    private static void addVariables(List<?> resultList, Map<Long, TaskData> taskDataMap) {
+        for (Object result : resultList) {
+            Object[] row = (Object[]) result;
+            Variable variable = (Variable) row[1];
+            Object value = variable.getValue((ExecutionImpl) row[2]);
+            taskDataMap.get(row[0]).variables.put(variable.getKey(), value);
+        }
+    }
+
+    private void loadOutcomeKeys(Session session, List<Long> dbIds,
+            Map<Long, TaskData> taskDataMap) {
+        List<?> resultList = session.createQuery(HQL_OUTCOME_KEYS)
+                .setParameterList("dbIds", dbIds).list();
+        for (Object result : resultList) {
+            Object[] row = (Object[]) result;
+            taskDataMap.get(row[0]).outcomeKey = row[1] + "/" + row[2];
+        }
+    }
+
+    /**
+     * A task with its process variables.
+     */
+    public static class TaskData {
+
+        private final Task task;
+
+        private final Map<String, Object> variables = new HashMap<>();
+
+        private String outcomeKey;
+
+        TaskData(Task task) {
+            this.task = task;
+        }
+
+        public Task getTask() {
+            return task;
+        }
+
+        public Map<String, Object> getVariables() {
+            return variables;
+        }
+
+        /**
+         * Returns a key of the activity of the task in the process definition.
+         * Tasks with the same key have the same outcomes.
+         */
+        public String getOutcomeKey() {
+            return outcomeKey;
+        }
+    }
+}
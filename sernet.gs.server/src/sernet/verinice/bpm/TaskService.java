@@ -22,17 +22,18 @@ package sernet.verinice.bpm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
 import org.jbpm.api.Execution;
 import org.jbpm.api.ExecutionService;
 import org.jbpm.api.ManagementService;
@@ -42,6 +43,7 @@ import org.jbpm.pvm.internal.task.TaskImpl;
 import org.jbpm.pvm.internal.type.Variable;
 import org.springframework.remoting.httpinvoker.HttpInvokerProxyFactoryBean;
 
+import sernet.gs.service.CollectionUtil;
 import sernet.gs.service.RetrieveInfo;
 import sernet.gs.service.ServerInitializer;
 import sernet.hui.common.VeriniceContext;
@@ -133,6 +135,12 @@ public class TaskService implements ITaskService {
                 IGsmIsmExecuteProzess.TRANS_COMPLETE);
     }
 
+    private static final Set<String> SORT_PROPERTIES = new HashSet<>(
+            Arrays.asList(ITaskParameter.SORT_BY_CREATE_DATE, ITaskParameter.SORT_BY_DUE_DATE,
+                    ITaskParameter.SORT_BY_TYPE, ITaskParameter.SORT_BY_ASSIGNEE));
+
+    private static final String[] NO_SCOPE_TITLE = new String[] { "", "" };
+
     private static final String PROCESS_NAME_OF_TASK_WITH_RELEASE_PROCESS = "individual-task-release-process";
 
     private ProcessEngine processEngine;
@@ -210,14 +218,15 @@ public class TaskService implements ITaskService {
             if (log.isDebugEnabled()) {
                 log.debug("getTaskList, hql: " + hql); //$NON-NLS-1$
             }
-            @SuppressWarnings("unchecked")
-            List<Object> jbpmTaskList = getJbpmTaskDao().findByQuery(hql, paramList.toArray());
+            List<LoadTaskListCommand.TaskData> taskDataList = getProcessEngine()
+                    .execute(new LoadTaskListCommand(hql, paramList.toArray(),
+                            parameter.getFirstResult(), parameter.getMaxResults()));
             if (log.isDebugEnabled()) {
-                log.debug("getTaskList, number of tasks: " + jbpmTaskList.size()); //$NON-NLS-1$
+                log.debug("getTaskList, number of tasks: " + taskDataList.size()); //$NON-NLS-1$
             }
 
-            if (jbpmTaskList != null && !jbpmTaskList.isEmpty()) {
-                taskList = populateTaskList(jbpmTaskList);
+            if (!taskDataList.isEmpty()) {
+                taskList = populateTaskList(taskDataList);
             }
         }
         if (log.isDebugEnabled()) {
@@ -226,30 +235,35 @@ public class TaskService implements ITaskService {
         return taskList;
     }
 
-    private List<ITask> populateTaskList(List<?> jbpmTaskList) {
-        List<ITask> taskList;
-        taskList = new ArrayList<>();
-        Task task = null;
-        for (Iterator<?> iterator = jbpmTaskList.iterator(); iterator.hasNext();) {
-            Object object = iterator.next();
-            if (object instanceof Task) {
-                task = (Task) object;
-            }
-            if (object instanceof Object[]) {
-                task = (Task) ((Object[]) object)[0];
-            }
-            if (task != null) {
-                try {
-                    ITask taskInfo = map(task);
-                    taskInfo.setOutcomes(getOutcomeList(task));
-                    taskList.add(taskInfo);
-                } catch (ElementNotFoundException enfe) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("populateTaskList, element not found (no read permission?): " //$NON-NLS-1$
-                                + enfe.getUuid());
-                    }
-                    // ignore task
+    /**
+     * Maps jBPM tasks to {@link ITask}s. The elements and scopes referenced by
+     * the tasks are loaded for all tasks at once. Outcomes are loaded once per
+     * activity of a process definition.
+     */
+    private List<ITask> populateTaskList(List<LoadTaskListCommand.TaskData> taskDataList) {
+        List<Map<String, Object>> varMapList = new ArrayList<>(taskDataList.size());
+        for (LoadTaskListCommand.TaskData taskData : taskDataList) {
+            varMapList.add(taskData.getVariables());
+        }
+        TaskElements taskElements = loadTaskElements(varMapList);
+        Map<String, List<KeyValue>> outcomesByKey = new HashMap<>();
+        List<ITask> taskList = new ArrayList<>(taskDataList.size());
+        for (LoadTaskListCommand.TaskData taskData : taskDataList) {
+            Task task = taskData.getTask();
+            try {
+                ITask taskInfo = map(task, taskData.getVariables(), taskElements);
+                List<KeyValue> outcomes = (taskData.getOutcomeKey() == null)
+                        ? getOutcomeList(task)
+                        : outcomesByKey.computeIfAbsent(taskData.getOutcomeKey(),
+                                key -> getOutcomeList(task));
+                taskInfo.setOutcomes(new ArrayList<>(outcomes));
+                taskList.add(taskInfo);
+            } catch (ElementNotFoundException enfe) {
+                if (log.isDebugEnabled()) {
+                    log.debug("populateTaskList, element not found (no read permission?): " //$NON-NLS-1$
+                            + enfe.getUuid());
                 }
+                // ignore task
             }
         }
         return taskList;
@@ -356,6 +370,7 @@ public class TaskService implements ITaskService {
                 && !parameter.getRead()) {
             addReadStatus(sb, paramList, where, ITaskService.VAR_UNREAD);
         }
+        addOrder(sb, parameter);
         retValues[0] = paramList;
         retValues[1] = sb.toString();
         return retValues;
@@ -370,6 +385,21 @@ public class TaskService implements ITaskService {
         paramList.add(status);
     }
 
+    private void addOrder(StringBuilder sb, ITaskParameter parameter) {
+        String sortBy = parameter.getSortBy();
+        if (sortBy != null) {
+            if (!SORT_PROPERTIES.contains(sortBy)) {
+                throw new IllegalArgumentException("Tasks can not be sorted by: " + sortBy); //$NON-NLS-1$
+            }
+            sb.append("order by task.").append(sortBy) //$NON-NLS-1$
+                    .append(parameter.isSortAscending() ? " asc" : " desc") //$NON-NLS-1$ //$NON-NLS-2$
+                    .append(", task.dbid "); //$NON-NLS-1$
+        } else if (parameter.getFirstResult() != null || parameter.getMaxResults() != null) {
+            // a stable order is needed for paging
+            sb.append("order by task.dbid "); //$NON-NLS-1$
+        }
+    }
+
     private String getQuestionMarkList(List<String> uuidList) {
         return String.join(",", Collections.nCopies(uuidList.size(), "?"));
     }
@@ -403,6 +433,12 @@ public class TaskService implements ITaskService {
     }
 
     private TaskInformation map(Task task) {
+        Map<String, Object> varMap = loadVariables(task);
+        return map(task, varMap, loadTaskElements(Collections.singletonList(varMap)));
+    }
+
+    private TaskInformation map(Task task, Map<String, Object> varMap,
+            TaskElements taskElements) {
         TaskInformation taskInformation = new TaskInformation();
         taskInformation.setId(task.getId());
         taskInformation.setType(task.getName());
@@ -411,7 +447,6 @@ public class TaskService implements ITaskService {
 
         log.debug("map, setting read status..."); //$NON-NLS-1$
 
-        Map<String, Object> varMap = loadVariables(task);
         taskInformation.setName(loadTaskTitle(task.getName(), varMap));
         taskInformation.setDescription(loadTaskDescription(task.getName(), varMap));
 
@@ -428,8 +463,8 @@ public class TaskService implements ITaskService {
             taskInformation.setProperties((Set<String>) value);
         }
 
-        mapElement(taskInformation, varMap);
-        mapAudit(taskInformation, varMap);
+        mapElement(taskInformation, varMap, taskElements);
+        mapAudit(taskInformation, varMap, taskElements);
 
         if (log.isDebugEnabled()) {
             log.debug("map, loading type..."); //$NON-NLS-1$
@@ -491,7 +526,8 @@ public class TaskService implements ITaskService {
         return getExecutionService().getVariables(executionId, varNameSet);
     }
 
-    private TaskInformation mapAudit(TaskInformation taskInformation, Map<String, Object> varMap) {
+    private TaskInformation mapAudit(TaskInformation taskInformation, Map<String, Object> varMap,
+            TaskElements taskElements) {
 
         log.debug("mapAudit, loading audit..."); //$NON-NLS-1$
 
@@ -499,18 +535,18 @@ public class TaskService implements ITaskService {
         String elementUuid = (String) varMap.get(IIsaExecutionProcess.VAR_UUID);
 
         if (uuidAudit != null) {// task references child of Audit
-            return handleAuditElement(taskInformation, uuidAudit);
+            return handleAuditElement(taskInformation, uuidAudit, taskElements);
         } else { // task references child of ITVerbund or Organization
-            return handleNonAuditElement(taskInformation, elementUuid);
+            return handleNonAuditElement(taskInformation, elementUuid, taskElements);
         }
     }
 
     private TaskInformation handleNonAuditElement(TaskInformation taskInformation,
-            String elementUuid) {
+            String elementUuid, TaskElements taskElements) {
 
-        String[] dbResult = getTitlefromDB(elementUuid);
-        String title = dbResult[0];
-        String uuid = dbResult[1];
+        String[] scopeTitle = taskElements.getScopeTitle(elementUuid);
+        String title = scopeTitle[0];
+        String uuid = scopeTitle[1];
 
         if (title == null || title.equals("")) {
             taskInformation.setGroupTitle(Messages.getString("TaskService.0")); //$NON-NLS-1$
@@ -522,12 +558,10 @@ public class TaskService implements ITaskService {
         return taskInformation;
     }
 
-    private TaskInformation handleAuditElement(TaskInformation taskInformation, String uuidAudit) {
-        CnATreeElement audit;
+    private TaskInformation handleAuditElement(TaskInformation taskInformation, String uuidAudit,
+            TaskElements taskElements) {
         taskInformation.setUuidGroup(uuidAudit);
-        RetrieveInfo ri = new RetrieveInfo();
-        ri.setProperties(true);
-        audit = getElementDao().findByUuid(uuidAudit, ri);
+        CnATreeElement audit = taskElements.getElement(uuidAudit);
 
         if (audit != null) {
             taskInformation.setGroupTitle(audit.getTitle());
@@ -536,45 +570,8 @@ public class TaskService implements ITaskService {
         return taskInformation;
     }
 
-    private String[] getTitlefromDB(String elementUuid) {
-        String[] results = null;
-        String hql = "select props.propertyValue, elmt.uuid from CnATreeElement elmt "
-                + "inner join elmt.entity as entity "
-                + "inner join entity.typedPropertyLists as propertyList "
-                + "inner join propertyList.properties as props " + "where  elmt.dbId = ("
-                + "select scopeId from CnATreeElement element2 where element2.uuid = :uuid " + ") "
-                + "AND props.propertyType IN (:titleProperties)";
-        List hqlResult = getElementDao().findByQuery(hql,
-                new String[] { "uuid", "titleProperties" }, new Object[] { elementUuid,
-                        Arrays.asList(ITVerbund.PROP_NAME, Organization.PROP_NAME) });
-        if (hqlResult instanceof Collection && hqlResult.size() == 1) {
-            results = getValuesFromHQLResult(hqlResult);
-        }
-        if (results != null && results.length == 2 && results[0] != null && results[1] != null) {
-            return results;
-        } else {
-            return new String[] { "", "" };
-        }
-    }
-
-    private String[] getValuesFromHQLResult(List hqlResult) {
-        String[] results = new String[2];
-        if (hqlResult.get(0) instanceof Object[]) {
-            Object[] hqlResultArr = (Object[]) hqlResult.get(0);
-            if (hqlResultArr.length == 2) {
-                if (hqlResultArr[0] instanceof String) {
-                    results[0] = (String) hqlResultArr[0];
-                }
-                if (hqlResultArr[1] instanceof String) {
-                    results[1] = (String) hqlResultArr[1];
-                }
-            }
-        }
-        return results;
-    }
-
     private TaskInformation mapElement(TaskInformation taskInformation,
-            Map<String, Object> varMap) {
+            Map<String, Object> varMap, TaskElements taskElements) {
 
         String uuid = (String) varMap.get(IGenericProcess.VAR_UUID);
         taskInformation.setUuid(uuid);
@@ -584,9 +581,7 @@ public class TaskService implements ITaskService {
             return taskInformation;
         }
 
-        RetrieveInfo ri = new RetrieveInfo();
-        ri.setProperties(true);
-        CnATreeElement element = getElementDao().findByUuid(uuid, ri);
+        CnATreeElement element = taskElements.getElement(uuid);
 
         if (element != null) {
             taskInformation.setElementTitle(element.getTitle());
@@ -603,6 +598,69 @@ public class TaskService implements ITaskService {
         return taskInformation;
     }
 
+    /**
+     * Loads the elements, audits and the titles of the scopes which are
+     * referenced by the process variables of tasks.
+     */
+    private TaskElements loadTaskElements(List<Map<String, Object>> varMapList) {
+        Set<String> uuids = new HashSet<>();
+        for (Map<String, Object> varMap : varMapList) {
+            addIfNotNull(uuids, (String) varMap.get(IGenericProcess.VAR_UUID));
+            addIfNotNull(uuids, (String) varMap.get(IIsaExecutionProcess.VAR_AUDIT_UUID));
+        }
+        TaskElements taskElements = new TaskElements();
+        for (List<String> partition : CollectionUtil.partition(new ArrayList<>(uuids),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class)
+                    .add(Restrictions.in("uuid", partition)); //$NON-NLS-1$
+            RetrieveInfo.getPropertyInstance().configureCriteria(criteria);
+            @SuppressWarnings("unchecked")
+            List<CnATreeElement> elements = getElementDao().findByCriteria(criteria);
+            for (CnATreeElement element : elements) {
+                taskElements.elements.put(element.getUuid(), element);
+            }
+        }
+        Set<Integer> scopeIds = new HashSet<>();
+        for (Map<String, Object> varMap : varMapList) {
+            CnATreeElement element = taskElements
+                    .getElement((String) varMap.get(IGenericProcess.VAR_UUID));
+            if (varMap.get(IIsaExecutionProcess.VAR_AUDIT_UUID) == null && element != null
+                    && element.getScopeId() != null) {
+                scopeIds.add(element.getScopeId());
+            }
+        }
+        for (List<Integer> partition : CollectionUtil.partition(new ArrayList<>(scopeIds),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            loadScopeTitles(partition, taskElements);
+        }
+        return taskElements;
+    }
+
+    private void loadScopeTitles(List<Integer> scopeIds, TaskElements taskElements) {
+        String hql = "select elmt.dbId, props.propertyValue, elmt.uuid from CnATreeElement elmt "
+                + "inner join elmt.entity as entity "
+                + "inner join entity.typedPropertyLists as propertyList "
+                + "inner join propertyList.properties as props "
+                + "where elmt.dbId in (:scopeIds) "
+                + "and props.propertyType in (:titleProperties)";
+        List<?> hqlResult = getElementDao().findByQuery(hql,
+                new String[] { "scopeIds", "titleProperties" }, new Object[] { scopeIds,
+                        Arrays.asList(ITVerbund.PROP_NAME, Organization.PROP_NAME) });
+        for (Object result : hqlResult) {
+            Object[] row = (Object[]) result;
+            // a scope with more than one title has no title
+            taskElements.scopeTitles.merge((Integer) row[0],
+                    new String[] { (String) row[1], (String) row[2] },
+                    (title, otherTitle) -> NO_SCOPE_TITLE);
+        }
+    }
+
+    private static void addIfNotNull(Set<String> uuids, String uuid) {
+        if (uuid != null) {
+            uuids.add(uuid);
+        }
+    }
+
     private String createSortableString(String text) {
         String sortable = text;
         final int minimumLength = 3;
@@ -1001,4 +1059,32 @@ public class TaskService implements ITaskService {
         return map(task);
     }
 
+    /**
+     * Elements and scope titles referenced by a list of tasks.
+     */
+    private static final class TaskElements {
+
+        private final Map<String, CnATreeElement> elements = new HashMap<>();
+
+        private final Map<Integer, String[]> scopeTitles = new HashMap<>();
+
+        CnATreeElement getElement(String uuid) {
+            return (uuid == null) ? null : elements.get(uuid);
+        }
+
+        /**
+         * Returns the title and the uuid of the scope of an element or two
+         * empty strings if no title is found.
+         */
+        String[] getScopeTitle(String elementUuid) {
+            CnATreeElement element = getElement(elementUuid);
+            String[] scopeTitle = (element == null) ? null
+                    : scopeTitles.get(element.getScopeId());
+            if (scopeTitle == null || scopeTitle[0] == null || scopeTitle[1] == null) {
+                return NO_SCOPE_TITLE;
+            }
+            return scopeTitle;
+        }
+    }
+
 }
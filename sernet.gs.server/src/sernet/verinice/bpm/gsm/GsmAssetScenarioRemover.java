@@ -32,6 +32,7 @@ import org.hibernate.Query;
 import org.hibernate.Session;
 import org.springframework.orm.hibernate3.HibernateCallback;
 
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.graph.GraphElementLoader;
 import sernet.verinice.interfaces.graph.IGraphElementLoader;
@@ -70,6 +71,8 @@ public class GsmAssetScenarioRemover {
 
     private IBaseDao<CnATreeElement, Integer> elementDao;
 
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
     /**
      * Deletes all links between assets and scenarios for one process. Method is
      * called when a task is finished.
@@ -142,6 +145,14 @@ public class GsmAssetScenarioRemover {
         this.elementDao = elementDao;
     }
 
+    public ClusterCacheInvalidator getClusterCacheInvalidator() {
+        return clusterCacheInvalidator;
+    }
+
+    public void setClusterCacheInvalidator(ClusterCacheInvalidator clusterCacheInvalidator) {
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+    }
+
     class LoadElements implements HibernateCallback {
 
         private final String hql = "from CnATreeElement element where element.uuid in (:uuidList)";
@@ -249,9 +260,28 @@ public class GsmAssetScenarioRemover {
             query.setParameter("scenarioDbId", scenario.getDbId());
             query.setParameterList("assetIds", assetIdList);
             int result = query.executeUpdate();
+            if (result > 0) {
+                invalidateLinkCollections(scenario, assetIdList);
+            }
             return result;
         }
 
+        /**
+         * The bulk delete does not fire the Hibernate listeners, the changed
+         * link collections are reported to the other server nodes here.
+         */
+        private void invalidateLinkCollections(CnATreeElement scenario, List<Integer> assetIds) {
+            if (clusterCacheInvalidator == null) {
+                return;
+            }
+            clusterCacheInvalidator.collectionChanged(ClusterCacheInvalidator.ROLE_LINKS_DOWN,
+                    scenario.getDbId());
+            for (Integer assetId : assetIds) {
+                clusterCacheInvalidator.collectionChanged(ClusterCacheInvalidator.ROLE_LINKS_UP,
+                        assetId);
+            }
+        }
+
         /**
          * Determines the implementation state of an control by assets linked to
          * it (via a scenario).
@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jgrapht.Graph;
+
+import sernet.verinice.interfaces.graph.DirectedVeriniceGraph;
+import sernet.verinice.interfaces.graph.Edge;
+import sernet.verinice.interfaces.graph.UndirectedVeriniceGraph;
+import sernet.verinice.interfaces.graph.UnmodifiableVeriniceGraph;
+import sernet.verinice.interfaces.graph.VeriniceGraph;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * A graph in the {@link GraphCache} together with the ids of the elements
+ * which were changed since the graph was loaded or refreshed.
+ *
+ * Graphs handed out by {@link #snapshot()} are read-only views which are
+ * never modified again. The first modification after a snapshot was taken
+ * works on a copy of the graph (copy-on-write).
+ *
+ * Changes of committed transactions are queued by {@link #queueChanges(List)}
+ * without locking. All other methods must be called while holding the monitor
+ * of this object. The monitor is not held while a graph is loaded completely,
+ * {@link #startLoading()} and {@link #finishLoading(VeriniceGraph)} mark the
+ * load so that other threads wait for it instead of loading the graph again.
+ */
+final class CachedGraph {
+
+    private final GraphCacheKey key;
+    private VeriniceGraph graph;
+    private VeriniceGraph view;
+    private boolean shared;
+
+    private final Map<Integer, CnATreeElement> elementsByDbId = new HashMap<>();
+    private final Map<Integer, Set<Integer>> childIdsByParentId = new HashMap<>();
+
+    private final Set<Integer> changedElementIds = new HashSet<>();
+    private final Set<Integer> changedLinkElementIds = new HashSet<>();
+    private boolean stale = true;
+    private boolean loading;
+
+    private final Queue<Change> queuedChanges = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numberOfQueuedChanges = new AtomicInteger();
+    private final int maxQueuedChanges;
+    private volatile boolean overflow;
+
+    CachedGraph(GraphCacheKey key, int maxQueuedChanges) {
+        this.key = key;
+        this.maxQueuedChanges = maxQueuedChanges;
+    }
+
+    GraphCacheKey getKey() {
+        return key;
+    }
+
+    /**
+     * Queues the changes of a committed transaction. The changes are applied
+     * by {@link #applyQueuedChanges()}. If too many changes are queued, the
+     * graph is reloaded completely by the next request.
+     * 
+     * This method can be called without holding the monitor of this object.
+     */
+    void queueChanges(List<Change> changes) {
+        if (numberOfQueuedChanges.addAndGet(changes.size()) > maxQueuedChanges) {
+            numberOfQueuedChanges.addAndGet(-changes.size());
+            overflow = true;
+        } else {
+            queuedChanges.addAll(changes);
+        }
+    }
+
+    /**
+     * Records the queued changes which affect this graph.
+     */
+    void applyQueuedChanges() {
+        boolean overflowed = overflow;
+        overflow = false;
+        Change change;
+        while ((change = queuedChanges.poll()) != null) {
+            numberOfQueuedChanges.decrementAndGet();
+            if (!overflowed) {
+                apply(change);
+            }
+        }
+        if (overflowed) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Marks the graph as loading and discards all changes, the graph is loaded
+     * after all changes queued so far were committed.
+     */
+    void startLoading() {
+        loading = true;
+        overflow = false;
+        while (queuedChanges.poll() != null) {
+            numberOfQueuedChanges.decrementAndGet();
+        }
+        changedElementIds.clear();
+        changedLinkElementIds.clear();
+    }
+
+    /**
+     * Sets a completely loaded graph or marks the graph as stale if loading
+     * failed. Threads waiting for the load are notified.
+     * 
+     * @param loadedGraph
+     *            The loaded graph or null if loading failed
+     */
+    void finishLoading(VeriniceGraph loadedGraph) {
+        loading = false;
+        notifyAll();
+        if (loadedGraph == null) {
+            invalidate();
+            return;
+        }
+        this.graph = loadedGraph;
+        this.view = null;
+        this.shared = false;
+        this.stale = false;
+        elementsByDbId.clear();
+        childIdsByParentId.clear();
+        for (CnATreeElement element : loadedGraph.getElements()) {
+            index(element);
+        }
+    }
+
+    boolean isLoading() {
+        return loading;
+    }
+
+    boolean isStale() {
+        return stale || graph == null;
+    }
+
+    /**
+     * Marks the graph as outdated. The graph is reloaded completely by the next
+     * request.
+     */
+    void invalidate() {
+        stale = true;
+        changedElementIds.clear();
+        changedLinkElementIds.clear();
+    }
+
+    boolean contains(Integer dbId) {
+        return elementsByDbId.containsKey(dbId);
+    }
+
+    void elementChanged(Integer dbId) {
+        if (!stale) {
+            changedElementIds.add(dbId);
+        }
+    }
+
+    void linkChanged(Integer dependantId, Integer dependencyId) {
+        if (!stale) {
+            changedLinkElementIds.add(dependantId);
+            changedLinkElementIds.add(dependencyId);
+        }
+    }
+
+    boolean hasChanges() {
+        return !changedElementIds.isEmpty() || !changedLinkElementIds.isEmpty();
+    }
+
+    int getNumberOfChanges() {
+        return changedElementIds.size() + changedLinkElementIds.size();
+    }
+
+    int getNumberOfElements() {
+        return elementsByDbId.size();
+    }
+
+    Set<Integer> drainChangedElementIds() {
+        Set<Integer> ids = new HashSet<>(changedElementIds);
+        changedElementIds.clear();
+        return ids;
+    }
+
+    Set<Integer> drainChangedLinkElementIds() {
+        Set<Integer> ids = new HashSet<>(changedLinkElementIds);
+        changedLinkElementIds.clear();
+        return ids;
+    }
+
+    /**
+     * Returns a read-only view of the current graph.
+     */
+    VeriniceGraph snapshot() {
+        if (view == null) {
+            view = new UnmodifiableVeriniceGraph(graph);
+        }
+        shared = true;
+        return view;
+    }
+
+    /**
+     * Removes an element and all its edges from the graph.
+     */
+    void removeElement(Integer dbId) {
+        CnATreeElement element = elementsByDbId.remove(dbId);
+        if (element == null) {
+            return;
+        }
+        Set<Integer> siblingIds = childIdsByParentId.get(element.getParentId());
+        if (siblingIds != null) {
+            siblingIds.remove(dbId);
+        }
+        getEditableGraph().getGraph().removeVertex(element);
+    }
+
+    /**
+     * Adds an element to the graph and creates the edges to its parent and to
+     * its children if they are part of the graph.
+     */
+    void addElement(CnATreeElement element) {
+        Graph<CnATreeElement, Edge> jgraph = getEditableGraph().getGraph();
+        jgraph.addVertex(element);
+        index(element);
+        CnATreeElement parent = elementsByDbId.get(element.getParentId());
+        if (parent != null) {
+            graph.addEdge(new Edge(parent, element));
+        }
+        Set<Integer> childIds = childIdsByParentId.get(element.getDbId());
+        if (childIds != null) {
+            for (Integer childId : childIds) {
+                CnATreeElement child = elementsByDbId.get(childId);
+                if (child != null) {
+                    graph.addEdge(new Edge(element, child));
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all edges of an element which are not parent child relations.
+     */
+    void removeLinkEdges(Integer dbId) {
+        CnATreeElement element = elementsByDbId.get(dbId);
+        if (element == null) {
+            return;
+        }
+        Graph<CnATreeElement, Edge> jgraph = getEditableGraph().getGraph();
+        List<Edge> linkEdges = new ArrayList<>();
+        for (Edge edge : jgraph.edgesOf(element)) {
+            if (!Edge.RELATIVES.equals(edge.getType())) {
+                linkEdges.add(edge);
+            }
+        }
+        jgraph.removeAllEdges(linkEdges);
+    }
+
+    CnATreeElement getElement(Integer dbId) {
+        return elementsByDbId.get(dbId);
+    }
+
+    void addEdge(Edge edge) {
+        getEditableGraph().addEdge(edge);
+    }
+
+    private void apply(Change change) {
+        switch (change.type) {
+        case ELEMENT_CHANGED:
+            if (contains(change.id) || key.getScopeIds().contains(change.otherId)) {
+                elementChanged(change.id);
+            }
+            break;
+        case ELEMENT_REMOVED:
+            if (contains(change.id) || key.getScopeIds().contains(change.otherId)) {
+                invalidate();
+            }
+            break;
+        case LINK_CHANGED:
+            if (contains(change.id) || contains(change.otherId)) {
+                linkChanged(change.id, change.otherId);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void index(CnATreeElement element) {
+        elementsByDbId.put(element.getDbId(), element);
+        childIdsByParentId.computeIfAbsent(element.getParentId(), id -> new HashSet<>())
+                .add(element.getDbId());
+    }
+
+    private VeriniceGraph getEditableGraph() {
+        if (shared) {
+            graph = copy(graph);
+            view = null;
+            shared = false;
+        }
+        return graph;
+    }
+
+    private static VeriniceGraph copy(VeriniceGraph source) {
+        VeriniceGraph copy = (source instanceof DirectedVeriniceGraph)
+                ? new DirectedVeriniceGraph()
+                : new UndirectedVeriniceGraph();
+        Graph<CnATreeElement, Edge> sourceGraph = source.getGraph();
+        for (CnATreeElement element : sourceGraph.vertexSet()) {
+            copy.addVertex(element);
+        }
+        Collection<Edge> edges = sourceGraph.edgeSet();
+        for (Edge edge : edges) {
+            copy.addEdge(edge);
+        }
+        return copy;
+    }
+
+    enum ChangeType {
+        ELEMENT_CHANGED, ELEMENT_REMOVED, LINK_CHANGED
+    }
+
+    /**
+     * A change of an element or a link. For elements {@code otherId} is the
+     * scope id, for links it is the id of the dependency.
+     */
+    static final class Change {
+
+        private final ChangeType type;
+        private final Integer id;
+        private final Integer otherId;
+
+        Change(ChangeType type, Integer id, Integer otherId) {
+            this.type = type;
+            this.id = id;
+            this.otherId = otherId;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import sernet.verinice.graph.CachedGraph.Change;
+import sernet.verinice.graph.CachedGraph.ChangeType;
+import sernet.verinice.hibernate.AfterCompletionBuffer;
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
+import sernet.verinice.interfaces.ApplicationRoles;
+import sernet.verinice.interfaces.IAuthService;
+import sernet.verinice.interfaces.IConfigurationService;
+import sernet.verinice.interfaces.IElementChangeListener;
+import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Server side cache for graphs created by {@link GraphService}.
+ *
+ * The cache is registered as {@link IElementChangeListener} at the tree
+ * element DAOs. Changes of elements and links are queued per cached graph
+ * after the transaction is completed and applied by {@link GraphService} the
+ * next time the graph is requested. Queuing does not wait for graphs which
+ * are loaded or refreshed.
+ * Deleting an element invalidates all graphs of its scope because children
+ * are deleted by cascade without notification.
+ *
+ * Graphs are only cached for users who are allowed to read all elements,
+ * because element permissions are not part of the cache key.
+ *
+ * The cache is node-local. It is not used if the
+ * {@link ClusterCacheInvalidator} is enabled, because changes on another server
+ * node would not be queued.
+ */
+public class GraphCache implements IElementChangeListener {
+
+    private static final Logger LOG = Logger.getLogger(GraphCache.class);
+
+    // Changes are queued for all graphs and filtered when the graph is
+    // requested. The limit protects from graphs which are not requested for a
+    // long time, these graphs are reloaded.
+    private static final int MAX_QUEUED_CHANGES = 100000;
+
+    private boolean enabled = false;
+    private int maxSize = 10;
+    private int maxChangesBeforeReload = 5000;
+
+    private IAuthService authService;
+    private IConfigurationService configurationService;
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
+    // Changes are recorded when the transaction is completed. Changes of
+    // rolled back transactions are recorded too, reloading an element which
+    // was not changed does no harm.
+    private final AfterCompletionBuffer<Change> changeBuffer = new AfterCompletionBuffer<>(
+            this::applyChanges, true);
+
+    private final Map<GraphCacheKey, CachedGraph> graphMap = createGraphMap();
+
+    /**
+     * Returns the cached graph for a key. A new, stale entry is created if
+     * there is no graph for this key.
+     */
+    CachedGraph get(GraphCacheKey key) {
+        synchronized (graphMap) {
+            return graphMap.computeIfAbsent(key,
+                    graphKey -> new CachedGraph(graphKey, MAX_QUEUED_CHANGES));
+        }
+    }
+
+    /**
+     * Returns true if a graph which was loaded for the current user can be
+     * cached and handed out to other users.
+     */
+    boolean isCacheableForCurrentUser() {
+        if (!isEnabled()) {
+            return false;
+        }
+        if (!getAuthService().isPermissionHandlingNeeded()) {
+            return true;
+        }
+        String username = getAuthService().getUsername();
+        if (getAuthService().getAdminUsername().equals(username)) {
+            return true;
+        }
+        return hasAdminRole(getConfigurationService().getRoles(username))
+                && !getConfigurationService().isScopeOnly(username);
+    }
+
+    /**
+     * Returns true if the recorded changes of a graph should be discarded and
+     * the graph should be reloaded completely.
+     */
+    boolean isReloadCheaper(CachedGraph cachedGraph) {
+        return cachedGraph.getNumberOfChanges() > maxChangesBeforeReload
+                || cachedGraph.getNumberOfChanges() > cachedGraph.getNumberOfElements() / 2;
+    }
+
+    public void clear() {
+        synchronized (graphMap) {
+            graphMap.clear();
+        }
+    }
+
+    @Override
+    public void elementsChanged(Collection<CnATreeElement> elements) {
+        for (CnATreeElement element : elements) {
+            changeBuffer.add(new Change(ChangeType.ELEMENT_CHANGED, element.getDbId(),
+                    element.getScopeId()));
+        }
+    }
+
+    @Override
+    public void elementsRemoved(Collection<CnATreeElement> elements) {
+        for (CnATreeElement element : elements) {
+            changeBuffer.add(new Change(ChangeType.ELEMENT_REMOVED, element.getDbId(),
+                    element.getScopeId()));
+        }
+    }
+
+    @Override
+    public void linkChanged(CnALink link) {
+        addLinkChange(link);
+    }
+
+    @Override
+    public void linkRemoved(CnALink link) {
+        addLinkChange(link);
+    }
+
+    private void addLinkChange(CnALink link) {
+        if (link.getId() != null) {
+            changeBuffer.add(new Change(ChangeType.LINK_CHANGED, link.getId().getDependantId(),
+                    link.getId().getDependencyId()));
+        }
+    }
+
+    /**
+     * Queues the changes of a completed transaction in all cached graphs.
+     */
+    private void applyChanges(List<Change> changes) {
+        for (CachedGraph cachedGraph : getCachedGraphs()) {
+            cachedGraph.queueChanges(changes);
+        }
+    }
+
+    /**
+     * Creates a map which removes the least recently used graph if there are
+     * more than {@link #maxSize} graphs.
+     */
+    private Map<GraphCacheKey, CachedGraph> createGraphMap() {
+        return new LinkedHashMap<GraphCacheKey, CachedGraph>(16, 0.75f, true) {
+            private static final long serialVersionUID = 3620455183094815024L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GraphCacheKey, CachedGraph> eldest) {
+                boolean remove = size() > maxSize;
+                if (remove && LOG.isDebugEnabled()) {
+                    LOG.debug("Removing graph from cache: " + eldest.getKey());
+                }
+                return remove;
+            }
+        };
+    }
+
+    private List<CachedGraph> getCachedGraphs() {
+        synchronized (graphMap) {
+            return new ArrayList<>(graphMap.values());
+        }
+    }
+
+    private static boolean hasAdminRole(String[] roles) {
+        if (roles != null) {
+            for (String role : roles) {
+                if (ApplicationRoles.ROLE_ADMIN.equals(role)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns true if the cache is switched on and no other server node can
+     * change the elements.
+     */
+    public boolean isEnabled() {
+        return enabled
+                && (clusterCacheInvalidator == null || !clusterCacheInvalidator.isEnabled());
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public int getMaxChangesBeforeReload() {
+        return maxChangesBeforeReload;
+    }
+
+    public void setMaxChangesBeforeReload(int maxChangesBeforeReload) {
+        this.maxChangesBeforeReload = maxChangesBeforeReload;
+    }
+
+    public IAuthService getAuthService() {
+        return authService;
+    }
+
+    public void setAuthService(IAuthService authService) {
+        this.authService = authService;
+    }
+
+    public IConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+
+    public void setConfigurationService(IConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    public ClusterCacheInvalidator getClusterCacheInvalidator() {
+        return clusterCacheInvalidator;
+    }
+
+    public void setClusterCacheInvalidator(ClusterCacheInvalidator clusterCacheInvalidator) {
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+    }
+}
@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Identifies a graph in the {@link GraphCache}. Two requests with the same
+ * scopes, element types, relation types and graph orientation share one
+ * cached graph.
+ */
+final class GraphCacheKey {
+
+    private final boolean directed;
+    private final boolean loadLinks;
+    private final List<LoaderKey> loaderKeys;
+    private final SortedSet<String> relationIds;
+    private final Set<Integer> scopeIds;
+
+    GraphCacheKey(boolean directed, boolean loadLinks, List<LoaderKey> loaderKeys,
+            String[] relationIds) {
+        this.directed = directed;
+        this.loadLinks = loadLinks;
+        this.loaderKeys = Collections.unmodifiableList(loaderKeys);
+        this.relationIds = toSortedSet(relationIds);
+        SortedSet<Integer> allScopeIds = new TreeSet<>();
+        for (LoaderKey loaderKey : loaderKeys) {
+            allScopeIds.addAll(loaderKey.scopeIds);
+        }
+        this.scopeIds = Collections.unmodifiableSet(allScopeIds);
+    }
+
+    boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * @return The ids of all scopes whose elements are part of the graph
+     */
+    Set<Integer> getScopeIds() {
+        return scopeIds;
+    }
+
+    private static <T extends Comparable<T>> SortedSet<T> toSortedSet(T[] values) {
+        SortedSet<T> set = new TreeSet<>();
+        if (values != null) {
+            set.addAll(Arrays.asList(values));
+        }
+        return set;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + (directed ? 1231 : 1237);
+        result = prime * result + (loadLinks ? 1231 : 1237);
+        result = prime * result + loaderKeys.hashCode();
+        result = prime * result + relationIds.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        GraphCacheKey other = (GraphCacheKey) obj;
+        return directed == other.directed && loadLinks == other.loadLinks
+                && loaderKeys.equals(other.loaderKeys) && relationIds.equals(other.relationIds);
+    }
+
+    @Override
+    public String toString() {
+        return "GraphCacheKey [directed=" + directed + ", loadLinks=" + loadLinks + ", loaders="
+                + loaderKeys + ", relationIds=" + relationIds + "]";
+    }
+
+    /**
+     * The scope and type restrictions of one element loader.
+     */
+    static final class LoaderKey {
+
+        private final SortedSet<Integer> scopeIds;
+        private final SortedSet<String> typeIds;
+
+        LoaderKey(Integer[] scopeIds, String[] typeIds) {
+            this.scopeIds = toSortedSet(scopeIds);
+            this.typeIds = toSortedSet(typeIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * scopeIds.hashCode() + typeIds.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            LoaderKey other = (LoaderKey) obj;
+            return scopeIds.equals(other.scopeIds) && typeIds.equals(other.typeIds);
+        }
+
+        @Override
+        public String toString() {
+            return "[scopeIds=" + scopeIds + ", typeIds=" + typeIds + "]";
+        }
+    }
+}
@@ -20,7 +20,9 @@
 package sernet.verinice.graph;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +38,7 @@ import sernet.gs.service.TimeFormatter;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.graph.DirectedVeriniceGraph;
 import sernet.verinice.interfaces.graph.Edge;
+import sernet.verinice.interfaces.graph.GraphElementLoader;
 import sernet.verinice.interfaces.graph.IGraphElementLoader;
 import sernet.verinice.interfaces.graph.IGraphService;
 import sernet.verinice.interfaces.graph.UndirectedVeriniceGraph;
@@ -57,6 +60,12 @@ import sernet.verinice.model.common.CnATreeElement;
  * You have to call "create()" to initialize the service. After that you can
  * start to use the service.
  * 
+ * If a {@link GraphCache} is configured, graphs of whole scopes are kept in
+ * memory and only changed elements and links are reloaded. Cached graphs are
+ * shared between callers and handed out as read-only views, see
+ * {@link sernet.verinice.interfaces.graph.UnmodifiableVeriniceGraph}. Callers
+ * which change the elements of a graph must use a service without a cache.
+ * 
  * @see http://jgrapht.org/
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
@@ -68,8 +77,12 @@ public class GraphService implements IGraphService, Serializable {
 
     private IBaseDao<CnATreeElement, Long> cnaTreeElementDao;
 
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
     private IBaseDao<CnALink, CnALink.Id> cnaLinkDao;
 
+    private transient GraphCache graphCache;
+
     @Override
     public VeriniceGraph create(List<? extends IGraphElementLoader> loaderList) {
         return create(loaderList, true);
@@ -89,6 +102,10 @@ public class GraphService implements IGraphService, Serializable {
     @Override
     public VeriniceGraph create(List<? extends IGraphElementLoader> loaderList,
             String[] relationIds, boolean loadLinks) {
+        GraphCacheKey cacheKey = createCacheKey(false, loaderList, relationIds, loadLinks);
+        if (cacheKey != null) {
+            return createCached(cacheKey, loaderList, relationIds, loadLinks);
+        }
         VeriniceGraph graph = new UndirectedVeriniceGraph();
         doCreate(graph, loaderList, relationIds, loadLinks);
         return graph;
@@ -108,12 +125,175 @@ public class GraphService implements IGraphService, Serializable {
     @Override
     public VeriniceGraph createDirectedGraph(List<? extends IGraphElementLoader> loaderList,
             String[] relationIds, boolean loadLinks) {
+        GraphCacheKey cacheKey = createCacheKey(true, loaderList, relationIds, loadLinks);
+        if (cacheKey != null) {
+            return createCached(cacheKey, loaderList, relationIds, loadLinks);
+        }
         VeriniceGraph graph = new DirectedVeriniceGraph();
 
         doCreate(graph, loaderList, relationIds, loadLinks);
         return graph;
     }
 
+    /**
+     * Returns a graph from the graph cache. The cached graph is loaded if it is
+     * not in the cache yet. Changes of elements and links since the last
+     * request are applied before the graph is returned.
+     * 
+     * A complete load runs without holding the monitor of the cached graph and
+     * the loaded graph is swapped in afterwards. Other requests for the same
+     * graph wait until the load is finished.
+     */
+    private VeriniceGraph createCached(GraphCacheKey cacheKey,
+            List<? extends IGraphElementLoader> loaderList, String[] relationIds,
+            boolean loadLinks) {
+        CachedGraph cachedGraph = getGraphCache().get(cacheKey);
+        synchronized (cachedGraph) {
+            waitForLoading(cachedGraph);
+            cachedGraph.applyQueuedChanges();
+            if (!cachedGraph.isStale() && !getGraphCache().isReloadCheaper(cachedGraph)) {
+                if (cachedGraph.hasChanges()) {
+                    refresh(cachedGraph, loaderList, relationIds, loadLinks);
+                }
+                return cachedGraph.snapshot();
+            }
+            cachedGraph.startLoading();
+        }
+        LOG.info("Loading graph for cache: " + cacheKey);
+        VeriniceGraph graph = cacheKey.isDirected() ? new DirectedVeriniceGraph()
+                : new UndirectedVeriniceGraph();
+        boolean loaded = false;
+        try {
+            doCreate(graph, loaderList, relationIds, loadLinks);
+            loaded = true;
+        } finally {
+            if (!loaded) {
+                synchronized (cachedGraph) {
+                    cachedGraph.finishLoading(null);
+                }
+            }
+        }
+        synchronized (cachedGraph) {
+            cachedGraph.finishLoading(graph);
+            // changes committed while the graph was loaded
+            cachedGraph.applyQueuedChanges();
+            if (!cachedGraph.isStale() && cachedGraph.hasChanges()) {
+                refresh(cachedGraph, loaderList, relationIds, loadLinks);
+            }
+            return cachedGraph.snapshot();
+        }
+    }
+
+    private static void waitForLoading(CachedGraph cachedGraph) {
+        while (cachedGraph.isLoading()) {
+            try {
+                cachedGraph.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for graph", e);
+            }
+        }
+    }
+
+    /**
+     * Reloads all elements and links of a cached graph which were changed
+     * since the graph was loaded.
+     */
+    private void refresh(CachedGraph cachedGraph, List<? extends IGraphElementLoader> loaderList,
+            String[] relationIds, boolean loadLinks) {
+        long time = initRuntime();
+        Set<Integer> changedElementIds = cachedGraph.drainChangedElementIds();
+        Set<Integer> changedLinkElementIds = cachedGraph.drainChangedLinkElementIds();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Refreshing cached graph, changed elements: " + changedElementIds.size()
+                    + ", elements with changed links: " + changedLinkElementIds.size());
+        }
+        List<CnATreeElement> reloadedElements = new LinkedList<>();
+        for (List<Integer> idPartition : partition(changedElementIds)) {
+            for (IGraphElementLoader loader : loaderList) {
+                GraphElementLoader graphElementLoader = (GraphElementLoader) loader;
+                graphElementLoader.setCnaTreeElementDao(getCnaTreeElementDao());
+                reloadedElements.addAll(graphElementLoader.loadElements(idPartition));
+            }
+        }
+        for (Integer dbId : changedElementIds) {
+            cachedGraph.removeElement(dbId);
+        }
+        for (CnATreeElement element : reloadedElements) {
+            cachedGraph.addElement(element);
+        }
+        if (loadLinks) {
+            for (Integer dbId : changedLinkElementIds) {
+                cachedGraph.removeLinkEdges(dbId);
+            }
+            Set<Integer> linkedElementIds = new HashSet<>(changedElementIds);
+            linkedElementIds.addAll(changedLinkElementIds);
+            for (List<Integer> idPartition : partition(linkedElementIds)) {
+                addLinks(cachedGraph, relationIds, idPartition);
+            }
+        }
+        logRuntime("Graph refresh runtime: ", time);
+    }
+
+    private void addLinks(CachedGraph cachedGraph, String[] relationIds,
+            List<Integer> elementIds) {
+        DetachedCriteria linkCrit = DetachedCriteria.forClass(CnALink.class);
+        linkCrit.add(Restrictions.or(Restrictions.in("id.dependantId", elementIds),
+                Restrictions.in("id.dependencyId", elementIds)));
+        if (relationIds != null && relationIds.length > 0) {
+            linkCrit.add(Restrictions.in("id.typeId", relationIds));
+        }
+        linkCrit.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        @SuppressWarnings("unchecked")
+        List<CnALink> linkList = getCnaLinkDao().findByCriteria(linkCrit);
+        for (CnALink link : linkList) {
+            CnATreeElement source = cachedGraph.getElement(link.getId().getDependantId());
+            CnATreeElement target = cachedGraph.getElement(link.getId().getDependencyId());
+            Edge edge = createEdge(link, source, target);
+            if (edge != null) {
+                cachedGraph.addEdge(edge);
+            }
+        }
+    }
+
+    private static List<List<Integer>> partition(Set<Integer> ids) {
+        List<List<Integer>> partitions = new LinkedList<>();
+        List<Integer> idList = new ArrayList<>(ids);
+        for (int i = 0; i < idList.size(); i += MAX_IDS_PER_QUERY) {
+            partitions.add(idList.subList(i, Math.min(i + MAX_IDS_PER_QUERY, idList.size())));
+        }
+        return partitions;
+    }
+
+    /**
+     * Returns a key for the graph cache or null if the graph can not be cached.
+     * A graph can be cached if all loaders are plain {@link GraphElementLoader}s
+     * restricted to one or more scopes and without an element filter.
+     */
+    private GraphCacheKey createCacheKey(boolean directed,
+            List<? extends IGraphElementLoader> loaderList, String[] relationIds,
+            boolean loadLinks) {
+        if (getGraphCache() == null || !getGraphCache().isCacheableForCurrentUser()
+                || loaderList == null || loaderList.isEmpty()) {
+            return null;
+        }
+        List<GraphCacheKey.LoaderKey> loaderKeys = new ArrayList<>(loaderList.size());
+        for (IGraphElementLoader loader : loaderList) {
+            if (loader.getClass() != GraphElementLoader.class) {
+                return null;
+            }
+            GraphElementLoader graphElementLoader = (GraphElementLoader) loader;
+            if (graphElementLoader.getElementFilter() != null
+                    || graphElementLoader.getScopeIds() == null
+                    || graphElementLoader.getScopeIds().length == 0) {
+                return null;
+            }
+            loaderKeys.add(new GraphCacheKey.LoaderKey(graphElementLoader.getScopeIds(),
+                    graphElementLoader.getTypeIds()));
+        }
+        return new GraphCacheKey(directed, loadLinks, loaderKeys, relationIds);
+    }
+
     private void doCreate(VeriniceGraph graph, List<? extends IGraphElementLoader> loaderList,
             String[] relationIds, boolean loadLinks) {
         long time = initRuntime();
@@ -253,6 +433,14 @@ public class GraphService implements IGraphService, Serializable {
         this.cnaLinkDao = cnaLinkDao;
     }
 
+    public GraphCache getGraphCache() {
+        return graphCache;
+    }
+
+    public void setGraphCache(GraphCache graphCache) {
+        this.graphCache = graphCache;
+    }
+
     private long initRuntime() {
         long time = 0;
         if (LOG_RUNTIME.isDebugEnabled()) {
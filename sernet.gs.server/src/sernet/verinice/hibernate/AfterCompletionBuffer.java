@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Collects items during a transaction and passes them to a consumer when the
+ * transaction is completed. Items are passed immediately if there is no
+ * transaction synchronization.
+ *
+ * Use this in {@link sernet.verinice.interfaces.IElementChangeListener}s
+ * which must not see uncommitted changes.
+ *
+ * @param <T>
+ *            Type of the buffered items
+ */
+public class AfterCompletionBuffer<T> {
+
+    private static final Logger LOG = Logger.getLogger(AfterCompletionBuffer.class);
+
+    private final Consumer<List<T>> consumer;
+    private final boolean passRolledBackItems;
+
+    /**
+     * @param consumer
+     *            Receives the items of a completed transaction
+     * @param passRolledBackItems
+     *            If false, items of rolled back transactions are discarded
+     */
+    public AfterCompletionBuffer(Consumer<List<T>> consumer, boolean passRolledBackItems) {
+        this.consumer = consumer;
+        this.passRolledBackItems = passRolledBackItems;
+    }
+
+    public void add(T item) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            consumer.accept(Collections.singletonList(item));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<T> items = (List<T>) TransactionSynchronizationManager.getResource(this);
+        if (items == null) {
+            items = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, items);
+            TransactionSynchronizationManager.registerSynchronization(new Synchronization(items));
+        }
+        items.add(item);
+    }
+
+    /**
+     * @return true if items were added in the current transaction
+     */
+    public boolean hasPendingItems() {
+        return TransactionSynchronizationManager.isSynchronizationActive()
+                && TransactionSynchronizationManager.hasResource(this);
+    }
+
+    private final class Synchronization extends TransactionSynchronizationAdapter {
+
+        private final List<T> items;
+
+        private Synchronization(List<T> items) {
+            this.items = items;
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AfterCompletionBuffer.this);
+            if (status != TransactionSynchronization.STATUS_COMMITTED && !passRolledBackItems) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Transaction was not committed, discarding " + items.size()
+                            + " items.");
+                }
+                return;
+            }
+            try {
+                consumer.accept(items);
+            } catch (Exception e) {
+                LOG.error("Error while passing items after transaction completion", e);
+            }
+        }
+    }
+}
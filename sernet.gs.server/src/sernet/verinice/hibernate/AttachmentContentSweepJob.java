@@ -0,0 +1,47 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.StatefulJob;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Deletes the attachment contents which are not referenced anymore, see
+ * {@link AttachmentContentSweeper} and
+ * veriniceserver.attachment.content.sweep.cron in
+ * veriniceserver-plain.properties.
+ */
+public class AttachmentContentSweepJob extends QuartzJobBean implements StatefulJob {
+
+    private AttachmentContentSweeper attachmentContentSweeper;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        attachmentContentSweeper.run();
+    }
+
+    public AttachmentContentSweeper getAttachmentContentSweeper() {
+        return attachmentContentSweeper;
+    }
+
+    public void setAttachmentContentSweeper(AttachmentContentSweeper attachmentContentSweeper) {
+        this.attachmentContentSweeper = attachmentContentSweeper;
+    }
+}
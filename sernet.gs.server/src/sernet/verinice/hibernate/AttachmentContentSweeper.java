@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import org.apache.log4j.Logger;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sernet.verinice.interfaces.IAttachmentFileDao;
+
+/**
+ * Deletes the attachment contents which are not referenced anymore, see
+ * {@link IAttachmentFileDao#deleteUnreferencedContent(long)}. Contents
+ * which were referenced within the grace period are kept, so a transaction
+ * which is about to reference a content does not lose it to the sweep.
+ *
+ * The server runs the sweep by {@link AttachmentContentSweepJob}, the
+ * standalone client by a timer task, see veriniceserver-osgi.xml.
+ */
+public class AttachmentContentSweeper implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(AttachmentContentSweeper.class);
+
+    private IAttachmentFileDao attachmentFileDao;
+
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Milliseconds an unreferenced content is kept after its last reference
+     */
+    private long gracePeriod = 3600000;
+
+    @Override
+    public void run() {
+        try {
+            sweep();
+        } catch (Exception e) {
+            LOG.error("Error while deleting unreferenced attachment contents", e);
+        }
+    }
+
+    /**
+     * @return The number of deleted contents
+     */
+    public int sweep() {
+        long referencedUntil = System.currentTimeMillis() - gracePeriod;
+        int deleted = (Integer) new TransactionTemplate(transactionManager)
+                .execute(status -> attachmentFileDao.deleteUnreferencedContent(referencedUntil));
+        if (LOG.isInfoEnabled()) {
+            LOG.info(deleted + " unreferenced attachment content(s) deleted");
+        }
+        return deleted;
+    }
+
+    public IAttachmentFileDao getAttachmentFileDao() {
+        return attachmentFileDao;
+    }
+
+    public void setAttachmentFileDao(IAttachmentFileDao attachmentFileDao) {
+        this.attachmentFileDao = attachmentFileDao;
+    }
+
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public long getGracePeriod() {
+        return gracePeriod;
+    }
+
+    public void setGracePeriod(long gracePeriod) {
+        this.gracePeriod = gracePeriod;
+    }
+}
@@ -19,6 +19,8 @@
  ******************************************************************************/
 package sernet.verinice.hibernate;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 import org.hibernate.Criteria;
@@ -26,7 +28,9 @@ import org.hibernate.FetchMode;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Restrictions;
 
+import sernet.gs.service.CollectionUtil;
 import sernet.verinice.interfaces.IAttachmentDao;
+import sernet.verinice.interfaces.IDao;
 import sernet.verinice.model.bsi.Attachment;
 
 /**
@@ -49,10 +53,31 @@ public class AttachmentDao extends TreeElementDao<Attachment, Integer> implement
         if (cnAElementId != null) {
             crit.add(Restrictions.eq("cnATreeElement.dbId", cnAElementId));
         }
+        return findByCriteria(fetchProperties(crit));
+    }
+
+    /*
+     * @see
+     * sernet.verinice.interfaces.IAttachmentDao#loadAttachmentList(java.util.
+     * Collection)
+     */
+    @Override
+    public List<Attachment> loadAttachmentList(Collection<Integer> cnAElementIds) {
+        List<Attachment> attachments = new ArrayList<>();
+        for (List<Integer> partition : CollectionUtil.partition(new ArrayList<>(cnAElementIds),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            DetachedCriteria crit = DetachedCriteria.forClass(Attachment.class)
+                    .add(Restrictions.in("cnATreeElement.dbId", partition));
+            attachments.addAll(findByCriteria(fetchProperties(crit)));
+        }
+        return attachments;
+    }
+
+    private static DetachedCriteria fetchProperties(DetachedCriteria crit) {
         crit.setFetchMode("entity", FetchMode.JOIN);
         crit.setFetchMode("entity.typedPropertyLists", FetchMode.JOIN);
         crit.setFetchMode("entity.typedPropertyLists.properties", FetchMode.JOIN);
         crit.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
-        return findByCriteria(crit);
+        return crit;
     }
 }
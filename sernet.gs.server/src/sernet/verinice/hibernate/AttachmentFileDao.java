@@ -0,0 +1,434 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+
+import sernet.verinice.interfaces.IAttachmentFileDao;
+import sernet.verinice.interfaces.IRetrieveInfo;
+import sernet.verinice.model.bsi.AttachmentContent;
+import sernet.verinice.model.bsi.AttachmentFile;
+
+/**
+ * Stores the content of attachments once per SHA-256 hash in table
+ * attachmentcontent. Attachment files reference the content by
+ * {@link AttachmentFile#getContentHash()}. The reference count of a content is
+ * the number of attachment files with its hash. Contents without references
+ * are deleted by {@link AttachmentContentSweeper} after a grace period.
+ *
+ * Taking a reference sets the time of the last reference of the content. The
+ * update locks the content row until the transaction ends, so the sweep does
+ * not delete a content which is referenced by a running transaction. If two
+ * transactions insert the same content, the insert of the second one fails and
+ * is rolled back to a savepoint, the content of the first one is used.
+ *
+ * The content is streamed via JDBC, streams from clients are hashed into a
+ * temporary file before they are inserted. Content saved before
+ * deduplication is read from column fileData of table note and moved to
+ * attachmentcontent on the next write.
+ */
+public class AttachmentFileDao extends TreeElementDao<AttachmentFile, Integer>
+        implements IAttachmentFileDao {
+
+    private static final Logger LOG = Logger.getLogger(AttachmentFileDao.class);
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String TEMP_FILE_PREFIX = "verinice-attachment-";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final int MAX_STORE_ATTEMPTS = 3;
+    // SQL state class of integrity constraint violations
+    private static final String SQL_STATE_CONSTRAINT_VIOLATION = "23";
+
+    private static final String HQL_CONTENT_HASH = "select f.contentHash from "
+            + AttachmentFile.class.getSimpleName() + " f where f.dbId = :dbId";
+    private static final String HQL_STORED_FILE_DATA = "select f.storedFileData from "
+            + AttachmentFile.class.getSimpleName() + " f where f.dbId = :dbId";
+    private static final String HQL_SET_CONTENT_HASH = "update "
+            + AttachmentFile.class.getSimpleName()
+            + " f set f.contentHash = :hash, f.storedFileData = null where f.dbId = :dbId";
+    private static final String HQL_CONTENT_SIZE = "select c.size from "
+            + AttachmentContent.class.getSimpleName() + " c where c.hash = :hash";
+    private static final String HQL_LOCK_CONTENT = "update "
+            + AttachmentContent.class.getSimpleName()
+            + " c set c.referenced = :referenced where c.hash = :hash";
+
+    private static final String SQL_INSERT_CONTENT = "insert into attachmentcontent"
+            + " (contentHash, contentSize, contentReferenced, contentData) values (?, ?, ?, ?)";
+    private static final String SQL_SELECT_CONTENT = "select contentData"
+            + " from attachmentcontent where contentHash = ?";
+    // Native SQL, HQL does not qualify the outer alias in bulk deletes
+    private static final String SQL_DELETE_UNREFERENCED = "delete from attachmentcontent"
+            + " where (contentReferenced is null or contentReferenced <= ?)"
+            + " and not exists (select n.dbId from note n"
+            + " where n.contentHash = attachmentcontent.contentHash)";
+
+    public AttachmentFileDao() {
+        super(AttachmentFile.class);
+    }
+
+    /**
+     * Loads the attachment file and its content.
+     */
+    @Override
+    public AttachmentFile retrieve(Integer id, IRetrieveInfo ri) {
+        AttachmentFile attachmentFile = super.retrieve(id, ri);
+        if (attachmentFile != null) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            if (writeContent(attachmentFile.getDbId(), attachmentFile.getContentHash(), 0, -1,
+                    out) >= 0) {
+                attachmentFile.setFileData(out.toByteArray());
+            }
+        }
+        return attachmentFile;
+    }
+
+    @Override
+    public AttachmentFile merge(AttachmentFile entity) {
+        boolean stored = storeFileData(entity);
+        AttachmentFile mergedFile = super.merge(entity);
+        if (stored) {
+            setContentHash(entity.getDbId(), entity.getContentHash());
+        }
+        return mergedFile;
+    }
+
+    @Override
+    public AttachmentFile merge(AttachmentFile entity, boolean fireChange, boolean updateIndex) {
+        boolean stored = storeFileData(entity);
+        AttachmentFile mergedFile = super.merge(entity, fireChange, updateIndex);
+        if (stored) {
+            setContentHash(entity.getDbId(), entity.getContentHash());
+        }
+        return mergedFile;
+    }
+
+    @Override
+    public void saveOrUpdate(AttachmentFile entity) {
+        boolean stored = storeFileData(entity);
+        super.saveOrUpdate(entity);
+        if (stored) {
+            setContentHash(entity.getDbId(), entity.getContentHash());
+        }
+    }
+
+    @Override
+    public long writeFileData(Integer dbId, OutputStream out) {
+        return writeFileData(dbId, 0, -1, out);
+    }
+
+    @Override
+    public long writeFileData(Integer dbId, long offset, long length, OutputStream out) {
+        return writeContent(dbId, getContentHash(dbId), offset, length, out);
+    }
+
+    @Override
+    public long getFileSize(Integer dbId) {
+        String hash = getContentHash(dbId);
+        if (hash == null) {
+            byte[] storedFileData = getStoredFileData(dbId);
+            return (storedFileData == null) ? -1 : storedFileData.length;
+        }
+        Number size = (Number) executeCallback(session -> session.createQuery(HQL_CONTENT_SIZE)
+                .setString("hash", hash).uniqueResult());
+        return (size == null) ? -1 : size.longValue();
+    }
+
+    @Override
+    public String saveFileData(Integer dbId, InputStream in) {
+        String hash = storeContent(in);
+        referenceContent(dbId, hash);
+        return hash;
+    }
+
+    @Override
+    public boolean copyFileData(Integer sourceId, Integer targetId) {
+        String hash = getContentHash(sourceId);
+        if (hash == null) {
+            byte[] storedFileData = getStoredFileData(sourceId);
+            if (storedFileData == null) {
+                return false;
+            }
+            hash = storeContent(storedFileData);
+            setContentHash(sourceId, hash);
+        } else if (!lockContent(hash)) {
+            LOG.warn("Content of attachment " + sourceId + " not found: " + hash);
+            return false;
+        }
+        referenceContent(targetId, hash);
+        return true;
+    }
+
+    @Override
+    public int deleteUnreferencedContent(long referencedUntil) {
+        int deleted = (Integer) executeCallback(session -> {
+            session.flush();
+            try (PreparedStatement statement = connection(session)
+                    .prepareStatement(SQL_DELETE_UNREFERENCED)) {
+                statement.setLong(1, referencedUntil);
+                return statement.executeUpdate();
+            }
+        });
+        if (deleted > 0 && LOG.isDebugEnabled()) {
+            LOG.debug(deleted + " unreferenced attachment contents deleted");
+        }
+        return deleted;
+    }
+
+    /**
+     * Stores the file data of an attachment file which is about to be saved
+     * and replaces it by a reference. An attachment file without file data
+     * keeps the content it references in the database.
+     *
+     * @return true if file data was stored
+     */
+    private boolean storeFileData(AttachmentFile attachmentFile) {
+        byte[] fileData = attachmentFile.getFileData();
+        if (fileData == null) {
+            attachmentFile.setContentHash(getContentHash(attachmentFile.getDbId()));
+            return false;
+        }
+        attachmentFile.setContentHash(storeContent(fileData));
+        return true;
+    }
+
+    /**
+     * Like {@link #setContentHash(Integer, String)}, creates the attachment
+     * file if it does not exist.
+     */
+    private void referenceContent(Integer dbId, String hash) {
+        if (!setContentHash(dbId, hash)) {
+            AttachmentFile attachmentFile = new AttachmentFile();
+            attachmentFile.setDbId(dbId);
+            attachmentFile.setContentHash(hash);
+            super.merge(attachmentFile);
+        }
+    }
+
+    /**
+     * Sets the reference of a saved attachment file and removes the content
+     * saved before deduplication. The old content is deleted by the sweep if
+     * it is not referenced anymore.
+     */
+    private boolean setContentHash(Integer dbId, String hash) {
+        return (Integer) executeCallback(session -> session.createQuery(HQL_SET_CONTENT_HASH)
+                .setString("hash", hash).setInteger("dbId", dbId).executeUpdate()) > 0;
+    }
+
+    /**
+     * Sets the time of the last reference of a content. The update locks the
+     * content row until the end of the transaction.
+     *
+     * @return false if the content does not exist
+     */
+    private boolean lockContent(String hash) {
+        return (Integer) executeCallback(session -> session.createQuery(HQL_LOCK_CONTENT)
+                .setLong("referenced", System.currentTimeMillis()).setString("hash", hash)
+                .executeUpdate()) > 0;
+    }
+
+    private String getContentHash(Integer dbId) {
+        if (dbId == null) {
+            return null;
+        }
+        return (String) executeCallback(session -> session.createQuery(HQL_CONTENT_HASH)
+                .setInteger("dbId", dbId).uniqueResult());
+    }
+
+    private byte[] getStoredFileData(Integer dbId) {
+        return (byte[]) executeCallback(session -> session.createQuery(HQL_STORED_FILE_DATA)
+                .setInteger("dbId", dbId).uniqueResult());
+    }
+
+    private long writeContent(Integer dbId, String hash, long offset, long length,
+            OutputStream out) {
+        if (hash == null) {
+            byte[] storedFileData = getStoredFileData(dbId);
+            if (storedFileData == null) {
+                return -1;
+            }
+            return copy(new ByteArrayInputStream(storedFileData), out, offset, length);
+        }
+        return (Long) executeCallback(session -> {
+            try (PreparedStatement statement = connection(session)
+                    .prepareStatement(SQL_SELECT_CONTENT)) {
+                statement.setString(1, hash);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    InputStream in = resultSet.next() ? resultSet.getBinaryStream(1) : null;
+                    if (in == null) {
+                        LOG.warn("Content of attachment " + dbId + " not found: " + hash);
+                        return -1L;
+                    }
+                    return copy(in, out, offset, length);
+                }
+            }
+        });
+    }
+
+    private static long copy(InputStream in, OutputStream out, long offset, long length) {
+        try (InputStream content = in) {
+            return IOUtils.copyLarge(content, out, offset, length);
+        } catch (IOException e) {
+            throw new RuntimeException("Error while writing attachment content", e);
+        }
+    }
+
+    private String storeContent(byte[] data) {
+        String hash = toHex(createDigest().digest(data));
+        int attempts = 0;
+        while (!lockContent(hash)) {
+            if (insertContent(hash, data.length, new ByteArrayInputStream(data))) {
+                break;
+            }
+            checkStoreAttempts(hash, ++attempts);
+        }
+        return hash;
+    }
+
+    private String storeContent(InputStream in) {
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(TEMP_FILE_PREFIX, null);
+            MessageDigest digest = createDigest();
+            long size;
+            try (OutputStream out = new DigestOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tempFile)), digest)) {
+                size = IOUtils.copyLarge(in, out);
+            }
+            String hash = toHex(digest.digest());
+            int attempts = 0;
+            while (!lockContent(hash)) {
+                try (InputStream content = new BufferedInputStream(
+                        new FileInputStream(tempFile))) {
+                    if (insertContent(hash, size, content)) {
+                        break;
+                    }
+                }
+                checkStoreAttempts(hash, ++attempts);
+            }
+            return hash;
+        } catch (IOException e) {
+            throw new RuntimeException("Error while storing attachment content", e);
+        } finally {
+            deleteTempFile(tempFile);
+        }
+    }
+
+    /**
+     * Inserts a content, the insert is rolled back to a savepoint if another
+     * transaction inserted the same content in the meantime.
+     *
+     * @return false if the content exists already
+     */
+    private boolean insertContent(String hash, long size, InputStream content) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Attachment content is too large: " + size);
+        }
+        boolean inserted = (Boolean) executeCallback(session -> {
+            Connection connection = connection(session);
+            Savepoint savepoint = connection.getAutoCommit() ? null : connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(SQL_INSERT_CONTENT)) {
+                statement.setString(1, hash);
+                statement.setLong(2, size);
+                statement.setLong(3, System.currentTimeMillis());
+                statement.setBinaryStream(4, content, (int) size);
+                statement.executeUpdate();
+                return Boolean.TRUE;
+            } catch (SQLException e) {
+                if (!isConstraintViolation(e)) {
+                    throw e;
+                }
+                if (savepoint != null) {
+                    connection.rollback(savepoint);
+                }
+                return Boolean.FALSE;
+            }
+        });
+        if (LOG.isDebugEnabled()) {
+            LOG.debug((inserted ? "Attachment content stored: " : "Attachment content exists: ")
+                    + hash + ", size: " + size);
+        }
+        return inserted;
+    }
+
+    private static boolean isConstraintViolation(SQLException e) {
+        return e.getSQLState() != null
+                && e.getSQLState().startsWith(SQL_STATE_CONSTRAINT_VIOLATION);
+    }
+
+    private static void checkStoreAttempts(String hash, int attempts) {
+        if (attempts >= MAX_STORE_ATTEMPTS) {
+            throw new IllegalStateException(
+                    "Attachment content can not be stored: " + hash + ", attempts: " + attempts);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Connection connection(Session session) {
+        return session.connection();
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not supported", e);
+        }
+    }
+
+    private static void deleteTempFile(File tempFile) {
+        if (tempFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(tempFile.toPath());
+        } catch (IOException e) {
+            LOG.warn("Can not delete temporary file " + tempFile, e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import org.apache.log4j.Logger;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.StatefulJob;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+
+/**
+ * Evicts the cached collections which were changed by other server nodes, see
+ * {@link ClusterCacheInvalidator#poll()} and
+ * veriniceserver.cache.cluster.pollInterval in
+ * veriniceserver-plain.properties.
+ */
+public class CacheInvalidationPollJob extends QuartzJobBean implements StatefulJob {
+
+    private static final Logger LOG = Logger.getLogger(CacheInvalidationPollJob.class);
+
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        if (!clusterCacheInvalidator.isEnabled()) {
+            return;
+        }
+        try {
+            clusterCacheInvalidator.poll();
+        } catch (Exception e) {
+            LOG.error("Error while polling cache invalidations", e);
+        }
+    }
+
+    public ClusterCacheInvalidator getClusterCacheInvalidator() {
+        return clusterCacheInvalidator;
+    }
+
+    public void setClusterCacheInvalidator(ClusterCacheInvalidator clusterCacheInvalidator) {
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+    }
+}
@@ -0,0 +1,346 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.log4j.Logger;
+import org.hibernate.EntityMode;
+import org.hibernate.Session;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PostInsertIdentifierGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.type.Type;
+import org.springframework.orm.hibernate3.HibernateCallback;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import sernet.verinice.interfaces.IChangeLogEntryDao;
+import sernet.verinice.model.common.ChangeLogEntry;
+
+/**
+ * Append-only dao for the change log. New entries are collected during a
+ * transaction and inserted with JDBC batch statements before the transaction
+ * commits. Entries are written without loading them into the Hibernate
+ * session. Entries are inserted immediately if there is no transaction
+ * synchronization.
+ *
+ * If compact is true, update entries of the same element, user and station
+ * are stored only once per transaction with the time of the last change.
+ *
+ * Pending entries are inserted before entries are read or the session is
+ * flushed, so queries in the same transaction see all entries.
+ */
+public class ChangeLogEntryDao extends TreeElementDao<ChangeLogEntry, Integer>
+        implements IChangeLogEntryDao {
+
+    private static final Logger LOG = Logger.getLogger(ChangeLogEntryDao.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    private boolean compact = false;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    public ChangeLogEntryDao() {
+        super(ChangeLogEntry.class);
+    }
+
+    @Override
+    public void append(Collection<ChangeLogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(entries);
+            return;
+        }
+        PendingEntries pendingEntries = (PendingEntries) TransactionSynchronizationManager
+                .getResource(this);
+        if (pendingEntries == null) {
+            pendingEntries = new PendingEntries();
+            TransactionSynchronizationManager.bindResource(this, pendingEntries);
+            TransactionSynchronizationManager
+                    .registerSynchronization(new Synchronization(pendingEntries));
+        }
+        for (ChangeLogEntry entry : entries) {
+            pendingEntries.add(entry);
+        }
+    }
+
+    @Override
+    public void insertPendingEntries() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        PendingEntries pendingEntries = (PendingEntries) TransactionSynchronizationManager
+                .getResource(this);
+        if (pendingEntries != null) {
+            insert(pendingEntries.removeAll());
+        }
+    }
+
+    /**
+     * Change log entries are never updated. New entries are appended, see
+     * {@link #append(Collection)}.
+     */
+    @Override
+    public void saveOrUpdate(ChangeLogEntry entry) {
+        if (entry.getDbId() == null) {
+            append(Collections.singletonList(entry));
+        } else {
+            super.saveOrUpdate(entry);
+        }
+    }
+
+    @Override
+    public void saveOrUpdateAll(Collection<ChangeLogEntry> entries) {
+        List<ChangeLogEntry> newEntries = new ArrayList<>(entries.size());
+        for (ChangeLogEntry entry : entries) {
+            if (entry.getDbId() == null) {
+                newEntries.add(entry);
+            } else {
+                super.saveOrUpdate(entry);
+            }
+        }
+        append(newEntries);
+    }
+
+    @Override
+    public List<ChangeLogEntry> findByCriteria(DetachedCriteria criteria) {
+        insertPendingEntries();
+        return super.findByCriteria(criteria);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List findByQuery(String hqlQuery, Object[] params) {
+        insertPendingEntries();
+        return super.findByQuery(hqlQuery, params);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List findByQuery(String hqlQuery, String[] paramNames, Object[] paramValues) {
+        insertPendingEntries();
+        return super.findByQuery(hqlQuery, paramNames, paramValues);
+    }
+
+    @SuppressWarnings("rawtypes")
+    @Override
+    public List findByCallback(HibernateCallback hcb) {
+        insertPendingEntries();
+        return super.findByCallback(hcb);
+    }
+
+    @Override
+    public void flush() {
+        insertPendingEntries();
+        super.flush();
+    }
+
+    private void insert(Collection<ChangeLogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        executeCallback(session -> {
+            insert(session, entries);
+            return null;
+        });
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(entries.size() + " change log entries inserted");
+        }
+    }
+
+    private void insert(Session session, Collection<ChangeLogEntry> entries)
+            throws SQLException {
+        SessionImplementor sessionImplementor = (SessionImplementor) session;
+        SessionFactoryImplementor sessionFactory = sessionImplementor.getFactory();
+        AbstractEntityPersister persister = (AbstractEntityPersister) sessionFactory
+                .getEntityPersister(ChangeLogEntry.class.getName());
+        IdentifierGenerator generator = persister.getIdentifierGenerator();
+        boolean generatedByDatabase = generator instanceof PostInsertIdentifierGenerator;
+        String[] propertyNames = persister.getPropertyNames();
+        Type[] propertyTypes = persister.getPropertyTypes();
+        try (PreparedStatement statement = connection(session)
+                .prepareStatement(createInsertStatement(persister, generatedByDatabase))) {
+            int count = 0;
+            for (ChangeLogEntry entry : entries) {
+                int index = 1;
+                if (!generatedByDatabase) {
+                    Serializable id = generator.generate(sessionImplementor, entry);
+                    persister.getIdentifierType().nullSafeSet(statement, id, index++,
+                            sessionImplementor);
+                }
+                Object[] values = persister.getPropertyValues(entry, EntityMode.POJO);
+                for (int i = 0; i < propertyNames.length; i++) {
+                    propertyTypes[i].nullSafeSet(statement, values[i], index++,
+                            sessionImplementor);
+                }
+                statement.addBatch();
+                count++;
+                if (count % batchSize == 0) {
+                    statement.executeBatch();
+                }
+            }
+            if (count % batchSize != 0) {
+                statement.executeBatch();
+            }
+        }
+    }
+
+    private static String createInsertStatement(AbstractEntityPersister persister,
+            boolean generatedByDatabase) {
+        List<String> columns = new ArrayList<>();
+        if (!generatedByDatabase) {
+            columns.add(persister.getIdentifierColumnNames()[0]);
+        }
+        for (String propertyName : persister.getPropertyNames()) {
+            columns.add(persister.getPropertyColumnNames(propertyName)[0]);
+        }
+        StringBuilder sql = new StringBuilder("insert into ").append(persister.getTableName())
+                .append(" (").append(String.join(", ", columns)).append(") values (");
+        for (int i = 0; i < columns.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Connection connection(Session session) {
+        return session.connection();
+    }
+
+    @Override
+    public boolean isCompact() {
+        return compact;
+    }
+
+    @Override
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * The entries of a transaction which are not inserted yet
+     */
+    private final class PendingEntries {
+
+        private final List<ChangeLogEntry> entries = new ArrayList<>();
+
+        /**
+         * Index of the compacted update entries in entries
+         */
+        private final Map<UpdateKey, Integer> updates = new LinkedHashMap<>();
+
+        private void add(ChangeLogEntry entry) {
+            if (!compact || entry.getChange() != ChangeLogEntry.TYPE_UPDATE
+                    || entry.getElementId() == null) {
+                entries.add(entry);
+                return;
+            }
+            UpdateKey key = new UpdateKey(entry);
+            Integer index = updates.get(key);
+            if (index == null) {
+                updates.put(key, entries.size());
+                entries.add(entry);
+            } else {
+                entries.set(index, entry);
+            }
+        }
+
+        private List<ChangeLogEntry> removeAll() {
+            List<ChangeLogEntry> result = new ArrayList<>(entries);
+            entries.clear();
+            updates.clear();
+            return result;
+        }
+    }
+
+    private static final class UpdateKey {
+
+        private final Integer elementId;
+        private final String stationId;
+        private final String username;
+
+        private UpdateKey(ChangeLogEntry entry) {
+            this.elementId = entry.getElementId();
+            this.stationId = entry.getStationId();
+            this.username = entry.getUsername();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(elementId, stationId, username);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof UpdateKey)) {
+                return false;
+            }
+            UpdateKey other = (UpdateKey) obj;
+            return Objects.equals(elementId, other.elementId)
+                    && Objects.equals(stationId, other.stationId)
+                    && Objects.equals(username, other.username);
+        }
+    }
+
+    private final class Synchronization extends TransactionSynchronizationAdapter {
+
+        private final PendingEntries pendingEntries;
+
+        private Synchronization(PendingEntries pendingEntries) {
+            this.pendingEntries = pendingEntries;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            insert(pendingEntries.removeAll());
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLogEntryDao.this);
+        }
+    }
+}
@@ -0,0 +1,408 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.springframework.orm.hibernate3.SessionFactoryUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import sernet.verinice.model.common.CacheInvalidation;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Keeps the cached link and child collections of elements in the second level
+ * cache coherent between the nodes of a server cluster, see
+ * veriniceserver.cache.cluster.enabled.
+ *
+ * The {@link CollectionCacheChangeListener} reports the collections which are
+ * changed in a transaction. Before the transaction commits, the invalidations
+ * are sent to the other nodes by an {@link ICacheInvalidationTransport}. After
+ * the commit, the collections are evicted from the local cache. Invalidations
+ * of other nodes are received and evicted by {@link #poll()}.
+ *
+ * The invalidations are sent by a synchronization of the Hibernate
+ * transaction. It runs after the final flush of the commit, so changes which
+ * are flushed by the commit itself are sent as well. Spring's before commit
+ * callbacks run before that flush. Hibernate logs errors of the
+ * synchronization without rolling back the transaction. If the invalidations
+ * cannot be sent there, all collections of {@link #ROLES} are evicted after
+ * the commit, see {@link #evictAllAfterFailedPublish()}.
+ *
+ * Bulk HQL or SQL statements do not fire the Hibernate event listeners. Code
+ * which deletes or moves links or elements by bulk statements has to call
+ * {@link #evictAll(Collection)} after the statement.
+ */
+public class ClusterCacheInvalidator {
+
+    private static final Logger LOG = Logger.getLogger(ClusterCacheInvalidator.class);
+
+    public static final String ROLE_CHILDREN = CnATreeElement.class.getName() + ".children";
+    public static final String ROLE_LINKS_UP = CnATreeElement.class.getName() + ".linksUp";
+    public static final String ROLE_LINKS_DOWN = CnATreeElement.class.getName() + ".linksDown";
+
+    public static final List<String> ROLES = Collections
+            .unmodifiableList(Arrays.asList(ROLE_CHILDREN, ROLE_LINKS_UP, ROLE_LINKS_DOWN));
+
+    private boolean enabled = false;
+
+    private SessionFactory sessionFactory;
+
+    private ICacheInvalidationTransport transport;
+
+    private final Map<String, AtomicLong> sentCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, AtomicLong> receivedCounters = new ConcurrentHashMap<>();
+
+    public void init() {
+        if (enabled) {
+            // required for the hit ratios in getRegionStatistics()
+            sessionFactory.getStatistics().setStatisticsEnabled(true);
+        }
+    }
+
+    /**
+     * Marks a collection as changed in the current transaction.
+     *
+     * @param role
+     *            Collection role, see {@link #ROLES}
+     * @param ownerId
+     *            Db id of the element which owns the collection
+     */
+    public void collectionChanged(String role, Integer ownerId) {
+        if (!enabled) {
+            return;
+        }
+        CacheInvalidation invalidation = new CacheInvalidation(role, ownerId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(Collections.singletonList(invalidation));
+            evict(Collections.singletonList(invalidation));
+            return;
+        }
+        Synchronization synchronization = (Synchronization) TransactionSynchronizationManager
+                .getResource(this);
+        if (synchronization == null) {
+            synchronization = new Synchronization();
+            TransactionSynchronizationManager.bindResource(this, synchronization);
+            TransactionSynchronizationManager.registerSynchronization(synchronization);
+            synchronization.registerBeforeCompletion();
+        }
+        synchronization.add(invalidation);
+    }
+
+    /**
+     * Evicts all collections of the given roles on all nodes
+     */
+    public void evictAll(Collection<String> roles) {
+        List<CacheInvalidation> invalidations = new ArrayList<>(roles.size());
+        for (String role : roles) {
+            invalidations.add(new CacheInvalidation(role, null));
+        }
+        if (enabled) {
+            publish(invalidations);
+        }
+        evict(invalidations);
+    }
+
+    /**
+     * Evicts the collections which were changed by other nodes
+     */
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        List<CacheInvalidation> invalidations = transport.receive();
+        if (invalidations.isEmpty()) {
+            return;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Received " + invalidations.size() + " cache invalidation(s)");
+        }
+        count(receivedCounters, invalidations);
+        evict(invalidations);
+    }
+
+    /**
+     * Evicts all collections of {@link #ROLES} on all nodes after the changed
+     * collections of a committed transaction could not be sent. If sending
+     * fails again, the collections are evicted at least on this node.
+     */
+    private void evictAllAfterFailedPublish() {
+        try {
+            evictAll(ROLES);
+        } catch (RuntimeException e) {
+            LOG.error("Error while sending the eviction of all collections, "
+                    + "other nodes may read stale collections until they are evicted", e);
+            List<CacheInvalidation> invalidations = new ArrayList<>(ROLES.size());
+            for (String role : ROLES) {
+                invalidations.add(new CacheInvalidation(role, null));
+            }
+            evict(invalidations);
+        }
+    }
+
+    private void publish(List<CacheInvalidation> invalidations) {
+        transport.publish(invalidations);
+        count(sentCounters, invalidations);
+    }
+
+    protected void evict(Collection<CacheInvalidation> invalidations) {
+        for (CacheInvalidation invalidation : invalidations) {
+            try {
+                if (invalidation.getOwnerId() == null) {
+                    sessionFactory.evictCollection(invalidation.getRole());
+                } else {
+                    sessionFactory.evictCollection(invalidation.getRole(),
+                            invalidation.getOwnerId());
+                }
+            } catch (RuntimeException e) {
+                LOG.error("Error while evicting collection: " + invalidation, e);
+            }
+        }
+    }
+
+    private static void count(Map<String, AtomicLong> counters,
+            Collection<CacheInvalidation> invalidations) {
+        for (CacheInvalidation invalidation : invalidations) {
+            counters.computeIfAbsent(invalidation.getRole(), role -> new AtomicLong())
+                    .incrementAndGet();
+        }
+    }
+
+    /**
+     * @return Hits, misses and invalidations of the cache regions of the
+     *         collections by collection role
+     */
+    public Map<String, RegionStatistics> getRegionStatistics() {
+        Map<String, RegionStatistics> statistics = new LinkedHashMap<>();
+        for (String role : ROLES) {
+            RegionStatistics regionStatistics = new RegionStatistics(role);
+            CollectionPersister persister = ((SessionFactoryImplementor) sessionFactory)
+                    .getCollectionPersister(role);
+            if (persister.hasCache()) {
+                SecondLevelCacheStatistics cacheStatistics = sessionFactory.getStatistics()
+                        .getSecondLevelCacheStatistics(persister.getCache().getRegionName());
+                if (cacheStatistics != null) {
+                    regionStatistics.hitCount = cacheStatistics.getHitCount();
+                    regionStatistics.missCount = cacheStatistics.getMissCount();
+                    regionStatistics.putCount = cacheStatistics.getPutCount();
+                }
+            }
+            regionStatistics.sentInvalidations = getCount(sentCounters, role);
+            regionStatistics.receivedInvalidations = getCount(receivedCounters, role);
+            statistics.put(role, regionStatistics);
+        }
+        return statistics;
+    }
+
+    private static long getCount(Map<String, AtomicLong> counters, String role) {
+        AtomicLong counter = counters.get(role);
+        return counter == null ? 0 : counter.get();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public ICacheInvalidationTransport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(ICacheInvalidationTransport transport) {
+        this.transport = transport;
+    }
+
+    public void setChangeListener(CollectionCacheChangeListener changeListener) {
+        changeListener.setInvalidator(this);
+    }
+
+    private final class Synchronization extends TransactionSynchronizationAdapter {
+
+        private final Map<String, CacheInvalidation> invalidations = new LinkedHashMap<>();
+
+        private boolean publishedBeforeCompletion = false;
+
+        private boolean publishFailed = false;
+
+        private void add(CacheInvalidation invalidation) {
+            invalidations.putIfAbsent(invalidation.getRole() + "#" + invalidation.getOwnerId(),
+                    invalidation);
+        }
+
+        /**
+         * Registers the publishing at the Hibernate transaction of the current
+         * session. The transaction calls it after the flush of the commit.
+         * Registering is possible while the commit flushes, the first change
+         * may be reported by that flush.
+         */
+        private void registerBeforeCompletion() {
+            if (!TransactionSynchronizationManager.hasResource(sessionFactory)) {
+                return;
+            }
+            Session session = SessionFactoryUtils.getSession(sessionFactory, false);
+            Transaction transaction = session.getTransaction();
+            if (transaction.isActive()) {
+                transaction.registerSynchronization(new PublishBeforeCompletion(session));
+                publishedBeforeCompletion = true;
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (publishedBeforeCompletion) {
+                return;
+            }
+            // no Hibernate transaction, e.g. JTA
+            if (!readOnly && TransactionSynchronizationManager.hasResource(sessionFactory)) {
+                // pending updates and deletes report their collections on flush
+                SessionFactoryUtils.getSession(sessionFactory, false).flush();
+            }
+            publish(new ArrayList<>(invalidations.values()));
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(
+                    ClusterCacheInvalidator.this);
+            if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                return;
+            }
+            evict(invalidations.values());
+            if (publishFailed) {
+                evictAllAfterFailedPublish();
+            }
+        }
+
+        private final class PublishBeforeCompletion implements javax.transaction.Synchronization {
+
+            private final Session session;
+
+            private PublishBeforeCompletion(Session session) {
+                this.session = session;
+            }
+
+            /**
+             * Hibernate commits even if this method fails, errors are caught
+             * here and handled after the commit.
+             */
+            @Override
+            public void beforeCompletion() {
+                try {
+                    publish(new ArrayList<>(invalidations.values()));
+                    // the flush of the commit is done, flush what the transport saved
+                    session.flush();
+                } catch (RuntimeException e) {
+                    LOG.error("Error while sending " + invalidations.size()
+                            + " cache invalidation(s), all collections are evicted after "
+                            + "the commit", e);
+                    publishFailed = true;
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                // evicted locally by the enclosing Spring synchronization
+            }
+        }
+    }
+
+    /**
+     * Hit ratio and invalidations of the cache region of a collection role
+     */
+    public static final class RegionStatistics {
+
+        private final String role;
+        private long hitCount;
+        private long missCount;
+        private long putCount;
+        private long sentInvalidations;
+        private long receivedInvalidations;
+
+        private RegionStatistics(String role) {
+            this.role = role;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public long getPutCount() {
+            return putCount;
+        }
+
+        /**
+         * @return Cache hits / (hits + misses) or 0 if the cache was not used
+         */
+        public double getHitRatio() {
+            long total = hitCount + missCount;
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+
+        public long getSentInvalidations() {
+            return sentInvalidations;
+        }
+
+        public long getReceivedInvalidations() {
+            return receivedInvalidations;
+        }
+
+        @Override
+        public String toString() {
+            return role + ": hits=" + hitCount + ", misses=" + missCount + ", puts=" + putCount
+                    + ", hit ratio=" + String.format("%.2f", getHitRatio()) + ", sent="
+                    + sentInvalidations + ", received=" + receivedInvalidations;
+        }
+    }
+}
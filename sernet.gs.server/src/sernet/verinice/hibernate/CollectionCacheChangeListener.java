@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+
+import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Notifies the {@link ClusterCacheInvalidator} about changed link and child
+ * collections of elements when links or elements are created, deleted or
+ * moved to another parent.
+ */
+public class CollectionCacheChangeListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = 3260984218651932417L;
+
+    private static final String PROPERTY_PARENT = "parent";
+
+    private transient ClusterCacheInvalidator invalidator;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (invalidator == null || !invalidator.isEnabled()) {
+            return;
+        }
+        Object entity = event.getEntity();
+        if (entity instanceof CnALink) {
+            linkChanged((CnALink) entity);
+        } else if (entity instanceof CnATreeElement) {
+            childrenChanged(((CnATreeElement) entity).getParent());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (invalidator == null || !invalidator.isEnabled()
+                || !(event.getEntity() instanceof CnATreeElement)) {
+            return;
+        }
+        CnATreeElement element = (CnATreeElement) event.getEntity();
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            // detached element was updated, the old parent is unknown
+            childrenChanged(element.getParent());
+            return;
+        }
+        Object oldParent = getValue(event.getPersister().getPropertyNames(), oldState);
+        CnATreeElement parent = element.getParent();
+        Integer oldParentId = oldParent instanceof CnATreeElement
+                ? ((CnATreeElement) oldParent).getDbId()
+                : null;
+        Integer parentId = parent == null ? null : parent.getDbId();
+        if (parentId == null ? oldParentId != null : !parentId.equals(oldParentId)) {
+            childrenChanged(parent);
+            if (oldParentId != null) {
+                invalidator.collectionChanged(ClusterCacheInvalidator.ROLE_CHILDREN, oldParentId);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (invalidator == null || !invalidator.isEnabled()) {
+            return;
+        }
+        Object entity = event.getEntity();
+        if (entity instanceof CnALink) {
+            linkChanged((CnALink) entity);
+        } else if (entity instanceof CnATreeElement) {
+            CnATreeElement element = (CnATreeElement) entity;
+            childrenChanged(element.getParent());
+            for (String role : ClusterCacheInvalidator.ROLES) {
+                invalidator.collectionChanged(role, element.getDbId());
+            }
+        }
+    }
+
+    private void linkChanged(CnALink link) {
+        CnALink.Id id = link.getId();
+        if (id == null) {
+            return;
+        }
+        invalidator.collectionChanged(ClusterCacheInvalidator.ROLE_LINKS_DOWN,
+                id.getDependantId());
+        invalidator.collectionChanged(ClusterCacheInvalidator.ROLE_LINKS_UP,
+                id.getDependencyId());
+    }
+
+    private void childrenChanged(CnATreeElement parent) {
+        if (parent != null && parent.getDbId() != null) {
+            invalidator.collectionChanged(ClusterCacheInvalidator.ROLE_CHILDREN,
+                    parent.getDbId());
+        }
+    }
+
+    private static Object getValue(String[] propertyNames, Object[] state) {
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (PROPERTY_PARENT.equals(propertyNames[i])) {
+                return state[i];
+            }
+        }
+        return null;
+    }
+
+    public void setInvalidator(ClusterCacheInvalidator invalidator) {
+        this.invalidator = invalidator;
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.model.common.CacheInvalidation;
+
+/**
+ * Sends invalidations to the other nodes through the database table
+ * cache_invalidation. Invalidations are inserted in the transaction which
+ * changed the collections, so they are visible to the other nodes after the
+ * commit only. The nodes poll the table by creation time.
+ */
+public class DatabaseCacheInvalidationTransport implements ICacheInvalidationTransport {
+
+    private static final Logger LOG = Logger.getLogger(DatabaseCacheInvalidationTransport.class);
+
+    private static final String HQL_RECEIVE = "from CacheInvalidation invalidation "
+            + "where invalidation.created > ? and invalidation.nodeId <> ?";
+
+    private static final String HQL_DELETE = "delete from CacheInvalidation invalidation "
+            + "where invalidation.created < ?";
+
+    private IBaseDao<CacheInvalidation, Integer> cacheInvalidationDao;
+
+    private PlatformTransactionManager transactionManager;
+
+    private String nodeId = UUID.randomUUID().toString();
+
+    /**
+     * Invalidations created up to this time before the last poll are polled
+     * again. Covers transactions committed after the last poll and clock
+     * differences of the nodes.
+     */
+    private long overlap = 60000;
+
+    /**
+     * Invalidations older than this are deleted
+     */
+    private long retention = 3600000;
+
+    private long lastReceived = System.currentTimeMillis();
+
+    private long lastCleanup = System.currentTimeMillis();
+
+    /**
+     * Creation times of the received invalidations by db id, received
+     * invalidations are polled again within the overlap
+     */
+    private final Map<Integer, Long> receivedIds = new HashMap<>();
+
+    @Override
+    public void publish(Collection<CacheInvalidation> invalidations) {
+        long now = System.currentTimeMillis();
+        for (CacheInvalidation invalidation : invalidations) {
+            invalidation.setNodeId(nodeId);
+            invalidation.setCreated(now);
+        }
+        new TransactionTemplate(transactionManager).execute(status -> {
+            cacheInvalidationDao.saveOrUpdateAll(invalidations);
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized List<CacheInvalidation> receive() {
+        long now = System.currentTimeMillis();
+        long since = lastReceived - overlap;
+        List<CacheInvalidation> polled = (List<CacheInvalidation>) new TransactionTemplate(
+                transactionManager).execute(status -> {
+                    if (now - lastCleanup > retention) {
+                        int deleted = cacheInvalidationDao.updateByQuery(HQL_DELETE,
+                                new Object[] { now - retention });
+                        lastCleanup = now;
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug(deleted + " expired cache invalidation(s) deleted");
+                        }
+                    }
+                    return cacheInvalidationDao.findByQuery(HQL_RECEIVE,
+                            new Object[] { since, nodeId });
+                });
+        receivedIds.values().removeIf(created -> created <= since);
+        List<CacheInvalidation> invalidations = new ArrayList<>(polled.size());
+        for (CacheInvalidation invalidation : polled) {
+            if (receivedIds.put(invalidation.getDbId(), invalidation.getCreated()) == null) {
+                invalidations.add(invalidation);
+            }
+        }
+        lastReceived = now;
+        return invalidations;
+    }
+
+    public IBaseDao<CacheInvalidation, Integer> getCacheInvalidationDao() {
+        return cacheInvalidationDao;
+    }
+
+    public void setCacheInvalidationDao(IBaseDao<CacheInvalidation, Integer> cacheInvalidationDao) {
+        this.cacheInvalidationDao = cacheInvalidationDao;
+    }
+
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * @param nodeId
+     *            Unique id of this node, a random id is used if empty
+     */
+    public void setNodeId(String nodeId) {
+        if (StringUtils.isNotBlank(nodeId)) {
+            this.nodeId = nodeId;
+        }
+    }
+
+    public long getOverlap() {
+        return overlap;
+    }
+
+    public void setOverlap(long overlap) {
+        this.overlap = overlap;
+    }
+
+    public long getRetention() {
+        return retention;
+    }
+
+    public void setRetention(long retention) {
+        this.retention = retention;
+    }
+}
@@ -19,6 +19,8 @@
  ******************************************************************************/
 package sernet.verinice.hibernate;
 
+import java.util.Set;
+
 import sernet.hui.common.connect.Entity;
 import sernet.verinice.interfaces.IElementEntityDao;
 import sernet.verinice.model.common.CnATreeElement;
@@ -70,6 +72,7 @@ public class ElementEntityDao extends TreeElementDao<Entity, Integer> implements
         }
         
         index(element);
+        fireElementsChanged(Set.of(element));
 
         return element;
     }
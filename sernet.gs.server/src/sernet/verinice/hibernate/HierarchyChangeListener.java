@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Invalidates the {@link HierarchyIndex} if elements are created, deleted or
+ * moved to another parent or scope.
+ */
+public class HierarchyChangeListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = -2046395787457113263L;
+
+    private static final String PROPERTY_PARENT = "parent";
+    private static final String PROPERTY_SCOPE_ID = "scopeId";
+
+    private transient HierarchyIndex hierarchyIndex;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (hierarchyIndex != null && event.getEntity() instanceof CnATreeElement) {
+            hierarchyIndex.hierarchyChanged(((CnATreeElement) event.getEntity()).getScopeId());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (hierarchyIndex == null || !(event.getEntity() instanceof CnATreeElement)) {
+            return;
+        }
+        CnATreeElement element = (CnATreeElement) event.getEntity();
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            hierarchyIndex.elementUpdated(element.getScopeId(), element.getDbId(),
+                    getDbId(element.getParent()));
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object oldParent = getValue(persister, oldState, PROPERTY_PARENT);
+        Object oldScopeId = getValue(persister, oldState, PROPERTY_SCOPE_ID);
+        Integer parentId = getDbId(element.getParent());
+        boolean parentChanged = parentId == null ? oldParent != null
+                : !(oldParent instanceof CnATreeElement)
+                        || !parentId.equals(getDbId((CnATreeElement) oldParent));
+        boolean scopeChanged = element.getScopeId() == null ? oldScopeId != null
+                : !element.getScopeId().equals(oldScopeId);
+        if (parentChanged || scopeChanged) {
+            hierarchyIndex.hierarchyChanged(element.getScopeId());
+            if (oldScopeId instanceof Integer) {
+                hierarchyIndex.hierarchyChanged((Integer) oldScopeId);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (hierarchyIndex != null && event.getEntity() instanceof CnATreeElement) {
+            hierarchyIndex.hierarchyChanged(((CnATreeElement) event.getEntity()).getScopeId());
+        }
+    }
+
+    private static Integer getDbId(CnATreeElement element) {
+        return element == null ? null : element.getDbId();
+    }
+
+    private static Object getValue(EntityPersister persister, Object[] state, String property) {
+        String[] propertyNames = persister.getPropertyNames();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (property.equals(propertyNames[i])) {
+                return state[i];
+            }
+        }
+        return null;
+    }
+
+    public void setHierarchyIndex(HierarchyIndex hierarchyIndex) {
+        this.hierarchyIndex = hierarchyIndex;
+    }
+}
@@ -0,0 +1,286 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.criterion.ProjectionList;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.EntityEntry;
+import org.hibernate.event.EventSource;
+import org.hibernate.util.IdentityMap;
+
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IHierarchyIndex;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Caches the hierarchy of the elements of a scope in a
+ * {@link ScopeHierarchy}.
+ * 
+ * The hierarchy of a scope is loaded with one query and kept until an element
+ * of the scope is created, moved or deleted. The
+ * {@link HierarchyChangeListener} invalidates the hierarchy of the scope after
+ * the transaction which changed the hierarchy is completed.
+ * 
+ * The index is not used in a transaction which changed the hierarchy before
+ * and in sessions with enabled access or scope filters. The index contains
+ * the committed hierarchy without access restrictions, the database is the
+ * reference in these cases.
+ * 
+ * The index is node-local. It is not used if the
+ * {@link ClusterCacheInvalidator} is enabled, because hierarchy changes on
+ * another server node would not invalidate it.
+ */
+public class HierarchyIndex implements IHierarchyIndex {
+
+    private static final Logger LOG = Logger.getLogger(HierarchyIndex.class);
+
+    private static final String SCOPE_FILTER = "scopeFilter";
+    private static final String PROPERTY_PARENT = "parent";
+    private static final String PROPERTY_SCOPE_ID = "scopeId";
+
+    private IBaseDao<CnATreeElement, Serializable> elementDao;
+
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
+    private final Map<Integer, ScopeHierarchy> hierarchiesByScope = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AfterCompletionBuffer<Integer> changedScopes = new AfterCompletionBuffer<>(
+            this::invalidateScopes, false);
+
+    @Override
+    public Set<Integer> getSubtreeIds(Integer scopeId, Integer dbId, String typeId) {
+        ScopeHierarchy hierarchy = getHierarchy(scopeId);
+        return hierarchy == null || dbId == null ? null
+                : hierarchy.getSubtreeIds(dbId, typeId);
+    }
+
+    @Override
+    public List<Integer> getAncestorIds(Integer scopeId, Integer dbId) {
+        ScopeHierarchy hierarchy = getHierarchy(scopeId);
+        return hierarchy == null || dbId == null ? null : hierarchy.getAncestorIds(dbId);
+    }
+
+    @Override
+    public void invalidate(Integer scopeId) {
+        if (scopeId != null) {
+            changedScopes.add(scopeId);
+        }
+    }
+
+    @Override
+    public void clear() {
+        generation.incrementAndGet();
+        hierarchiesByScope.clear();
+    }
+
+    /**
+     * Called by the {@link HierarchyChangeListener} if an element was
+     * created, moved or deleted in the current session.
+     */
+    public void hierarchyChanged(Integer scopeId) {
+        invalidate(scopeId);
+    }
+
+    /**
+     * Called by the {@link HierarchyChangeListener} if an element was updated
+     * without its previous state. The hierarchy is invalidated if the element
+     * is not indexed with the given scope and parent.
+     */
+    public void elementUpdated(Integer scopeId, Integer dbId, Integer parentId) {
+        ScopeHierarchy hierarchy = scopeId == null ? null : hierarchiesByScope.get(scopeId);
+        if (hierarchy != null && hierarchy.contains(dbId)
+                && equals(parentId, hierarchy.getParentId(dbId))) {
+            return;
+        }
+        invalidate(scopeId);
+        for (Map.Entry<Integer, ScopeHierarchy> entry : hierarchiesByScope.entrySet()) {
+            if (entry.getValue().contains(dbId)) {
+                invalidate(entry.getKey());
+            }
+        }
+    }
+
+    private void invalidateScopes(Collection<Integer> scopeIds) {
+        generation.incrementAndGet();
+        for (Integer scopeId : scopeIds) {
+            hierarchiesByScope.remove(scopeId);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Hierarchy of scopes invalidated: " + scopeIds);
+        }
+    }
+
+    /**
+     * @return false if the index is not used, because cache invalidations are
+     *         sent between server nodes
+     */
+    public boolean isEnabled() {
+        return clusterCacheInvalidator == null || !clusterCacheInvalidator.isEnabled();
+    }
+
+    private ScopeHierarchy getHierarchy(Integer scopeId) {
+        if (scopeId == null || !isEnabled() || !prepareSession()) {
+            return null;
+        }
+        ScopeHierarchy hierarchy = hierarchiesByScope.get(scopeId);
+        if (hierarchy == null) {
+            long currentGeneration = generation.get();
+            hierarchy = loadHierarchy(scopeId);
+            if (isCacheable(currentGeneration)) {
+                hierarchiesByScope.put(scopeId, hierarchy);
+            }
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Flushes the session if it contains hierarchy changes which are not
+     * flushed yet, the flush fires the events of the
+     * {@link HierarchyChangeListener}.
+     * 
+     * @return false if the index must not be used in the current session
+     */
+    private boolean prepareSession() {
+        Boolean usable = (Boolean) getElementDao().executeCallback(session -> {
+            if (session.getEnabledFilter(PermissionCache.READ_FILTER) != null
+                    || session.getEnabledFilter(PermissionCache.READ_ID_FILTER) != null
+                    || session.getEnabledFilter(SCOPE_FILTER) != null) {
+                return Boolean.FALSE;
+            }
+            if (!FlushMode.isManualFlushMode(session.getFlushMode())
+                    && hasUnflushedHierarchyChanges(session)) {
+                session.flush();
+            }
+            return Boolean.TRUE;
+        });
+        return usable && !changedScopes.hasPendingItems();
+    }
+
+    /**
+     * Checks the queued insertions and deletions and compares parent and
+     * scope of the elements in the session with their loaded state. This is
+     * cheaper than a flush, which checks all properties of all entities and
+     * executes the pending statements.
+     */
+    private static boolean hasUnflushedHierarchyChanges(Session session) {
+        EventSource eventSource = (EventSource) session;
+        if (eventSource.getActionQueue().areInsertionsOrDeletionsQueued()) {
+            return true;
+        }
+        for (Map.Entry<?, ?> entry : IdentityMap.concurrentEntries(
+                eventSource.getPersistenceContext().getEntityEntries())) {
+            if (entry.getKey() instanceof CnATreeElement && isHierarchyChanged(
+                    (CnATreeElement) entry.getKey(), (EntityEntry) entry.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHierarchyChanged(CnATreeElement element, EntityEntry entityEntry) {
+        Object[] loadedState = entityEntry.getLoadedState();
+        if (loadedState == null) {
+            return false;
+        }
+        String[] propertyNames = entityEntry.getPersister().getPropertyNames();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (PROPERTY_PARENT.equals(propertyNames[i])
+                    && loadedState[i] != element.getParent()) {
+                return true;
+            }
+            if (PROPERTY_SCOPE_ID.equals(propertyNames[i])
+                    && !Objects.equals(loadedState[i], element.getScopeId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A loaded hierarchy is not cached if the index was invalidated while
+     * loading or if the current transaction changed the hierarchy.
+     */
+    private boolean isCacheable(long generationBeforeLoading) {
+        return generationBeforeLoading == generation.get() && !changedScopes.hasPendingItems();
+    }
+
+    private ScopeHierarchy loadHierarchy(Integer scopeId) {
+        long start = System.currentTimeMillis();
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = (List<Object[]>) getElementDao().executeCallback(session -> {
+            Criteria criteria = session.createCriteria(CnATreeElement.class);
+            criteria.add(Restrictions.eq("scopeId", scopeId));
+            ProjectionList projectionList = Projections.projectionList();
+            projectionList.add(Projections.property("dbId"));
+            projectionList.add(Projections.property("parentId"));
+            projectionList.add(Projections.property("objectType"));
+            criteria.setProjection(projectionList);
+            return criteria.list();
+        });
+        ScopeHierarchy hierarchy = ScopeHierarchy.create(rows);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Hierarchy of scope " + scopeId + " loaded, elements: " + hierarchy.size()
+                    + ", time: " + (System.currentTimeMillis() - start) + " ms");
+        }
+        return hierarchy;
+    }
+
+    private static boolean equals(Integer a, Integer b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public int getNumberOfScopes() {
+        return hierarchiesByScope.size();
+    }
+
+    public IBaseDao<CnATreeElement, Serializable> getElementDao() {
+        return elementDao;
+    }
+
+    public void setElementDao(IBaseDao<CnATreeElement, Serializable> elementDao) {
+        this.elementDao = elementDao;
+    }
+
+    public ClusterCacheInvalidator getClusterCacheInvalidator() {
+        return clusterCacheInvalidator;
+    }
+
+    public void setClusterCacheInvalidator(ClusterCacheInvalidator clusterCacheInvalidator) {
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+    }
+
+    public void setChangeListener(HierarchyChangeListener changeListener) {
+        changeListener.setHierarchyIndex(this);
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.Collection;
+import java.util.List;
+
+import sernet.verinice.model.common.CacheInvalidation;
+
+/**
+ * Sends {@link CacheInvalidation}s of one server node to the other nodes of a
+ * cluster, see {@link ClusterCacheInvalidator}.
+ */
+public interface ICacheInvalidationTransport {
+
+    /**
+     * Sends invalidations to the other nodes. This method is called inside
+     * the transaction which changed the collections, before it is committed.
+     * Invalidations of transactions which are rolled back must not be
+     * delivered.
+     */
+    void publish(Collection<CacheInvalidation> invalidations);
+
+    /**
+     * @return The invalidations which were sent by other nodes since the last
+     *         call, never null
+     */
+    List<CacheInvalidation> receive();
+}
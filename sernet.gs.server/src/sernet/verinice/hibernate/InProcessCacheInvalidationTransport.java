@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import sernet.verinice.model.common.CacheInvalidation;
+
+/**
+ * Transport for nodes running in the same JVM, e.g. in tests. Invalidations
+ * are delivered to all connected transports after the transaction is
+ * committed.
+ */
+public class InProcessCacheInvalidationTransport implements ICacheInvalidationTransport {
+
+    private final List<InProcessCacheInvalidationTransport> nodes;
+
+    private final ConcurrentLinkedQueue<CacheInvalidation> received = new ConcurrentLinkedQueue<>();
+
+    private final AfterCompletionBuffer<CacheInvalidation> buffer = new AfterCompletionBuffer<>(
+            this::deliver, false);
+
+    /**
+     * Creates the transport of the first node
+     */
+    public InProcessCacheInvalidationTransport() {
+        this.nodes = new CopyOnWriteArrayList<>();
+        nodes.add(this);
+    }
+
+    /**
+     * Creates the transport of another node connected with the node of the
+     * given transport
+     */
+    public InProcessCacheInvalidationTransport(InProcessCacheInvalidationTransport node) {
+        this.nodes = node.nodes;
+        nodes.add(this);
+    }
+
+    @Override
+    public void publish(Collection<CacheInvalidation> invalidations) {
+        invalidations.forEach(buffer::add);
+    }
+
+    private void deliver(List<CacheInvalidation> invalidations) {
+        for (InProcessCacheInvalidationTransport node : nodes) {
+            if (node != this) {
+                node.received.addAll(invalidations);
+            }
+        }
+    }
+
+    @Override
+    public List<CacheInvalidation> receive() {
+        List<CacheInvalidation> invalidations = new ArrayList<>();
+        CacheInvalidation invalidation;
+        while ((invalidation = received.poll()) != null) {
+            invalidations.add(invalidation);
+        }
+        return invalidations;
+    }
+}
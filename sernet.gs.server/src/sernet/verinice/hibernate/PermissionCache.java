@@ -0,0 +1,465 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.hibernate.Session;
+import org.hibernate.engine.SessionImplementor;
+
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.model.common.Permission;
+
+/**
+ * Caches the effective read and write permissions of roles and role sets.
+ *
+ * For every role the ids of the readable and writable elements are loaded
+ * with one query and stored in a compact id set. The permissions of a role
+ * set are the union of the permissions of its roles. The cache is
+ * invalidated by the {@link PermissionChangeListener} after a transaction
+ * which changed permissions is completed.
+ *
+ * The cache is not used in a transaction which changed permissions before.
+ * The database is the reference in this case, because the cache only
+ * contains committed permissions.
+ *
+ * The cache is node-local. It is not used if the
+ * {@link ClusterCacheInvalidator} is enabled, because permissions changed on
+ * another server node would not invalidate it.
+ */
+public class PermissionCache {
+
+    private static final Logger LOG = Logger.getLogger(PermissionCache.class);
+
+    /**
+     * Filter with a subquery on table permission, defined in
+     * CnATreeElement.hbm.xml
+     */
+    public static final String READ_FILTER = "userAccessReadFilter";
+
+    /**
+     * Filter with a list of readable element ids, defined in
+     * CnATreeElement.hbm.xml
+     */
+    public static final String READ_ID_FILTER = "userAccessIdFilter";
+
+    public static final int DEFAULT_MAX_IDS_IN_FILTER = 1000;
+
+    private static final String PARAM_ROLES = "currentRoles";
+    private static final String PARAM_READ_ALLOWED = "readAllowed";
+    private static final String PARAM_IDS = "allowedIds";
+    private static final Integer NO_ID = -1;
+
+    private static final String HQL_PERMISSIONS = "select p.cnaTreeElement.dbId, "
+            + "p.readAllowed, p.writeAllowed from Permission p where p.role = ?";
+
+    private IBaseDao<Permission, Integer> permissionDao;
+
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
+    private int maxIdsInFilter = DEFAULT_MAX_IDS_IN_FILTER;
+
+    private final Map<String, RolePermissions> rolePermissions = new ConcurrentHashMap<>();
+
+    private final Map<String, RolePermissions> roleSetPermissions = new ConcurrentHashMap<>();
+
+    /**
+     * Roles of the sessions with an enabled id filter, used to replace the id
+     * filter if permissions are changed in the session
+     */
+    private final Map<SessionImplementor, Collection<?>> idFilterRoles = Collections
+            .synchronizedMap(new WeakHashMap<>());
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AfterCompletionBuffer<String> changedRoles = new AfterCompletionBuffer<>(
+            this::invalidate, false);
+
+    /**
+     * Returns true if one of the roles has write permission for an element.
+     * Returns false if the cache can not be used or none of the roles has
+     * write permission, check the database in this case.
+     */
+    public boolean isWriteAllowed(String[] roles, Integer dbId) {
+        if (roles == null || dbId == null || !isEnabled() || hasPendingChanges()) {
+            return false;
+        }
+        return getPermissions(roles).isWriteAllowed(dbId);
+    }
+
+    /**
+     * Returns true if one of the roles has read permission for an element.
+     * Returns false if the cache can not be used or none of the roles has
+     * read permission, check the database in this case.
+     */
+    public boolean isReadAllowed(String[] roles, Integer dbId) {
+        if (roles == null || dbId == null || !isEnabled() || hasPendingChanges()) {
+            return false;
+        }
+        return getPermissions(roles).isReadAllowed(dbId);
+    }
+
+    /**
+     * Enables a filter for elements the roles have read permission for.
+     *
+     * If the roles have read permission for at most maxIdsInFilter elements
+     * the filter contains the ids of all readable elements. Otherwise the
+     * filter checks the permissions with a subquery.
+     */
+    public void enableReadFilter(Session session, Object[] roles) {
+        if (roles != null && roles.length > 0 && isEnabled() && !hasPendingChanges()) {
+            RolePermissions permissions = getPermissions(toStringArray(roles));
+            if (permissions.getNumberOfReadableElements() <= maxIdsInFilter) {
+                List<Integer> ids = permissions.getReadableIds();
+                if (ids.isEmpty()) {
+                    ids = Collections.singletonList(NO_ID);
+                }
+                session.enableFilter(READ_ID_FILTER).setParameterList(PARAM_IDS, ids);
+                idFilterRoles.put(nativeSession(session), Arrays.asList(roles));
+                return;
+            }
+        }
+        enableSubqueryFilter(session, Arrays.asList(roles));
+    }
+
+    public void disableReadFilter(Session session) {
+        session.disableFilter(READ_FILTER);
+        session.disableFilter(READ_ID_FILTER);
+        idFilterRoles.remove(nativeSession(session));
+    }
+
+    private void enableSubqueryFilter(Session session, Collection<?> roles) {
+        session.disableFilter(READ_ID_FILTER);
+        idFilterRoles.remove(nativeSession(session));
+        session.enableFilter(READ_FILTER).setParameterList(PARAM_ROLES, roles)
+                .setParameter(PARAM_READ_ALLOWED, Boolean.TRUE);
+    }
+
+    /**
+     * Called if a permission of a role is inserted, updated or deleted in a
+     * session. The cache is invalidated after the transaction is completed.
+     * If the id filter is enabled in the session it is replaced by the
+     * subquery filter.
+     */
+    public void permissionChanged(Session session, String role) {
+        changedRoles.add(role);
+        Collection<?> roles = idFilterRoles.get(nativeSession(session));
+        if (roles != null && session.getEnabledFilter(READ_ID_FILTER) != null) {
+            enableSubqueryFilter(session, roles);
+        }
+    }
+
+    /**
+     * Called if permissions of roles were changed by a bulk update which
+     * does not fire Hibernate events. The cache is invalidated after the
+     * transaction is completed.
+     */
+    public void permissionsChanged(String... roles) {
+        for (String role : roles) {
+            changedRoles.add(role);
+        }
+    }
+
+    /**
+     * Invalidates the cached permissions of roles.
+     */
+    public void invalidate(Collection<String> roles) {
+        generation.incrementAndGet();
+        for (String role : roles) {
+            rolePermissions.remove(role);
+        }
+        roleSetPermissions.clear();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Permissions of roles invalidated: " + roles);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        rolePermissions.clear();
+        roleSetPermissions.clear();
+    }
+
+    /**
+     * @return false if the cache is not used, because cache invalidations are
+     *         sent between server nodes
+     */
+    public boolean isEnabled() {
+        return clusterCacheInvalidator == null || !clusterCacheInvalidator.isEnabled();
+    }
+
+    private boolean hasPendingChanges() {
+        return changedRoles.hasPendingItems();
+    }
+
+    private RolePermissions getPermissions(String[] roles) {
+        if (roles.length == 1) {
+            return getRolePermissions(roles[0]);
+        }
+        String[] sortedRoles = roles.clone();
+        Arrays.sort(sortedRoles);
+        String key = String.join("\n", sortedRoles);
+        RolePermissions permissions = roleSetPermissions.get(key);
+        if (permissions == null) {
+            long currentGeneration = generation.get();
+            List<RolePermissions> permissionsOfRoles = new ArrayList<>(roles.length);
+            for (String role : sortedRoles) {
+                permissionsOfRoles.add(getRolePermissions(role));
+            }
+            permissions = RolePermissions.union(permissionsOfRoles);
+            if (isCacheable(currentGeneration)) {
+                roleSetPermissions.put(key, permissions);
+            }
+        }
+        return permissions;
+    }
+
+    private RolePermissions getRolePermissions(String role) {
+        RolePermissions permissions = rolePermissions.get(role);
+        if (permissions == null) {
+            long currentGeneration = generation.get();
+            permissions = loadRolePermissions(role);
+            if (isCacheable(currentGeneration)) {
+                rolePermissions.put(role, permissions);
+            }
+        }
+        return permissions;
+    }
+
+    /**
+     * Loaded permissions are not cached if the cache was invalidated while
+     * loading or if the query flushed permission changes of the current
+     * transaction.
+     */
+    private boolean isCacheable(long generationBeforeLoading) {
+        return generationBeforeLoading == generation.get() && !hasPendingChanges();
+    }
+
+    @SuppressWarnings("unchecked")
+    private RolePermissions loadRolePermissions(String role) {
+        long start = System.currentTimeMillis();
+        List<Object[]> rows = getPermissionDao().findByQuery(HQL_PERMISSIONS,
+                new Object[] { role });
+        int[] readIds = new int[rows.size()];
+        int[] writeIds = new int[rows.size()];
+        int numberOfReadIds = 0;
+        int numberOfWriteIds = 0;
+        for (Object[] row : rows) {
+            int dbId = (Integer) row[0];
+            if (Boolean.TRUE.equals(row[1])) {
+                readIds[numberOfReadIds++] = dbId;
+            }
+            if (Boolean.TRUE.equals(row[2])) {
+                writeIds[numberOfWriteIds++] = dbId;
+            }
+        }
+        RolePermissions permissions = new RolePermissions(
+                IdSet.of(Arrays.copyOf(readIds, numberOfReadIds)),
+                IdSet.of(Arrays.copyOf(writeIds, numberOfWriteIds)));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Permissions of role " + role + " loaded, readable: "
+                    + numberOfReadIds + ", writable: " + numberOfWriteIds + ", time: "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+        return permissions;
+    }
+
+    /**
+     * Callbacks of the Hibernate template get a proxy of the session, events
+     * get the session itself.
+     */
+    private static SessionImplementor nativeSession(Session session) {
+        return ((SessionImplementor) session).getPersistenceContext().getSession();
+    }
+
+    private static String[] toStringArray(Object[] roles) {
+        String[] stringRoles = new String[roles.length];
+        for (int i = 0; i < roles.length; i++) {
+            stringRoles[i] = (String) roles[i];
+        }
+        return stringRoles;
+    }
+
+    public IBaseDao<Permission, Integer> getPermissionDao() {
+        return permissionDao;
+    }
+
+    public void setPermissionDao(IBaseDao<Permission, Integer> permissionDao) {
+        this.permissionDao = permissionDao;
+    }
+
+    public ClusterCacheInvalidator getClusterCacheInvalidator() {
+        return clusterCacheInvalidator;
+    }
+
+    public void setClusterCacheInvalidator(ClusterCacheInvalidator clusterCacheInvalidator) {
+        this.clusterCacheInvalidator = clusterCacheInvalidator;
+    }
+
+    public int getMaxIdsInFilter() {
+        return maxIdsInFilter;
+    }
+
+    /**
+     * Sets the maximum number of element ids in a read filter. Set to 0 to
+     * disable filters with ids.
+     */
+    public void setMaxIdsInFilter(int maxIdsInFilter) {
+        this.maxIdsInFilter = maxIdsInFilter;
+    }
+
+    public void setChangeListener(PermissionChangeListener changeListener) {
+        changeListener.setPermissionCache(this);
+    }
+
+    /**
+     * Readable and writable elements of a role or role set.
+     */
+    static final class RolePermissions {
+
+        private final IdSet readIds;
+        private final IdSet writeIds;
+
+        RolePermissions(IdSet readIds, IdSet writeIds) {
+            this.readIds = readIds;
+            this.writeIds = writeIds;
+        }
+
+        static RolePermissions union(List<RolePermissions> permissions) {
+            List<IdSet> readSets = new ArrayList<>(permissions.size());
+            List<IdSet> writeSets = new ArrayList<>(permissions.size());
+            for (RolePermissions p : permissions) {
+                readSets.add(p.readIds);
+                writeSets.add(p.writeIds);
+            }
+            return new RolePermissions(IdSet.union(readSets), IdSet.union(writeSets));
+        }
+
+        boolean isReadAllowed(int dbId) {
+            return readIds.contains(dbId);
+        }
+
+        boolean isWriteAllowed(int dbId) {
+            return writeIds.contains(dbId);
+        }
+
+        int getNumberOfReadableElements() {
+            return readIds.size();
+        }
+
+        List<Integer> getReadableIds() {
+            return readIds.toList();
+        }
+    }
+
+    /**
+     * Immutable set of element ids. Dense sets are stored in a {@link BitSet},
+     * sparse sets in a sorted array.
+     */
+    static final class IdSet {
+
+        private static final int BITS_PER_ID = 32;
+
+        private final int[] sortedIds;
+        private final BitSet bits;
+        private final int size;
+
+        private IdSet(int[] sortedIds, BitSet bits, int size) {
+            this.sortedIds = sortedIds;
+            this.bits = bits;
+            this.size = size;
+        }
+
+        static IdSet of(int[] ids) {
+            Arrays.sort(ids);
+            int size = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 0 || ids[i] != ids[i - 1]) {
+                    ids[size++] = ids[i];
+                }
+            }
+            if (size > 0 && ids[0] >= 0 && (long) size * BITS_PER_ID > ids[size - 1]) {
+                BitSet bits = new BitSet(ids[size - 1] + 1);
+                for (int i = 0; i < size; i++) {
+                    bits.set(ids[i]);
+                }
+                return new IdSet(null, bits, size);
+            }
+            return new IdSet(Arrays.copyOf(ids, size), null, size);
+        }
+
+        static IdSet union(List<IdSet> sets) {
+            int total = 0;
+            for (IdSet set : sets) {
+                total += set.size;
+            }
+            int[] ids = new int[total];
+            int position = 0;
+            for (IdSet set : sets) {
+                position = set.copyTo(ids, position);
+            }
+            return of(ids);
+        }
+
+        boolean contains(int id) {
+            if (bits != null) {
+                return id >= 0 && bits.get(id);
+            }
+            return Arrays.binarySearch(sortedIds, id) >= 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        List<Integer> toList() {
+            List<Integer> list = new ArrayList<>(size);
+            if (bits != null) {
+                for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                    list.add(id);
+                }
+            } else {
+                for (int id : sortedIds) {
+                    list.add(id);
+                }
+            }
+            return list;
+        }
+
+        private int copyTo(int[] target, int position) {
+            if (bits != null) {
+                for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+                    target[position++] = id;
+                }
+                return position;
+            }
+            System.arraycopy(sortedIds, 0, target, position, size);
+            return position + size;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import org.hibernate.event.EventSource;
+import org.hibernate.event.PostDeleteEvent;
+import org.hibernate.event.PostDeleteEventListener;
+import org.hibernate.event.PostInsertEvent;
+import org.hibernate.event.PostInsertEventListener;
+import org.hibernate.event.PostUpdateEvent;
+import org.hibernate.event.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import sernet.verinice.model.common.Permission;
+
+/**
+ * Hibernate event listener which passes changes of {@link Permission}s to
+ * the {@link PermissionCache}. The listener is registered in the Spring
+ * configuration of the session factory, the cache registers itself at the
+ * listener.
+ */
+public class PermissionChangeListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private static final long serialVersionUID = 7383617286227001549L;
+
+    private static final String PROPERTY_ROLE = "role";
+
+    private transient PermissionCache permissionCache;
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Permission) {
+            permissionChanged(event.getSession(), ((Permission) event.getEntity()).getRole());
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Permission) {
+            permissionChanged(event.getSession(), ((Permission) event.getEntity()).getRole());
+            String oldRole = getRole(event.getPersister(), event.getOldState());
+            if (oldRole != null) {
+                permissionChanged(event.getSession(), oldRole);
+            }
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Permission) {
+            permissionChanged(event.getSession(), ((Permission) event.getEntity()).getRole());
+        }
+    }
+
+    private void permissionChanged(EventSource session, String role) {
+        if (permissionCache != null && role != null) {
+            permissionCache.permissionChanged(session, role);
+        }
+    }
+
+    private static String getRole(EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        String[] propertyNames = persister.getPropertyNames();
+        for (int i = 0; i < propertyNames.length; i++) {
+            if (PROPERTY_ROLE.equals(propertyNames[i])) {
+                return (String) state[i];
+            }
+        }
+        return null;
+    }
+
+    public void setPermissionCache(PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+}
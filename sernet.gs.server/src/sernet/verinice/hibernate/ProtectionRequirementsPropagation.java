@@ -0,0 +1,418 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import org.hibernate.Filter;
+import org.hibernate.Session;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.impl.FilterImpl;
+
+import sernet.gs.service.CollectionUtil;
+import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.interfaces.IDao;
+import sernet.verinice.interfaces.IReevaluator;
+import sernet.verinice.model.bsi.MaximumProtectionRequirementsListener;
+import sernet.verinice.model.bsi.Schutzbedarf;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.common.ILinkChangeListener;
+import sernet.verinice.model.iso27k.InheritLogger;
+import sernet.verinice.model.iso27k.MaximumProtectionRequirementsValueListener;
+
+/**
+ * Propagates protection requirements (confidentiality, integrity and
+ * availability) from changed elements to all elements depending on them.
+ * 
+ * A link from a dependant to a dependency passes the protection requirements
+ * of the dependant down to the dependency. An element that uses the maximum
+ * principle for a value gets the highest value of all its dependants.
+ * 
+ * The affected part of the link graph is loaded level by level with one
+ * query per level instead of walking lazy link collections element by
+ * element. All three values are computed in a single pass in topological
+ * order. Elements on a link cycle get the smallest values that are consistent
+ * with the maximum principle, so a cycle cannot keep outdated values.
+ * Only elements whose values actually change are modified.
+ * 
+ * Instances are not thread-safe and must be used for one propagation only.
+ */
+public class ProtectionRequirementsPropagation {
+
+    private static final InheritLogger LOG_INHERIT = InheritLogger
+            .getLogger(ProtectionRequirementsPropagation.class);
+
+    private static final String HQL_DEPENDENCIES = "select link.id.dependencyId from CnALink link "
+            + "where link.id.dependantId in (:ids)";
+    private static final String HQL_DEPENDANTS = "select link.id.dependencyId, link.id.dependantId "
+            + "from CnALink link where link.id.dependencyId in (:ids)";
+
+    private enum Value {
+        CONFIDENTIALITY(IReevaluator::getConfidentiality, IReevaluator::setConfidentiality,
+                IReevaluator::getConfidentialityDescription,
+                IReevaluator::isCalculatedConfidentiality),
+        INTEGRITY(IReevaluator::getIntegrity, IReevaluator::setIntegrity,
+                IReevaluator::getIntegrityDescription, IReevaluator::isCalculatedIntegrity),
+        AVAILABILITY(IReevaluator::getAvailability, IReevaluator::setAvailability,
+                IReevaluator::getAvailabilityDescription, IReevaluator::isCalculatedAvailability);
+
+        private final ToIntFunction<IReevaluator> getter;
+        private final ObjIntConsumer<IReevaluator> setter;
+        private final Function<IReevaluator, String> description;
+        private final Predicate<IReevaluator> calculated;
+
+        Value(ToIntFunction<IReevaluator> getter, ObjIntConsumer<IReevaluator> setter,
+                Function<IReevaluator, String> description, Predicate<IReevaluator> calculated) {
+            this.getter = getter;
+            this.setter = setter;
+            this.description = description;
+            this.calculated = calculated;
+        }
+    }
+
+    private static final Value[] VALUES = Value.values();
+
+    private final Session session;
+
+    /**
+     * All protection requirements providers known to this propagation, the
+     * affected elements as well as their dependants.
+     */
+    private final Map<Integer, CnATreeElement> providers = new HashMap<>();
+
+    /** Ids of all elements that have been loaded, including non-providers */
+    private final Set<Integer> loadedIds = new HashSet<>();
+
+    /** Ids of the changed elements and of all providers depending on them */
+    private final Set<Integer> affectedIds = new LinkedHashSet<>();
+
+    /** Ids of the dependants (which are providers) of every affected element */
+    private final Map<Integer, Set<Integer>> dependantIds = new HashMap<>();
+
+    /** Current values for all providers, new values for affected elements */
+    private final Map<Integer, int[]> values = new HashMap<>();
+
+    private final Map<Integer, boolean[]> calculated = new HashMap<>();
+
+    public ProtectionRequirementsPropagation(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Recalculates the protection requirements of all elements depending on
+     * the given elements and of the given elements themselves.
+     * 
+     * @param changedElements
+     *            persistent elements whose values or links were changed
+     * @return all elements whose protection requirements were changed
+     */
+    public List<CnATreeElement> propagate(Collection<? extends CnATreeElement> changedElements) {
+        for (CnATreeElement element : changedElements) {
+            if (element.getDbId() != null && element.isProtectionRequirementsProvider()) {
+                providers.put(element.getDbId(), element);
+                affectedIds.add(element.getDbId());
+            }
+        }
+        if (affectedIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        loadedIds.addAll(affectedIds);
+        withoutFilters(() -> {
+            loadAffectedElements();
+            loadDependants();
+            return null;
+        });
+        if (LOG_INHERIT.isDebug()) {
+            LOG_INHERIT.debug("Propagating protection requirements of " + changedElements.size()
+                    + " element(s) to " + affectedIds.size() + " element(s)");
+        }
+        providers.forEach((id, element) -> values.put(id, readValues(element)));
+        affectedIds.forEach(id -> calculated.put(id, isCalculated(providers.get(id))));
+        calculate();
+        return writeValues();
+    }
+
+    /**
+     * Walks down the links from the changed elements breadth first and loads
+     * all providers on the way.
+     */
+    private void loadAffectedElements() {
+        Collection<Integer> level = new ArrayList<>(affectedIds);
+        while (!level.isEmpty()) {
+            Set<Integer> dependencies = new HashSet<>();
+            for (Object row : findByIds(HQL_DEPENDENCIES, level)) {
+                dependencies.add((Integer) row);
+            }
+            dependencies.removeAll(loadedIds);
+            level = new ArrayList<>();
+            for (CnATreeElement element : loadProviders(dependencies)) {
+                affectedIds.add(element.getDbId());
+                level.add(element.getDbId());
+            }
+        }
+    }
+
+    private void loadDependants() {
+        List<Object[]> links = new ArrayList<>();
+        Set<Integer> unknownIds = new HashSet<>();
+        for (Object row : findByIds(HQL_DEPENDANTS, affectedIds)) {
+            Object[] link = (Object[]) row;
+            links.add(link);
+            unknownIds.add((Integer) link[1]);
+        }
+        unknownIds.removeAll(loadedIds);
+        loadProviders(unknownIds);
+        for (Object[] link : links) {
+            Integer dependencyId = (Integer) link[0];
+            Integer dependantId = (Integer) link[1];
+            if (providers.containsKey(dependantId) && !dependantId.equals(dependencyId)) {
+                dependantIds.computeIfAbsent(dependencyId, id -> new HashSet<>())
+                        .add(dependantId);
+            }
+        }
+    }
+
+    /**
+     * Calculates the affected elements in topological order (Kahn's
+     * algorithm). Elements which are left over are part of or below a link
+     * cycle, their values are calculated as the least fixpoint.
+     */
+    private void calculate() {
+        Map<Integer, Integer> numberOfPendingDependants = new HashMap<>();
+        Map<Integer, List<Integer>> affectedDependencies = new HashMap<>();
+        for (Integer id : affectedIds) {
+            for (Integer dependantId : getDependantIds(id)) {
+                if (affectedIds.contains(dependantId)) {
+                    numberOfPendingDependants.merge(id, 1, Integer::sum);
+                    affectedDependencies.computeIfAbsent(dependantId, key -> new ArrayList<>())
+                            .add(id);
+                }
+            }
+        }
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (Integer id : affectedIds) {
+            if (!numberOfPendingDependants.containsKey(id)) {
+                ready.add(id);
+            }
+        }
+        Set<Integer> pendingIds = new LinkedHashSet<>(affectedIds);
+        while (!ready.isEmpty()) {
+            Integer id = ready.poll();
+            pendingIds.remove(id);
+            calculate(id);
+            for (Integer dependencyId : affectedDependencies.getOrDefault(id,
+                    Collections.emptyList())) {
+                if (numberOfPendingDependants.merge(dependencyId, -1, Integer::sum) == 0) {
+                    ready.add(dependencyId);
+                }
+            }
+        }
+        if (!pendingIds.isEmpty()) {
+            calculateCycles(pendingIds);
+        }
+    }
+
+    private void calculateCycles(Set<Integer> ids) {
+        if (LOG_INHERIT.isInfo()) {
+            LOG_INHERIT.info("Links between " + ids.size() + " elements form at least one "
+                    + "cycle, calculating the least consistent protection requirements");
+        }
+        for (Integer id : ids) {
+            int[] newValues = values.get(id);
+            boolean[] isCalculated = calculated.get(id);
+            for (Value value : VALUES) {
+                if (isCalculated[value.ordinal()]) {
+                    newValues[value.ordinal()] = 0;
+                }
+            }
+        }
+        // values only grow and are bounded, so this terminates
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Integer id : ids) {
+                changed |= calculate(id);
+            }
+        }
+    }
+
+    /**
+     * Sets the calculated values of an affected element to the maximum values
+     * of its dependants.
+     * 
+     * @return true if a value was changed
+     */
+    private boolean calculate(Integer id) {
+        boolean[] isCalculated = calculated.get(id);
+        int[] newValues = values.get(id);
+        boolean changed = false;
+        for (Value value : VALUES) {
+            int index = value.ordinal();
+            if (isCalculated[index]) {
+                int highestValue = 0;
+                for (Integer dependantId : getDependantIds(id)) {
+                    highestValue = Math.max(highestValue, values.get(dependantId)[index]);
+                }
+                changed |= newValues[index] != highestValue;
+                newValues[index] = highestValue;
+            }
+        }
+        return changed;
+    }
+
+    private List<CnATreeElement> writeValues() {
+        List<CnATreeElement> changedElements = new ArrayList<>();
+        for (Integer id : affectedIds) {
+            CnATreeElement element = providers.get(id);
+            IReevaluator provider = element.getProtectionRequirementsProvider();
+            int[] newValues = values.get(id);
+            boolean changed = false;
+            for (Value value : VALUES) {
+                int newValue = newValues[value.ordinal()];
+                if (calculated.get(id)[value.ordinal()]
+                        && value.getter.applyAsInt(provider) != newValue) {
+                    if (LOG_INHERIT.isInfo()) {
+                        LOG_INHERIT.info("Setting maximum " + value.name().toLowerCase() + " "
+                                + newValue + " for " + element.getTitle());
+                    }
+                    value.setter.accept(provider, newValue);
+                    changed = true;
+                }
+            }
+            if (changed) {
+                element.getEntity().trackChange("system");
+                changedElements.add(element);
+            }
+        }
+        return changedElements;
+    }
+
+    private Set<Integer> getDependantIds(Integer id) {
+        return dependantIds.getOrDefault(id, Collections.emptySet());
+    }
+
+    private List<CnATreeElement> loadProviders(Set<Integer> ids) {
+        loadedIds.addAll(ids);
+        List<CnATreeElement> result = new ArrayList<>();
+        for (List<Integer> chunk : CollectionUtil.partition(List.copyOf(ids),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class)
+                    .add(Restrictions.in("dbId", chunk));
+            RetrieveInfo.getPropertyInstance().configureCriteria(criteria);
+            for (Object object : criteria.getExecutableCriteria(session).list()) {
+                CnATreeElement element = (CnATreeElement) object;
+                if (element.isProtectionRequirementsProvider()) {
+                    providers.put(element.getDbId(), element);
+                    result.add(element);
+                }
+            }
+        }
+        return result;
+    }
+
+    private List<?> findByIds(String hql, Collection<Integer> ids) {
+        List<Object> result = new ArrayList<>();
+        for (List<Integer> chunk : CollectionUtil.partition(List.copyOf(ids),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            result.addAll(session.createQuery(hql).setParameterList("ids", chunk).list());
+        }
+        return result;
+    }
+
+    private static int[] readValues(CnATreeElement element) {
+        IReevaluator provider = element.getProtectionRequirementsProvider();
+        int[] result = new int[VALUES.length];
+        for (Value value : VALUES) {
+            result[value.ordinal()] = value.getter.applyAsInt(provider);
+        }
+        return result;
+    }
+
+    /**
+     * Returns for each value whether it is calculated by the maximum
+     * principle. BSI elements mark this in the description of a value, ISO
+     * elements in a separate property.
+     */
+    private static boolean[] isCalculated(CnATreeElement element) {
+        ILinkChangeListener listener = element.getLinkChangeListener();
+        IReevaluator provider = element.getProtectionRequirementsProvider();
+        boolean[] result = new boolean[VALUES.length];
+        for (Value value : VALUES) {
+            if (listener instanceof MaximumProtectionRequirementsListener) {
+                String description = value.description.apply(provider);
+                result[value.ordinal()] = description != null
+                        && Schutzbedarf.isMaximumPrinzip(description);
+            } else if (listener instanceof MaximumProtectionRequirementsValueListener) {
+                result[value.ordinal()] = value.calculated.test(provider);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Protection requirements are passed along links regardless of the
+     * permissions of the current user and of the scope filter, so all session
+     * filters are disabled while loading the link graph.
+     */
+    private <R> R withoutFilters(Supplier<R> work) {
+        if (!(session instanceof SessionImplementor)) {
+            return work.get();
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Filter> enabledFilters = new LinkedHashMap<>(
+                ((SessionImplementor) session).getEnabledFilters());
+        enabledFilters.keySet().forEach(session::disableFilter);
+        try {
+            return work.get();
+        } finally {
+            enabledFilters.forEach(this::enableFilter);
+        }
+    }
+
+    private void enableFilter(String name, Filter filter) {
+        Filter enabledFilter = session.enableFilter(name);
+        if (filter instanceof FilterImpl) {
+            Map<?, ?> parameters = ((FilterImpl) filter).getParameters();
+            parameters.forEach((parameter, value) -> {
+                if (value instanceof Collection) {
+                    enabledFilter.setParameterList((String) parameter, (Collection<?>) value);
+                } else {
+                    enabledFilter.setParameter((String) parameter, value);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.hibernate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable hierarchy of the elements of one scope stored in primitive
+ * arrays.
+ * 
+ * The elements are numbered in pre-order. The subtree of the element at
+ * position p consists of the positions p to subtreeEnds[p], subtree
+ * enumeration does not visit elements outside of the subtree.
+ */
+public final class ScopeHierarchy {
+
+    private static final int NONE = -1;
+
+    /**
+     * Database ids sorted ascending
+     */
+    private final int[] sortedIds;
+
+    /**
+     * Pre-order position of the database id in sortedIds
+     */
+    private final int[] positionsOfSortedIds;
+
+    /**
+     * Database ids in pre-order
+     */
+    private final int[] ids;
+
+    private final int[] parentPositions;
+
+    private final int[] subtreeEnds;
+
+    private final String[] types;
+
+    private ScopeHierarchy(int[] sortedIds, int[] positionsOfSortedIds, int[] ids,
+            int[] parentPositions, int[] subtreeEnds, String[] types) {
+        this.sortedIds = sortedIds;
+        this.positionsOfSortedIds = positionsOfSortedIds;
+        this.ids = ids;
+        this.parentPositions = parentPositions;
+        this.subtreeEnds = subtreeEnds;
+        this.types = types;
+    }
+
+    /**
+     * Creates the hierarchy of a scope. Elements whose parent is not part of
+     * the rows are roots of the hierarchy.
+     * 
+     * @param rows
+     *            Database id, parent id (may be null) and type id of every
+     *            element of the scope
+     */
+    public static ScopeHierarchy create(List<Object[]> rows) {
+        int size = rows.size();
+        int[] rowIds = new int[size];
+        for (int row = 0; row < size; row++) {
+            rowIds[row] = (Integer) rows.get(row)[0];
+        }
+        int[] sortedIds = rowIds.clone();
+        Arrays.sort(sortedIds);
+        int[] rowsOfSortedIds = new int[size];
+        for (int row = 0; row < size; row++) {
+            rowsOfSortedIds[Arrays.binarySearch(sortedIds, rowIds[row])] = row;
+        }
+
+        int[] parentRows = new int[size];
+        int[] childCounts = new int[size + 1];
+        for (int row = 0; row < size; row++) {
+            Integer parentId = (Integer) rows.get(row)[1];
+            int sortedIndex = parentId == null ? NONE : Arrays.binarySearch(sortedIds, parentId);
+            parentRows[row] = sortedIndex < 0 ? NONE : rowsOfSortedIds[sortedIndex];
+            if (parentRows[row] != NONE) {
+                childCounts[parentRows[row] + 1]++;
+            }
+        }
+        int[] childOffsets = childCounts;
+        for (int row = 0; row < size; row++) {
+            childOffsets[row + 1] += childOffsets[row];
+        }
+        int[] childRows = new int[childOffsets[size]];
+        int[] nextChild = Arrays.copyOf(childOffsets, size);
+        for (int row = 0; row < size; row++) {
+            if (parentRows[row] != NONE) {
+                childRows[nextChild[parentRows[row]]++] = row;
+            }
+        }
+
+        int[] positionsOfRows = new int[size];
+        Arrays.fill(positionsOfRows, NONE);
+        int[] ids = new int[size];
+        int[] parentPositions = new int[size];
+        String[] types = new String[size];
+        Map<String, String> internedTypes = new HashMap<>();
+        int[] stack = new int[size];
+        int position = 0;
+        // roots first, afterwards elements of parent cycles which are not
+        // reachable from a root
+        for (int pass = 0; pass < 2; pass++) {
+            for (int start = 0; start < size; start++) {
+                if (positionsOfRows[start] != NONE
+                        || (pass == 0 && parentRows[start] != NONE)) {
+                    continue;
+                }
+                int top = 0;
+                stack[top++] = start;
+                while (top > 0) {
+                    int row = stack[--top];
+                    if (positionsOfRows[row] != NONE) {
+                        continue;
+                    }
+                    positionsOfRows[row] = position;
+                    ids[position] = rowIds[row];
+                    int parentRow = parentRows[row];
+                    parentPositions[position] = parentRow == NONE ? NONE
+                            : positionsOfRows[parentRow];
+                    String type = (String) rows.get(row)[2];
+                    types[position] = type == null ? null
+                            : internedTypes.computeIfAbsent(type, t -> t);
+                    position++;
+                    for (int i = childOffsets[row + 1] - 1; i >= childOffsets[row]; i--) {
+                        if (positionsOfRows[childRows[i]] == NONE) {
+                            stack[top++] = childRows[i];
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] subtreeSizes = new int[size];
+        Arrays.fill(subtreeSizes, 1);
+        for (int p = size - 1; p > 0; p--) {
+            if (parentPositions[p] != NONE) {
+                subtreeSizes[parentPositions[p]] += subtreeSizes[p];
+            }
+        }
+        int[] subtreeEnds = new int[size];
+        for (int p = 0; p < size; p++) {
+            subtreeEnds[p] = p + subtreeSizes[p] - 1;
+        }
+        int[] positionsOfSortedIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            positionsOfSortedIds[i] = positionsOfRows[rowsOfSortedIds[i]];
+        }
+        return new ScopeHierarchy(sortedIds, positionsOfSortedIds, ids, parentPositions,
+                subtreeEnds, types);
+    }
+
+    public boolean contains(int dbId) {
+        return getPosition(dbId) != NONE;
+    }
+
+    /**
+     * @return The database id of the parent, null if the element is a root
+     *         of the hierarchy or not in the hierarchy
+     */
+    public Integer getParentId(int dbId) {
+        int position = getPosition(dbId);
+        if (position == NONE || parentPositions[position] == NONE) {
+            return null;
+        }
+        return ids[parentPositions[position]];
+    }
+
+    /**
+     * @return The database ids of the subtree or null if the root is not in
+     *         the hierarchy
+     */
+    public Set<Integer> getSubtreeIds(int dbId, String typeId) {
+        int position = getPosition(dbId);
+        if (position == NONE) {
+            return null;
+        }
+        int end = subtreeEnds[position];
+        Set<Integer> subtreeIds = new HashSet<>((int) ((end - position + 1) / 0.75f) + 1);
+        for (int p = position; p <= end; p++) {
+            if (typeId == null || typeId.equals(types[p])) {
+                subtreeIds.add(ids[p]);
+            }
+        }
+        return subtreeIds;
+    }
+
+    /**
+     * @return The database ids of the ancestors, the parent first, or null if
+     *         the element is not in the hierarchy
+     */
+    public List<Integer> getAncestorIds(int dbId) {
+        int position = getPosition(dbId);
+        if (position == NONE) {
+            return null;
+        }
+        List<Integer> ancestorIds = new ArrayList<>();
+        for (int p = parentPositions[position]; p != NONE; p = parentPositions[p]) {
+            ancestorIds.add(ids[p]);
+        }
+        return ancestorIds;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    private int getPosition(int dbId) {
+        int index = Arrays.binarySearch(sortedIds, dbId);
+        return index < 0 ? NONE : positionsOfSortedIds[index];
+    }
+}
@@ -57,6 +57,7 @@ public class SecureTreeElementDao extends TreeElementDao<CnATreeElement, Integer
     private IBaseDao<Configuration, Integer> configurationDao;
     private IBaseDao<Permission, Integer> permissionDao;
     private IConfigurationService configurationService;
+    private PermissionCache permissionCache;
 
     public SecureTreeElementDao(Class<CnATreeElement> type) {
         super(type);
@@ -210,6 +211,9 @@ public class SecureTreeElementDao extends TreeElementDao<CnATreeElement, Integer
 
     @SuppressWarnings("unchecked")
     protected void checkRightsForNonAdmin(Integer dbId, String username, String[] roleArray) {
+        if (permissionCache != null && permissionCache.isWriteAllowed(roleArray, dbId)) {
+            return;
+        }
 
         DetachedCriteria criteria = DetachedCriteria.forClass(Permission.class)
                 .add(Restrictions.eq("cnaTreeElement.dbId", dbId))
@@ -301,9 +305,19 @@ public class SecureTreeElementDao extends TreeElementDao<CnATreeElement, Integer
     }
 
     private void setAccessFilterEnabled(boolean enable) {
-        if (enable) {
+        if (enable && permissionCache != null) {
             final Object[] roles = getConfigurationService().getRoles(authService.getUsername());
-            getHibernateTemplate().enableFilter("userAccessReadFilter")
+            getHibernateTemplate().execute(new HibernateCallback() {
+                @Override
+                public Object doInHibernate(Session session)
+                        throws HibernateException, SQLException {
+                    permissionCache.enableReadFilter(session, roles);
+                    return null;
+                }
+            });
+        } else if (enable) {
+            final Object[] roles = getConfigurationService().getRoles(authService.getUsername());
+            getHibernateTemplate().enableFilter(PermissionCache.READ_FILTER)
                     .setParameterList("currentRoles", roles)
                     .setParameter("readAllowed", Boolean.TRUE);
         } else {
@@ -311,7 +325,11 @@ public class SecureTreeElementDao extends TreeElementDao<CnATreeElement, Integer
                 @Override
                 public Object doInHibernate(Session session)
                         throws HibernateException, SQLException {
-                    session.disableFilter("userAccessReadFilter");
+                    if (permissionCache != null) {
+                        permissionCache.disableReadFilter(session);
+                    } else {
+                        session.disableFilter(PermissionCache.READ_FILTER);
+                    }
                     return null;
                 }
             });
@@ -374,4 +392,12 @@ public class SecureTreeElementDao extends TreeElementDao<CnATreeElement, Integer
         this.configurationService = configurationService;
     }
 
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    public void setPermissionCache(PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
 }
@@ -19,10 +19,12 @@ package sernet.verinice.hibernate;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
@@ -31,14 +33,15 @@ import org.hibernate.criterion.Restrictions;
 
 import sernet.gs.service.RetrieveInfo;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IElementChangeListener;
 import sernet.verinice.interfaces.IElementTitleCache;
 import sernet.verinice.interfaces.IRetrieveInfo;
 import sernet.verinice.interfaces.search.IJsonBuilder;
-import sernet.verinice.model.common.CascadingTransaction;
 import sernet.verinice.model.common.CnALink;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.iso27k.InheritLogger;
 import sernet.verinice.search.IElementSearchDao;
+import sernet.verinice.search.SearchIndexQueue;
 
 public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T, ID>
         implements IBaseDao<T, ID> {
@@ -46,8 +49,10 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
     private static final Logger LOG = Logger.getLogger(TreeElementDao.class);
     private static final InheritLogger LOG_INHERIT = InheritLogger.getLogger(TreeElementDao.class);
     private IElementSearchDao searchDao;
+    private SearchIndexQueue indexQueue;
     private IJsonBuilder jsonBuilder;
     private IElementTitleCache titleCache;
+    private List<IElementChangeListener> changeListeners = Collections.emptyList();
 
     public TreeElementDao(Class<T> type) {
         super(type);
@@ -97,6 +102,10 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
             CnATreeElement elmt = (CnATreeElement) entity;
             index(Set.of(elmt));
             notifyChangedElement(elmt);
+            fireElementsChanged(Set.of(elmt));
+        }
+        if (entity instanceof CnALink) {
+            fireLinkChanged((CnALink) entity);
         }
     }
 
@@ -108,10 +117,8 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
         super.saveOrUpdateAll(entities);
         if (!entities.isEmpty() && entities.iterator().next() instanceof CnATreeElement) {
             index((Collection<CnATreeElement>) entities);
-            for (T entity : entities) {
-                CnATreeElement elmt = (CnATreeElement) entity;
-                notifyChangedElement(elmt);
-            }
+            notifyChangedElements((Collection<CnATreeElement>) entities);
+            fireElementsChanged((Collection<CnATreeElement>) entities);
         }
     }
 
@@ -187,6 +194,10 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
         if (mergedElement instanceof CnATreeElement) {
             CnATreeElement element = (CnATreeElement) mergedElement;
             index(element);
+            fireElementsChanged(Set.of(element));
+        }
+        if (mergedElement instanceof CnALink) {
+            fireLinkChanged((CnALink) mergedElement);
         }
         return mergedElement;
     }
@@ -206,16 +217,48 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
             if (fireChange) {
                 notifyChangedElement(element);
             }
+            fireElementsChanged(Set.of(element));
         }
 
-        if (fireChange && mergedElement instanceof CnALink) {
+        if (mergedElement instanceof CnALink) {
             CnALink link = (CnALink) mergedElement;
-            notifyChangedElement(link.getDependency());
+            if (fireChange) {
+                notifyChangedElement(link.getDependency());
+            }
+            fireLinkChanged(link);
         }
 
         return mergedElement;
     }
 
+    @Override
+    public void delete(T entity) {
+        super.delete(entity);
+        if (entity instanceof CnATreeElement) {
+            fireElementsRemoved(Set.of((CnATreeElement) entity));
+        }
+        if (entity instanceof CnALink) {
+            fireLinkRemoved((CnALink) entity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void delete(List<T> entities) {
+        super.delete(entities);
+        if (entities.isEmpty()) {
+            return;
+        }
+        if (entities.get(0) instanceof CnATreeElement) {
+            fireElementsRemoved((Collection<CnATreeElement>) entities);
+        }
+        if (entities.get(0) instanceof CnALink) {
+            for (T entity : entities) {
+                fireLinkRemoved((CnALink) entity);
+            }
+        }
+    }
+
     protected void index(CnATreeElement element) {
         index(Set.of(element));
     }
@@ -230,7 +273,9 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
 
     private void updateIndex(Collection<CnATreeElement> elements) {
         try {
-            if (getSearchDao() != null) {
+            if (getIndexQueue() != null) {
+                getIndexQueue().update(elements);
+            } else if (getSearchDao() != null) {
                 IJsonBuilder builder = getJsonBuilder();
                 if (builder != null) {
 
@@ -252,8 +297,13 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
 
     private void updateTitleCache(CnATreeElement element) {
         try {
-            if (getTitleCache() != null && element.isScope()) {
+            if (getTitleCache() == null) {
+                return;
+            }
+            if (element.isScope()) {
                 getTitleCache().update(element.getDbId(), element.getTitle());
+            } else {
+                getTitleCache().replace(element.getDbId(), element.getTitle());
             }
         } catch (Exception e) {
             String uuid = (element != null) ? element.getUuid() : null;
@@ -262,15 +312,26 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
     }
 
     protected void indexDelete(CnATreeElement element) {
-        if (getSearchDao() != null) {
+        if (getTitleCache() != null) {
+            getTitleCache().remove(element.getDbId());
+        }
+        if (getIndexQueue() != null) {
+            getIndexQueue().delete(Set.of(element.getUuid()));
+        } else if (getSearchDao() != null) {
             getSearchDao().delete(element.getUuid());
         }
     }
 
     protected void indexDelete(List<CnATreeElement> elements) {
-        if (getSearchDao() != null) {
-            getSearchDao().delete(
-                    elements.stream().map(CnATreeElement::getUuid).collect(Collectors.toList()));
+        if (getTitleCache() != null) {
+            elements.forEach(element -> getTitleCache().remove(element.getDbId()));
+        }
+        List<String> uuids = elements.stream().map(CnATreeElement::getUuid)
+                .collect(Collectors.toList());
+        if (getIndexQueue() != null) {
+            getIndexQueue().delete(uuids);
+        } else if (getSearchDao() != null) {
+            getSearchDao().delete(uuids);
         }
     }
 
@@ -282,13 +343,50 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
      *            the element that was changed.
      */
     protected void notifyChangedElement(CnATreeElement elmt) {
-        elmt.valuesChanged();
+        notifyChangedElements(Collections.singleton(elmt));
+    }
+
+    /**
+     * Calls change listener methods on changed elements. Changes in protection
+     * level (schutzbedarf) are propagated once for all elements.
+     * 
+     * @param elements
+     *            the elements that were changed.
+     * @see ProtectionRequirementsPropagation
+     */
+    protected void notifyChangedElements(Collection<CnATreeElement> elements) {
+        elements.forEach(CnATreeElement::valuesChanged);
         if (LOG_INHERIT.isDebug()) {
             LOG_INHERIT.debug("fireChange...");
         }
-        elmt.fireIntegritaetChanged(new CascadingTransaction());
-        elmt.fireVerfuegbarkeitChanged(new CascadingTransaction());
-        elmt.fireVertraulichkeitChanged(new CascadingTransaction());
+        executeCallback(
+                session -> new ProtectionRequirementsPropagation(session).propagate(elements));
+    }
+
+    protected void fireElementsChanged(Collection<CnATreeElement> elements) {
+        fireChange(listener -> listener.elementsChanged(elements));
+    }
+
+    protected void fireElementsRemoved(Collection<CnATreeElement> elements) {
+        fireChange(listener -> listener.elementsRemoved(elements));
+    }
+
+    protected void fireLinkChanged(CnALink link) {
+        fireChange(listener -> listener.linkChanged(link));
+    }
+
+    protected void fireLinkRemoved(CnALink link) {
+        fireChange(listener -> listener.linkRemoved(link));
+    }
+
+    private void fireChange(Consumer<IElementChangeListener> event) {
+        for (IElementChangeListener listener : getChangeListeners()) {
+            try {
+                event.accept(listener);
+            } catch (Exception e) {
+                LOG.error("Error while notifying change listener: " + listener, e);
+            }
+        }
     }
 
     public Class<T> getType() {
@@ -319,6 +417,19 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
         this.searchDao = searchDao;
     }
 
+    public SearchIndexQueue getIndexQueue() {
+        return indexQueue;
+    }
+
+    /**
+     * @param indexQueue
+     *            Queue for index updates, if null the index is updated
+     *            synchronously
+     */
+    public void setIndexQueue(SearchIndexQueue indexQueue) {
+        this.indexQueue = indexQueue;
+    }
+
     public IJsonBuilder getJsonBuilder() {
         return jsonBuilder;
     }
@@ -335,4 +446,12 @@ public class TreeElementDao<T, ID extends Serializable> extends HibernateDao<T,
         this.titleCache = titleCache;
     }
 
+    public List<IElementChangeListener> getChangeListeners() {
+        return changeListeners;
+    }
+
+    public void setChangeListeners(List<IElementChangeListener> changeListeners) {
+        this.changeListeners = changeListeners;
+    }
+
 }
@@ -70,6 +70,8 @@ public abstract class BaseDao implements ISearchDao {
 
     private static final Logger LOG = Logger.getLogger(BaseDao.class);
 
+    private static final int BULK_TIMEOUT_SECONDS = 60;
+
     private ElasticsearchClientFactory clientFactory;
 
     private IConfigurationService configurationService;
@@ -90,7 +92,7 @@ public abstract class BaseDao implements ISearchDao {
     @Override
     public ActionResponse updateOrIndex(Map<String, String> idToJson) {
         try {
-            return update(idToJson);
+            return update(idToJson, true);
         } catch (ElasticsearchException e) {
             LOG.error("Error while updating elements, reason: " + e.getMessage());
             LOG.error(e.getDetailedMessage());
@@ -99,9 +101,22 @@ public abstract class BaseDao implements ISearchDao {
 
     }
 
+    /*
+     * @see sernet.verinice.search.ISearchDao#updateOrIndex(java.util.Map,
+     * boolean)
+     */
+    @Override
+    public ActionResponse updateOrIndex(Map<String, String> idToJson, boolean refresh) {
+        return update(idToJson, refresh);
+    }
+
     public ActionResponse update(Map<String, String> idToJson) {
+        return update(idToJson, true);
+    }
+
+    private ActionResponse update(Map<String, String> idToJson, boolean refresh) {
         try {
-            BulkRequestBuilder request = getClient().prepareBulk().setRefresh(true)
+            BulkRequestBuilder request = getClient().prepareBulk().setRefresh(refresh)
                     .setTimeout(TimeValue.timeValueSeconds(10));
             idToJson.forEach((id, json) -> request
                     .add(getClient().prepareUpdate(getIndex(), getType(), id).setDoc(json)));
@@ -117,11 +132,14 @@ public abstract class BaseDao implements ISearchDao {
                         }
                     }
                 }
-                index(idToJsonIndex);
+                BulkResponse indexResponse = index(idToJsonIndex, refresh);
+                if (indexResponse.hasFailures()) {
+                    throw new ElasticsearchException(indexResponse.buildFailureMessage());
+                }
             }
             return response;
         } catch (DocumentMissingException e) {
-            return index(idToJson);
+            return index(idToJson, refresh);
         } catch (RuntimeException e) {
             throw e;
         } catch (Exception e) {
@@ -137,13 +155,41 @@ public abstract class BaseDao implements ISearchDao {
      */
     @Override
     public BulkResponse index(Map<String, String> idToJson) {
-        BulkRequestBuilder request = getClient().prepareBulk().setRefresh(true)
+        return index(idToJson, true);
+    }
+
+    private BulkResponse index(Map<String, String> idToJson, boolean refresh) {
+        BulkRequestBuilder request = getClient().prepareBulk().setRefresh(refresh)
                 .setTimeout(TimeValue.timeValueSeconds(10));
         idToJson.forEach((id, json) -> request
                 .add(getClient().prepareIndex(getIndex(), getType(), id).setSource(json)));
         return request.execute().actionGet();
     }
 
+    /*
+     * @see sernet.verinice.search.ISearchDao#bulkIndex(java.util.Map)
+     */
+    @Override
+    public BulkResponse bulkIndex(Map<String, String> idToJson) {
+        BulkRequestBuilder request = getClient().prepareBulk()
+                .setTimeout(TimeValue.timeValueSeconds(BULK_TIMEOUT_SECONDS));
+        idToJson.forEach((id, json) -> request
+                .add(getClient().prepareIndex(getIndex(), getType(), id).setSource(json)));
+        BulkResponse response = request.execute().actionGet();
+        if (response.hasFailures()) {
+            throw new ElasticsearchException(response.buildFailureMessage());
+        }
+        return response;
+    }
+
+    /*
+     * @see sernet.verinice.search.ISearchDao#refresh()
+     */
+    @Override
+    public void refresh() {
+        getClient().admin().indices().prepareRefresh(getIndex()).execute().actionGet();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -161,13 +207,28 @@ public abstract class BaseDao implements ISearchDao {
 
     @Override
     public BulkResponse delete(List<String> ids) {
-        BulkRequestBuilder request = getClient().prepareBulk().setRefresh(true);
+        return bulkDelete(ids, true);
+    }
+
+    /*
+     * @see sernet.verinice.search.ISearchDao#delete(java.util.List, boolean)
+     */
+    @Override
+    public BulkResponse delete(List<String> ids, boolean refresh) {
+        BulkResponse response = bulkDelete(ids, refresh);
+        if (response.hasFailures()) {
+            throw new ElasticsearchException(response.buildFailureMessage());
+        }
+        return response;
+    }
+
+    private BulkResponse bulkDelete(List<String> ids, boolean refresh) {
+        BulkRequestBuilder request = getClient().prepareBulk().setRefresh(refresh);
         for (String id : ids) {
             DeleteRequestBuilder deleteRequest = getClient().prepareDelete(getIndex(), getType(),
                     id);
             request.add(deleteRequest);
         }
-        request.execute().actionGet();
         BulkResponse response = request.execute().actionGet();
         if (LOG.isDebugEnabled()) {
             LOG.debug("Index removed, uuids: " + ids);
@@ -62,6 +62,11 @@ public class ElementDaoDummy implements IElementSearchDao {
         return null;
     }
 
+    @Override
+    public ActionResponse updateOrIndex(Map<String, String> idToJson, boolean refresh) {
+        return null;
+    }
+
     @Override
     public ActionResponse update(Map<String, String> idToJson) {
         return null;
@@ -72,6 +77,15 @@ public class ElementDaoDummy implements IElementSearchDao {
         return null;
     }
 
+    @Override
+    public BulkResponse bulkIndex(Map<String, String> idToJson) {
+        return null;
+    }
+
+    @Override
+    public void refresh() {
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -87,6 +101,11 @@ public class ElementDaoDummy implements IElementSearchDao {
         return null;
     }
 
+    @Override
+    public BulkResponse delete(List<String> ids, boolean refresh) {
+        return null;
+    }
+
     /*
      * (non-Javadoc)
      * 
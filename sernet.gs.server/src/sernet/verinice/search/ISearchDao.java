@@ -55,6 +55,16 @@ public interface ISearchDao {
 
     public ActionResponse updateOrIndex(Map<String, String> idToJson);
 
+    /**
+     * Updates the documents or indexes them if they do not exist. Other than
+     * {@link #updateOrIndex(Map)} errors are thrown to the caller.
+     *
+     * @param refresh
+     *            If false, the index is not refreshed and the changes become
+     *            visible to searches with the next periodic refresh
+     */
+    public ActionResponse updateOrIndex(Map<String, String> idToJson, boolean refresh);
+
     public default ActionResponse update(String id, String json) {
         return update(Collections.singletonMap(id, json));
     }
@@ -67,10 +77,32 @@ public interface ISearchDao {
 
     public ActionResponse index(Map<String, String> idToJson);
 
+    /**
+     * Indexes the documents without refreshing the index. Changes are not
+     * visible to searches before {@link #refresh()} is called. Use this for
+     * large amounts of documents and refresh the index once at the end.
+     */
+    public BulkResponse bulkIndex(Map<String, String> idToJson);
+
+    /**
+     * Makes all operations performed since the last refresh visible to
+     * searches.
+     */
+    public void refresh();
+
     public DeleteResponse delete(String id);
 
     public BulkResponse delete(List<String> ids);
 
+    /**
+     * Removes the documents, errors are thrown to the caller.
+     *
+     * @param refresh
+     *            If false, the index is not refreshed and the changes become
+     *            visible to searches with the next periodic refresh
+     */
+    public BulkResponse delete(List<String> ids, boolean refresh);
+
     public void clear();
 
     public SearchResponse findAll();
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps track of the chunks of a full reindex and remembers the highest
+ * database id up to which all elements were indexed successfully. The id is
+ * written to a file, so that a reindex interrupted by a crash or shutdown can
+ * continue where it stopped instead of starting from scratch.
+ *
+ * Chunks are registered in ascending database id order and may be completed in
+ * any order. The checkpoint only moves past a chunk once this chunk and all
+ * chunks before it are completed. A failed chunk stops the checkpoint, so it is
+ * indexed again if the run is interrupted afterwards.
+ *
+ * If no file is given, the progress is tracked in memory only.
+ */
+public class IndexCheckpoint {
+
+    private static final Logger LOG = Logger.getLogger(IndexCheckpoint.class);
+
+    public static final int NO_CHECKPOINT = -1;
+
+    private final File file;
+
+    /**
+     * Last database id of all registered chunks which are not yet completed,
+     * ordered by their sequence number
+     */
+    private final TreeMap<Long, Integer> pendingChunks = new TreeMap<>();
+
+    private final Set<Long> completedChunks = new HashSet<>();
+
+    private long nextSequence = 0;
+
+    private int lastIndexedDbId;
+
+    private boolean failed = false;
+
+    public IndexCheckpoint(File file) {
+        this.file = file;
+        this.lastIndexedDbId = read();
+    }
+
+    /**
+     * @return The database id up to which all elements were indexed, or
+     *         {@link #NO_CHECKPOINT} if no element was indexed so far.
+     */
+    public synchronized int getLastIndexedDbId() {
+        return lastIndexedDbId;
+    }
+
+    /**
+     * Registers a new chunk.
+     *
+     * @param lastDbId
+     *            Highest database id in the chunk
+     * @return The sequence number of the chunk
+     */
+    public synchronized long register(int lastDbId) {
+        long sequence = nextSequence++;
+        pendingChunks.put(sequence, lastDbId);
+        return sequence;
+    }
+
+    public synchronized void complete(long sequence) {
+        completedChunks.add(sequence);
+        int checkpoint = lastIndexedDbId;
+        while (!pendingChunks.isEmpty()
+                && completedChunks.contains(pendingChunks.firstKey())) {
+            Map.Entry<Long, Integer> first = pendingChunks.pollFirstEntry();
+            completedChunks.remove(first.getKey());
+            checkpoint = first.getValue();
+        }
+        if (checkpoint != lastIndexedDbId) {
+            lastIndexedDbId = checkpoint;
+            write();
+        }
+    }
+
+    /**
+     * Marks a chunk as failed. The chunk stays pending, so the checkpoint never
+     * moves past it.
+     */
+    public synchronized void fail(long sequence) {
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Chunk " + sequence + " failed, checkpoint stays at: " + lastIndexedDbId);
+        }
+        failed = true;
+    }
+
+    public synchronized boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * Removes the checkpoint file after a reindex finished or the index was
+     * cleared.
+     */
+    public synchronized void delete() {
+        lastIndexedDbId = NO_CHECKPOINT;
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException e) {
+                LOG.warn("Could not delete reindex checkpoint file: " + file, e);
+            }
+        }
+    }
+
+    private int read() {
+        if (file == null || !file.exists()) {
+            return NO_CHECKPOINT;
+        }
+        try {
+            String content = new String(Files.readAllBytes(file.toPath()),
+                    StandardCharsets.UTF_8);
+            return Integer.parseInt(content.trim());
+        } catch (IOException | NumberFormatException e) {
+            LOG.warn("Could not read reindex checkpoint file: " + file
+                    + ", starting reindex from the beginning.", e);
+            return NO_CHECKPOINT;
+        }
+    }
+
+    private void write() {
+        if (file == null) {
+            return;
+        }
+        try {
+            File tempFile = new File(file.getPath() + ".tmp");
+            Files.write(tempFile.toPath(),
+                    String.valueOf(lastIndexedDbId).getBytes(StandardCharsets.UTF_8));
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOG.warn("Could not write reindex checkpoint file: " + file, e);
+        }
+    }
+}
@@ -36,6 +36,10 @@ import sernet.verinice.interfaces.search.ISearchService;
 import sernet.verinice.model.common.CnATreeElement;
 
 /**
+ * Loads a chunk of elements, creates the search documents and sends them to
+ * the index in one bulk request. The index is not refreshed, {@link Indexer}
+ * refreshes it once after all chunks are indexed.
+ *
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
 public class IndexThread extends DummyAuthenticatorCallable<List<IndexedElementDetails>> {
@@ -43,7 +47,7 @@ public class IndexThread extends DummyAuthenticatorCallable<List<IndexedElementD
     private IBaseDao<CnATreeElement, Integer> elementDao;
     private ISearchDao searchDao;
     private ISearchService searchService;
-    private List<String> uuids;
+    private List<Integer> dbIds;
     private IJsonBuilder jsonBuilder;
     private boolean logIndexedElementDetails = false;
 
@@ -71,13 +75,15 @@ public class IndexThread extends DummyAuthenticatorCallable<List<IndexedElementD
                 }
             }
         }
-        getSearchDao().updateOrIndex(updateDetails);
+        if (!updateDetails.isEmpty()) {
+            getSearchDao().bulkIndex(updateDetails);
+        }
         return result;
     }
 
     private List<CnATreeElement> loadElements() {
         DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class);
-        criteria.add(Restrictions.in("uuid", uuids));
+        criteria.add(Restrictions.in("dbId", dbIds));
         criteria.setFetchMode("permissions", FetchMode.JOIN);
         criteria.setFetchMode("entity", FetchMode.JOIN);
         criteria.setFetchMode("entity.typedPropertyLists", FetchMode.JOIN);
@@ -85,8 +91,8 @@ public class IndexThread extends DummyAuthenticatorCallable<List<IndexedElementD
         return getElementDao().findByCriteria(criteria);
     }
 
-    public void setUuids(List<String> uuids) {
-        this.uuids = uuids;
+    public void setDbIds(List<Integer> dbIds) {
+        this.dbIds = dbIds;
     }
 
     public IBaseDao<CnATreeElement, Integer> getElementDao() {
@@ -19,26 +19,29 @@
  ******************************************************************************/
 package sernet.verinice.search;
 
+import java.io.File;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.io.FilenameUtils;
 import org.apache.log4j.Logger;
-import org.elasticsearch.common.collect.Lists;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.springframework.beans.factory.ObjectFactory;
 
 import sernet.gs.server.security.DummyAuthenticationRunnable;
 import sernet.gs.service.ServerInitializer;
-import sernet.gs.service.TimeFormatter;
-import sernet.verinice.concurrency.ClosableCompletionService;
 import sernet.verinice.concurrency.CustomNamedThreadGroupFactory;
-import sernet.verinice.concurrency.TrackableCompletionService;
+import sernet.verinice.concurrency.VeriniceThreadPoolExecutor;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IDirectoryCreator;
 import sernet.verinice.interfaces.IElementTitleCache;
 import sernet.verinice.model.bp.elements.ItNetwork;
 import sernet.verinice.model.bsi.ITVerbund;
@@ -48,6 +51,21 @@ import sernet.verinice.model.iso27k.Organization;
 /**
  * Creates Elasticsearch index for verinice.
  *
+ * The database ids of all elements are read with a forward only cursor in
+ * ascending order and split into chunks of {@link #getBulkSize()} elements.
+ * Every chunk is indexed by an {@link IndexThread} on a pool of
+ * {@link #getNumberOfThreads()} threads. The number of chunks waiting for a
+ * thread is limited, so the cursor is only read as fast as the chunks are
+ * indexed. The chunks are sent to the index without refresh, the index is
+ * refreshed once at the end.
+ *
+ * The highest database id up to which all elements were indexed is saved in
+ * an {@link IndexCheckpoint} in the index directory. If a reindex is
+ * interrupted, the next one continues after this id. The checkpoint is removed
+ * when a reindex finished, also if it failed for some elements, so that the
+ * next run indexes all elements again. It is also removed by
+ * {@link #deleteCheckpoint()} when the index is cleared.
+ *
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  * @author Benjamin Weißenfels <bw[at]sernet[dot]de>
  */
@@ -55,15 +73,38 @@ public class Indexer {
 
     private static final Logger LOG = Logger.getLogger(Indexer.class);
 
-    private static final String HQL_LOAD_UUIDS = "select e.uuid from CnATreeElement e";
+    private static final String HQL_LOAD_DBIDS = "select e.dbId from CnATreeElement e "
+            + "where e.dbId > ? order by e.dbId";
+
+    private static final String HQL_COUNT_ELEMENTS = "select count(e.dbId) "
+            + "from CnATreeElement e where e.dbId > ?";
+
+    private static final String CHECKPOINT_FILE_NAME = "reindex.checkpoint";
 
-    private static final int INDEXING_CHUNK_SIZE = 50;
+    public static final int DEFAULT_BULK_SIZE = 500;
+
+    /**
+     * Number of chunks per thread which are read from the database before they
+     * are indexed
+     */
+    private static final int QUEUED_CHUNKS_PER_THREAD = 2;
 
     private IBaseDao<CnATreeElement, Integer> elementDao;
 
+    private ISearchDao searchDao;
+
     private IElementTitleCache titleCache;
 
-    private long indexingStart;
+    private IDirectoryCreator directoryCreator;
+
+    private int bulkSize = DEFAULT_BULK_SIZE;
+
+    /**
+     * Number of index threads, 0 means one thread per available processor
+     */
+    private int numberOfThreads = 0;
+
+    private volatile IndexingProgress progress;
 
     /**
      * Factory to create {@link IndexThread} instances configured in
@@ -72,17 +113,16 @@ public class Indexer {
     private ObjectFactory indexThreadFactory;
 
     /**
-     * Creates an index in an non blocking way, means this method creates all
-     * necessary index threads and returns immediately. It gives no guarantee
-     * that an index is available after this method is finished. The index will
-     * be available after an arbitrary amount of time.
+     * Creates an index in an non blocking way, means this method starts the
+     * indexing in a background thread and returns immediately. It gives no
+     * guarantee that an index is available after this method is finished. The
+     * index will be available after an arbitrary amount of time.
      *
      * <p>
-     * If you are using log4j in debug method the time consumption of the index
-     * process is logged, but the non blocking behavior will stay the same.
+     * The progress of the index process is logged on level INFO and is
+     * available by {@link #getProgress()}.
      * </p>
      *
-     *
      * <p>
      * If you need to know, when indexing is finished take a look at
      * {@link #blockingIndexing()}
@@ -101,68 +141,6 @@ public class Indexer {
         exeService.shutdown();
     }
 
-    private ClosableCompletionService<List<IndexedElementDetails>> doIndex(
-            boolean logIndexedElementDetails) {
-
-        indexingStart = System.currentTimeMillis();
-
-        ClosableCompletionService<List<IndexedElementDetails>> completionService = TrackableCompletionService
-                .newInstance();
-        List<String> allUuids = geAllCnATreeElementUUIDS();
-
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Elements: " + allUuids.size() + ", start indexing...");
-        }
-
-        getTitleCache().load(ITVerbund.TYPE_ID_HIBERNATE, Organization.TYPE_ID, ItNetwork.TYPE_ID);
-        Collection<IndexThread> indexThreads = createIndexThreadsByUuids(allUuids,
-                logIndexedElementDetails);
-
-        for (IndexThread indexThread : indexThreads) {
-            completionService.submit(indexThread);
-        }
-
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("All threads created ans submitted to completion service.");
-        }
-
-        completionService.shutDown();
-        return completionService;
-    }
-
-    @SuppressWarnings("unchecked")
-    private List<String> geAllCnATreeElementUUIDS() {
-        List<String> allUuids;
-
-        ServerInitializer.inheritVeriniceContextState();
-        allUuids = getElementDao().findByQuery(HQL_LOAD_UUIDS, null);
-
-        return allUuids;
-    }
-
-    private void logNonBlockingIndexingTermination(
-            final ClosableCompletionService<List<IndexedElementDetails>> completionService,
-            boolean logIndexedElementDetails) {
-        if (LOG.isInfoEnabled()) {
-            ExecutorService executor = Executors.newFixedThreadPool(1);
-            executor.execute(new Runnable() {
-                @Override
-                public void run() {
-                    ServerInitializer.inheritVeriniceContextState();
-                    awaitIndexingTermination(completionService, logIndexedElementDetails);
-                    printIndexingTimeConsumption();
-                }
-            });
-            executor.shutdown();
-        }
-    }
-
-    private void printIndexingTimeConsumption() {
-        long end = System.currentTimeMillis();
-        long ms = end - indexingStart;
-        LOG.info("Index created, runtime: " + TimeFormatter.getHumanRedableTime(ms));
-    }
-
     /**
      * Creates an elastic search in a blocking manner. After this method is
      * finished the index will be available.
@@ -180,78 +158,193 @@ public class Indexer {
      */
     public void blockingIndexing() {
         try {
-            doBlockingIndexing();
+            doIndex();
         } catch (Exception e) {
             LOG.error("blocking indexing failed: " + e.getLocalizedMessage(), e);
         }
     }
 
-    private void doBlockingIndexing() {
-
+    private void doIndex() throws InterruptedException {
         ServerInitializer.inheritVeriniceContextState();
         boolean logIndexedElementDetails = LOG.isDebugEnabled();
-        ClosableCompletionService<List<IndexedElementDetails>> completionService = doIndex(
-                logIndexedElementDetails);
 
-        // This call causes the blocking since it takes every completed task
-        // from the executor queue.
-        awaitIndexingTermination(completionService, logIndexedElementDetails);
+        IndexCheckpoint checkpoint = new IndexCheckpoint(getCheckpointFile());
+        int lastIndexedDbId = checkpoint.getLastIndexedDbId();
+        if (lastIndexedDbId != IndexCheckpoint.NO_CHECKPOINT && LOG.isInfoEnabled()) {
+            LOG.info("Continuing interrupted reindex after element with db-id: "
+                    + lastIndexedDbId);
+        }
+        progress = new IndexingProgress(countElements(lastIndexedDbId));
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Elements: " + progress.getTotalElements() + ", start indexing with "
+                    + getEffectiveNumberOfThreads() + " threads and bulk size " + getBulkSize()
+                    + "...");
+        }
 
-        printIndexingTimeConsumption();
+        getTitleCache().load(ITVerbund.TYPE_ID_HIBERNATE, Organization.TYPE_ID, ItNetwork.TYPE_ID);
+
+        ChunkSubmitter submitter = new ChunkSubmitter(checkpoint, logIndexedElementDetails);
+        try {
+            submitDbIds(lastIndexedDbId, submitter);
+        } finally {
+            submitter.shutdownAndAwaitTermination();
+        }
+
+        getSearchDao().refresh();
+        progress.finish();
+        if (checkpoint.isFailed()) {
+            LOG.warn("Indexing failed for some elements. Next reindex starts from the beginning.");
+        }
+        checkpoint.delete();
+    }
+
+    /**
+     * Deletes the checkpoint of an interrupted reindex. Call this after the
+     * index was cleared, otherwise the next run continues after the
+     * checkpoint and the elements before it are missing in the index.
+     */
+    public void deleteCheckpoint() {
+        new IndexCheckpoint(getCheckpointFile()).delete();
     }
 
-    private static void awaitIndexingTermination(
-            ClosableCompletionService<List<IndexedElementDetails>> completionService,
-            boolean logIndexedElementDetails) {
-        while (!completionService.isClosed()) {
+    private long countElements(int lastIndexedDbId) {
+        List<?> result = getElementDao().findByQuery(HQL_COUNT_ELEMENTS,
+                new Object[] { lastIndexedDbId });
+        return ((Number) result.get(0)).longValue();
+    }
+
+    /**
+     * Reads the database ids with a forward only cursor and submits them in
+     * chunks of {@link #getBulkSize()} ids.
+     */
+    private void submitDbIds(int lastIndexedDbId, ChunkSubmitter submitter) {
+        getElementDao().executeCallback(session -> {
+            ScrollableResults dbIds = session.createQuery(HQL_LOAD_DBIDS)
+                    .setInteger(0, lastIndexedDbId).setFetchSize(getBulkSize())
+                    .setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+            try {
+                List<Integer> chunk = new ArrayList<>(getBulkSize());
+                while (dbIds.next()) {
+                    chunk.add(dbIds.getInteger(0));
+                    if (chunk.size() == getBulkSize()) {
+                        submitter.submit(chunk);
+                        chunk = new ArrayList<>(getBulkSize());
+                    }
+                }
+                if (!chunk.isEmpty()) {
+                    submitter.submit(chunk);
+                }
+            } catch (InterruptedException e) {
+                LOG.warn("Indexing interrupted.");
+                Thread.currentThread().interrupt();
+            } finally {
+                dbIds.close();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return The checkpoint file in the index directory or null if there is
+     *         no index directory
+     */
+    public File getCheckpointFile() {
+        if (getDirectoryCreator() == null) {
+            return null;
+        }
+        String directory = getDirectoryCreator().create();
+        if (directory == null) {
+            return null;
+        }
+        return new File(FilenameUtils.concat(directory, CHECKPOINT_FILE_NAME));
+    }
+
+    private int getEffectiveNumberOfThreads() {
+        if (getNumberOfThreads() > 0) {
+            return getNumberOfThreads();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Submits chunks to the index thread pool. Blocks if too many chunks are
+     * waiting for a thread.
+     */
+    private final class ChunkSubmitter {
+
+        private final IndexCheckpoint checkpoint;
+        private final boolean logIndexedElementDetails;
+        private final ThreadPoolExecutor executor;
+        private final Semaphore queuedChunks;
+
+        private ChunkSubmitter(IndexCheckpoint checkpoint, boolean logIndexedElementDetails) {
+            this.checkpoint = checkpoint;
+            this.logIndexedElementDetails = logIndexedElementDetails;
+            int threads = getEffectiveNumberOfThreads();
+            this.executor = new VeriniceThreadPoolExecutor("index", threads, threads, 0L,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+            this.queuedChunks = new Semaphore(threads * QUEUED_CHUNKS_PER_THREAD);
+        }
+
+        private void submit(List<Integer> dbIds) throws InterruptedException {
+            queuedChunks.acquire();
+            long sequence = checkpoint.register(dbIds.get(dbIds.size() - 1));
+            IndexThread indexThread = (IndexThread) indexThreadFactory.getObject();
+            indexThread.setDbIds(dbIds);
+            indexThread.setReturnIndexedElementDetails(logIndexedElementDetails);
+            executor.execute(() -> index(sequence, indexThread, dbIds.size()));
+        }
+
+        private void index(long sequence, IndexThread indexThread, int numberOfElements) {
             try {
-                Future<List<IndexedElementDetails>> future = completionService.poll(500l,
-                        TimeUnit.MILLISECONDS);
-                if (logIndexedElementDetails && future != null) {
-                    // if the last element was removed from the queue in the
-                    // previous iteration and the current iteration started
-                    // before the executor could properly terminate, the queue
-                    // will be empty. We should be able to exit from the loop
-                    // after the current iteration.
-                    List<IndexedElementDetails> elements = future.get();
+                ServerInitializer.inheritVeriniceContextState();
+                List<IndexedElementDetails> elements = indexThread.call();
+                progress.indexed(numberOfElements);
+                checkpoint.complete(sequence);
+                if (logIndexedElementDetails && elements != null) {
                     for (IndexedElementDetails details : elements) {
                         LOG.debug("element was indexed " + details.getTitle() + " - uuid "
                                 + details.getUuid());
                     }
                 }
             } catch (Exception e) {
-                LOG.error("Indexing failed for an element", e);
+                LOG.error("Indexing failed for a chunk of " + numberOfElements + " elements", e);
+                progress.failed(numberOfElements);
+                checkpoint.fail(sequence);
+            } finally {
+                queuedChunks.release();
             }
         }
-    }
 
-    private Collection<IndexThread> createIndexThreadsByUuids(List<String> allUuids,
-            boolean logIndexedElementDetails) {
-        List<List<String>> chunks = Lists.partition(allUuids, INDEXING_CHUNK_SIZE);
-        Collection<IndexThread> indexThreads = new ArrayList<>(chunks.size());
-        for (List<String> chunk : chunks) {
-            IndexThread indexThread = (IndexThread) indexThreadFactory.getObject();
-            indexThread.setUuids(chunk);
-            indexThread.setReturnIndexedElementDetails(logIndexedElementDetails);
-            indexThreads.add(indexThread);
+        private void shutdownAndAwaitTermination() throws InterruptedException {
+            executor.shutdown();
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Waiting for index threads...");
+                }
+            }
         }
-        return indexThreads;
     }
 
     private final class DummyAuthenticationRunnableExtension extends DummyAuthenticationRunnable {
         @Override
         public void doRun() {
             try {
-                boolean logIndexedElementDetails = LOG.isDebugEnabled();
-                ClosableCompletionService<List<IndexedElementDetails>> completionService = doIndex(
-                        logIndexedElementDetails);
-                logNonBlockingIndexingTermination(completionService, logIndexedElementDetails);
+                doIndex();
             } catch (Exception e) {
                 LOG.error("Error while indexing elements.", e);
             }
         }
     }
 
+    /**
+     * @return The progress of the running or last finished reindex, null if no
+     *         reindex was started so far
+     */
+    public IndexingProgress getProgress() {
+        return progress;
+    }
+
     public ObjectFactory getIndexThreadFactory() {
         return indexThreadFactory;
     }
@@ -268,6 +361,14 @@ public class Indexer {
         this.elementDao = elementDao;
     }
 
+    public ISearchDao getSearchDao() {
+        return searchDao;
+    }
+
+    public void setSearchDao(ISearchDao searchDao) {
+        this.searchDao = searchDao;
+    }
+
     public IElementTitleCache getTitleCache() {
         return titleCache;
     }
@@ -275,4 +376,28 @@ public class Indexer {
     public void setTitleCache(IElementTitleCache titleCache) {
         this.titleCache = titleCache;
     }
+
+    public IDirectoryCreator getDirectoryCreator() {
+        return directoryCreator;
+    }
+
+    public void setDirectoryCreator(IDirectoryCreator directoryCreator) {
+        this.directoryCreator = directoryCreator;
+    }
+
+    public int getBulkSize() {
+        return bulkSize;
+    }
+
+    public void setBulkSize(int bulkSize) {
+        this.bulkSize = bulkSize > 0 ? bulkSize : DEFAULT_BULK_SIZE;
+    }
+
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
 }
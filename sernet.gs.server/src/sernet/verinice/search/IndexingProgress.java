@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.search;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import sernet.gs.service.TimeFormatter;
+
+/**
+ * Progress and throughput of a full reindex. The numbers are updated
+ * concurrently by the index threads, the progress is logged on level INFO at
+ * most once per log interval.
+ */
+public class IndexingProgress {
+
+    private static final Logger LOG = Logger.getLogger(IndexingProgress.class);
+
+    private static final long DEFAULT_LOG_INTERVAL_MS = 10000;
+
+    private static final int PERCENT = 100;
+
+    private static final double MS_PER_SECOND = 1000.0;
+
+    private final long totalElements;
+
+    private final long start;
+
+    private final AtomicLong indexedElements = new AtomicLong();
+
+    private final AtomicLong failedElements = new AtomicLong();
+
+    private final AtomicLong lastLogTime;
+
+    private final long logInterval;
+
+    private volatile long end = 0;
+
+    public IndexingProgress(long totalElements) {
+        this(totalElements, DEFAULT_LOG_INTERVAL_MS);
+    }
+
+    public IndexingProgress(long totalElements, long logInterval) {
+        this.totalElements = totalElements;
+        this.logInterval = logInterval;
+        this.start = System.currentTimeMillis();
+        this.lastLogTime = new AtomicLong(start);
+    }
+
+    public void indexed(int numberOfElements) {
+        indexedElements.addAndGet(numberOfElements);
+        logProgressIfDue();
+    }
+
+    public void failed(int numberOfElements) {
+        failedElements.addAndGet(numberOfElements);
+    }
+
+    public void finish() {
+        end = System.currentTimeMillis();
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Index created, " + getIndexedElements() + " elements, failed: "
+                    + getFailedElements() + ", runtime: "
+                    + TimeFormatter.getHumanRedableTime(getRuntime()) + ", "
+                    + getElementsPerSecond() + " elements/s");
+        }
+    }
+
+    private void logProgressIfDue() {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long last = lastLogTime.get();
+        if (now - last >= logInterval && lastLogTime.compareAndSet(last, now)) {
+            LOG.info("Indexed " + getIndexedElements() + " of " + getTotalElements()
+                    + " elements (" + getPercentDone() + " %), " + getElementsPerSecond()
+                    + " elements/s");
+        }
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public long getIndexedElements() {
+        return indexedElements.get();
+    }
+
+    public long getFailedElements() {
+        return failedElements.get();
+    }
+
+    public boolean isFinished() {
+        return end > 0;
+    }
+
+    public int getPercentDone() {
+        if (totalElements == 0) {
+            return PERCENT;
+        }
+        return (int) (getIndexedElements() * PERCENT / totalElements);
+    }
+
+    /**
+     * @return The runtime in milliseconds
+     */
+    public long getRuntime() {
+        long stop = isFinished() ? end : System.currentTimeMillis();
+        return stop - start;
+    }
+
+    public long getElementsPerSecond() {
+        long runtime = getRuntime();
+        if (runtime == 0) {
+            return 0;
+        }
+        return Math.round(getIndexedElements() * MS_PER_SECOND / runtime);
+    }
+}
@@ -40,11 +40,8 @@ import sernet.hui.common.connect.PropertyType;
 import sernet.verinice.interfaces.IElementTitleCache;
 import sernet.verinice.interfaces.search.IJsonBuilder;
 import sernet.verinice.interfaces.search.ISearchService;
-import sernet.verinice.model.bp.elements.ItNetwork;
-import sernet.verinice.model.bsi.ITVerbund;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.common.Permission;
-import sernet.verinice.model.iso27k.Organization;
 
 /**
  * Creates JSON documents for indexing in ElasticSearch
@@ -84,11 +81,8 @@ public class JsonBuilder implements IJsonBuilder {
             title = getTitleCache().get(element.getScopeId());
         }
         if (title == null) {
-            LOG.warn("Scope title not found in cache for element: " + element.getUuid() + ", type: "
-                    + element.getTypeId() + ". Loading all scope titles now...");
-            getTitleCache().load(ITVerbund.TYPE_ID_HIBERNATE, Organization.TYPE_ID,
-                    ItNetwork.TYPE_ID);
-            title = getTitleCache().get(element.getScopeId());
+            LOG.warn("Scope title not found for element: " + element.getUuid() + ", type: "
+                    + element.getTypeId() + ", scope id: " + element.getScopeId());
         }
         return title;
     }
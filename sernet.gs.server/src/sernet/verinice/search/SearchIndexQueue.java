@@ -0,0 +1,491 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.search;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.hibernate.FetchMode;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+import org.springframework.beans.factory.DisposableBean;
+
+import sernet.gs.server.security.DummyAuthenticatorCallable;
+import sernet.gs.service.CollectionUtil;
+import sernet.gs.service.ServerInitializer;
+import sernet.verinice.concurrency.CustomNamedThreadGroupFactory;
+import sernet.verinice.hibernate.AfterCompletionBuffer;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IDao;
+import sernet.verinice.interfaces.search.IJsonBuilder;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Queue for updates of the search index made by the daos.
+ *
+ * Index operations are collected during a transaction and added to the queue
+ * after the transaction is committed. Operations of rolled back transactions
+ * are discarded. The queue holds only the latest operation per uuid, so
+ * repeated updates of an element are sent to the index once. A background
+ * thread sends the queued operations in bulk requests of {@link #getBatchSize()}
+ * operations every {@link #getFlushInterval()} milliseconds and earlier if
+ * the queue exceeds the batch size. The index is not refreshed by these
+ * requests, changes become visible with the next periodic refresh of
+ * Elasticsearch.
+ *
+ * The queue holds the ids of updated elements only. The background thread
+ * loads the elements of a batch and creates the documents, so the committing
+ * thread does not create them and the documents contain the latest committed
+ * state. Operations of a failed request are queued again and sent with the
+ * next flush. After {@link #getMaxAttempts()} failed attempts the uuids are
+ * logged, the elements have to be indexed again.
+ *
+ * If the queue is not started by {@link #start()} the documents are created
+ * in the transaction and sent directly after the transaction is committed,
+ * the index is refreshed.
+ */
+public class SearchIndexQueue implements DisposableBean {
+
+    private static final Logger LOG = Logger.getLogger(SearchIndexQueue.class);
+
+    public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private ISearchDao searchDao;
+
+    private IBaseDao<CnATreeElement, Integer> elementDao;
+
+    private IJsonBuilder jsonBuilder;
+
+    private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private final AfterCompletionBuffer<Operation> transactionBuffer = new AfterCompletionBuffer<>(
+            this::enqueue, false);
+
+    /**
+     * Latest operation per uuid in the order the uuids were queued first
+     */
+    private final LinkedHashMap<String, Operation> queue = new LinkedHashMap<>();
+
+    private volatile ScheduledExecutorService executor;
+
+    private final AtomicLong processedOperations = new AtomicLong();
+
+    private final AtomicLong failedOperations = new AtomicLong();
+
+    private final AtomicLong coalescedOperations = new AtomicLong();
+
+    private volatile long lastFlushDuration = 0;
+
+    /**
+     * Starts the background thread which sends the queued operations to the
+     * index.
+     */
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                new CustomNamedThreadGroupFactory("search-index-queue"));
+        scheduler.scheduleWithFixedDelay(this::flushAuthenticated, getFlushInterval(),
+                getFlushInterval(), TimeUnit.MILLISECONDS);
+        executor = scheduler;
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Search index queue started, flush interval: " + getFlushInterval()
+                    + " ms, batch size: " + getBatchSize());
+        }
+    }
+
+    /**
+     * Stops the background thread and sends all queued operations to the
+     * index. Failed operations are retried until they are sent or
+     * {@link #getMaxAttempts()} is reached.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = executor;
+            executor = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        while (getQueueDepth() > 0) {
+            flushAuthenticated();
+        }
+    }
+
+    /**
+     * Queues an update of the documents of the elements after the current
+     * transaction is committed.
+     */
+    public void update(Collection<CnATreeElement> elements) {
+        long now = System.currentTimeMillis();
+        boolean started = executor != null;
+        for (CnATreeElement element : elements) {
+            if (!getJsonBuilder().isIndexableElement(element)) {
+                continue;
+            }
+            // documents are created by the background thread if it runs
+            String json = started ? null : getJsonBuilder().getJson(element);
+            transactionBuffer
+                    .add(Operation.update(element.getUuid(), element.getDbId(), json, now));
+        }
+    }
+
+    /**
+     * Queues a removal of the documents after the current transaction is
+     * committed.
+     */
+    public void delete(Collection<String> uuids) {
+        long now = System.currentTimeMillis();
+        uuids.forEach(uuid -> transactionBuffer.add(Operation.delete(uuid, now)));
+    }
+
+    private void enqueue(List<Operation> operations) {
+        ScheduledExecutorService scheduler = executor;
+        if (scheduler == null) {
+            send(operations, true);
+            return;
+        }
+        int depth;
+        synchronized (queue) {
+            for (Operation operation : operations) {
+                Operation queued = queue.get(operation.uuid);
+                if (queued != null) {
+                    operation.queuedAt = queued.queuedAt;
+                    coalescedOperations.incrementAndGet();
+                }
+                queue.put(operation.uuid, operation);
+            }
+            depth = queue.size();
+        }
+        if (depth >= getBatchSize()) {
+            try {
+                scheduler.execute(this::flushAuthenticated);
+            } catch (RuntimeException e) {
+                LOG.debug("Queue is shutting down, operations are sent on shutdown.", e);
+            }
+        }
+    }
+
+    /**
+     * Sends all queued operations to the index. Operations which fail are
+     * queued again and sent with the next flush.
+     */
+    public void flush() {
+        int pending = getQueueDepth();
+        while (pending > 0) {
+            List<Operation> batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            pending -= batch.size();
+            long start = System.currentTimeMillis();
+            send(batch, false);
+            lastFlushDuration = System.currentTimeMillis() - start;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Sent " + batch.size() + " index operations in " + lastFlushDuration
+                        + " ms, queue depth: " + getQueueDepth() + ", lag: " + getLag() + " ms");
+            }
+        }
+    }
+
+    /**
+     * Flushes the queue with a security context, the elements are loaded
+     * outside of a request.
+     */
+    private void flushAuthenticated() {
+        try {
+            new DummyAuthenticatorCallable<Void>() {
+                @Override
+                public Void doCall() {
+                    ServerInitializer.inheritVeriniceContextState();
+                    flush();
+                    return null;
+                }
+            }.call();
+        } catch (Exception e) {
+            LOG.error("Error while sending queued index operations", e);
+        }
+    }
+
+    private List<Operation> nextBatch() {
+        synchronized (queue) {
+            List<Operation> batch = new ArrayList<>(Math.min(queue.size(), getBatchSize()));
+            Iterator<Operation> iterator = queue.values().iterator();
+            while (iterator.hasNext() && batch.size() < getBatchSize()) {
+                batch.add(iterator.next());
+                iterator.remove();
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * @param direct
+     *            true: operations are sent after the commit of a transaction,
+     *            the index is refreshed and failed operations are not retried
+     */
+    private void send(List<Operation> operations, boolean direct) {
+        Map<String, Operation> updates = new HashMap<>(operations.size());
+        Set<String> deletes = new LinkedHashSet<>();
+        for (Operation operation : operations) {
+            if (operation.isDelete()) {
+                updates.remove(operation.uuid);
+                deletes.add(operation.uuid);
+            } else {
+                deletes.remove(operation.uuid);
+                updates.put(operation.uuid, operation);
+            }
+        }
+        try {
+            if (!updates.isEmpty()) {
+                Map<String, String> idToJson = createDocuments(updates.values());
+                if (!idToJson.isEmpty()) {
+                    getSearchDao().updateOrIndex(idToJson, direct);
+                }
+            }
+            if (!deletes.isEmpty()) {
+                getSearchDao().delete(new ArrayList<>(deletes), direct);
+            }
+            processedOperations.addAndGet(operations.size());
+        } catch (Exception e) {
+            LOG.warn("Error while updating index, number of operations: " + operations.size(),
+                    e);
+            retry(operations, !direct);
+        }
+    }
+
+    /**
+     * Creates the documents of the updates. Elements which are not found are
+     * skipped, they are deleted by a later operation.
+     */
+    private Map<String, String> createDocuments(Collection<Operation> updates) {
+        Map<String, String> idToJson = new HashMap<>(updates.size());
+        List<Integer> dbIds = new ArrayList<>(updates.size());
+        for (Operation operation : updates) {
+            if (operation.json != null) {
+                idToJson.put(operation.uuid, operation.json);
+            } else if (operation.dbId != null) {
+                dbIds.add(operation.dbId);
+            }
+        }
+        for (List<Integer> chunk : CollectionUtil.partition(dbIds,
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            for (CnATreeElement element : loadElements(chunk)) {
+                String json = getJsonBuilder().getJson(element);
+                if (json != null) {
+                    idToJson.put(element.getUuid(), json);
+                }
+            }
+        }
+        return idToJson;
+    }
+
+    /**
+     * Loads elements with their properties and permissions.
+     */
+    @SuppressWarnings("unchecked")
+    protected List<CnATreeElement> loadElements(List<Integer> dbIds) {
+        DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class);
+        criteria.add(Restrictions.in("dbId", dbIds));
+        criteria.setFetchMode("permissions", FetchMode.JOIN);
+        criteria.setFetchMode("entity", FetchMode.JOIN);
+        criteria.setFetchMode("entity.typedPropertyLists", FetchMode.JOIN);
+        criteria.setFetchMode("entity.typedPropertyLists.properties", FetchMode.JOIN);
+        return getElementDao().findByCriteria(criteria);
+    }
+
+    /**
+     * Queues failed operations again unless the uuid was queued again in the
+     * meantime. Operations which are not queued again or which failed
+     * {@link #getMaxAttempts()} times are dropped and logged.
+     */
+    private void retry(List<Operation> operations, boolean requeue) {
+        List<String> droppedUuids = new ArrayList<>();
+        synchronized (queue) {
+            for (Operation operation : operations) {
+                operation.attempts++;
+                if (!requeue || operation.attempts >= getMaxAttempts()) {
+                    droppedUuids.add(operation.uuid);
+                } else {
+                    queue.putIfAbsent(operation.uuid, operation);
+                }
+            }
+        }
+        if (!droppedUuids.isEmpty()) {
+            failedOperations.addAndGet(droppedUuids.size());
+            LOG.error("Index operations failed, index the elements again, uuids: "
+                    + String.join(", ", droppedUuids));
+        }
+    }
+
+    /**
+     * @return The number of operations waiting to be sent to the index
+     */
+    public int getQueueDepth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * @return Milliseconds since the oldest operation in the queue was queued,
+     *         0 if the queue is empty
+     */
+    public long getLag() {
+        synchronized (queue) {
+            if (queue.isEmpty()) {
+                return 0;
+            }
+            return System.currentTimeMillis() - queue.values().iterator().next().queuedAt;
+        }
+    }
+
+    public long getProcessedOperations() {
+        return processedOperations.get();
+    }
+
+    /**
+     * @return The number of operations which were dropped after they failed
+     *         {@link #getMaxAttempts()} times
+     */
+    public long getFailedOperations() {
+        return failedOperations.get();
+    }
+
+    /**
+     * @return The number of operations which were replaced by a later
+     *         operation for the same uuid before they were sent
+     */
+    public long getCoalescedOperations() {
+        return coalescedOperations.get();
+    }
+
+    /**
+     * @return Duration of the last bulk request in milliseconds
+     */
+    public long getLastFlushDuration() {
+        return lastFlushDuration;
+    }
+
+    public ISearchDao getSearchDao() {
+        return searchDao;
+    }
+
+    public void setSearchDao(ISearchDao searchDao) {
+        this.searchDao = searchDao;
+    }
+
+    public IBaseDao<CnATreeElement, Integer> getElementDao() {
+        return elementDao;
+    }
+
+    public void setElementDao(IBaseDao<CnATreeElement, Integer> elementDao) {
+        this.elementDao = elementDao;
+    }
+
+    public IJsonBuilder getJsonBuilder() {
+        return jsonBuilder;
+    }
+
+    public void setJsonBuilder(IJsonBuilder jsonBuilder) {
+        this.jsonBuilder = jsonBuilder;
+    }
+
+    public long getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(long flushInterval) {
+        this.flushInterval = flushInterval > 0 ? flushInterval : DEFAULT_FLUSH_INTERVAL;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts > 0 ? maxAttempts : DEFAULT_MAX_ATTEMPTS;
+    }
+
+    private static final class Operation {
+
+        private final String uuid;
+        /**
+         * Db id of the updated element, null if the element is removed
+         */
+        private final Integer dbId;
+        /**
+         * Document of the element if it was created in the transaction
+         */
+        private final String json;
+        private final boolean delete;
+        private long queuedAt;
+        private int attempts = 0;
+
+        private Operation(String uuid, Integer dbId, String json, boolean delete,
+                long queuedAt) {
+            this.uuid = uuid;
+            this.dbId = dbId;
+            this.json = json;
+            this.delete = delete;
+            this.queuedAt = queuedAt;
+        }
+
+        private static Operation update(String uuid, Integer dbId, String json, long queuedAt) {
+            return new Operation(uuid, dbId, json, false, queuedAt);
+        }
+
+        private static Operation delete(String uuid, long queuedAt) {
+            return new Operation(uuid, null, null, true, queuedAt);
+        }
+
+        private boolean isDelete() {
+            return delete;
+        }
+    }
+}
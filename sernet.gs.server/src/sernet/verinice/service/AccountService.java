@@ -43,6 +43,7 @@ import org.hibernate.Query;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
 
 import sernet.gs.service.ServerInitializer;
+import sernet.verinice.hibernate.PermissionCache;
 import sernet.verinice.interfaces.ApplicationRoles;
 import sernet.verinice.interfaces.IAccountSearchParameter;
 import sernet.verinice.interfaces.IAccountService;
@@ -89,6 +90,8 @@ public class AccountService implements IAccountService, Serializable {
 
     private IBaseDao<Permission, Serializable> permissionDao;
 
+    private PermissionCache permissionCache;
+
     private final Set<String> standardGroups = new HashSet<>(
             Arrays.asList(ADMINDEFAULTGROUPNAME, ADMINLOCALDEFAULTGROUPNAME,
                     ADMINSCOPEDEFAULTGROUPNAME, USERDEFAULTGROUPNAME, USERSCOPEDEFAULTGROUPNAME));
@@ -354,6 +357,9 @@ public class AccountService implements IAccountService, Serializable {
         String hqlQuery = "delete Permission where role = ?";
         String[] params = new String[] { role };
         getPermissionDao().updateByQuery(hqlQuery, params);
+        if (permissionCache != null) {
+            permissionCache.permissionsChanged(role);
+        }
         rightsServerHandler.discardData();
     }
 
@@ -363,6 +369,9 @@ public class AccountService implements IAccountService, Serializable {
         String hqlQuery = "update Permission set role = ? where role = ?";
         String[] params = new String[] { newRole, oldRole };
         getPermissionDao().updateByQuery(hqlQuery, params);
+        if (permissionCache != null) {
+            permissionCache.permissionsChanged(newRole, oldRole);
+        }
         rightsServerHandler.discardData();
     }
 
@@ -414,6 +423,14 @@ public class AccountService implements IAccountService, Serializable {
         this.permissionDao = permissionDao;
     }
 
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    public void setPermissionCache(PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
     @Override
     public long countConnectObjectsForGroup(String groupName) {
         ServerInitializer.inheritVeriniceContextState();
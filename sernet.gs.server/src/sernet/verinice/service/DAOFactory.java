@@ -29,10 +29,12 @@ import sernet.hui.common.connect.ITypedElement;
 import sernet.hui.common.connect.Property;
 import sernet.hui.common.connect.PropertyList;
 import sernet.verinice.interfaces.IAttachmentDao;
+import sernet.verinice.interfaces.IAttachmentFileDao;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.IDAOFactory;
 import sernet.verinice.interfaces.IElementEntityDao;
 import sernet.verinice.interfaces.IFinishedRiskAnalysisListsDao;
+import sernet.verinice.interfaces.IHierarchyIndex;
 import sernet.verinice.model.bp.elements.Application;
 import sernet.verinice.model.bp.elements.BpDocument;
 import sernet.verinice.model.bp.elements.BpIncident;
@@ -168,6 +170,10 @@ public class DAOFactory implements IDAOFactory {
 
     private IAttachmentDao attachmentDao;
 
+    private IAttachmentFileDao attachmentFileDao;
+
+    private IHierarchyIndex hierarchyIndex;
+
     private IFinishedRiskAnalysisListsDao finishedRiskAnalysisListsDao;
 
     // injected by spring
@@ -609,7 +615,8 @@ public class DAOFactory implements IDAOFactory {
     }
 
     @Override
-    public void setAttachmentFileDAO(IBaseDao<AttachmentFile, Integer> daoToSet) {
+    public void setAttachmentFileDAO(IAttachmentFileDao daoToSet) {
+        this.attachmentFileDao = daoToSet;
         daosByClass.put(AttachmentFile.class, daoToSet);
         daosByTypeID.put(AttachmentFile.TYPE_ID, daoToSet);
     }
@@ -889,6 +896,21 @@ public class DAOFactory implements IDAOFactory {
         this.attachmentDao = attachmentDao;
     }
 
+    @Override
+    public IAttachmentFileDao getAttachmentFileDao() {
+        return attachmentFileDao;
+    }
+
+    @Override
+    public IHierarchyIndex getHierarchyIndex() {
+        return hierarchyIndex;
+    }
+
+    @Override
+    public void setHierarchyIndex(IHierarchyIndex hierarchyIndex) {
+        this.hierarchyIndex = hierarchyIndex;
+    }
+
     /*
      * (non-Javadoc)
      * 
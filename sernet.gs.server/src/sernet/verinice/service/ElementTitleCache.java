@@ -19,73 +19,291 @@
  ******************************************************************************/
 package sernet.verinice.service;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
+import org.hibernate.SessionFactory;
+import org.springframework.orm.hibernate3.HibernateTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import sernet.hui.common.VeriniceContext;
-import sernet.verinice.interfaces.CommandException;
-import sernet.verinice.interfaces.ICommandService;
 import sernet.verinice.interfaces.IElementTitleCache;
-import sernet.verinice.service.commands.LoadElementTitles;
+import sernet.verinice.model.common.CnATreeElement;
 
 /**
+ * Thread-safe cache for element titles. Titles are read without locking
+ * from indexing and request threads.
+ *
+ * Titles which are not cached are loaded from the database one by one,
+ * {@link #load(String...)} loads all titles of element types in one query.
+ * Titles are loaded with the session factory in a read-only transaction and
+ * not by a command, the cache is used by index threads without an
+ * authenticated user.
+ * If the estimated memory of the cached titles exceeds maxMemory titles are
+ * evicted. Titles which were read since the last eviction run get a second
+ * chance and are kept.
+ *
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
 public class ElementTitleCache implements IElementTitleCache {
 
     private static final Logger LOG = Logger.getLogger(ElementTitleCache.class);
-    
-    private HashMap<Integer, String> titleMap = new HashMap<Integer, String>();
-    private LoadElementTitles loadScopeTitlesCommand;
-    private ICommandService commandService;
-    
+
+    public static final long DEFAULT_MAX_MEMORY = 16L * 1024 * 1024;
+
+    /**
+     * Estimated bytes of a map node, the key, the entry and the string
+     * without its characters.
+     */
+    private static final int ENTRY_OVERHEAD = 112;
+
+    /**
+     * Eviction removes titles until this percentage of maxMemory is used.
+     */
+    private static final int EVICTION_TARGET_PERCENT = 90;
+
+    private static final String HQL_TITLES = "select elmt from CnATreeElement elmt "
+            + "join fetch elmt.entity as entity "
+            + "join fetch entity.typedPropertyLists as propertyList "
+            + "join fetch propertyList.properties as props "; //$NON-NLS-1$
+    private static final String HQL_TITLES_BY_TYPE = HQL_TITLES
+            + "where elmt.objectType in (:typeIds)"; //$NON-NLS-1$
+    private static final String HQL_TITLES_BY_ID = HQL_TITLES
+            + "where elmt.dbId = :dbId"; //$NON-NLS-1$
+
+    private final Map<Integer, Entry> titleMap = new ConcurrentHashMap<>();
+    private final AtomicLong usedMemory = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private long maxMemory = DEFAULT_MAX_MEMORY;
+    private SessionFactory sessionFactory;
+    private PlatformTransactionManager transactionManager;
+
     /* (non-Javadoc)
      * @see sernet.verinice.interfaces.IElementTitleCache#get(java.lang.Integer)
      */
     @Override
     public String get(Integer dbId) {
-        return titleMap.get(dbId);
+        if (dbId == null) {
+            return null;
+        }
+        Entry entry = titleMap.get(dbId);
+        if (entry != null) {
+            hits.increment();
+            entry.markReferenced();
+            return entry.title;
+        }
+        misses.increment();
+        putAll(loadTitles(HQL_TITLES_BY_ID, "dbId", dbId));
+        entry = titleMap.get(dbId);
+        return (entry != null) ? entry.title : null;
     }
-    
+
     /* (non-Javadoc)
      * @see sernet.verinice.interfaces.IElementTitleCache#load(java.lang.String[])
      */
     @Override
     public void load(String... typeIds) {
-        try {    
-            loadScopeTitlesCommand = getCommandService().executeCommand(loadScopeTitlesCommand);
-            titleMap.putAll(loadScopeTitlesCommand.getElements());
-        } catch (CommandException e) {
-            LOG.error("Error while loading titles", e);
-        }     
-    }
-    
+        putAll(loadTitles(HQL_TITLES_BY_TYPE, "typeIds", typeIds));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Titles loaded, " + getStatistics());
+        }
+    }
+
     /* (non-Javadoc)
      * @see sernet.verinice.interfaces.IElementTitleCache#update(java.lang.Integer, java.lang.String)
      */
     @Override
     public String update(Integer dbId, String title) {
-        return titleMap.put(dbId, title);
+        if (dbId == null || title == null) {
+            return null;
+        }
+        Entry newEntry = new Entry(title);
+        Entry oldEntry = titleMap.put(dbId, newEntry);
+        usedMemory.addAndGet(newEntry.size() - ((oldEntry != null) ? oldEntry.size() : 0));
+        evictIfNecessary();
+        return (oldEntry != null) ? oldEntry.title : null;
+    }
+
+    /* (non-Javadoc)
+     * @see sernet.verinice.interfaces.IElementTitleCache#replace(java.lang.Integer, java.lang.String)
+     */
+    @Override
+    public void replace(Integer dbId, String title) {
+        if (dbId == null || title == null) {
+            return;
+        }
+        Entry oldEntry = titleMap.get(dbId);
+        if (oldEntry != null && !title.equals(oldEntry.title)) {
+            Entry newEntry = new Entry(title);
+            if (titleMap.replace(dbId, oldEntry, newEntry)) {
+                usedMemory.addAndGet(newEntry.size() - oldEntry.size());
+            }
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see sernet.verinice.interfaces.IElementTitleCache#remove(java.lang.Integer)
+     */
+    @Override
+    public void remove(Integer dbId) {
+        if (dbId == null) {
+            return;
+        }
+        Entry entry = titleMap.remove(dbId);
+        if (entry != null) {
+            usedMemory.addAndGet(-entry.size());
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see sernet.verinice.interfaces.IElementTitleCache#clear()
+     */
+    @Override
+    public void clear() {
+        for (Integer dbId : new ArrayList<>(titleMap.keySet())) {
+            remove(dbId);
+        }
     }
 
-    public LoadElementTitles getLoadScopeTitlesCommand() {
-        return loadScopeTitlesCommand;
+    private void putAll(Map<Integer, String> titles) {
+        for (Map.Entry<Integer, String> entry : titles.entrySet()) {
+            update(entry.getKey(), entry.getValue());
+        }
     }
 
-    public void setLoadScopeTitlesCommand(LoadElementTitles loadScopeTitlesCommand) {
-        this.loadScopeTitlesCommand = loadScopeTitlesCommand;
+    private Map<Integer, String> loadTitles(final String hql, final String parameter,
+            final Object value) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        @SuppressWarnings("unchecked")
+        Map<Integer, String> titles = (Map<Integer, String>) transaction.execute(status -> {
+            List<?> elements = new HibernateTemplate(sessionFactory).findByNamedParam(hql,
+                    parameter, value);
+            Map<Integer, String> titleMap = new HashMap<>(elements.size());
+            for (Object element : elements) {
+                CnATreeElement cnaElement = (CnATreeElement) element;
+                titleMap.put(cnaElement.getDbId(), cnaElement.getTitle());
+            }
+            return titleMap;
+        });
+        return titles;
+    }
+
+    private void evictIfNecessary() {
+        if (usedMemory.get() <= maxMemory || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            long target = maxMemory / 100 * EVICTION_TARGET_PERCENT;
+            // Second pass evicts titles whose reference bit was cleared in
+            // the first one
+            for (int pass = 0; pass < 2 && usedMemory.get() > target; pass++) {
+                evict(target);
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Titles evicted, " + getStatistics());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
     }
 
-    protected ICommandService getCommandService() {
-        if(commandService==null) {
-            commandService = (ICommandService) VeriniceContext.get(VeriniceContext.COMMAND_SERVICE);
+    private void evict(long target) {
+        Iterator<Map.Entry<Integer, Entry>> iterator = titleMap.entrySet().iterator();
+        while (iterator.hasNext() && usedMemory.get() > target) {
+            Map.Entry<Integer, Entry> mapEntry = iterator.next();
+            Entry entry = mapEntry.getValue();
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else if (titleMap.remove(mapEntry.getKey(), entry)) {
+                usedMemory.addAndGet(-entry.size());
+                evictions.increment();
+            }
         }
-        return commandService;
     }
 
-    public void setCommandService(ICommandService commandService) {
-        this.commandService = commandService;
+    public String getStatistics() {
+        return "titles: " + titleMap.size() + ", memory: " + usedMemory.get() + " bytes, hits: "
+                + hits.sum() + ", misses: " + misses.sum() + ", evictions: "
+                + evictions.sum();
+    }
+
+    public int size() {
+        return titleMap.size();
+    }
+
+    public long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public void setMaxMemory(long maxMemory) {
+        this.maxMemory = maxMemory;
+    }
+
+    public SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    private static final class Entry {
+
+        private final String title;
+
+        private volatile boolean referenced;
+
+        private Entry(String title) {
+            this.title = title;
+        }
+
+        private void markReferenced() {
+            if (!referenced) {
+                referenced = true;
+            }
+        }
+
+        private long size() {
+            return ENTRY_OVERHEAD + 2L * title.length();
+        }
     }
 
 }
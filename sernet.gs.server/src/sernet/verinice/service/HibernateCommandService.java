@@ -20,20 +20,39 @@ package sernet.verinice.service;
 
 import java.io.Serializable;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
 import org.hibernate.HibernateException;
 import org.hibernate.Session;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.orm.hibernate3.HibernateCallback;
 import org.springframework.security.AccessDeniedException;
+import org.springframework.security.context.SecurityContext;
+import org.springframework.security.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import sernet.gs.service.RuntimeCommandException;
 import sernet.hui.common.VeriniceContext;
+import sernet.verinice.concurrency.CustomNamedThreadGroupFactory;
+import sernet.verinice.hibernate.PermissionCache;
 import sernet.verinice.interfaces.ApplicationRoles;
 import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.interfaces.ElementChange;
@@ -47,6 +66,7 @@ import sernet.verinice.interfaces.IConfigurationService;
 import sernet.verinice.interfaces.IGraphCommand;
 import sernet.verinice.interfaces.IHibernateCommandService;
 import sernet.verinice.interfaces.INoAccessControl;
+import sernet.verinice.interfaces.IReadOnlyCommand;
 import sernet.verinice.interfaces.IRightsServerHandler;
 import sernet.verinice.interfaces.graph.IGraphService;
 import sernet.verinice.interfaces.ldap.ILdapCommand;
@@ -66,10 +86,14 @@ import sernet.verinice.service.sync.VnaSchemaVersion;
  * @version $Rev$ $LastChangedDate$ $LastChangedBy$
  * 
  */
-public class HibernateCommandService implements ICommandService, IHibernateCommandService {
+public class HibernateCommandService
+        implements ICommandService, IHibernateCommandService, DisposableBean {
 
     private static final Logger log = Logger.getLogger(HibernateCommandService.class);
 
+    public static final int DEFAULT_MAX_PARALLEL_COMMANDS = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
     // injected by spring
     private DAOFactory daoFactory;
 
@@ -89,6 +113,8 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
 
     private IRightsServerHandler rightsServerHandler;
 
+    private PermissionCache permissionCache;
+
     IBaseDao<BSIModel, Serializable> dao;
 
     private VnaSchemaVersion vnaSchemaVersion;
@@ -97,6 +123,17 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
 
     private Map<Class<? extends ICommand>, Set<String>> commandActionIds;
 
+    private PlatformTransactionManager transactionManager;
+
+    private int maxParallelCommands = DEFAULT_MAX_PARALLEL_COMMANDS;
+
+    private volatile ExecutorService readOnlyExecutor;
+
+    /**
+     * Batch executed by the current thread, null if no batch is executed
+     */
+    private final ThreadLocal<Batch> currentBatch = new ThreadLocal<>();
+
     /**
      * This method is encapsulated in a transaction by the Spring container.
      * Hibernate session will be opened before this method executes the given
@@ -111,6 +148,133 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
      */
     @Override
     public <T extends ICommand> T executeCommand(T command) throws CommandException {
+        return execute(command, null);
+    }
+
+    /**
+     * This method is encapsulated in one transaction by the Spring container.
+     * All commands which are not executed in parallel are executed in this
+     * transaction. The filter is configured once for all of these commands
+     * and only changed for commands which need another configuration, e.g.
+     * commands implementing {@link INoAccessControl}.
+     * 
+     * If parallel is true and a transaction manager is set, commands
+     * implementing {@link IReadOnlyCommand} are executed by a thread pool,
+     * each in its own read-only transaction.
+     */
+    @Override
+    public List<ICommand> executeCommands(List<? extends ICommand> commands, boolean parallel)
+            throws CommandException {
+        VeriniceContext.setState(workObjects);
+        if (!dbOpen) {
+            throw new CommandException("DB connection closed.");
+        }
+        ICommand[] results = new ICommand[commands.size()];
+        Map<Integer, Future<ICommand>> parallelCommands = Collections.emptyMap();
+        try {
+            if (parallel && transactionManager != null) {
+                parallelCommands = submitReadOnlyCommands(commands);
+            }
+            executeBatch(commands, parallelCommands, results);
+            for (Map.Entry<Integer, Future<ICommand>> entry : parallelCommands.entrySet()) {
+                results[entry.getKey()] = waitFor(entry.getValue());
+            }
+        } finally {
+            for (Future<ICommand> future : parallelCommands.values()) {
+                future.cancel(true);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Batch of " + commands.size() + " commands executed, "
+                    + parallelCommands.size() + " in parallel.");
+        }
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    private void executeBatch(List<? extends ICommand> commands,
+            Map<Integer, Future<ICommand>> parallelCommands, ICommand[] results)
+            throws CommandException {
+        Batch batch = new Batch();
+        currentBatch.set(batch);
+        try {
+            for (int i = 0; i < commands.size(); i++) {
+                if (!parallelCommands.containsKey(i)) {
+                    results[i] = execute(commands.get(i), batch);
+                }
+            }
+        } finally {
+            currentBatch.remove();
+            disableFilter(getBsiModelDao());
+        }
+    }
+
+    private Map<Integer, Future<ICommand>> submitReadOnlyCommands(
+            List<? extends ICommand> commands) {
+        Map<Integer, Future<ICommand>> futures = new HashMap<>();
+        final SecurityContext securityContext = SecurityContextHolder.getContext();
+        final TransactionTemplate readOnlyTransaction = new TransactionTemplate(
+                transactionManager);
+        readOnlyTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTransaction.setReadOnly(true);
+        for (int i = 0; i < commands.size(); i++) {
+            final ICommand command = commands.get(i);
+            if (command instanceof IReadOnlyCommand) {
+                futures.put(i, getReadOnlyExecutor().submit(
+                        new ReadOnlyCommandCallable(command, securityContext,
+                                readOnlyTransaction)));
+            }
+        }
+        return futures;
+    }
+
+    private static ICommand waitFor(Future<ICommand> future) throws CommandException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CommandException("Interrupted while waiting for a read-only command", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeCommandException
+                    && cause.getCause() instanceof CommandException) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof CommandException) {
+                throw (CommandException) cause;
+            }
+            throw new CommandException("Error while executing a read-only command", cause);
+        }
+    }
+
+    private ExecutorService getReadOnlyExecutor() {
+        if (readOnlyExecutor == null) {
+            synchronized (this) {
+                if (readOnlyExecutor == null) {
+                    readOnlyExecutor = Executors.newFixedThreadPool(getMaxParallelCommands(),
+                            new CustomNamedThreadGroupFactory("read-only-commands"));
+                }
+            }
+        }
+        return readOnlyExecutor;
+    }
+
+    /**
+     * Shuts down the thread pool executing read-only commands.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = readOnlyExecutor;
+            readOnlyExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private <T extends ICommand> T execute(T command, Batch batch) throws CommandException {
         VeriniceContext.setState(workObjects);
 
         if (!dbOpen)
@@ -151,8 +315,9 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
             // When a command is being executed that should be subject to access
             // control (this is the default) and the logged in user is non-
             // privileged the filter is configured and activated.
-            if (authService.isPermissionHandlingNeeded()
-                    && !(command instanceof INoAccessControl)) {
+            if (batch != null) {
+                batch.configureFilter(command);
+            } else if (isFilterNeeded(command)) {
                 configureFilter(getBsiModelDao());
             } else {
                 disableScopeFilter(getBsiModelDao());
@@ -161,7 +326,15 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
             // execute actions, compute results:
             command.execute();
 
-            disableFilter(getBsiModelDao());
+            if (batch == null) {
+                disableFilter(getBsiModelDao());
+                // a command of a batch executed this command, the batch
+                // has to configure the filter again
+                Batch outerBatch = currentBatch.get();
+                if (outerBatch != null) {
+                    outerBatch.invalidateFilter();
+                }
+            }
 
             // log changes:
             if (command instanceof IChangeLoggingCommand) {
@@ -187,6 +360,10 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
         return command;
     }
 
+    private boolean isFilterNeeded(ICommand command) {
+        return authService.isPermissionHandlingNeeded() && !(command instanceof INoAccessControl);
+    }
+
     /**
      * Check if the given command is allowed to execute by the given user as
      * defined in the authorization configuration see {@link XmlRightsService}
@@ -242,6 +419,7 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
 
     private void log(IChangeLoggingCommand notifyCommand) {
         List<ElementChange> elementChanges = notifyCommand.getChanges();
+        List<ChangeLogEntry> logEntries = new ArrayList<>(elementChanges.size());
         for (ElementChange changedElement : elementChanges) {
 
             ChangeLogEntry logEntry = new ChangeLogEntry(changedElement.getElement(),
@@ -253,8 +431,10 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
                         + "' for element of type " + logEntry.getElementClass() + " with ID "
                         + logEntry.getElementId());
             }
-            daoFactory.getDAO(ChangeLogEntry.class).saveOrUpdate(logEntry);
+            logEntries.add(logEntry);
         }
+        // entries are inserted in batches when the transaction commits
+        daoFactory.getDAO(ChangeLogEntry.class).saveOrUpdateAll(logEntries);
     }
 
     /**
@@ -338,6 +518,14 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
         this.rightsServerHandler = rightsServerHandler;
     }
 
+    public PermissionCache getPermissionCache() {
+        return permissionCache;
+    }
+
+    public void setPermissionCache(PermissionCache permissionCache) {
+        this.permissionCache = permissionCache;
+    }
+
     @Override
     public Properties getProperties() {
         return properties;
@@ -381,9 +569,13 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
                 @Override
                 public Object doInHibernate(Session session)
                         throws HibernateException, SQLException {
-                    session.enableFilter("userAccessReadFilter")
-                            .setParameterList("currentRoles", roles)
-                            .setParameter("readAllowed", Boolean.TRUE);
+                    if (permissionCache != null) {
+                        permissionCache.enableReadFilter(session, roles);
+                    } else {
+                        session.enableFilter(PermissionCache.READ_FILTER)
+                                .setParameterList("currentRoles", roles)
+                                .setParameter("readAllowed", Boolean.TRUE);
+                    }
                     return null;
                 }
             });
@@ -438,4 +630,84 @@ public class HibernateCommandService implements ICommandService, IHibernateComma
         this.commandActionIds = commandActionIds;
     }
 
+    public PlatformTransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public int getMaxParallelCommands() {
+        return maxParallelCommands;
+    }
+
+    public void setMaxParallelCommands(int maxParallelCommands) {
+        this.maxParallelCommands = maxParallelCommands;
+    }
+
+    /**
+     * Filter configuration of a batch of commands executed in one session.
+     * The filter is only configured if it differs from the configuration of
+     * the previous command.
+     */
+    private final class Batch {
+
+        /**
+         * True if the filter is enabled, false if it is disabled and null if
+         * the configuration is unknown
+         */
+        private Boolean filterEnabled;
+
+        void configureFilter(ICommand command) {
+            boolean filterNeeded = isFilterNeeded(command);
+            if (filterEnabled == null || filterEnabled != filterNeeded) {
+                if (filterNeeded) {
+                    HibernateCommandService.this.configureFilter(getBsiModelDao());
+                } else {
+                    disableFilter(getBsiModelDao());
+                }
+                filterEnabled = filterNeeded;
+            }
+        }
+
+        void invalidateFilter() {
+            filterEnabled = null;
+        }
+    }
+
+    /**
+     * Executes a read-only command in its own transaction with the security
+     * context of the thread which executes the batch.
+     */
+    private final class ReadOnlyCommandCallable implements Callable<ICommand> {
+
+        private final ICommand command;
+        private final SecurityContext securityContext;
+        private final TransactionTemplate transaction;
+
+        ReadOnlyCommandCallable(ICommand command, SecurityContext securityContext,
+                TransactionTemplate transaction) {
+            this.command = command;
+            this.securityContext = securityContext;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public ICommand call() {
+            SecurityContextHolder.setContext(securityContext);
+            try {
+                return (ICommand) transaction.execute(status -> {
+                    try {
+                        return executeCommand(command);
+                    } catch (CommandException e) {
+                        throw new RuntimeCommandException(e);
+                    }
+                });
+            } finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
 }
@@ -209,6 +209,7 @@ public class SearchService implements ISearchService {
     @Override
     public void reindex() {
         searchDao.clear();
+        searchIndexer.deleteCheckpoint();
         searchIndexer.blockingIndexing();
     }
 
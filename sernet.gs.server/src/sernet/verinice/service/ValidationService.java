@@ -20,16 +20,23 @@ package sernet.verinice.service;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Optional;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.DetachedCriteria;
@@ -40,6 +47,7 @@ import sernet.gs.service.RetrieveInfo;
 import sernet.gs.service.Retriever;
 import sernet.gs.service.RuntimeCommandException;
 import sernet.gs.service.ServerInitializer;
+import sernet.gs.service.TimeFormatter;
 import sernet.hui.common.connect.Entity;
 import sernet.hui.common.connect.EntityType;
 import sernet.hui.common.connect.HUITypeFactory;
@@ -52,11 +60,11 @@ import sernet.verinice.interfaces.ICommandService;
 import sernet.verinice.interfaces.IDao;
 import sernet.verinice.interfaces.validation.IValidationService;
 import sernet.verinice.model.bsi.IBSIStrukturKategorie;
+import sernet.verinice.model.common.ChangeLogEntry;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.validation.CnAValidation;
 import sernet.verinice.service.commands.LoadElementByUuid;
 import sernet.verinice.service.commands.LoadSubtreeIds;
-import sernet.verinice.service.commands.crud.LoadScopeElementsById;
 
 public class ValidationService implements IValidationService {
 
@@ -69,6 +77,35 @@ public class ValidationService implements IValidationService {
     // values from CnAValidation.hbm.xml
     private static final int MAXLENGTH_DBSTRING = 250;
 
+    public static final int DEFAULT_BATCH_SIZE = IDao.QUERY_MAX_ITEMS_IN_LIST;
+
+    /**
+     * Changes logged up to this time before the last validation of a scope are
+     * validated again in incremental mode. The change time is set when a
+     * command changes an element, not when the transaction commits.
+     */
+    private static final long INCREMENTAL_OVERLAP_MILLIS = 10L * 60 * 1000;
+
+    private static final String KEY_SEPARATOR = "\u0000";
+
+    private static final String HQL_SCOPE_ELEMENT_IDS = "select elmt.dbId "
+            + "from CnATreeElement elmt where elmt.scopeId = ?";
+
+    private static final String HQL_CHANGED_ELEMENT_IDS = "select distinct entry.elementId "
+            + "from ChangeLogEntry entry where entry.changetime > ? "
+            + "and entry.elementId is not null";
+
+    private IDao<ChangeLogEntry, Integer> changeLogEntryDao;
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Start time of the last validation of a scope by scope id
+     */
+    private final Map<Integer, Long> lastValidationTimes = new ConcurrentHashMap<>();
+
     private HUITypeFactory huiTypeFactory;
 
     /*
@@ -92,51 +129,97 @@ public class ValidationService implements IValidationService {
 
     protected void createValidationForSingleElement(CnATreeElement element, EntityType entityType,
             List<CnAValidation> existingValidationsForElement) {
-        HashMap<PropertyType, List<String>> hintsOfFailedValidationsMap = new HashMap<>();
-        for (Object pElement : entityType.getAllPropertyTypes()) {
-            if (pElement instanceof PropertyType) {
-                updateValueMap(hintsOfFailedValidationsMap, (PropertyType) pElement, element,
-                        existingValidationsForElement);
-            } else if (pElement instanceof PropertyGroup) {
-                PropertyGroup pGroup = (PropertyGroup) pElement;
-                for (PropertyType pType : pGroup.getPropertyTypes()) {
-                    updateValueMap(hintsOfFailedValidationsMap, pType, element,
-                            existingValidationsForElement);
+        ValidationResult result = validate(element, entityType);
+        saveValidationDeltas(Collections.singletonList(result),
+                Collections.singletonMap(element.getDbId(), existingValidationsForElement));
+    }
+
+    /**
+     * Validates all properties of an element against the rules of its entity
+     * type. This method does not access the database and is called by
+     * multiple threads.
+     */
+    private static ValidationResult validate(CnATreeElement element, EntityType entityType) {
+        ValidationResult result = new ValidationResult(element);
+        for (PropertyType type : entityType.getAllPropertyTypes()) {
+            List<Property> savedProperties = element.getEntity().getProperties(type.getId())
+                    .getProperties();
+            if (savedProperties == null || savedProperties.isEmpty()) {
+                // no property exists yet
+                result.addFailedRules(type, type.validate(null, null));
+            } else {
+                for (Property savedProp : savedProperties) {
+                    result.addFailedRules(type, type.validate(savedProp.getPropertyValue(), null));
                 }
             }
         }
+        return result;
+    }
 
-        Map<String, List<CnAValidation>> existingValidationsByPropertyType = existingValidationsForElement
-                .stream().collect(Collectors.groupingBy(CnAValidation::getPropertyId));
-        for (Entry<PropertyType, List<String>> entry : hintsOfFailedValidationsMap.entrySet()) {
-            String propertyType = entry.getKey().getId();
-            List<CnAValidation> existingValidationsForPropertyType = existingValidationsByPropertyType
-                    .getOrDefault(propertyType, Collections.emptyList());
-            for (String hint : entry.getValue()) {
-                boolean validationExists = existingValidationsForPropertyType.stream()
-                        .anyMatch(validation -> validation.getHintId().equals(hint));
-                if (!validationExists) {
-                    createCnAValidationObject(element, entry, hint);
+    /**
+     * Deletes the validations which are not failing anymore, creates the
+     * validations which are failing for the first time and updates changed
+     * element titles of the other validations.
+     *
+     * @param results
+     *            Failed validation rules of elements
+     * @param existingValidations
+     *            Stored validations of the elements by element db id
+     */
+    private void saveValidationDeltas(Collection<ValidationResult> results,
+            Map<Integer, List<CnAValidation>> existingValidations) {
+        List<CnAValidation> validationsToDelete = new ArrayList<>();
+        List<CnAValidation> validationsToSave = new ArrayList<>();
+        for (ValidationResult result : results) {
+            CnATreeElement element = result.element;
+            String title = StringUtils.abbreviate(element.getTitle(), MAXLENGTH_DBSTRING);
+            Map<String, String[]> missingValidations = new LinkedHashMap<>(result.failedRules);
+            for (CnAValidation validation : existingValidations
+                    .getOrDefault(element.getDbId(), Collections.emptyList())) {
+                String key = createKey(validation.getPropertyId(), validation.getHintId());
+                if (missingValidations.remove(key) == null) {
+                    // rule is fulfilled, removed or validation is a duplicate
+                    validationsToDelete.add(validation);
+                } else if (!Objects.equals(title, validation.getElmtTitle())) {
+                    validation.setElmtTitle(title);
+                    validationsToSave.add(validation);
                 }
             }
+            for (String[] rule : missingValidations.values()) {
+                validationsToSave.add(createCnAValidationObject(element, title, rule[0], rule[1]));
+            }
+        }
+        if (!validationsToDelete.isEmpty()) {
+            getCnaValidationDAO().delete(validationsToDelete);
+        }
+        if (!validationsToSave.isEmpty()) {
+            getCnaValidationDAO().saveOrUpdateAll(validationsToSave);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Validated elements: " + results.size() + ", deleted validations: "
+                    + validationsToDelete.size() + ", created or updated validations: "
+                    + validationsToSave.size());
         }
     }
 
-    private void createCnAValidationObject(CnATreeElement elmt,
-            Entry<PropertyType, List<String>> entry, String hint) {
+    private static CnAValidation createCnAValidationObject(CnATreeElement elmt, String title,
+            String propertyId, String hint) {
         CnAValidation validation = new CnAValidation();
         validation.setElmtDbId(elmt.getDbId());
-        validation
-                .setPropertyId(StringUtils.abbreviate(entry.getKey().getId(), MAXLENGTH_DBSTRING));
-        validation.setHintId(StringUtils.abbreviate(hint, MAXLENGTH_DBSTRING));
-        validation.setElmtTitle(StringUtils.abbreviate(elmt.getTitle(), MAXLENGTH_DBSTRING));
+        validation.setPropertyId(propertyId);
+        validation.setHintId(hint);
+        validation.setElmtTitle(title);
         validation.setScopeId(elmt.getScopeId());
         validation.setElementType(StringUtils.abbreviate(elmt.getTypeId(), MAXLENGTH_DBSTRING));
-        getCnaValidationDAO().saveOrUpdate(validation);
         if (log.isDebugEnabled()) {
-            log.debug("Created Validation for : " + elmt.getTitle() + "(" + entry.getKey().getId()
+            log.debug("Created Validation for : " + elmt.getTitle() + "(" + propertyId
                     + ")\tHint:\t" + hint);
         }
+        return validation;
+    }
+
+    private static String createKey(String propertyId, String hint) {
+        return propertyId + KEY_SEPARATOR + hint;
     }
 
     /*
@@ -243,6 +326,30 @@ public class ValidationService implements IValidationService {
         this.cnaTreeElementDAO = cnaTreeElementDAO;
     }
 
+    public IDao<ChangeLogEntry, Integer> getChangeLogEntryDao() {
+        return changeLogEntryDao;
+    }
+
+    public void setChangeLogEntryDao(IDao<ChangeLogEntry, Integer> changeLogEntryDao) {
+        this.changeLogEntryDao = changeLogEntryDao;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     public HUITypeFactory getHuiTypeFactory() {
         return huiTypeFactory;
     }
@@ -274,83 +381,6 @@ public class ValidationService implements IValidationService {
         return deleteValidation(validation);
     }
 
-    private List<String> getInvalidPropertyHints(PropertyType type, CnATreeElement elmt,
-            List<CnAValidation> existingValidationsForType) {
-        ArrayList<String> hintsOfFailedValidations = new ArrayList<>();
-        List<Property> savedProperties = elmt.getEntity().getProperties(type.getId())
-                .getProperties();
-        // iterate(validate) all existing properties
-        for (Property savedProp : savedProperties) {
-            hintsOfFailedValidations
-                    .addAll(processValidationMap(type.validate(savedProp.getPropertyValue(), null),
-                            elmt, type, existingValidationsForType));
-        }
-        // no property exists yet
-        if (savedProperties.isEmpty()) {
-            hintsOfFailedValidations.addAll(processValidationMap(type.validate(null, null), elmt,
-                    type, existingValidationsForType));
-        }
-        return hintsOfFailedValidations;
-    }
-
-    private List<String> processValidationMap(Map<String, Boolean> validationMap,
-            CnATreeElement elmt, PropertyType type,
-            List<CnAValidation> existingValidationsForType) {
-        ArrayList<String> hintsOfFailedValidations = new ArrayList<>(validationMap.size());
-        for (Entry<String, Boolean> entry : validationMap.entrySet()) {
-            Optional<CnAValidation> existingValidation = existingValidationsForType.stream()
-                    .filter(validation -> validation.getHintId().equals(entry.getKey())).findAny();
-            boolean validationExists = existingValidation.isPresent();
-
-            boolean elmtIsValid = entry.getValue().booleanValue();
-            if (!elmtIsValid) {
-                if (!validationExists) {
-                    hintsOfFailedValidations.add(entry.getKey());
-                    if (log.isDebugEnabled()) {
-                        log.debug("Validation:\t(" + type.getId() + ", " + entry.getValue() + ", "
-                                + entry.getKey() + ") created");
-                    }
-                } else {
-                    updateValidations(elmt.getScopeId(), elmt.getDbId(), elmt.getTitle());
-                }
-            } else if (validationExists) { // validation
-                                           // condition is
-                                           // fulfilled
-                deleteValidation(existingValidation.get());
-                existingValidationsForType.remove(existingValidation.get());
-                if (log.isDebugEnabled()) {
-                    log.debug("Validation:\t(" + type.getId() + ", " + entry.getValue() + ", "
-                            + entry.getKey() + ") deleted");
-                }
-            }
-        }
-        // if validation for type exists, but map is empty (no validators
-        // defined)
-        // ===> delete existing validations for type
-        if (validationMap.isEmpty()) { // no negative validations exist
-            for (CnAValidation validation : existingValidationsForType) {
-                deleteValidation(validation);
-            }
-        }
-        return hintsOfFailedValidations;
-    }
-
-    private void updateValueMap(Map<PropertyType, List<String>> map, PropertyType type,
-            CnATreeElement elmt, List<CnAValidation> existingValidationsForElement) {
-        List<CnAValidation> existingValidationsForType = existingValidationsForElement.stream()
-                .filter(validation -> validation.getPropertyId().equals(type.getId()))
-                .collect(Collectors.toCollection(ArrayList::new));
-
-        List<String> invalidHints = getInvalidPropertyHints(type, elmt, existingValidationsForType);
-        if (map.containsKey(type)) {
-            List<String> listWithNewValues = map.get(type);
-            listWithNewValues.addAll(invalidHints);
-            map.put(type, listWithNewValues);
-        } else {
-            map.put(type, invalidHints);
-        }
-    }
-
     /*
      * @see
      * sernet.verinice.interfaces.validation.IValidationService#deleteValidation
@@ -400,20 +430,112 @@ public class ValidationService implements IValidationService {
      */
     @Override
     public void createValidationsForScope(Integer scope) throws CommandException {
+        createValidationsForScope(scope, false);
+    }
+
+    /*
+     * @see sernet.verinice.interfaces.validation.IValidationService#
+     * createValidationsForScope(java.lang.Integer, boolean)
+     */
+    @Override
+    public void createValidationsForScope(Integer scope, boolean incremental)
+            throws CommandException {
         ServerInitializer.inheritVeriniceContextState();
-        LoadScopeElementsById command = new LoadScopeElementsById(scope);
-        command = getCommandService().executeCommand(command);
-        List<CnATreeElement> elementsToValidate = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        List<Integer> dbIds = loadElementIds(scope);
+        Long lastValidation = lastValidationTimes.get(scope);
+        if (incremental && lastValidation != null) {
+            dbIds = filterChangedElements(dbIds,
+                    new Date(lastValidation - INCREMENTAL_OVERLAP_MILLIS));
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Validating " + dbIds.size() + " elements of scope " + scope
+                    + ", incremental: " + incremental);
+        }
+        for (List<Integer> batch : CollectionUtil.partition(dbIds, batchSize)) {
+            validateBatch(scope, batch);
+        }
+        lastValidationTimes.put(scope, start);
+        if (log.isInfoEnabled()) {
+            log.info("Scope " + scope + " validated in "
+                    + TimeFormatter.getHumanRedableTime(System.currentTimeMillis() - start));
+        }
+    }
+
+    /**
+     * Loads a batch of elements with their properties and stored validations,
+     * validates the elements by a worker pool and saves the changed
+     * validations.
+     */
+    @SuppressWarnings("unchecked")
+    private void validateBatch(Integer scope, List<Integer> dbIds) {
+        DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class)
+                .add(Restrictions.in("dbId", dbIds));
+        RetrieveInfo.getPropertyInstance().configureCriteria(criteria);
+        criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+        List<CnATreeElement> elements = getCnaTreeElementDAO().findByCriteria(criteria);
+
+        DetachedCriteria validationCriteria = DetachedCriteria.forClass(CnAValidation.class)
+                .add(Restrictions.in("elmtDbId", dbIds)).add(createScopeIdRestriction(scope));
+        List<CnAValidation> validations = getCnaValidationDAO()
+                .findByCriteria(validationCriteria);
+        Map<Integer, List<CnAValidation>> existingValidations = validations.stream()
+                .collect(Collectors.groupingBy(CnAValidation::getElmtDbId));
+
+        saveValidationDeltas(validate(elements), existingValidations);
+    }
 
-        for (CnATreeElement elmt : command.getResults()) {
+    /**
+     * Validates elements in parallel. Elements without entity type and
+     * {@link IBSIStrukturKategorie}s are skipped.
+     */
+    private List<ValidationResult> validate(List<CnATreeElement> elements) {
+        List<ValidationResult> results = Collections.synchronizedList(new ArrayList<>());
+        Consumer<CnATreeElement> validation = element -> {
             // IBSIStrukturKategorie does not have any fields to validate
-            if (!(elmt instanceof IBSIStrukturKategorie)) {
-                elementsToValidate.add(elmt);
+            EntityType entityType = getHuiTypeFactory().getEntityType(element.getTypeId());
+            if (entityType != null && element.getEntity() != null
+                    && !(element instanceof IBSIStrukturKategorie)) {
+                results.add(validate(element, entityType));
             }
+        };
+        if (parallelism < 2 || elements.size() < 2) {
+            elements.forEach(validation);
+            return results;
         }
-        for (CnATreeElement elmt : elementsToValidate) {
-            createValidationForSingleElement(elmt);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.submit(() -> elements.parallelStream().forEach(element -> {
+                ServerInitializer.inheritVeriniceContextState();
+                validation.accept(element);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeCommandException("Interrupted while validating elements", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeCommandException("Error while validating elements", e.getCause());
+        } finally {
+            pool.shutdown();
         }
+        return results;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> loadElementIds(Integer scope) {
+        return getCnaTreeElementDAO().findByQuery(HQL_SCOPE_ELEMENT_IDS, new Object[] { scope });
+    }
+
+    /**
+     * Returns the elements which are changed since a given time according to
+     * the change log. Elements saved by the dao without a command, e.g. by
+     * RiskAnalysisJob or ProtectionRequirementsPropagation, do not have a
+     * change log entry and are not returned.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Integer> filterChangedElements(List<Integer> dbIds, Date since) {
+        Set<Integer> changedIds = new HashSet<>(getChangeLogEntryDao()
+                .findByQuery(HQL_CHANGED_ELEMENT_IDS, new Object[] { since }));
+        return dbIds.stream().filter(changedIds::contains).collect(Collectors.toList());
     }
 
     @Override
@@ -548,24 +670,15 @@ public class ValidationService implements IValidationService {
 
     @Override
     public void createValidationsByUuids(Collection<String> uuids) throws CommandException {
-        List<CnATreeElement> elements = new ArrayList<>(uuids.size());
-        List<CnAValidation> existingValidations = new ArrayList<>(uuids.size());
+        ServerInitializer.inheritVeriniceContextState();
         Collection<List<String>> partitions = CollectionUtil.partition(new ArrayList<String>(uuids),
                 IDao.QUERY_MAX_ITEMS_IN_LIST);
         for (List<String> partitionUUIDs : partitions) {
             List<CnATreeElement> partitionElements = loadElements(partitionUUIDs);
-            elements.addAll(partitionElements);
-            existingValidations.addAll(loadValidations(partitionElements));
-        }
-
-        Map<Integer, List<CnAValidation>> existingValidationsByElementId = existingValidations
-                .stream().collect(Collectors.groupingBy(CnAValidation::getElmtDbId));
-        ServerInitializer.inheritVeriniceContextState();
-
-        for (CnATreeElement element : elements) {
-            createValidationForSingleElement(element, element.getEntityType(),
-                    existingValidationsByElementId.getOrDefault(element.getDbId(),
-                            Collections.emptyList()));
+            Map<Integer, List<CnAValidation>> existingValidations = loadValidations(
+                    partitionElements).stream()
+                            .collect(Collectors.groupingBy(CnAValidation::getElmtDbId));
+            saveValidationDeltas(validate(partitionElements), existingValidations);
         }
     }
 
@@ -574,6 +687,7 @@ public class ValidationService implements IValidationService {
         DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class)
                 .add(Restrictions.in("uuid", uuids));
         RetrieveInfo.getPropertyInstance().configureCriteria(criteria);
+        criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
         return getCnaTreeElementDAO().findByCriteria(criteria);
     }
 
@@ -613,4 +727,28 @@ public class ValidationService implements IValidationService {
     private static Criterion createHintIdRestriction(String hintID) {
         return Restrictions.eq("hintId", hintID);
     }
+
+    /**
+     * Failed validation rules of an element by property type id and hint
+     */
+    private static final class ValidationResult {
+
+        private final CnATreeElement element;
+        private final Map<String, String[]> failedRules = new LinkedHashMap<>();
+
+        private ValidationResult(CnATreeElement element) {
+            this.element = element;
+        }
+
+        private void addFailedRules(PropertyType type, Map<String, Boolean> validationMap) {
+            String propertyId = StringUtils.abbreviate(type.getId(), MAXLENGTH_DBSTRING);
+            for (Entry<String, Boolean> entry : validationMap.entrySet()) {
+                if (!entry.getValue().booleanValue()) {
+                    String hint = StringUtils.abbreviate(entry.getKey(), MAXLENGTH_DBSTRING);
+                    failedRules.put(createKey(propertyId, hint),
+                            new String[] { propertyId, hint });
+                }
+            }
+        }
+    }
 }
@@ -39,7 +39,6 @@ import sernet.hui.common.VeriniceContext;
 import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.interfaces.ICommandService;
 import sernet.verinice.model.bsi.Attachment;
-import sernet.verinice.model.bsi.AttachmentFile;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.service.commands.AttachmentFileCreationFactory;
 import sernet.verinice.service.commands.LoadAttachmentFile;
@@ -125,9 +124,6 @@ public class AttachmentBean {
                 .get("id"); //$NON-NLS-1$
         String name = FacesContext.getCurrentInstance().getExternalContext()
                 .getRequestParameterMap().get("name"); //$NON-NLS-1$
-        LoadAttachmentFile command = new LoadAttachmentFile(Integer.valueOf(id));
-        command = getCommandService().executeCommand(command);
-        AttachmentFile attachmentFile = command.getAttachmentFile();
 
         FacesContext facesContext = FacesContext.getCurrentInstance();
         HttpServletResponse response = (HttpServletResponse) facesContext.getExternalContext()
@@ -138,11 +134,6 @@ public class AttachmentBean {
          * collide.
          */
         response.reset();
-        /*
-         * Set it with the file size. This header is optional. It will work if
-         * it's omitted, but the download progress will be unknown.
-         */
-        response.setContentLength(attachmentFile.getFileData().length);
         /*
          * The Save As popup magic is done here. You can give it any file name
          * you want, this only won't work in MSIE, it will use current request
@@ -150,8 +141,16 @@ public class AttachmentBean {
          */
         response.setHeader("Content-Disposition", "attachment; filename=\"" + name + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 
+        /*
+         * The content is streamed from the database to the response without
+         * loading it into memory. The content length is not set, the response
+         * is sent chunked.
+         */
         OutputStream output = response.getOutputStream();
-        output.write(attachmentFile.getFileData());
+        LoadAttachmentFile command = new LoadAttachmentFile(Integer.valueOf(id));
+        command.setOutputStream(output);
+        getCommandService().executeCommand(command);
+        output.flush();
 
         facesContext.responseComplete();
     }
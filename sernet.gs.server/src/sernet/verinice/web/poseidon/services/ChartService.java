@@ -55,6 +55,10 @@ import sernet.verinice.web.poseidon.services.strategy.SimpleSumOfStates;
  * The user must have at least read access to the verinice object, otherwise it
  * is not used for the data aggregation.
  *
+ * Data of a single scope is read from the counters of the
+ * {@link ChartStateCache} if the user is allowed to read all objects.
+ * Otherwise the objects are loaded with the {@link IGraphService}.
+ *
  *
  * @author Benjamin Weißenfels <bw[at]sernet[dot]de>
  *
@@ -90,6 +94,13 @@ public class ChartService extends GenericChartService {
      *                If no it network is given.
      */
     public StateData aggregateSafeguardStates(Integer scopeId) {
+        if (scopeId != null && isChartStateCacheUsable()) {
+            ScopeStateCounters counters = getChartStateCache().getCounters(scopeId);
+            synchronized (counters) {
+                return new StateData(counters.getScopeTitle(),
+                        new SimpleSumOfStates().aggregateData(counters));
+            }
+        }
         VeriniceGraph g = loadSafeguards(scopeId,
                 new String[] { ITVerbund.TYPE_ID, MassnahmenUmsetzung.TYPE_ID });
         CalculateSafeguardImplementationStrategy strategy = new SimpleSumOfStates();
@@ -178,6 +189,16 @@ public class ChartService extends GenericChartService {
     public ModuleStateData groupByModuleChapterSafeguardStates(String scopeId,
             GroupByStrategy groupByStrategie) {
         Integer scope = checkScopeId(scopeId);
+        if (scope != null && isChartStateCacheUsable()) {
+            ScopeStateCounters counters = getChartStateCache().getCounters(scope);
+            synchronized (counters) {
+                if (counters.getSafeguardChapters().isEmpty()) {
+                    return new ModuleStateData(counters.getScopeTitle());
+                }
+                return new ModuleStateData(counters.getScopeTitle(),
+                        groupByStrategie.aggregateMassnahmen(counters));
+            }
+        }
         VeriniceGraph g = loadSafeguards(scope, new String[] { ITVerbund.TYPE_ID,
                 BausteinUmsetzung.HIBERNATE_TYPE_ID, MassnahmenUmsetzung.HIBERNATE_TYPE_ID });
 
@@ -202,6 +223,9 @@ public class ChartService extends GenericChartService {
      *         be looked up in the SNCA.xml)
      */
     public StateData aggregateControlStates(int scopeId, int catalogId) {
+        if (isChartStateCacheUsable()) {
+            return aggregateCachedControlStates(scopeId, Collections.singletonList(catalogId));
+        }
 
         IGraphService graphService = getGraphService();
         IGraphElementLoader graphElementLoader = new GraphElementLoader();
@@ -229,28 +253,47 @@ public class ChartService extends GenericChartService {
      *         be looked up in the SNCA.xml)
      */
     public StateData aggregateControlStates(int scopeId) {
+        List<ControlGroup> catalogs = menuService.getCatalogs();
+        List<ControlGroup> catalogsOfScopeId = new ArrayList<>();
+        for (ControlGroup catalog : catalogs) {
+            if (catalog.getScopeId().equals(scopeId)) {
+                catalogsOfScopeId.add(catalog);
+            }
+        }
+
+        if (isChartStateCacheUsable()) {
+            List<Integer> catalogIds = new ArrayList<>(catalogsOfScopeId.size());
+            for (ControlGroup catalog : catalogsOfScopeId) {
+                catalogIds.add(catalog.getDbId());
+            }
+            return aggregateCachedControlStates(scopeId, catalogIds);
+        }
 
         IGraphService graphService = getGraphService();
         IGraphElementLoader graphElementLoader = new GraphElementLoader();
         graphElementLoader.setTypeIds(
                 new String[] { Organization.TYPE_ID, ControlGroup.TYPE_ID, Control.TYPE_ID });
+        graphElementLoader.setScopeId(scopeId);
 
         VeriniceGraph veriniceGraph = graphService
                 .createDirectedGraph(Collections.singletonList(graphElementLoader), false);
 
-        List<ControlGroup> catalogs = menuService.getCatalogs();
-        List<ControlGroup> catalogsOfScopeId = new ArrayList<>();
-        for (ControlGroup catalog : catalogs) {
-            if (catalog.getScopeId().equals(scopeId)) {
-                catalogsOfScopeId.add(catalog);
-            }
-        }
-
         AggregateIsmsControlsStrategy strategy = new AggregateIsmsControlsStrategyImpl(
                 veriniceGraph, catalogsOfScopeId);
         return new StateData(getOrganizationTitle(veriniceGraph), strategy.getData());
     }
 
+    private StateData aggregateCachedControlStates(int scopeId, List<Integer> catalogIds) {
+        ScopeStateCounters counters = getChartStateCache().getCounters(scopeId);
+        synchronized (counters) {
+            return new StateData(counters.getScopeTitle(), counters.getControlStates(catalogIds));
+        }
+    }
+
+    private boolean isChartStateCacheUsable() {
+        return getChartStateCache().isUsableForCurrentUser();
+    }
+
     private String getOrganizationTitle(VeriniceGraph veriniceGraph) {
         return veriniceGraph.getElements(Organization.class).iterator().next().getTitle();
     }
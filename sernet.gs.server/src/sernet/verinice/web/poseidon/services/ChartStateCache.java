@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.web.poseidon.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import sernet.gs.service.CollectionUtil;
+import sernet.verinice.hibernate.AfterCompletionBuffer;
+import sernet.verinice.interfaces.ApplicationRoles;
+import sernet.verinice.interfaces.IAuthService;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IConfigurationService;
+import sernet.verinice.interfaces.IDao;
+import sernet.verinice.interfaces.IElementChangeListener;
+import sernet.verinice.interfaces.graph.GraphElementLoader;
+import sernet.verinice.model.bsi.BausteinUmsetzung;
+import sernet.verinice.model.bsi.ITVerbund;
+import sernet.verinice.model.bsi.MassnahmenUmsetzung;
+import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.ControlGroup;
+import sernet.verinice.model.iso27k.Organization;
+
+/**
+ * Server side cache for the state counters of the charts in verinice web, see
+ * {@link ChartService}.
+ *
+ * The counters of a scope are loaded with one query the first time they are
+ * requested. The cache is registered as {@link IElementChangeListener} at the
+ * tree element DAOs. Changed elements are recorded after the transaction is
+ * completed and only these elements are reloaded the next time the counters
+ * are requested. Deleting an element invalidates the counters of its scope
+ * because children are deleted by cascade without notification.
+ *
+ * Properties which are changed without saving the element are not noticed.
+ * {@link ChartStateRebuildJob} reloads all cached scopes periodically.
+ *
+ * Counters are only used for users who are allowed to read all elements,
+ * because element permissions are not part of the counters.
+ */
+public class ChartStateCache implements IElementChangeListener {
+
+    private static final Logger LOG = Logger.getLogger(ChartStateCache.class);
+
+    private static final String[] TYPE_IDS = new String[] { ITVerbund.TYPE_ID,
+            BausteinUmsetzung.TYPE_ID, MassnahmenUmsetzung.TYPE_ID, Organization.TYPE_ID,
+            ControlGroup.TYPE_ID, Control.TYPE_ID };
+
+    private boolean enabled = false;
+    private int maxChangesBeforeReload = 5000;
+
+    private IAuthService authService;
+    private IConfigurationService configurationService;
+    private IBaseDao<CnATreeElement, Long> cnaTreeElementDao;
+
+    // Changes of rolled back transactions are recorded too, reloading an
+    // element which was not changed does no harm.
+    private final AfterCompletionBuffer<Change> changeBuffer = new AfterCompletionBuffer<>(
+            this::applyChanges, true);
+
+    private final Map<Integer, ScopeStateCounters> countersMap = new HashMap<>();
+
+    /**
+     * Returns true if the cached counters can be used for the current user.
+     */
+    public boolean isUsableForCurrentUser() {
+        if (!isEnabled()) {
+            return false;
+        }
+        if (!getAuthService().isPermissionHandlingNeeded()) {
+            return true;
+        }
+        String username = getAuthService().getUsername();
+        if (getAuthService().getAdminUsername().equals(username)) {
+            return true;
+        }
+        return hasAdminRole(getConfigurationService().getRoles(username))
+                && !getConfigurationService().isScopeOnly(username);
+    }
+
+    /**
+     * Returns the up to date counters of a scope. Callers must hold the lock
+     * of the returned counters while reading them.
+     *
+     * @param scopeId
+     *            The database id of an IT network or an organization
+     */
+    public ScopeStateCounters getCounters(Integer scopeId) {
+        ScopeStateCounters counters;
+        synchronized (countersMap) {
+            counters = countersMap.computeIfAbsent(scopeId, ScopeStateCounters::new);
+        }
+        synchronized (counters) {
+            refresh(counters);
+        }
+        return counters;
+    }
+
+    /**
+     * Reloads the counters of all cached scopes completely.
+     */
+    public void rebuild() {
+        for (ScopeStateCounters counters : getAllCounters()) {
+            synchronized (counters) {
+                counters.invalidate();
+                refresh(counters);
+                if (counters.getNumberOfElements() == 0) {
+                    remove(counters);
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (countersMap) {
+            countersMap.clear();
+        }
+    }
+
+    private void refresh(ScopeStateCounters counters) {
+        if (counters.isStale() || isReloadCheaper(counters)) {
+            long start = System.currentTimeMillis();
+            counters.reload(loadElements(counters.getScopeId()));
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Counters of scope " + counters.getScopeId() + " loaded, "
+                        + counters.getNumberOfElements() + " elements, "
+                        + (System.currentTimeMillis() - start) + " ms");
+            }
+        } else if (counters.getNumberOfChanges() > 0) {
+            Set<Integer> changedIds = counters.takeChangedIds();
+            counters.update(changedIds, loadElements(counters.getScopeId(), changedIds));
+        }
+    }
+
+    private boolean isReloadCheaper(ScopeStateCounters counters) {
+        return counters.getNumberOfChanges() > maxChangesBeforeReload
+                || counters.getNumberOfChanges() > counters.getNumberOfElements() / 2;
+    }
+
+    private List<CnATreeElement> loadElements(Integer scopeId) {
+        return createLoader(scopeId).loadElements();
+    }
+
+    private List<CnATreeElement> loadElements(Integer scopeId, Collection<Integer> dbIds) {
+        GraphElementLoader loader = createLoader(scopeId);
+        List<CnATreeElement> elements = new ArrayList<>(dbIds.size());
+        for (List<Integer> partition : CollectionUtil.partition(new ArrayList<>(dbIds),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            elements.addAll(loader.loadElements(partition));
+        }
+        return elements;
+    }
+
+    private GraphElementLoader createLoader(Integer scopeId) {
+        GraphElementLoader loader = new GraphElementLoader();
+        loader.setCnaTreeElementDao(getCnaTreeElementDao());
+        loader.setScopeId(scopeId);
+        loader.setTypeIds(TYPE_IDS);
+        return loader;
+    }
+
+    @Override
+    public void elementsChanged(Collection<CnATreeElement> elements) {
+        for (CnATreeElement element : elements) {
+            changeBuffer.add(new Change(false, element.getDbId(), element.getScopeId()));
+        }
+    }
+
+    @Override
+    public void elementsRemoved(Collection<CnATreeElement> elements) {
+        for (CnATreeElement element : elements) {
+            changeBuffer.add(new Change(true, element.getDbId(), element.getScopeId()));
+        }
+    }
+
+    @Override
+    public void linkChanged(CnALink link) {
+        // links are not part of the counters
+    }
+
+    @Override
+    public void linkRemoved(CnALink link) {
+        // links are not part of the counters
+    }
+
+    /**
+     * Records the changes of a completed transaction in all cached counters
+     * which contain the changed elements or belong to their scope.
+     */
+    private void applyChanges(List<Change> changes) {
+        for (ScopeStateCounters counters : getAllCounters()) {
+            synchronized (counters) {
+                for (Change change : changes) {
+                    if (counters.getScopeId().equals(change.scopeId)
+                            || counters.contains(change.dbId)) {
+                        if (change.removed) {
+                            counters.invalidate();
+                        } else {
+                            counters.elementChanged(change.dbId);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private List<ScopeStateCounters> getAllCounters() {
+        synchronized (countersMap) {
+            return new ArrayList<>(countersMap.values());
+        }
+    }
+
+    private void remove(ScopeStateCounters counters) {
+        synchronized (countersMap) {
+            countersMap.remove(counters.getScopeId(), counters);
+        }
+    }
+
+    /**
+     * A change of an element.
+     */
+    private static final class Change {
+
+        private final boolean removed;
+        private final Integer dbId;
+        private final Integer scopeId;
+
+        private Change(boolean removed, Integer dbId, Integer scopeId) {
+            this.removed = removed;
+            this.dbId = dbId;
+            this.scopeId = scopeId;
+        }
+    }
+
+    private static boolean hasAdminRole(String[] roles) {
+        if (roles != null) {
+            for (String role : roles) {
+                if (ApplicationRoles.ROLE_ADMIN.equals(role)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxChangesBeforeReload() {
+        return maxChangesBeforeReload;
+    }
+
+    public void setMaxChangesBeforeReload(int maxChangesBeforeReload) {
+        this.maxChangesBeforeReload = maxChangesBeforeReload;
+    }
+
+    public IAuthService getAuthService() {
+        return authService;
+    }
+
+    public void setAuthService(IAuthService authService) {
+        this.authService = authService;
+    }
+
+    public IConfigurationService getConfigurationService() {
+        return configurationService;
+    }
+
+    public void setConfigurationService(IConfigurationService configurationService) {
+        this.configurationService = configurationService;
+    }
+
+    public IBaseDao<CnATreeElement, Long> getCnaTreeElementDao() {
+        return cnaTreeElementDao;
+    }
+
+    public void setCnaTreeElementDao(IBaseDao<CnATreeElement, Long> cnaTreeElementDao) {
+        this.cnaTreeElementDao = cnaTreeElementDao;
+    }
+}
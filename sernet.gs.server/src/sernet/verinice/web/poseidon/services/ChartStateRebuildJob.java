@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.web.poseidon.services;
+
+import org.apache.log4j.Logger;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.StatefulJob;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.security.context.SecurityContext;
+import org.springframework.security.context.SecurityContextHolder;
+
+import sernet.gs.server.security.DummyAuthentication;
+
+/**
+ * Reloads the counters of all scopes cached by {@link ChartStateCache}, so
+ * that changes which were not noticed by the cache are visible in the charts.
+ * See veriniceserver.chart.cache.rebuild.cron in
+ * veriniceserver-plain.properties.
+ */
+public class ChartStateRebuildJob extends QuartzJobBean implements StatefulJob {
+
+    private static final Logger LOG = Logger.getLogger(ChartStateRebuildJob.class);
+
+    private ChartStateCache chartStateCache;
+
+    @Override
+    protected void executeInternal(JobExecutionContext context) throws JobExecutionException {
+        if (!chartStateCache.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        SecurityContext ctx = SecurityContextHolder.getContext();
+        boolean dummyAuthAdded = false;
+        try {
+            if (ctx.getAuthentication() == null) {
+                ctx.setAuthentication(new DummyAuthentication());
+                dummyAuthAdded = true;
+            }
+            chartStateCache.rebuild();
+        } finally {
+            if (dummyAuthAdded) {
+                ctx.setAuthentication(null);
+            }
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Chart state counters rebuilt, runtime: "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    public ChartStateCache getChartStateCache() {
+        return chartStateCache;
+    }
+
+    public void setChartStateCache(ChartStateCache chartStateCache) {
+        this.chartStateCache = chartStateCache;
+    }
+}
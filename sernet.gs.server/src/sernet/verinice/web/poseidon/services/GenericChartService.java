@@ -41,4 +41,8 @@ public abstract class GenericChartService implements Serializable {
     IGraphService getGraphService() {
         return (IGraphService) VeriniceContext.get(VeriniceContext.GRAPH_SERVICE);
     }
+
+    ChartStateCache getChartStateCache() {
+        return (ChartStateCache) VeriniceContext.get(VeriniceContext.CHART_STATE_CACHE);
+    }
 }
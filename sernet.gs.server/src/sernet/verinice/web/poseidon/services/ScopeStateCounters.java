@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.web.poseidon.services;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import sernet.verinice.model.bsi.BausteinUmsetzung;
+import sernet.verinice.model.bsi.MassnahmenUmsetzung;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.ControlGroup;
+
+/**
+ * State counters of the safeguards and controls of one scope (IT network or
+ * organization) which are displayed in the charts of verinice web.
+ *
+ * For every relevant element only the values which are needed for the charts
+ * are kept: the implementation state of safeguards and controls, the chapter
+ * of modules, the parent id and the scope title. Elements are replaced one by
+ * one when they change, the counters are recalculated from the kept values
+ * the next time they are requested.
+ *
+ * Instances are managed by {@link ChartStateCache}. All methods which read
+ * counters must be called while holding the lock of the instance.
+ */
+public class ScopeStateCounters {
+
+    private final Integer scopeId;
+
+    private final Map<Integer, ElementState> elementMap = new HashMap<>();
+
+    private final Set<Integer> changedIds = new HashSet<>();
+
+    private boolean stale = true;
+
+    private Map<String, Number> safeguardStates;
+    private Map<String, Map<String, Number>> safeguardStatesByChapter;
+    private Map<String, Integer> moduleChapterOccurrences;
+    private Map<Integer, Map<String, Number>> controlStatesByGroup;
+
+    ScopeStateCounters(Integer scopeId) {
+        this.scopeId = scopeId;
+    }
+
+    public Integer getScopeId() {
+        return scopeId;
+    }
+
+    /**
+     * Returns the title of the scope element.
+     */
+    public String getScopeTitle() {
+        ElementState scope = elementMap.get(scopeId);
+        return (scope != null) ? scope.value : null;
+    }
+
+    /**
+     * Returns the number of safeguards for every
+     * {@link MassnahmenUmsetzung#getUmsetzung()} state.
+     */
+    public Map<String, Number> getSafeguardStates() {
+        if (safeguardStates == null) {
+            safeguardStates = new HashMap<>();
+            for (ElementState state : elementMap.values()) {
+                if (state.type == ElementType.SAFEGUARD) {
+                    increment(safeguardStates, state.value);
+                }
+            }
+        }
+        return copy(safeguardStates);
+    }
+
+    /**
+     * Returns the number of safeguards of modules for every
+     * {@link MassnahmenUmsetzung#getUmsetzung()} state and every
+     * {@link BausteinUmsetzung#getKapitel()} chapter. Only states with at
+     * least one safeguard are keys of the map.
+     */
+    public Map<String, Map<String, Number>> getSafeguardStatesByChapter() {
+        if (safeguardStatesByChapter == null) {
+            safeguardStatesByChapter = new TreeMap<>(new CompareByTitle());
+            for (ElementState state : elementMap.values()) {
+                String chapter = getModuleChapter(state);
+                if (chapter != null) {
+                    Map<String, Number> chapterMap = safeguardStatesByChapter
+                            .computeIfAbsent(state.value, key -> new HashMap<>());
+                    increment(chapterMap, chapter);
+                }
+            }
+        }
+        Map<String, Map<String, Number>> result = new TreeMap<>(new CompareByTitle());
+        for (Map.Entry<String, Map<String, Number>> entry : safeguardStatesByChapter
+                .entrySet()) {
+            result.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the chapters of all modules which contain at least one
+     * safeguard.
+     */
+    public Set<String> getSafeguardChapters() {
+        Set<String> chapters = new HashSet<>();
+        for (ElementState state : elementMap.values()) {
+            String chapter = getModuleChapter(state);
+            if (chapter != null) {
+                chapters.add(chapter);
+            }
+        }
+        return chapters;
+    }
+
+    /**
+     * Returns the number of modules for every
+     * {@link BausteinUmsetzung#getKapitel()} chapter.
+     */
+    public Map<String, Integer> getModuleChapterOccurrences() {
+        if (moduleChapterOccurrences == null) {
+            moduleChapterOccurrences = new HashMap<>();
+            for (ElementState state : elementMap.values()) {
+                if (state.type == ElementType.MODULE) {
+                    moduleChapterOccurrences.merge(state.value, 1, Integer::sum);
+                }
+            }
+        }
+        return new HashMap<>(moduleChapterOccurrences);
+    }
+
+    /**
+     * Returns the number of controls for every {@link Control#getImplementation()}
+     * state of all controls in the subtrees of the given control groups.
+     *
+     * @param controlGroupIds
+     *            Database ids of control groups, e.g. catalogs
+     */
+    public Map<String, Number> getControlStates(Collection<Integer> controlGroupIds) {
+        if (controlStatesByGroup == null) {
+            controlStatesByGroup = countControlStatesByGroup();
+        }
+        Map<String, Number> result = new HashMap<>();
+        for (Integer groupId : controlGroupIds) {
+            Map<String, Number> groupStates = controlStatesByGroup.get(groupId);
+            if (groupStates != null) {
+                for (Map.Entry<String, Number> entry : groupStates.entrySet()) {
+                    result.merge(entry.getKey(), entry.getValue(),
+                            (a, b) -> a.intValue() + b.intValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private Map<Integer, Map<String, Number>> countControlStatesByGroup() {
+        Map<Integer, Map<String, Number>> statesByGroup = new HashMap<>();
+        for (ElementState state : elementMap.values()) {
+            if (state.type != ElementType.CONTROL) {
+                continue;
+            }
+            ElementState parent = elementMap.get(state.parentId);
+            Set<Integer> visited = new HashSet<>();
+            while (parent != null && parent.type == ElementType.CONTROL_GROUP
+                    && visited.add(parent.dbId)) {
+                increment(statesByGroup.computeIfAbsent(parent.dbId, key -> new HashMap<>()),
+                        state.value);
+                parent = elementMap.get(parent.parentId);
+            }
+        }
+        return statesByGroup;
+    }
+
+    private String getModuleChapter(ElementState state) {
+        if (state.type != ElementType.SAFEGUARD) {
+            return null;
+        }
+        ElementState parent = elementMap.get(state.parentId);
+        return (parent != null && parent.type == ElementType.MODULE) ? parent.value : null;
+    }
+
+    /**
+     * Returns true if all elements of the scope must be loaded.
+     */
+    boolean isStale() {
+        return stale;
+    }
+
+    void invalidate() {
+        stale = true;
+        changedIds.clear();
+    }
+
+    void elementChanged(Integer dbId) {
+        if (!stale) {
+            changedIds.add(dbId);
+        }
+    }
+
+    boolean contains(Integer dbId) {
+        return elementMap.containsKey(dbId);
+    }
+
+    int getNumberOfElements() {
+        return elementMap.size();
+    }
+
+    int getNumberOfChanges() {
+        return changedIds.size();
+    }
+
+    /**
+     * Returns the ids of the elements changed since the last refresh and
+     * clears the changes.
+     */
+    Set<Integer> takeChangedIds() {
+        Set<Integer> ids = new HashSet<>(changedIds);
+        changedIds.clear();
+        return ids;
+    }
+
+    /**
+     * Replaces all elements of the scope.
+     */
+    void reload(Collection<CnATreeElement> elements) {
+        elementMap.clear();
+        changedIds.clear();
+        for (CnATreeElement element : elements) {
+            put(element);
+        }
+        stale = false;
+        clearCounters();
+    }
+
+    /**
+     * Replaces the changed elements. Elements which are not part of the
+     * reloaded elements anymore are removed.
+     *
+     * @param dbIds
+     *            Database ids of the changed elements
+     * @param elements
+     *            The changed elements which belong to the scope
+     */
+    void update(Collection<Integer> dbIds, Collection<CnATreeElement> elements) {
+        for (Integer dbId : dbIds) {
+            elementMap.remove(dbId);
+        }
+        for (CnATreeElement element : elements) {
+            put(element);
+        }
+        clearCounters();
+    }
+
+    private void put(CnATreeElement element) {
+        ElementState state = ElementState.create(element);
+        if (state != null) {
+            elementMap.put(element.getDbId(), state);
+        }
+    }
+
+    private void clearCounters() {
+        safeguardStates = null;
+        safeguardStatesByChapter = null;
+        moduleChapterOccurrences = null;
+        controlStatesByGroup = null;
+    }
+
+    private static void increment(Map<String, Number> counters, String key) {
+        counters.merge(key, 1, (a, b) -> a.intValue() + b.intValue());
+    }
+
+    private static Map<String, Number> copy(Map<String, Number> counters) {
+        return new HashMap<>(counters);
+    }
+
+    private enum ElementType {
+        SCOPE, MODULE, SAFEGUARD, CONTROL_GROUP, CONTROL
+    }
+
+    /**
+     * The values of an element which are needed for the counters.
+     */
+    private static final class ElementState {
+
+        private final ElementType type;
+        private final Integer dbId;
+        private final Integer parentId;
+        private final String value;
+
+        private ElementState(ElementType type, CnATreeElement element, String value) {
+            this.type = type;
+            this.dbId = element.getDbId();
+            this.parentId = element.getParentId();
+            this.value = value;
+        }
+
+        private static ElementState create(CnATreeElement element) {
+            if (element instanceof MassnahmenUmsetzung) {
+                return new ElementState(ElementType.SAFEGUARD, element,
+                        ((MassnahmenUmsetzung) element).getUmsetzung());
+            }
+            if (element instanceof BausteinUmsetzung) {
+                return new ElementState(ElementType.MODULE, element,
+                        ((BausteinUmsetzung) element).getKapitel());
+            }
+            if (element instanceof Control) {
+                return new ElementState(ElementType.CONTROL, element,
+                        ((Control) element).getImplementation());
+            }
+            if (element instanceof ControlGroup) {
+                return new ElementState(ElementType.CONTROL_GROUP, element, element.getTitle());
+            }
+            if (element.getDbId() != null && element.getDbId().equals(element.getScopeId())) {
+                return new ElementState(ElementType.SCOPE, element, element.getTitle());
+            }
+            return null;
+        }
+    }
+}
@@ -22,6 +22,7 @@ package sernet.verinice.web.poseidon.services.strategy;
 import java.util.SortedMap;
 
 import sernet.verinice.model.bsi.MassnahmenUmsetzung;
+import sernet.verinice.web.poseidon.services.ScopeStateCounters;
 
 /**
  * Provides strategy for calculating the implementation state of safeguards
@@ -39,4 +40,13 @@ public interface CalculateSafeguardImplementationStrategy {
      */
     SortedMap<String, Number> aggregateData(Iterable<MassnahmenUmsetzung> safeguards);
 
+    /**
+     * Calculates the implementation states from the cached counters of a
+     * scope.
+     *
+     * @param counters
+     *            The state counters of a scope, the caller holds the lock
+     */
+    SortedMap<String, Number> aggregateData(ScopeStateCounters counters);
+
 }
@@ -24,6 +24,7 @@ import java.util.Map;
 import sernet.verinice.interfaces.graph.VeriniceGraph;
 import sernet.verinice.model.bsi.BausteinUmsetzung;
 import sernet.verinice.model.bsi.MassnahmenUmsetzung;
+import sernet.verinice.web.poseidon.services.ScopeStateCounters;
 
 /**
  * Calculates the sum of every {@link MassnahmenUmsetzung} under one
@@ -48,4 +49,13 @@ public interface GroupByStrategy {
      */
     Map<String, Map<String, Number>> aggregateMassnahmen(VeriniceGraph g);
 
+    /**
+     * Returns the same map as {@link #aggregateMassnahmen(VeriniceGraph)}
+     * calculated from the cached counters of a scope.
+     *
+     * @param counters
+     *            The state counters of a scope, the caller holds the lock
+     */
+    Map<String, Map<String, Number>> aggregateMassnahmen(ScopeStateCounters counters);
+
 }
@@ -25,6 +25,7 @@ import java.util.Map.Entry;
 
 import sernet.verinice.interfaces.graph.VeriniceGraph;
 import sernet.verinice.model.bsi.BausteinUmsetzung;
+import sernet.verinice.web.poseidon.services.ScopeStateCounters;
 
 /**
  *
@@ -49,6 +50,14 @@ public class GroupByStrategyNormalized implements GroupByStrategy{
         return aggregateMassnahmen;
     }
 
+    @Override
+    public Map<String, Map<String, Number>> aggregateMassnahmen(ScopeStateCounters counters) {
+        aggregateMassnahmen = new GroupByStrategySum().aggregateMassnahmen(counters);
+        modul2Occurences = counters.getModuleChapterOccurrences();
+        normalize();
+        return aggregateMassnahmen;
+    }
+
     private void normalize() {
       for(Map<String,Number> chapter2Massnahmen : aggregateMassnahmen.values()) {
           for(Entry<String,Number> e : chapter2Massnahmen.entrySet()){
@@ -34,6 +34,7 @@ import sernet.verinice.interfaces.graph.VeriniceGraph;
 import sernet.verinice.model.bsi.BausteinUmsetzung;
 import sernet.verinice.model.bsi.MassnahmenUmsetzung;
 import sernet.verinice.web.poseidon.services.CompareByTitle;
+import sernet.verinice.web.poseidon.services.ScopeStateCounters;
 
 /**
  * Counts the states of all {@link MassnahmenUmsetzung} states and group them by
@@ -60,6 +61,14 @@ public class GroupByStrategySum implements GroupByStrategy {
         return data;
     }
 
+    @Override
+    public final Map<String, Map<String, Number>> aggregateMassnahmen(
+            ScopeStateCounters counters) {
+        Map<String, Map<String, Number>> data = counters.getSafeguardStatesByChapter();
+        fillUpStates(data, counters.getSafeguardChapters());
+        return data;
+    }
+
     /**
      * Some of the states contains no data for specific chapter. This method
      * makes sure that every states contains the same set of chapter
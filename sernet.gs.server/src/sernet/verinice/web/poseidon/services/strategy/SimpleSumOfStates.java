@@ -24,6 +24,7 @@ import java.util.TreeMap;
 
 import sernet.verinice.model.bsi.MassnahmenUmsetzung;
 import sernet.verinice.web.poseidon.services.CompareByTitle;
+import sernet.verinice.web.poseidon.services.ScopeStateCounters;
 
 /**
  * @author Benjamin Weißenfels <bw[at]sernet[dot]de>
@@ -48,6 +49,16 @@ public final class SimpleSumOfStates implements CalculateSafeguardImplementation
         return result;
     }
 
+    @Override
+    public SortedMap<String, Number> aggregateData(ScopeStateCounters counters) {
+        result = new TreeMap<>(new CompareByTitle());
+        result.putAll(counters.getSafeguardStates());
+
+        fillUpEmptyKeys();
+
+        return result;
+    }
+
     private void fillUpEmptyKeys() {
 
         if (!result.containsKey(MassnahmenUmsetzung.P_UMSETZUNG_UNBEARBEITET)) {
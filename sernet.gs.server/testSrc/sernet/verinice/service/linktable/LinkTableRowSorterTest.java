@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.linktable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LinkTableRowSorterTest {
+
+    @Test
+    public void testSortInMemory() {
+        List<List<String>> rows = createRows(100);
+        List<List<String>> sorted = sort(rows, 1000);
+        assertSorted(rows, sorted);
+    }
+
+    @Test
+    public void testSortWithRuns() {
+        List<List<String>> rows = createRows(1000);
+        List<List<String>> sorted = new ArrayList<>();
+        try (LinkTableRowSorter sorter = new LinkTableRowSorter(64)) {
+            rows.forEach(sorter::add);
+            assertEquals(15, sorter.getNumberOfRuns());
+            assertEquals(1000, sorter.getNumberOfRows());
+            sorter.writeTo(sorted::add);
+        }
+        assertSorted(rows, sorted);
+    }
+
+    @Test
+    public void testIterateWithRuns() {
+        List<List<String>> rows = createRows(1000);
+        List<List<String>> sorted = new ArrayList<>();
+        try (LinkTableRowSorter sorter = new LinkTableRowSorter(64);
+                LinkTableRowIterator iterator = fill(sorter, rows).iterator()) {
+            iterator.forEachRemaining(sorted::add);
+            assertFalse(iterator.hasNext());
+        }
+        assertSorted(rows, sorted);
+    }
+
+    @Test
+    public void testCloseIteratorBeforeAllRowsAreRead() {
+        List<List<String>> rows = createRows(1000);
+        List<List<String>> expected = new ArrayList<>(rows);
+        Collections.sort(expected, new RowComparator());
+        try (LinkTableRowSorter sorter = new LinkTableRowSorter(64)) {
+            try (LinkTableRowIterator iterator = fill(sorter, rows).iterator()) {
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(expected.get(i), iterator.next());
+                }
+            }
+            List<List<String>> sorted = new ArrayList<>();
+            sorter.writeTo(sorted::add);
+            assertEquals(expected, sorted);
+        }
+    }
+
+    @Test
+    public void testNullAndUmlautValues() {
+        List<List<String>> rows = new ArrayList<>();
+        rows.add(Arrays.asList("Überwachung", null));
+        rows.add(Arrays.asList(null, "b"));
+        rows.add(Arrays.asList("Asset 10", ""));
+        rows.add(Arrays.asList("Asset 2", "ä"));
+        List<List<String>> sorted = sort(rows, 1);
+        assertSorted(rows, sorted);
+    }
+
+    private static List<List<String>> sort(List<List<String>> rows, int maxRowsInMemory) {
+        List<List<String>> sorted = new ArrayList<>();
+        try (LinkTableRowSorter sorter = new LinkTableRowSorter(maxRowsInMemory)) {
+            rows.forEach(sorter::add);
+            sorter.writeTo(sorted::add);
+        }
+        return sorted;
+    }
+
+    private static LinkTableRowSorter fill(LinkTableRowSorter sorter, List<List<String>> rows) {
+        rows.forEach(sorter::add);
+        return sorter;
+    }
+
+    private static void assertSorted(List<List<String>> rows, List<List<String>> sorted) {
+        List<List<String>> expected = new ArrayList<>(rows);
+        Collections.sort(expected, new RowComparator());
+        assertEquals(expected, sorted);
+    }
+
+    private static List<List<String>> createRows(int numberOfRows) {
+        Random random = new Random(42);
+        List<List<String>> rows = new ArrayList<>(numberOfRows);
+        for (int i = 0; i < numberOfRows; i++) {
+            rows.add(Arrays.asList("Asset " + random.nextInt(50), "Person " + random.nextInt(20),
+                    String.valueOf(i)));
+        }
+        return rows;
+    }
+}
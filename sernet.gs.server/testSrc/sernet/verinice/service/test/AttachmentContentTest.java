@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.Resource;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.IAttachmentFileDao;
+import sernet.verinice.model.bsi.Attachment;
+import sernet.verinice.model.bsi.AttachmentFile;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.service.commands.LoadAttachmentFile;
+import sernet.verinice.service.commands.SaveNote;
+
+/**
+ * Tests the deduplication, references and range reads of the attachment
+ * contents stored by {@link IAttachmentFileDao}.
+ */
+@Transactional
+@TransactionConfiguration(transactionManager = "txManager")
+public class AttachmentContentTest extends CommandServiceProvider {
+
+    private static final int FILE_SIZE = 64 * 1024;
+
+    @Resource(name = "attachmentFileDAO")
+    private IAttachmentFileDao attachmentFileDao;
+
+    private Organization organization;
+
+    @Before
+    public void setUp() throws CommandException {
+        organization = createOrganization();
+    }
+
+    @Test
+    public void testEqualFilesAreStoredOnce() throws CommandException {
+        byte[] data = createData(1);
+        Attachment attachment1 = createAttachment(data);
+        Attachment attachment2 = createAttachment(data);
+
+        AttachmentFile file1 = attachmentFileDao.findById(attachment1.getDbId());
+        AttachmentFile file2 = attachmentFileDao.findById(attachment2.getDbId());
+        assertNotNull(file1.getContentHash());
+        assertEquals(file1.getContentHash(), file2.getContentHash());
+        assertEquals(1, countContents(file1.getContentHash()));
+        assertArrayEquals(data, file1.getFileData());
+        assertArrayEquals(data, file2.getFileData());
+    }
+
+    @Test
+    public void testCopyAddsReference() throws CommandException {
+        byte[] data = createData(2);
+        Attachment source = createAttachment(data);
+        Attachment target = createAttachment(null);
+        assertEquals(-1, attachmentFileDao.getFileSize(target.getDbId()));
+
+        assertTrue(attachmentFileDao.copyFileData(source.getDbId(), target.getDbId()));
+
+        AttachmentFile targetFile = attachmentFileDao.findById(target.getDbId());
+        assertArrayEquals(data, targetFile.getFileData());
+        assertEquals(1, countContents(targetFile.getContentHash()));
+        assertFalse(attachmentFileDao.copyFileData(createAttachment(null).getDbId(),
+                target.getDbId()));
+    }
+
+    @Test
+    public void testRangeRead() throws CommandException {
+        byte[] data = createData(3);
+        Attachment attachment = createAttachment(data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(20, attachmentFileDao.writeFileData(attachment.getDbId(), 10, 20, out));
+        assertArrayEquals(Arrays.copyOfRange(data, 10, 30), out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        assertEquals(5, attachmentFileDao.writeFileData(attachment.getDbId(),
+                FILE_SIZE - 5, 20, out));
+        assertArrayEquals(Arrays.copyOfRange(data, FILE_SIZE - 5, FILE_SIZE),
+                out.toByteArray());
+        assertEquals(FILE_SIZE, attachmentFileDao.getFileSize(attachment.getDbId()));
+    }
+
+    @Test
+    public void testReplacedContentIsDeleted() throws CommandException {
+        Attachment attachment = createAttachment(null);
+        byte[] data = createData(4);
+        String hash = attachmentFileDao.saveFileData(attachment.getDbId(),
+                new ByteArrayInputStream(data));
+        assertEquals(1, countContents(hash));
+
+        byte[] newData = createData(5);
+        String newHash = attachmentFileDao.saveFileData(attachment.getDbId(),
+                new ByteArrayInputStream(newData));
+        assertEquals(1, countContents(hash));
+        assertTrue(attachmentFileDao.deleteUnreferencedContent(System.currentTimeMillis()) > 0);
+        assertEquals(0, countContents(hash));
+        assertEquals(1, countContents(newHash));
+        assertEquals(newData.length, attachmentFileDao.getFileSize(attachment.getDbId()));
+
+        attachmentFileDao.saveFileData(attachment.getDbId(),
+                new ByteArrayInputStream(createData(8)));
+        attachmentFileDao.deleteUnreferencedContent(System.currentTimeMillis());
+        assertEquals(0, countContents(newHash));
+    }
+
+    @Test
+    public void testSavingWithoutDataKeepsContent() throws CommandException {
+        byte[] data = createData(9);
+        Attachment attachment = createAttachment(data);
+        String hash = attachmentFileDao.findById(attachment.getDbId()).getContentHash();
+
+        attachmentFileDao.flush();
+        attachmentFileDao.clear();
+        attachmentFileDao.merge(createFileWithoutData(attachment));
+        attachmentFileDao.flush();
+        attachmentFileDao.clear();
+        attachmentFileDao.saveOrUpdate(createFileWithoutData(attachment));
+        attachmentFileDao.flush();
+        attachmentFileDao.clear();
+
+        AttachmentFile loadedFile = attachmentFileDao.findById(attachment.getDbId());
+        assertEquals(hash, loadedFile.getContentHash());
+        assertArrayEquals(data, loadedFile.getFileData());
+        attachmentFileDao.deleteUnreferencedContent(System.currentTimeMillis());
+        assertEquals(1, countContents(hash));
+    }
+
+    @Test
+    public void testLoadAttachmentFileStreamsContent() throws CommandException {
+        byte[] data = createData(10);
+        Attachment attachment = createAttachment(data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoadAttachmentFile command = new LoadAttachmentFile(attachment.getDbId());
+        command.setOutputStream(out);
+        command = commandService.executeCommand(command);
+
+        assertNull(command.getAttachmentFile());
+        assertEquals(data.length, command.getFileSize());
+        assertArrayEquals(data, out.toByteArray());
+    }
+
+    @Test
+    public void testRecentlyReferencedContentIsKept() throws CommandException {
+        Attachment attachment = createAttachment(null);
+        long start = System.currentTimeMillis();
+        String hash = attachmentFileDao.saveFileData(attachment.getDbId(),
+                new ByteArrayInputStream(createData(6)));
+        attachmentFileDao.saveFileData(attachment.getDbId(),
+                new ByteArrayInputStream(createData(7)));
+
+        attachmentFileDao.deleteUnreferencedContent(start - 1);
+        assertEquals(1, countContents(hash));
+
+        // The kept content is referenced again instead of being inserted
+        Attachment other = createAttachment(null);
+        assertEquals(hash, attachmentFileDao.saveFileData(other.getDbId(),
+                new ByteArrayInputStream(createData(6))));
+        attachmentFileDao.deleteUnreferencedContent(System.currentTimeMillis());
+        assertEquals(1, countContents(hash));
+    }
+
+    private Attachment createAttachment(byte[] data) throws CommandException {
+        Attachment attachment = new Attachment();
+        attachment.setCnATreeElement(organization);
+        attachment.setCnAElementTitel(organization.getTitle());
+        attachment.setTitel(AttachmentContentTest.class.getSimpleName());
+        attachment.setDate(Calendar.getInstance().getTime());
+        SaveNote command = new SaveNote(attachment);
+        attachment = (Attachment) commandService.executeCommand(command).getAddition();
+        if (data != null) {
+            AttachmentFile attachmentFile = new AttachmentFile();
+            attachmentFile.setDbId(attachment.getDbId());
+            attachmentFile.setFileData(data);
+            attachmentFileDao.merge(attachmentFile);
+        }
+        return attachment;
+    }
+
+    private static AttachmentFile createFileWithoutData(Attachment attachment) {
+        AttachmentFile attachmentFile = new AttachmentFile();
+        attachmentFile.setDbId(attachment.getDbId());
+        return attachmentFile;
+    }
+
+    private long countContents(String hash) {
+        List<?> result = attachmentFileDao.findByQuery(
+                "select count(c.hash) from AttachmentContent c where c.hash = ?",
+                new Object[] { hash });
+        return ((Number) result.get(0)).longValue();
+    }
+
+    private static byte[] createData(long seed) {
+        byte[] data = new byte[FILE_SIZE];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import javax.annotation.Resource;
+
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+import org.junit.Test;
+import org.springframework.test.context.transaction.TransactionConfiguration;
+import org.springframework.transaction.annotation.Transactional;
+
+import sernet.verinice.hibernate.ChangeLogEntryDao;
+import sernet.verinice.interfaces.IChangeLogEntryDao;
+import sernet.verinice.model.common.ChangeLogEntry;
+import sernet.verinice.model.iso27k.Organization;
+
+/**
+ * Tests the buffered insertion of change log entries by
+ * {@link ChangeLogEntryDao}.
+ */
+@Transactional
+@TransactionConfiguration(transactionManager = "txManager")
+public class ChangeLogEntryDaoTest extends CommandServiceProvider {
+
+    private static final String STATION_ID = "ChangeLogEntryDaoTest";
+
+    @Resource(name = "changeLogEntryDAO")
+    private IChangeLogEntryDao changeLogEntryDao;
+
+    @Test
+    public void testCommandChangesAreLogged() throws Exception {
+        Organization organization = createOrganization();
+        organization.setTitel("ChangeLogEntryDaoTest changed");
+        updateElement(organization);
+
+        List<ChangeLogEntry> entries = findEntries(organization, null);
+        assertTrue("Insert of organization was not logged",
+                entries.stream().anyMatch(e -> e.getChange() == ChangeLogEntry.TYPE_INSERT));
+        assertTrue("Update of organization was not logged",
+                entries.stream().anyMatch(e -> e.getChange() == ChangeLogEntry.TYPE_UPDATE));
+    }
+
+    @Test
+    public void testUpdatesAreCompacted() throws Exception {
+        Organization organization = createOrganization();
+        boolean compact = changeLogEntryDao.isCompact();
+        changeLogEntryDao.setCompact(true);
+        try {
+            changeLogEntryDao.saveOrUpdateAll(Arrays.asList(
+                    createEntry(organization, ChangeLogEntry.TYPE_UPDATE),
+                    createEntry(organization, ChangeLogEntry.TYPE_UPDATE),
+                    createEntry(organization, ChangeLogEntry.TYPE_PERMISSION),
+                    createEntry(organization, ChangeLogEntry.TYPE_UPDATE)));
+            List<ChangeLogEntry> entries = findEntries(organization, STATION_ID);
+            assertEquals("Number of change log entries is wrong", 2, entries.size());
+        } finally {
+            changeLogEntryDao.setCompact(compact);
+        }
+    }
+
+    @Test
+    public void testEntriesAreNotCompacted() throws Exception {
+        Organization organization = createOrganization();
+        changeLogEntryDao.saveOrUpdateAll(
+                Arrays.asList(createEntry(organization, ChangeLogEntry.TYPE_UPDATE),
+                        createEntry(organization, ChangeLogEntry.TYPE_UPDATE)));
+        List<ChangeLogEntry> entries = findEntries(organization, STATION_ID);
+        assertEquals("Number of change log entries is wrong", 2, entries.size());
+    }
+
+    private ChangeLogEntry createEntry(Organization organization, int change) {
+        return new ChangeLogEntry(organization, change, "admin", STATION_ID, new Date());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ChangeLogEntry> findEntries(Organization organization, String stationId) {
+        DetachedCriteria criteria = DetachedCriteria.forClass(ChangeLogEntry.class)
+                .add(Restrictions.eq("elementId", organization.getDbId()));
+        if (stationId != null) {
+            criteria.add(Restrictions.eq("stationId", stationId));
+        }
+        return changeLogEntryDao.findByCriteria(criteria);
+    }
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.IControl;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.web.poseidon.services.ChartStateCache;
+import sernet.verinice.web.poseidon.services.ScopeStateCounters;
+
+/**
+ * Tests the incremental update of the counters cached by
+ * {@link ChartStateCache}.
+ */
+public class ChartStateCacheTest extends CommandServiceProvider {
+
+    @Resource(name = "chartStateCache")
+    private ChartStateCache chartStateCache;
+
+    private Organization organization;
+
+    private Integer controlGroupId;
+
+    @Before
+    public void setUp() throws CommandException {
+        chartStateCache.clear();
+        organization = createOrganization();
+        controlGroupId = getGroupForClass(organization, Control.class).getDbId();
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        chartStateCache.clear();
+        removeElement(organization);
+    }
+
+    @Test
+    public void testNewControlsAreCounted() throws CommandException {
+        assertEquals("Controls found in new organization", 0,
+                countControls(IControl.IMPLEMENTED_NOTEDITED));
+
+        createNewElement(getGroupForClass(organization, Control.class), Control.class);
+        createNewElement(getGroupForClass(organization, Control.class), Control.class);
+
+        assertEquals("Number of new controls is wrong", 2,
+                countControls(IControl.IMPLEMENTED_NOTEDITED));
+    }
+
+    @Test
+    public void testChangedControlIsUpdated() throws CommandException {
+        Control control = (Control) createNewElement(
+                getGroupForClass(organization, Control.class), Control.class);
+        createNewElement(getGroupForClass(organization, Control.class), Control.class);
+        assertEquals("Number of not edited controls is wrong", 2,
+                countControls(IControl.IMPLEMENTED_NOTEDITED));
+
+        control.setImplementation(IControl.IMPLEMENTED_YES);
+        updateElement(control);
+
+        assertEquals("Number of not edited controls is wrong", 1,
+                countControls(IControl.IMPLEMENTED_NOTEDITED));
+        assertEquals("Number of implemented controls is wrong", 1,
+                countControls(IControl.IMPLEMENTED_YES));
+    }
+
+    @Test
+    public void testRemovedControlIsNotCounted() throws CommandException {
+        CnATreeElement control = createNewElement(
+                getGroupForClass(organization, Control.class), Control.class);
+        assertEquals("Number of controls is wrong", 1,
+                countControls(IControl.IMPLEMENTED_NOTEDITED));
+
+        removeElement(control);
+
+        assertEquals("Removed control is counted", 0,
+                countControls(IControl.IMPLEMENTED_NOTEDITED));
+    }
+
+    @Test
+    public void testScopeTitle() {
+        ScopeStateCounters counters = chartStateCache.getCounters(organization.getDbId());
+        synchronized (counters) {
+            assertEquals("Scope title is wrong", organization.getTitle(),
+                    counters.getScopeTitle());
+        }
+    }
+
+    private int countControls(String implementation) {
+        ScopeStateCounters counters = chartStateCache.getCounters(organization.getDbId());
+        synchronized (counters) {
+            Map<String, Number> states = counters
+                    .getControlStates(Collections.singletonList(controlGroupId));
+            Number number = states.get(implementation);
+            return (number != null) ? number.intValue() : 0;
+        }
+    }
+}
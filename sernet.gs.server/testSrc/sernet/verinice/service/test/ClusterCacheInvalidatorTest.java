@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Resource;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.hibernate3.SessionFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
+import sernet.verinice.hibernate.CollectionCacheChangeListener;
+import sernet.verinice.hibernate.DatabaseCacheInvalidationTransport;
+import sernet.verinice.hibernate.ICacheInvalidationTransport;
+import sernet.verinice.hibernate.InProcessCacheInvalidationTransport;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.model.common.CacheInvalidation;
+import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.IncidentScenario;
+import sernet.verinice.model.iso27k.Organization;
+
+/**
+ * Tests that changed link collections are evicted on all nodes by the
+ * {@link ClusterCacheInvalidator}.
+ */
+public class ClusterCacheInvalidatorTest extends CommandServiceProvider {
+
+    @Resource(name = "sessionFactory")
+    private SessionFactory sessionFactory;
+
+    @Resource(name = "collectionCacheChangeListener")
+    private CollectionCacheChangeListener changeListener;
+
+    @Resource(name = "clusterCacheInvalidator")
+    private ClusterCacheInvalidator clusterCacheInvalidator;
+
+    @Resource(name = "cacheInvalidationDao")
+    private IBaseDao<CacheInvalidation, Integer> cacheInvalidationDao;
+
+    @Resource(name = "txManager")
+    private PlatformTransactionManager transactionManager;
+
+    private RecordingInvalidator node1;
+
+    private RecordingInvalidator node2;
+
+    private Organization organization;
+
+    @Before
+    public void setUp() throws CommandException {
+        InProcessCacheInvalidationTransport transport = new InProcessCacheInvalidationTransport();
+        node1 = new RecordingInvalidator(transport);
+        node2 = new RecordingInvalidator(new InProcessCacheInvalidationTransport(transport));
+        organization = createOrganization();
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        clusterCacheInvalidator.setChangeListener(changeListener);
+        removeElement(organization);
+    }
+
+    @Test
+    public void testInvalidationIsSentToOtherNodes() {
+        node1.collectionChanged(ClusterCacheInvalidator.ROLE_LINKS_UP, 42);
+        assertEquals(Collections.singletonList(ClusterCacheInvalidator.ROLE_LINKS_UP + "#42"),
+                node1.evicted);
+
+        node1.poll();
+        node2.poll();
+        assertEquals(1, node1.evicted.size());
+        assertEquals(Collections.singletonList(ClusterCacheInvalidator.ROLE_LINKS_UP + "#42"),
+                node2.evicted);
+        assertEquals(1, node1.getRegionStatistics().get(ClusterCacheInvalidator.ROLE_LINKS_UP)
+                .getSentInvalidations());
+        assertEquals(1, node2.getRegionStatistics().get(ClusterCacheInvalidator.ROLE_LINKS_UP)
+                .getReceivedInvalidations());
+    }
+
+    @Test
+    public void testChangedLinkCollectionsAreInvalidated() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        CnATreeElement scenario = createNewElement(
+                getGroupForClass(organization, IncidentScenario.class), IncidentScenario.class);
+        node1.setChangeListener(changeListener);
+
+        createLink(control, scenario, Control.REL_CONTROL_INCSCEN);
+
+        assertTrue(node1.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_DOWN + "#" + control.getDbId()));
+        assertTrue(node1.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_UP + "#" + scenario.getDbId()));
+        node2.poll();
+        assertTrue(node2.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_DOWN + "#" + control.getDbId()));
+        assertTrue(node2.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_UP + "#" + scenario.getDbId()));
+    }
+
+    @Test
+    public void testLinkDeletedByCommitFlushIsInvalidated() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        CnATreeElement scenario = createNewElement(
+                getGroupForClass(organization, IncidentScenario.class), IncidentScenario.class);
+        CnALink link = createLink(control, scenario, Control.REL_CONTROL_INCSCEN);
+        node1.setChangeListener(changeListener);
+
+        // no query after the deletion, it is flushed by the commit
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Session session = SessionFactoryUtils.getSession(sessionFactory, false);
+            session.delete(session.get(CnALink.class, link.getId()));
+            return null;
+        });
+
+        assertTrue(node1.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_DOWN + "#" + control.getDbId()));
+        node2.poll();
+        assertTrue(node2.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_DOWN + "#" + control.getDbId()));
+        assertTrue(node2.evicted
+                .contains(ClusterCacheInvalidator.ROLE_LINKS_UP + "#" + scenario.getDbId()));
+    }
+
+    @Test
+    public void testAllCollectionsAreEvictedIfSendingFails() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        CnATreeElement scenario = createNewElement(
+                getGroupForClass(organization, IncidentScenario.class), IncidentScenario.class);
+        RecordingInvalidator failingNode = new RecordingInvalidator(new FailingTransport());
+        failingNode.setChangeListener(changeListener);
+
+        createLink(control, scenario, Control.REL_CONTROL_INCSCEN);
+
+        // the transaction is committed although sending failed
+        CnATreeElement reloadedControl = elementDao.findByUuid(control.getUuid(),
+                new RetrieveInfo().setLinksDown(true));
+        assertEquals(1, reloadedControl.getLinksDown().size());
+        for (String role : ClusterCacheInvalidator.ROLES) {
+            assertTrue(failingNode.evicted.contains(role + "#null"));
+        }
+    }
+
+    @Test
+    public void testDatabaseTransport() {
+        DatabaseCacheInvalidationTransport transport1 = createDatabaseTransport("node1");
+        DatabaseCacheInvalidationTransport transport2 = createDatabaseTransport("node2");
+
+        transport1.publish(Collections.singletonList(
+                new CacheInvalidation(ClusterCacheInvalidator.ROLE_CHILDREN, 4711)));
+
+        assertTrue(transport1.receive().isEmpty());
+        List<CacheInvalidation> received = transport2.receive();
+        assertEquals(1, received.size());
+        assertEquals(ClusterCacheInvalidator.ROLE_CHILDREN, received.get(0).getRole());
+        assertEquals(Integer.valueOf(4711), received.get(0).getOwnerId());
+        assertEquals("node1", received.get(0).getNodeId());
+        // received invalidations are not returned again
+        assertTrue(transport2.receive().isEmpty());
+    }
+
+    private DatabaseCacheInvalidationTransport createDatabaseTransport(String nodeId) {
+        DatabaseCacheInvalidationTransport transport = new DatabaseCacheInvalidationTransport();
+        transport.setCacheInvalidationDao(cacheInvalidationDao);
+        transport.setTransactionManager(transactionManager);
+        transport.setNodeId(nodeId);
+        return transport;
+    }
+
+    private final class RecordingInvalidator extends ClusterCacheInvalidator {
+
+        private final List<String> evicted = new ArrayList<>();
+
+        private RecordingInvalidator(ICacheInvalidationTransport transport) {
+            setEnabled(true);
+            setSessionFactory(sessionFactory);
+            setTransport(transport);
+        }
+
+        @Override
+        protected void evict(Collection<CacheInvalidation> invalidations) {
+            for (CacheInvalidation invalidation : invalidations) {
+                evicted.add(invalidation.getRole() + "#" + invalidation.getOwnerId());
+            }
+            super.evict(invalidations);
+        }
+    }
+
+    private static final class FailingTransport implements ICacheInvalidationTransport {
+
+        @Override
+        public void publish(Collection<CacheInvalidation> invalidations) {
+            throw new IllegalStateException("Transport is not available");
+        }
+
+        @Override
+        public List<CacheInvalidation> receive() {
+            return Collections.emptyList();
+        }
+    }
+}
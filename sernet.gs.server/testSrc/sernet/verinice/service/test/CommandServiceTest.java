@@ -26,6 +26,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,6 +45,7 @@ import sernet.hui.common.connect.EntityType;
 import sernet.hui.common.connect.HUITypeFactory;
 import sernet.hui.common.connect.PropertyType;
 import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.ICommand;
 import sernet.verinice.model.bp.elements.IBpRoot;
 import sernet.verinice.model.bsi.BSIModel;
 import sernet.verinice.model.bsi.IBSIStrukturKategorie;
@@ -166,6 +168,30 @@ public class CommandServiceTest extends CommandServiceProvider {
         }
     }
 
+    /**
+     * Loads all elements in one batch and checks that the results are
+     * returned in the order of the commands.
+     */
+    @Test
+    public void testExecuteCommands() throws Exception {
+        List<String> uuidList = getAllUuids();
+        List<ICommand> commands = new ArrayList<>(uuidList.size());
+        for (String uuid : uuidList) {
+            commands.add(new LoadElementByUuid<CnATreeElement>(uuid));
+        }
+
+        List<ICommand> results = commandService.executeCommands(commands);
+
+        assertEquals(uuidList.size(), results.size());
+        for (int i = 0; i < uuidList.size(); i++) {
+            @SuppressWarnings("unchecked")
+            CnATreeElement element = ((LoadElementByUuid<CnATreeElement>) results.get(i))
+                    .getElement();
+            assertNotNull(element);
+            assertEquals(uuidList.get(i), element.getUuid());
+        }
+    }
+
     /**
      * Creates a new organization and for every group in it NUMBER_PER_GROUP
      * elements.
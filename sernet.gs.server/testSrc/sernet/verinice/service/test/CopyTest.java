@@ -19,27 +19,44 @@
  ******************************************************************************/
 package sernet.verinice.service.test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import javax.annotation.Resource;
+
 import org.apache.log4j.Logger;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
 import org.junit.Test;
 import org.springframework.test.context.transaction.TransactionConfiguration;
 import org.springframework.transaction.annotation.Transactional;
 
 import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.interfaces.ApplicationRoles;
 import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.model.common.ChangeLogEntry;
 import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.common.Permission;
+import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.model.iso27k.Control;
 import sernet.verinice.model.iso27k.Group;
 import sernet.verinice.model.iso27k.ISO27KModel;
 import sernet.verinice.model.iso27k.Organization;
 import sernet.verinice.service.commands.CopyCommand;
+import sernet.verinice.service.commands.CopyLinks;
+import sernet.verinice.service.commands.CopyLinksCommand.CopyLinksMode;
 import sernet.verinice.service.model.LoadModel;
 
 /**
@@ -56,6 +73,12 @@ public class CopyTest extends CommandServiceProvider {
 
     private static final int NUMBER_OF_ELEMENTS = 10;
     private static final int NUMBER_OF_GROUPS = 1;
+    private static final int NUMBER_OF_SUB_GROUPS = 3;
+    private static final int BATCH_SIZE = 4;
+    private static final String REL_ASSET_CONTROL = "rel_asset_control";
+
+    @Resource(name = "changeLogEntryDAO")
+    private IBaseDao<ChangeLogEntry, Integer> changeLogEntryDao;
 
     private List<String> uuidList;
 
@@ -93,6 +116,149 @@ public class CopyTest extends CommandServiceProvider {
         checkCopiedElements(organizationCopy);
     }
 
+    @Test
+    public void testCopyCreatesUniqueTitles() throws Exception {
+        uuidList = new LinkedList<String>();
+        final Organization organization = createOrganization();
+        uuidList.add(organization.getUuid());
+        uuidList.addAll(createElementsInGroups(organization, 1));
+        Group<CnATreeElement> group = null;
+        CnATreeElement element = null;
+        for (final CnATreeElement child : organization.getChildren()) {
+            group = (Group<CnATreeElement>) child;
+            if (!group.getChildren().isEmpty()) {
+                element = group.getChildren().iterator().next();
+                break;
+            }
+        }
+        assertNotNull("No element found in organization", element);
+
+        for (int i = 0; i < 2; i++) {
+            CopyCommand copyCommand = new CopyCommand(group.getUuid(),
+                    Collections.singletonList(element.getUuid()));
+            copyCommand = commandService.executeCommand(copyCommand);
+            assertEquals(1, copyCommand.getNewElements().size());
+        }
+
+        final RetrieveInfo ri = RetrieveInfo.getChildrenInstance().setChildrenProperties(true);
+        final Group<CnATreeElement> reloadedGroup = (Group<CnATreeElement>) elementDao
+                .findByUuid(group.getUuid(), ri);
+        final Set<String> titles = new HashSet<>();
+        for (final CnATreeElement child : reloadedGroup.getChildren()) {
+            assertTrue("Title is not unique: " + child.getTitle(), titles.add(child.getTitle()));
+        }
+        assertEquals(3, titles.size());
+    }
+
+    /**
+     * Copies a tree which is larger than the batch size, the session is
+     * flushed and cleared several times while copying.
+     */
+    @Test
+    public void testCopyInBatches() throws Exception {
+        authService.setPermissionHandlingNeeded(true);
+        authService.setRoles(new String[] { ApplicationRoles.ROLE_ADMIN });
+        final Organization organization = createOrganization();
+        final Group<CnATreeElement> assetGroup = getGroupForClass(organization, Asset.class);
+        final CnATreeElement control = createNewElement(
+                getGroupForClass(organization, Control.class), Control.class, 0);
+        final Group<CnATreeElement> source = (Group<CnATreeElement>) createNewNamedGroup(
+                assetGroup, "source");
+        final Group<CnATreeElement> target = (Group<CnATreeElement>) createNewNamedGroup(
+                assetGroup, "target");
+        int n = 0;
+        for (int i = 0; i < NUMBER_OF_SUB_GROUPS; i++) {
+            final Group<CnATreeElement> subGroup = (Group<CnATreeElement>) createNewNamedGroup(
+                    source, "source_" + i);
+            for (int j = 0; j < NUMBER_OF_ELEMENTS; j++) {
+                createLink(createNewElement(subGroup, Asset.class, n++), control,
+                        REL_ASSET_CONTROL);
+            }
+        }
+        final int numberOfElements = 1 + NUMBER_OF_SUB_GROUPS * (1 + NUMBER_OF_ELEMENTS);
+        assertTrue(numberOfElements > BATCH_SIZE);
+
+        CopyCommand copyCommand = new CopyCommand(target.getUuid(),
+                Collections.singletonList(source.getUuid()),
+                Collections.singletonList(new CopyLinks(CopyLinksMode.ALL)));
+        copyCommand.setBatchSize(BATCH_SIZE);
+        copyCommand = commandService.executeCommand(copyCommand);
+        assertEquals(1, copyCommand.getNewElements().size());
+        assertEquals(numberOfElements, copyCommand.getNumber());
+
+        elementDao.flush();
+        elementDao.clear();
+        final RetrieveInfo ri = RetrieveInfo.getChildrenInstance().setParent(true)
+                .setPermissions(true).setChildrenProperties(true);
+        final CnATreeElement reloadedTarget = elementDao.findByUuid(target.getUuid(), ri);
+        final CnATreeElement copyOfSource = elementDao
+                .findByUuid(copyCommand.getNewElements().get(0), ri);
+        assertEquals(reloadedTarget.getUuid(), copyOfSource.getParent().getUuid());
+        final Set<String> permissions = toStrings(reloadedTarget.getPermissions());
+        assertFalse("Target group has no permissions", permissions.isEmpty());
+
+        final List<CnATreeElement> copies = new ArrayList<>();
+        checkCopy(elementDao.findByUuid(source.getUuid(), ri), copyOfSource, permissions,
+                copies);
+        assertEquals(numberOfElements, copies.size());
+
+        final List<Integer> copyIds = new ArrayList<>();
+        for (final CnATreeElement copy : copies) {
+            copyIds.add(copy.getDbId());
+            if (copy instanceof Asset) {
+                assertEquals("Link of copy not found: " + copy.getTitle(), 1,
+                        copy.getLinksDown().stream()
+                                .filter(link -> REL_ASSET_CONTROL.equals(link.getRelationId())
+                                        && control.getDbId()
+                                                .equals(link.getDependency().getDbId()))
+                                .count());
+            }
+        }
+        final List<ChangeLogEntry> insertEntries = changeLogEntryDao
+                .findByCriteria(DetachedCriteria.forClass(ChangeLogEntry.class)
+                        .add(Restrictions.in("elementId", copyIds))
+                        .add(Restrictions.eq("change", ChangeLogEntry.TYPE_INSERT)));
+        final Set<Integer> loggedIds = new HashSet<>();
+        for (final ChangeLogEntry entry : insertEntries) {
+            assertTrue("More than one insert entry for element: " + entry.getElementId(),
+                    loggedIds.add(entry.getElementId()));
+        }
+        assertEquals(new HashSet<>(copyIds), loggedIds);
+    }
+
+    /**
+     * Compares titles and children of an element and its copy recursively
+     * and checks the parent and the permissions of the copies.
+     */
+    private void checkCopy(final CnATreeElement original, final CnATreeElement copy,
+            final Set<String> permissions, final List<CnATreeElement> copies) {
+        copies.add(copy);
+        assertEquals(original.getTitle(), copy.getTitle());
+        assertEquals("Permissions of copy: " + copy.getTitle(), permissions,
+                toStrings(copy.getPermissions()));
+        final Map<String, CnATreeElement> childrenByTitle = new HashMap<>();
+        for (final CnATreeElement child : original.getChildren()) {
+            childrenByTitle.put(child.getTitle(), child);
+        }
+        assertEquals("Number of children of copy: " + copy.getTitle(),
+                original.getChildren().size(), copy.getChildren().size());
+        for (final CnATreeElement childOfCopy : copy.getChildren()) {
+            assertEquals(copy.getUuid(), childOfCopy.getParent().getUuid());
+            final CnATreeElement child = childrenByTitle.get(childOfCopy.getTitle());
+            assertNotNull("No original found for copy: " + childOfCopy.getTitle(), child);
+            checkCopy(child, childOfCopy, permissions, copies);
+        }
+    }
+
+    private static Set<String> toStrings(final Set<Permission> permissions) {
+        final Set<String> strings = new HashSet<>();
+        for (final Permission permission : permissions) {
+            strings.add(permission.getRole() + ":" + permission.isReadAllowed() + ":"
+                    + permission.isWriteAllowed());
+        }
+        return strings;
+    }
+
     private String copyOrganization(final Organization organization) throws CommandException {
         final ISO27KModel model = loadIsoModel();
         final List<String> uuidList = new ArrayList<String>();
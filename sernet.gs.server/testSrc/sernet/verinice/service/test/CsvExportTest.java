@@ -19,15 +19,19 @@
  ******************************************************************************/
 package sernet.verinice.service.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -41,6 +45,7 @@ import net._01001111.text.LoremIpsum;
 import sernet.gs.service.VeriniceCharset;
 import sernet.verinice.service.csv.CsvExport;
 import sernet.verinice.service.csv.CsvExportException;
+import sernet.verinice.service.csv.CsvRowWriter;
 import sernet.verinice.service.csv.ICsvExport;
 
 /**
@@ -87,6 +92,26 @@ public class CsvExportTest {
         checkExportFile(table);
     }
 
+    @Test
+    public void testStreamedTable() throws CsvExportException, FileNotFoundException, IOException {
+        ICsvExport exporter = new CsvExport();
+        exporter.setFilePath(outputFilePath);
+        exporter.setSeperator(SEMICOLON);
+        exporter.setCharset(VeriniceCharset.CHARSET_DEFAULT);
+        exporter.setBufferSize(64);
+        List<String[]> table = createRandomTable();
+        try (CsvRowWriter writer = exporter
+                .createRowWriter(new FileOutputStream(outputFilePath))) {
+            for (String[] row : table) {
+                writer.accept(Arrays.asList(row));
+            }
+            assertEquals(table.size(), writer.getNumberOfRows());
+        }
+        checkExportFile(table);
+        assertArrayEquals("Streamed CSV differs from exported byte array",
+                exporter.export(table), Files.readAllBytes(Paths.get(outputFilePath)));
+    }
+
     private void checkExportFile(List<String[]> table) throws FileNotFoundException, IOException {
         File exportFile = new File(outputFilePath);
         assertTrue("Export file does not exists", exportFile.exists());
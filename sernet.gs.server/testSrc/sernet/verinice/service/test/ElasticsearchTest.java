@@ -20,9 +20,14 @@
 package sernet.verinice.service.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.List;
 import java.util.Set;
 
@@ -48,6 +53,7 @@ import sernet.verinice.model.search.VeriniceSearchResultRow;
 import sernet.verinice.model.search.VeriniceSearchResultTable;
 import sernet.verinice.search.IElementSearchDao;
 import sernet.verinice.search.Indexer;
+import sernet.verinice.search.IndexingProgress;
 import sernet.verinice.service.commands.SyncParameter;
 import sernet.verinice.service.commands.SyncParameterException;
 import sernet.verinice.service.test.helper.vnaimport.BeforeEachVNAImportHelper;
@@ -93,6 +99,32 @@ public class ElasticsearchTest extends BeforeEachVNAImportHelper {
 
     }
 
+    @Test
+    public void testReindexIgnoresCheckpoint() throws Exception {
+        File checkpointFile = searchIndexer.getCheckpointFile();
+        assertNotNull(checkpointFile);
+        searchIndexer.blockingIndexing();
+        Files.write(checkpointFile.toPath(),
+                String.valueOf(Integer.MAX_VALUE - 1).getBytes(StandardCharsets.UTF_8));
+
+        searchService.reindex();
+
+        findAllElementsFromVna(true);
+        assertFalse("Checkpoint not deleted", checkpointFile.exists());
+    }
+
+    @Test
+    public void testIndexingProgress() {
+        searchIndexer.blockingIndexing();
+        IndexingProgress progress = searchIndexer.getProgress();
+        assertNotNull(progress);
+        assertTrue("Indexing is not finished", progress.isFinished());
+        assertEquals(0, progress.getFailedElements());
+        assertEquals(progress.getTotalElements(), progress.getIndexedElements());
+        assertEquals(100, progress.getPercentDone());
+        findAllElementsFromVna(true);
+    }
+
     @Test
     public void findLongWord() {
         searchIndexer.blockingIndexing();
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.context.SecurityContext;
+import org.springframework.security.context.SecurityContextHolder;
+
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.service.ElementTitleCache;
+
+/**
+ * Tests loading, updating and eviction of titles in
+ * {@link ElementTitleCache}.
+ */
+public class ElementTitleCacheTest extends CommandServiceProvider {
+
+    @Resource(name = "titleCache")
+    private ElementTitleCache titleCache;
+
+    private Organization organization;
+
+    @Before
+    public void setUp() throws CommandException {
+        organization = createOrganization();
+        titleCache.clear();
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        removeElement(organization);
+    }
+
+    @Test
+    public void testMissingTitleIsLoaded() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        titleCache.remove(control.getDbId());
+        long misses = titleCache.getMissCount();
+        long hits = titleCache.getHitCount();
+
+        assertEquals("Title was not loaded", control.getTitle(),
+                titleCache.get(control.getDbId()));
+        assertEquals("Title was not cached", control.getTitle(),
+                titleCache.get(control.getDbId()));
+        assertEquals("Number of misses is wrong", misses + 1, titleCache.getMissCount());
+        assertEquals("Number of hits is wrong", hits + 1, titleCache.getHitCount());
+    }
+
+    /**
+     * Index threads read titles without an authenticated user.
+     */
+    @Test
+    public void testMissingTitleIsLoadedWithoutAuthentication() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        titleCache.remove(control.getDbId());
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        SecurityContextHolder.clearContext();
+        try {
+            assertEquals("Title was not loaded", control.getTitle(),
+                    titleCache.get(control.getDbId()));
+        } finally {
+            SecurityContextHolder.setContext(securityContext);
+        }
+    }
+
+    @Test
+    public void testScopeTitleIsUpdated() throws CommandException {
+        titleCache.load(Organization.TYPE_ID);
+        organization.setTitel("ElementTitleCacheTest changed");
+        organization = (Organization) updateElement(organization);
+
+        assertEquals("Scope title was not updated", "ElementTitleCacheTest changed",
+                titleCache.get(organization.getDbId()));
+    }
+
+    @Test
+    public void testRemovedElementIsNotFound() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        titleCache.get(control.getDbId());
+        removeElement(control);
+
+        assertNull("Title of removed element was found", titleCache.get(control.getDbId()));
+    }
+
+    @Test
+    public void testEviction() {
+        ElementTitleCache cache = new ElementTitleCache();
+        cache.setMaxMemory(10000);
+        for (int i = 0; i < 1000; i++) {
+            cache.update(i, "Title " + i);
+        }
+        assertTrue("Cache exceeds memory budget: " + cache.getUsedMemory(),
+                cache.getUsedMemory() <= cache.getMaxMemory());
+        assertTrue("No titles were evicted", cache.getEvictionCount() > 0);
+        assertEquals("Number of titles is wrong", 1000 - cache.getEvictionCount(), cache.size());
+    }
+}
@@ -0,0 +1,317 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.annotation.Resource;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.AspectJAroundAdvice;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.aspectj.SingletonAspectInstanceFactory;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.interceptor.ExposeInvocationInterceptor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.security.Authentication;
+import org.springframework.security.context.SecurityContext;
+import org.springframework.security.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import sernet.gs.server.security.InternalAuthenticationProvider;
+
+import sernet.gs.service.RetrieveInfo;
+import sernet.gs.service.RuntimeCommandException;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.GenericCommand;
+import sernet.verinice.interfaces.ICommand;
+import sernet.verinice.interfaces.ICommandService;
+import sernet.verinice.interfaces.IReadOnlyCommand;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.Group;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.service.commands.CreateElement;
+import sernet.verinice.service.commands.LoadElementByUuid;
+
+/**
+ * Tests executing a batch of commands with read-only commands executed in
+ * parallel. The test is not transactional, the parallel commands only see
+ * committed data. Also tests that the internal authentication of the server
+ * applies to batches.
+ */
+public class ExecuteCommandsTest extends CommandServiceProvider {
+
+    private static final int NUMBER_OF_CONTROLS = 5;
+
+    private static final String SECURITY_CONFIG = "/sernet/gs/server/spring/"
+            + "veriniceserver-security.xml";
+
+    private static final String INTERNAL_USER = "$internaluser$";
+
+    private static final AuthenticationProbe INTERNAL_COMMAND = new AuthenticationProbe();
+
+    private static final AuthenticationProbe INTERNAL_READ_ONLY_COMMAND =
+            new ReadOnlyAuthenticationProbe();
+
+    private static InternalAuthenticationProvider internalAuthenticationProvider;
+
+    @Resource(name = "hibernateCommandService")
+    private ICommandService hibernateCommandService;
+
+    @Resource(name = "txManager")
+    private PlatformTransactionManager transactionManager;
+
+    private Organization organization;
+
+    private Group<CnATreeElement> controlGroup;
+
+    private List<CnATreeElement> controls;
+
+    @Before
+    public void setUp() throws CommandException {
+        organization = createOrganization();
+        controlGroup = getGroupForClass(organization, Control.class);
+        controls = new ArrayList<>(NUMBER_OF_CONTROLS);
+        for (int i = 0; i < NUMBER_OF_CONTROLS; i++) {
+            controls.add(createNewElement(controlGroup, Control.class, i));
+        }
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        removeElement(organization);
+    }
+
+    @Test
+    public void testParallelResultsAreInOrder() throws CommandException {
+        List<ICommand> commands = new ArrayList<>();
+        for (CnATreeElement control : controls) {
+            commands.add(new LoadElementByUuid<CnATreeElement>(control.getUuid()));
+        }
+        CreateElement<Control> createControl = new CreateElement<>(controlGroup, Control.class,
+                getClass().getSimpleName() + "_created");
+        commands.add(2, createControl);
+        TransactionProbe probe = new TransactionProbe();
+        commands.add(probe);
+
+        List<ICommand> results = commandService.executeCommands(commands, true);
+
+        assertEquals(commands.size(), results.size());
+        for (int i = 0; i < commands.size(); i++) {
+            assertSame("Result is not in the order of the commands", commands.get(i),
+                    results.get(i));
+        }
+        int n = 0;
+        for (ICommand result : results) {
+            if (result instanceof LoadElementByUuid) {
+                CnATreeElement element = ((LoadElementByUuid<?>) result).getElement();
+                assertNotNull(element);
+                assertEquals(controls.get(n).getUuid(), element.getUuid());
+                n++;
+            }
+        }
+        assertEquals(NUMBER_OF_CONTROLS, n);
+        assertNotNull(createControl.getNewElement().getDbId());
+        assertTrue("Read-only command was not executed in a read-only transaction",
+                probe.readOnlyTransaction);
+        assertFalse("Read-only command was not executed in parallel",
+                Thread.currentThread().getName().equals(probe.threadName));
+        assertEquals(NUMBER_OF_CONTROLS + 1, countChildren(controlGroup));
+    }
+
+    @Test
+    public void testFailedParallelCommandRollsBackBatch() throws CommandException {
+        List<ICommand> commands = new ArrayList<>();
+        commands.add(new CreateElement<>(controlGroup, Control.class,
+                getClass().getSimpleName() + "_rolled_back"));
+        commands.add(new LoadElementByUuid<CnATreeElement>(controls.get(0).getUuid()));
+        commands.add(new FailingReadOnlyCommand());
+
+        try {
+            commandService.executeCommands(commands, true);
+            fail("Exception of read-only command was not thrown");
+        } catch (CommandException e) {
+            // expected
+        }
+
+        assertEquals("Element created in the failed batch was not rolled back",
+                NUMBER_OF_CONTROLS, countChildren(controlGroup));
+    }
+
+    @Test
+    public void testBatchIsInternallyAuthenticated() throws Exception {
+        ICommandService service = createInternallyAuthenticatedService();
+        SecurityContext securityContext = SecurityContextHolder.getContext();
+        Authentication authentication = securityContext.getAuthentication();
+        securityContext.setAuthentication(null);
+        try {
+            new TransactionTemplate(transactionManager).execute(status -> {
+                try {
+                    return service.executeCommands(
+                            Arrays.asList(INTERNAL_COMMAND, INTERNAL_READ_ONLY_COMMAND), true);
+                } catch (CommandException e) {
+                    throw new RuntimeCommandException(e);
+                }
+            });
+            assertEquals(INTERNAL_USER, INTERNAL_COMMAND.username);
+            assertEquals(INTERNAL_USER, INTERNAL_READ_ONLY_COMMAND.username);
+            assertFalse("Read-only command was not executed in parallel",
+                    Thread.currentThread().getName()
+                            .equals(INTERNAL_READ_ONLY_COMMAND.threadName));
+
+            try {
+                service.executeCommands(
+                        Arrays.asList(INTERNAL_COMMAND, new AuthenticationProbe()), true);
+                fail("Batch with a command which is not allowed was authenticated");
+            } catch (IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            securityContext.setAuthentication(authentication);
+        }
+    }
+
+    /**
+     * Wraps the command service in the advice of the
+     * {@link InternalAuthenticationProvider} with the pointcut of
+     * veriniceserver-security.xml.
+     */
+    private ICommandService createInternallyAuthenticatedService() throws Exception {
+        AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+        pointcut.setExpression(loadCommandServicePointcut());
+        AspectJAroundAdvice advice = new AspectJAroundAdvice(
+                InternalAuthenticationProvider.class.getMethod("doInsertAuthentication",
+                        ProceedingJoinPoint.class),
+                pointcut, new SingletonAspectInstanceFactory(getInternalAuthenticationProvider()));
+        ProxyFactory proxyFactory = new ProxyFactory(hibernateCommandService);
+        proxyFactory.addAdvisor(ExposeInvocationInterceptor.ADVISOR);
+        proxyFactory.addAdvisor(new DefaultPointcutAdvisor(pointcut, advice));
+        return (ICommandService) proxyFactory.getProxy();
+    }
+
+    private static String loadCommandServicePointcut() throws Exception {
+        try (InputStream in = ExecuteCommandsTest.class.getResourceAsStream(SECURITY_CONFIG)) {
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                    .parse(in);
+            NodeList pointcuts = document.getElementsByTagName("aop:pointcut");
+            for (int i = 0; i < pointcuts.getLength(); i++) {
+                Element pointcut = (Element) pointcuts.item(i);
+                if ("commandServicePointcut".equals(pointcut.getAttribute("id"))) {
+                    return pointcut.getAttribute("expression");
+                }
+            }
+        }
+        throw new IllegalStateException("Pointcut not found in " + SECURITY_CONFIG);
+    }
+
+    /**
+     * Only one instance of the provider is allowed
+     */
+    private static synchronized InternalAuthenticationProvider getInternalAuthenticationProvider() {
+        if (internalAuthenticationProvider == null) {
+            internalAuthenticationProvider = new InternalAuthenticationProvider();
+            internalAuthenticationProvider.setAllowedInstances(new HashSet<>(
+                    Arrays.asList(INTERNAL_COMMAND, INTERNAL_READ_ONLY_COMMAND)));
+        }
+        return internalAuthenticationProvider;
+    }
+
+    private int countChildren(CnATreeElement element) throws CommandException {
+        LoadElementByUuid<CnATreeElement> command = new LoadElementByUuid<>(element.getUuid(),
+                RetrieveInfo.getChildrenInstance());
+        command = commandService.executeCommand(command);
+        return command.getElement().getChildren().size();
+    }
+
+    /**
+     * Records the thread and the transaction a read-only command is executed
+     * in.
+     */
+    private static final class TransactionProbe extends GenericCommand
+            implements IReadOnlyCommand {
+
+        private static final long serialVersionUID = 1L;
+
+        private String threadName;
+        private boolean readOnlyTransaction;
+
+        @Override
+        public void execute() {
+            threadName = Thread.currentThread().getName();
+            readOnlyTransaction = TransactionSynchronizationManager
+                    .isCurrentTransactionReadOnly();
+        }
+    }
+
+    /**
+     * Records the user a command is executed by.
+     */
+    private static class AuthenticationProbe extends GenericCommand {
+
+        private static final long serialVersionUID = 1L;
+
+        protected String username;
+        protected String threadName;
+
+        @Override
+        public void execute() {
+            Authentication authentication = SecurityContextHolder.getContext()
+                    .getAuthentication();
+            username = (authentication == null) ? null : authentication.getName();
+            threadName = Thread.currentThread().getName();
+        }
+    }
+
+    private static final class ReadOnlyAuthenticationProbe extends AuthenticationProbe
+            implements IReadOnlyCommand {
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class FailingReadOnlyCommand extends GenericCommand
+            implements IReadOnlyCommand {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void execute() {
+            throw new IllegalStateException("Read-only command failed");
+        }
+    }
+}
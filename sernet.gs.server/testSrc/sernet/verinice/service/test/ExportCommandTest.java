@@ -20,15 +20,20 @@
 package sernet.verinice.service.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import javax.xml.bind.JAXB;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 import org.junit.Test;
 
@@ -119,6 +124,81 @@ public class ExportCommandTest extends CommandServiceProvider {
         removeElement(org);
     }
 
+    @Test
+    public void exportScopeWithAttachmentsToOutputStream()
+            throws CommandException, IOException, SyncParameterException {
+
+        // Given:
+        VNAImportHelper.importFile(VNA_FILENAME_testVnaImport);
+        CnATreeElement org = loadElement(SOURCE_ID_testVnaImport, EXT_ID_ORGANIZATION_testVnaImport,
+                false, false, false);
+        File file = File.createTempFile("export-command-test", ".vna");
+
+        // When:
+        ExportCommand cmd = new ExportCommand(Arrays.asList(org), "testSourceId", false);
+        try (OutputStream out = new FileOutputStream(file)) {
+            cmd.setOutputStream(out);
+            cmd = commandService.executeCommand(cmd);
+        }
+
+        // Then:
+        try {
+            assertNull(cmd.getResult());
+            VeriniceArchive vna = new VeriniceArchive(FileUtils.readFileToByteArray(file));
+
+            SyncRequest syncRequest = JAXB.unmarshal(vna.getVeriniceXml(), SyncRequest.class);
+            assertEquals("testSourceId", syncRequest.getSourceId());
+            assertEquals(1, syncRequest.getSyncData().getSyncObject().size());
+            List<SyncObject> allSyncObjects = getAllSyncObjects(syncRequest);
+            assertEquals(29, allSyncObjects.size());
+            assertEquals(2, allSyncObjects.stream().flatMap(o -> o.getFile().stream()).count());
+            assertEquals(20, syncRequest.getSyncData().getSyncLink().size());
+            assertTrue(!syncRequest.getSyncMapping().getMapObjectType().isEmpty());
+            vna.clear();
+        } finally {
+            FileUtils.deleteQuietly(file);
+            removeElement(org);
+        }
+    }
+
+    @Test
+    public void exportTwoScopesToOutputStream()
+            throws CommandException, IOException, SyncParameterException {
+
+        // Given:
+        VNAImportHelper.importFile(VNA_FILENAME_Export_test);
+        VNAImportHelper.importFile(VNA_FILENAME_testVnaImport);
+        CnATreeElement itNetwork = loadElement(SOURCE_ID_Export_test,
+                EXT_ID_BP_ITNETWORK_Export_test, false, false, false);
+        CnATreeElement org = loadElement(SOURCE_ID_testVnaImport,
+                EXT_ID_ORGANIZATION_testVnaImport, false, false, false);
+        File file = File.createTempFile("export-command-test", ".vna");
+
+        // When: the session is cleared after the first scope
+        ExportCommand cmd = new ExportCommand(Arrays.asList(itNetwork, org), "testSourceId",
+                false);
+        try (OutputStream out = new FileOutputStream(file)) {
+            cmd.setOutputStream(out);
+            cmd = commandService.executeCommand(cmd);
+        }
+
+        // Then:
+        try {
+            VeriniceArchive vna = new VeriniceArchive(FileUtils.readFileToByteArray(file));
+            SyncRequest syncRequest = JAXB.unmarshal(vna.getVeriniceXml(), SyncRequest.class);
+            assertEquals(2, syncRequest.getSyncData().getSyncObject().size());
+            List<SyncObject> allSyncObjects = getAllSyncObjects(syncRequest);
+            assertEquals(351 + 29, allSyncObjects.size());
+            assertEquals(2, allSyncObjects.stream().flatMap(o -> o.getFile().stream()).count());
+            assertEquals(983 + 20, syncRequest.getSyncData().getSyncLink().size());
+            vna.clear();
+        } finally {
+            FileUtils.deleteQuietly(file);
+            removeElement(itNetwork);
+            removeElement(org);
+        }
+    }
+
     @Test
     public void exportModplast() throws CommandException, SyncParameterException, IOException {
         // Given:
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.verinice.graph.GraphCache;
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.graph.GraphElementLoader;
+import sernet.verinice.interfaces.graph.IGraphService;
+import sernet.verinice.interfaces.graph.UnmodifiableVeriniceGraph;
+import sernet.verinice.interfaces.graph.VeriniceGraph;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.IncidentScenario;
+import sernet.verinice.model.iso27k.Organization;
+
+/**
+ * Tests the incremental update of graphs cached by {@link GraphCache}.
+ */
+public class GraphCacheTest extends CommandServiceProvider {
+
+    @Resource(name = "graphService")
+    private IGraphService graphService;
+
+    @Resource(name = "uncachedGraphService")
+    private IGraphService uncachedGraphService;
+
+    @Resource(name = "graphCache")
+    private GraphCache graphCache;
+
+    private Organization organization;
+
+    @Before
+    public void setUp() throws CommandException {
+        graphCache.clear();
+        graphCache.setEnabled(true);
+        organization = createOrganization();
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        graphCache.setEnabled(false);
+        graphCache.clear();
+        removeElement(organization);
+    }
+
+    @Test
+    public void testUnchangedGraphIsShared() throws CommandException {
+        createNewElement(getGroupForClass(organization, Control.class), Control.class);
+        VeriniceGraph graph = createGraph();
+        assertSame("Unchanged graph was not taken from cache", graph, createGraph());
+    }
+
+    @Test
+    public void testChangedElementIsUpdated() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        String oldTitle = control.getTitle();
+        VeriniceGraph graph = createGraph();
+
+        ((Control) control).setTitel("GraphCacheTest changed");
+        updateElement(control);
+        VeriniceGraph updatedGraph = createGraph();
+
+        assertNotSame("Changed graph was not copied", graph, updatedGraph);
+        assertEquals("Title in updated graph is wrong", "GraphCacheTest changed",
+                updatedGraph.getElement(control.getUuid()).getTitle());
+        assertEquals("Title in old snapshot was changed", oldTitle,
+                graph.getElement(control.getUuid()).getTitle());
+        assertNotNull("Parent in updated graph is missing",
+                updatedGraph.getParent(updatedGraph.getElement(control.getUuid())));
+    }
+
+    @Test
+    public void testNewElementsAndLinksAreAdded() throws CommandException {
+        VeriniceGraph graph = createGraph();
+        int numberOfElements = graph.getElements().size();
+
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        CnATreeElement scenario = createNewElement(
+                getGroupForClass(organization, IncidentScenario.class), IncidentScenario.class);
+        createLink(control, scenario, Control.REL_CONTROL_INCSCEN);
+        VeriniceGraph updatedGraph = createGraph();
+
+        assertEquals("Number of elements is wrong", numberOfElements + 2,
+                updatedGraph.getElements().size());
+        assertTrue("Link was not added to graph",
+                updatedGraph.getLinkTargets(control.getUuid(), Control.REL_CONTROL_INCSCEN)
+                        .contains(scenario));
+    }
+
+    @Test
+    public void testCachedGraphIsReadOnly() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        VeriniceGraph graph = createGraph();
+        assertTrue("Cached graph is not read-only", graph instanceof UnmodifiableVeriniceGraph);
+        try {
+            graph.addVertex(new Control());
+            fail("Vertex was added to cached graph");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            graph.getGraph().removeVertex(graph.getElement(control.getUuid()));
+            fail("Vertex was removed from cached graph");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        assertNotNull("Element was removed from cached graph",
+                createGraph().getElement(control.getUuid()));
+    }
+
+    @Test
+    public void testUncachedGraphIsNotShared() throws CommandException {
+        CnATreeElement control = createNewElement(getGroupForClass(organization, Control.class),
+                Control.class);
+        VeriniceGraph cachedGraph = createGraph();
+        VeriniceGraph graph = createGraph(uncachedGraphService);
+
+        assertFalse("Uncached graph is read-only", graph instanceof UnmodifiableVeriniceGraph);
+        assertNotSame("Uncached graph is shared", graph, createGraph(uncachedGraphService));
+        assertNotSame("Element of uncached graph is shared",
+                cachedGraph.getElement(control.getUuid()), graph.getElement(control.getUuid()));
+    }
+
+    @Test
+    public void testCacheIsNotUsedInCluster() throws CommandException {
+        createNewElement(getGroupForClass(organization, Control.class), Control.class);
+        ClusterCacheInvalidator invalidator = graphCache.getClusterCacheInvalidator();
+        boolean clusterEnabled = invalidator.isEnabled();
+        invalidator.setEnabled(true);
+        try {
+            assertFalse("Cache is used in a cluster", graphCache.isEnabled());
+            VeriniceGraph graph = createGraph();
+            assertFalse("Graph is read-only in a cluster",
+                    graph instanceof UnmodifiableVeriniceGraph);
+            assertNotSame("Graph was taken from cache in a cluster", graph, createGraph());
+        } finally {
+            invalidator.setEnabled(clusterEnabled);
+        }
+    }
+
+    private VeriniceGraph createGraph() {
+        return createGraph(graphService);
+    }
+
+    private VeriniceGraph createGraph(IGraphService service) {
+        GraphElementLoader loader = new GraphElementLoader();
+        loader.setScopeId(organization.getDbId());
+        loader.setCnaTreeElementDao(elementDao);
+        return service.create(Collections.singletonList(loader));
+    }
+}
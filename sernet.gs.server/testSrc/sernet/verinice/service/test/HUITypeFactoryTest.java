@@ -20,6 +20,7 @@
 package sernet.verinice.service.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -42,7 +43,9 @@ import org.junit.Test;
 import sernet.hui.common.connect.EntityType;
 import sernet.hui.common.connect.HUITypeFactory;
 import sernet.hui.common.connect.HuiRelation;
+import sernet.hui.common.connect.PropertyOption;
 import sernet.hui.common.connect.PropertyType;
+import sernet.hui.common.multiselectionlist.IMLPropertyOption;
 import sernet.snutils.DBException;
 
 /**
@@ -254,6 +257,49 @@ public class HUITypeFactoryTest extends CommandServiceProvider {
         }
     }
 
+    /**
+     * Test method for
+     * {@link sernet.hui.common.connect.HUITypeFactory#getPossibleRelationsTo(java.lang.String)}
+     * . The index must contain exactly the relations found by scanning all
+     * entity types.
+     */
+    @Test
+    public void testGetPossibleRelationsToMatchesAllEntityTypes() {
+        for (String toTypeID : huiTypeFactory.getAllTypeIds()) {
+            Set<HuiRelation> expected = new HashSet<>();
+            for (EntityType entityType : huiTypeFactory.getAllEntityTypes()) {
+                expected.addAll(entityType.getPossibleRelations(toTypeID));
+            }
+            assertEquals("Wrong relations to " + toTypeID, expected,
+                    huiTypeFactory.getPossibleRelationsTo(toTypeID));
+        }
+        assertTrue(huiTypeFactory.getPossibleRelationsTo("unknown_type").isEmpty());
+        assertNull(huiTypeFactory.getRelation("unknown_relation"));
+    }
+
+    /**
+     * Test method for
+     * {@link sernet.hui.common.connect.PropertyType#getOption(String)} and
+     * {@link sernet.hui.common.connect.PropertyType#getOption(Integer)}.
+     */
+    @Test
+    public void testGetOption() {
+        for (EntityType type : huiTypeFactory.getAllEntityTypes()) {
+            for (PropertyType propertyType : type.getAllPropertyTypes()) {
+                for (IMLPropertyOption object : propertyType.getOptions()) {
+                    PropertyOption option = (PropertyOption) object;
+                    assertEquals(option.getId(),
+                            propertyType.getOption(option.getId()).getId());
+                    if (option.getValue() != null) {
+                        assertEquals(option.getValue(),
+                                propertyType.getOption(option.getValue()).getValue());
+                    }
+                }
+                assertNull(propertyType.getOption("unknown_option"));
+            }
+        }
+    }
+
     private int getRandomInteger(int min, int max) {
 
         if (LOG.isDebugEnabled()) {
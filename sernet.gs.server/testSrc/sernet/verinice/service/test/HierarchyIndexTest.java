@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
+import sernet.verinice.hibernate.HierarchyIndex;
+import sernet.verinice.hibernate.ScopeHierarchy;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.ControlGroup;
+import sernet.verinice.model.iso27k.Group;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.service.commands.LoadAncestors;
+
+/**
+ * Tests the {@link HierarchyIndex} and that it is invalidated when elements
+ * are created or removed.
+ */
+public class HierarchyIndexTest extends CommandServiceProvider {
+
+    @Resource(name = "hierarchyIndex")
+    private HierarchyIndex hierarchyIndex;
+
+    private Organization organization;
+
+    private Group<CnATreeElement> controlGroup;
+
+    private CnATreeElement subGroup;
+
+    private CnATreeElement control;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setUp() throws CommandException {
+        hierarchyIndex.clear();
+        organization = createOrganization();
+        controlGroup = getGroupForClass(organization, Control.class);
+        subGroup = createNewNamedGroup(controlGroup, 1);
+        control = createNewElement((Group<CnATreeElement>) subGroup, Control.class);
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        removeElement(organization);
+        hierarchyIndex.clear();
+    }
+
+    @Test
+    public void testSubtreeAndAncestors() {
+        Integer scopeId = organization.getDbId();
+
+        Set<Integer> subtreeIds = hierarchyIndex.getSubtreeIds(scopeId, controlGroup.getDbId(),
+                null);
+        assertEquals(
+                new HashSet<>(Arrays.asList(controlGroup.getDbId(), subGroup.getDbId(),
+                        control.getDbId())),
+                subtreeIds);
+        assertEquals(Collections.singleton(control.getDbId()), hierarchyIndex
+                .getSubtreeIds(scopeId, controlGroup.getDbId(), Control.TYPE_ID));
+        assertEquals(Collections.singleton(subGroup.getDbId()), hierarchyIndex
+                .getSubtreeIds(scopeId, controlGroup.getDbId(), ControlGroup.TYPE_ID));
+
+        List<Integer> ancestorIds = hierarchyIndex.getAncestorIds(scopeId, control.getDbId());
+        assertEquals(Arrays.asList(subGroup.getDbId(), controlGroup.getDbId(),
+                organization.getDbId()), ancestorIds);
+    }
+
+    @Test
+    public void testAncestorsAreLoadedByIndex() throws CommandException {
+        LoadAncestors command = new LoadAncestors(control.getUuid(), new RetrieveInfo());
+        command = commandService.executeCommand(command);
+
+        CnATreeElement loadedSubGroup = command.getElement().getParent();
+        assertEquals(subGroup.getDbId(), loadedSubGroup.getDbId());
+        assertEquals(controlGroup.getDbId(), loadedSubGroup.getParent().getDbId());
+        assertEquals(organization.getDbId(), loadedSubGroup.getParent().getParent().getDbId());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testCreatedElementIsIndexed() throws CommandException {
+        Integer scopeId = organization.getDbId();
+        assertEquals(1, hierarchyIndex
+                .getSubtreeIds(scopeId, subGroup.getDbId(), Control.TYPE_ID).size());
+
+        CnATreeElement newControl = createNewElement((Group<CnATreeElement>) subGroup,
+                Control.class);
+
+        Set<Integer> subtreeIds = hierarchyIndex.getSubtreeIds(scopeId, subGroup.getDbId(),
+                Control.TYPE_ID);
+        assertEquals(2, subtreeIds.size());
+        assertTrue(subtreeIds.contains(newControl.getDbId()));
+    }
+
+    @Test
+    public void testRemovedElementIsNotIndexed() throws CommandException {
+        Integer scopeId = organization.getDbId();
+        assertTrue(hierarchyIndex.getSubtreeIds(scopeId, controlGroup.getDbId(), null)
+                .contains(control.getDbId()));
+
+        removeElement(subGroup);
+
+        Set<Integer> subtreeIds = hierarchyIndex.getSubtreeIds(scopeId, controlGroup.getDbId(),
+                null);
+        assertEquals(Collections.singleton(controlGroup.getDbId()), subtreeIds);
+    }
+
+    @Test
+    public void testIndexIsNotUsedInCluster() {
+        Integer scopeId = organization.getDbId();
+        ClusterCacheInvalidator invalidator = hierarchyIndex.getClusterCacheInvalidator();
+        boolean clusterEnabled = invalidator.isEnabled();
+        invalidator.setEnabled(true);
+        hierarchyIndex.clear();
+        try {
+            assertNull(hierarchyIndex.getSubtreeIds(scopeId, controlGroup.getDbId(), null));
+            assertNull(hierarchyIndex.getAncestorIds(scopeId, control.getDbId()));
+            assertEquals(0, hierarchyIndex.getNumberOfScopes());
+        } finally {
+            invalidator.setEnabled(clusterEnabled);
+        }
+    }
+
+    @Test
+    public void testParentCycleIsIndexed() {
+        ScopeHierarchy hierarchy = ScopeHierarchy.create(Arrays.asList(
+                new Object[] { 1, 2, "a" }, new Object[] { 2, 1, "a" },
+                new Object[] { 3, null, "b" }, new Object[] { 4, 3, "a" }));
+
+        assertEquals(4, hierarchy.size());
+        assertEquals(new HashSet<>(Arrays.asList(3, 4)),
+                hierarchy.getSubtreeIds(3, null));
+        assertEquals(Collections.singletonList(3), hierarchy.getAncestorIds(4));
+        assertNull(hierarchy.getSubtreeIds(5, null));
+    }
+}
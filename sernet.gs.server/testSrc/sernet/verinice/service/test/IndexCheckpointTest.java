@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.verinice.search.IndexCheckpoint;
+
+/**
+ * Tests that {@link IndexCheckpoint} only moves past chunks which are
+ * completed together with all chunks before them.
+ */
+public class IndexCheckpointTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("reindex", ".checkpoint");
+        Files.delete(file.toPath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void checkpointWaitsForEarlierChunks() throws Exception {
+        IndexCheckpoint checkpoint = new IndexCheckpoint(file);
+        assertEquals(IndexCheckpoint.NO_CHECKPOINT, checkpoint.getLastIndexedDbId());
+
+        long first = checkpoint.register(10);
+        long second = checkpoint.register(20);
+        long third = checkpoint.register(30);
+
+        checkpoint.complete(second);
+        assertEquals(IndexCheckpoint.NO_CHECKPOINT, checkpoint.getLastIndexedDbId());
+        checkpoint.complete(first);
+        assertEquals(20, checkpoint.getLastIndexedDbId());
+        checkpoint.complete(third);
+        assertEquals(30, checkpoint.getLastIndexedDbId());
+        assertEquals(30, new IndexCheckpoint(file).getLastIndexedDbId());
+
+        checkpoint.delete();
+        assertFalse(file.exists());
+        assertEquals(IndexCheckpoint.NO_CHECKPOINT, new IndexCheckpoint(file).getLastIndexedDbId());
+    }
+
+    @Test
+    public void failedChunkStopsCheckpoint() throws Exception {
+        IndexCheckpoint checkpoint = new IndexCheckpoint(file);
+
+        long first = checkpoint.register(10);
+        long second = checkpoint.register(20);
+        long third = checkpoint.register(30);
+
+        checkpoint.complete(first);
+        checkpoint.fail(second);
+        checkpoint.complete(third);
+
+        assertTrue(checkpoint.isFailed());
+        assertEquals(10, checkpoint.getLastIndexedDbId());
+        assertEquals(10, new IndexCheckpoint(file).getLastIndexedDbId());
+    }
+}
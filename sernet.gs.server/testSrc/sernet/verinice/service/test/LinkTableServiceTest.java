@@ -25,6 +25,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -198,6 +199,26 @@ public class LinkTableServiceTest extends BeforeAllVNAImportHelper {
         FileUtils.deleteQuietly(new File(tempVltPath));
     }
 
+    @Test
+    public void testCreateStreamedTable() throws CommandException {
+        CnATreeElement org = loadElement(SOURCE_ID, EXT_ID_ORG);
+        ILinkTableConfiguration configuration = VeriniceLinkTableIO
+                .readLinkTableConfiguration(getVltFilePath());
+        LinkTableConfiguration changedConfiguration = cloneConfiguration(configuration);
+        changedConfiguration.addScopeId(org.getScopeId());
+
+        GraphLinkedTableCreator linkedTableCreator = new GraphLinkedTableCreator();
+        linkedTableCreator.setMaxRowsInMemory(10);
+        service.setLinkTableCreator(linkedTableCreator);
+
+        List<List<String>> resultTable = service.createTable(changedConfiguration);
+        List<List<String>> streamedTable = new ArrayList<>();
+        service.createTable(changedConfiguration, streamedTable::add);
+
+        assertEquals(resultTable, streamedTable);
+        checkTable(streamedTable);
+    }
+
     private void checkTable(List<List<String>> resultTable) {
         // assertEquals(325, resultTable.size());
         assertEquals(12, resultTable.get(0).size());
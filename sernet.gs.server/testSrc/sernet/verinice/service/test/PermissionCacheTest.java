@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.verinice.hibernate.ClusterCacheInvalidator;
+import sernet.verinice.hibernate.PermissionCache;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.interfaces.IAccountService;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.common.Permission;
+import sernet.verinice.model.iso27k.Control;
+import sernet.verinice.model.iso27k.Organization;
+
+/**
+ * Tests that the {@link PermissionCache} is invalidated when permissions are
+ * changed by commands or by bulk updates of the account service.
+ */
+public class PermissionCacheTest extends CommandServiceProvider {
+
+    private static final String ROLE = "permission-cache-test";
+    private static final String[] ROLES = new String[] { ROLE };
+
+    @Resource(name = "permissionCache")
+    private PermissionCache permissionCache;
+
+    @Resource(name = "accountService")
+    private IAccountService accountService;
+
+    private Organization organization;
+
+    private CnATreeElement control;
+
+    @Before
+    public void setUp() throws CommandException {
+        permissionCache.invalidateAll();
+        organization = createOrganization();
+        control = createNewElement(getGroupForClass(organization, Control.class), Control.class);
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        removeElement(organization);
+        permissionCache.invalidateAll();
+    }
+
+    @Test
+    public void testAddedPermissionIsCached() throws CommandException {
+        assertFalse("Role has write permission before it was added",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+
+        addPermission(control, true, true);
+
+        assertTrue("Added write permission is not found",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+        assertTrue("Added read permission is not found",
+                permissionCache.isReadAllowed(ROLES, control.getDbId()));
+    }
+
+    @Test
+    public void testReadOnlyPermission() throws CommandException {
+        addPermission(control, true, false);
+
+        assertTrue("Read permission is not found",
+                permissionCache.isReadAllowed(ROLES, control.getDbId()));
+        assertFalse("Role has write permission",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+    }
+
+    @Test
+    public void testBulkDeleteInvalidatesCache() throws CommandException {
+        addPermission(control, true, true);
+        assertTrue("Added write permission is not found",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+
+        accountService.deletePermissions(ROLE);
+
+        assertFalse("Deleted permission is still cached",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+    }
+
+    @Test
+    public void testBulkRenameInvalidatesCache() throws CommandException {
+        String newRole = ROLE + "-renamed";
+        addPermission(control, true, true);
+        assertTrue("Added write permission is not found",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+
+        accountService.updatePermissions(newRole, ROLE);
+
+        assertFalse("Permission of renamed role is still cached",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+        assertTrue("Permission of new role is not found",
+                permissionCache.isWriteAllowed(new String[] { newRole }, control.getDbId()));
+    }
+
+    @Test
+    public void testCacheIsNotUsedInCluster() throws CommandException {
+        addPermission(control, true, true);
+        assertTrue("Added write permission is not found",
+                permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+
+        ClusterCacheInvalidator invalidator = permissionCache.getClusterCacheInvalidator();
+        boolean clusterEnabled = invalidator.isEnabled();
+        invalidator.setEnabled(true);
+        try {
+            assertFalse("Cache is used in a cluster", permissionCache.isEnabled());
+            assertFalse("Cached write permission is used in a cluster",
+                    permissionCache.isWriteAllowed(ROLES, control.getDbId()));
+            assertFalse("Cached read permission is used in a cluster",
+                    permissionCache.isReadAllowed(ROLES, control.getDbId()));
+        } finally {
+            invalidator.setEnabled(clusterEnabled);
+        }
+    }
+
+    private void addPermission(CnATreeElement element, boolean read, boolean write)
+            throws CommandException {
+        element.addPermission(Permission.createPermission(element, ROLE, read, write));
+        updateElement(element);
+    }
+}
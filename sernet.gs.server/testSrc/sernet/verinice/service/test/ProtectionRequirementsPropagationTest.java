@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.hibernate.ProtectionRequirementsPropagation;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.model.iso27k.Organization;
+import sernet.verinice.model.iso27k.Process;
+import sernet.verinice.service.commands.LoadElementByUuid;
+
+/**
+ * Tests the propagation of protection requirements along chains and cycles of
+ * links, see {@link ProtectionRequirementsPropagation}.
+ */
+public class ProtectionRequirementsPropagationTest extends CommandServiceProvider {
+
+    private static final String REL_ASSET_ASSET = "rel_asset_asset";
+
+    private Organization organization;
+
+    private Process process;
+
+    private Asset asset1;
+
+    private Asset asset2;
+
+    @Before
+    public void setUp() throws CommandException {
+        organization = createOrganization();
+        process = (Process) createNewElement(getGroupForClass(organization, Process.class),
+                Process.class);
+        asset1 = (Asset) createNewElement(getGroupForClass(organization, Asset.class),
+                Asset.class, 1);
+        asset2 = (Asset) createNewElement(getGroupForClass(organization, Asset.class),
+                Asset.class, 2);
+        setCalculated(asset1);
+        setCalculated(asset2);
+        setCIA(process, 3, 2, 4);
+    }
+
+    @After
+    public void tearDown() throws CommandException {
+        removeElement(organization);
+    }
+
+    @Test
+    public void testChain() throws CommandException {
+        createLink(process, asset1, Process.REL_PROCESS_ASSET);
+        createLink(asset1, asset2, REL_ASSET_ASSET);
+        checkCIA(asset1, 3, 2, 4);
+        checkCIA(asset2, 3, 2, 4);
+
+        setCIA(process, 1, 2, 1);
+        checkCIA(asset1, 1, 2, 1);
+        checkCIA(asset2, 1, 2, 1);
+    }
+
+    @Test
+    public void testCycle() throws CommandException {
+        createLink(process, asset1, Process.REL_PROCESS_ASSET);
+        createLink(asset1, asset2, REL_ASSET_ASSET);
+        createLink(asset2, asset1, REL_ASSET_ASSET);
+        checkCIA(asset1, 3, 2, 4);
+        checkCIA(asset2, 3, 2, 4);
+
+        // the cycle must not keep the former higher values
+        setCIA(process, 1, 1, 1);
+        checkCIA(asset1, 1, 1, 1);
+        checkCIA(asset2, 1, 1, 1);
+    }
+
+    private void setCalculated(Asset asset) throws CommandException {
+        Asset element = (Asset) load(asset);
+        element.setNumericProperty(Asset.ASSET_VALUE_METHOD_CONFIDENTIALITY, 1);
+        element.setNumericProperty(Asset.ASSET_VALUE_METHOD_INTEGRITY, 1);
+        element.setNumericProperty(Asset.ASSET_VALUE_METHOD_AVAILABILITY, 1);
+        updateElement(element);
+    }
+
+    private void setCIA(Process process, int c, int i, int a) throws CommandException {
+        Process element = (Process) load(process);
+        element.setNumericProperty(Process.PROCESS_VALUE_CONFIDENTIALITY, c);
+        element.setNumericProperty(Process.PROCESS_VALUE_INTEGRITY, i);
+        element.setNumericProperty(Process.PROCESS_VALUE_AVAILABILITY, a);
+        updateElement(element);
+    }
+
+    private void checkCIA(Asset asset, int c, int i, int a) throws CommandException {
+        CnATreeElement element = load(asset);
+        assertEquals("Unexpected confidentiality", c,
+                element.getNumericProperty(Asset.ASSET_VALUE_CONFIDENTIALITY));
+        assertEquals("Unexpected integrity", i,
+                element.getNumericProperty(Asset.ASSET_VALUE_INTEGRITY));
+        assertEquals("Unexpected availability", a,
+                element.getNumericProperty(Asset.ASSET_VALUE_AVAILABILITY));
+    }
+
+    private CnATreeElement load(CnATreeElement element) throws CommandException {
+        LoadElementByUuid<CnATreeElement> command = new LoadElementByUuid<>(element.getUuid(),
+                RetrieveInfo.getPropertyInstance());
+        return commandService.executeCommand(command).getElement();
+    }
+}
@@ -31,10 +31,12 @@ import org.springframework.transaction.annotation.Transactional;
 import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.model.common.CnALink;
 import sernet.verinice.model.iso27k.Asset;
+import sernet.verinice.model.iso27k.Control;
 import sernet.verinice.model.iso27k.IncidentScenario;
 import sernet.verinice.model.iso27k.Organization;
 import sernet.verinice.service.risk.RiskAnalysisConfiguration;
 import sernet.verinice.service.risk.RiskAnalysisService;
+import sernet.verinice.service.risk.RiskAnalysisServiceImpl;
 import sernet.verinice.service.test.helper.vnaimport.VNAImportHelper;
 
 /**
@@ -49,10 +51,15 @@ public class RiskAnalysisServiceTest extends CommandServiceProvider {
     private static final String SOURCE_ID = "483e9c";
     private static final String EXT_ID_ORGANIZATION = "3107a3aa-efdc-49d7-bddd-7fc7e581bbbb";
     private static final String EXT_ID_ASSET = "fce4e1c2-039c-4b0d-8709-1a7347765a57";
+    private static final String EXT_ID_SCENARIO = "f6af96b7-7bb3-427b-afbc-c753f2d4ee33";
+    private static final String EXT_ID_CONTROL = "5f93ca34-9c52-44f0-8439-463b722a8368";
 
     @Resource(name = "riskAnalysisService")
     RiskAnalysisService riskAnalysisService;
 
+    @Resource(name = "riskAnalysisServiceImpl")
+    RiskAnalysisServiceImpl riskAnalysisServiceImpl;
+
     @Test
     public void testRiskAnalysis() throws CommandException, IOException {
         VNAImportHelper.importFile(VNA_FILENAME);
@@ -70,6 +77,49 @@ public class RiskAnalysisServiceTest extends CommandServiceProvider {
         }
     }
 
+    @Test
+    public void testIncrementalRiskAnalysis() throws CommandException, IOException {
+        VNAImportHelper.importFile(VNA_FILENAME);
+        Organization org = (Organization) loadElement(SOURCE_ID, EXT_ID_ORGANIZATION);
+        IncidentScenario scenario = (IncidentScenario) loadElement(SOURCE_ID, EXT_ID_SCENARIO);
+        Asset otherAsset = (Asset) createNewElement(getGroupForClass(org, Asset.class),
+                Asset.class);
+        otherAsset.setNumericProperty(Asset.ASSET_VALUE_CONFIDENTIALITY, 2);
+        otherAsset = (Asset) updateElement(otherAsset);
+        createLink(scenario, otherAsset, IncidentScenario.REL_INCSCEN_ASSET);
+
+        RiskAnalysisConfiguration configuration = new RiskAnalysisConfiguration(org.getDbId());
+        long analyzed = riskAnalysisServiceImpl.getNumberOfAnalyzedAssets();
+        long skipped = riskAnalysisServiceImpl.getNumberOfSkippedAssets();
+        riskAnalysisService.runRiskAnalysis(configuration);
+        assertEquals(analyzed + 2, riskAnalysisServiceImpl.getNumberOfAnalyzedAssets());
+        assertEquals(skipped, riskAnalysisServiceImpl.getNumberOfSkippedAssets());
+
+        // nothing has changed, all assets are skipped
+        configuration.setIncremental(true);
+        riskAnalysisService.runRiskAnalysis(configuration);
+        assertEquals(analyzed + 2, riskAnalysisServiceImpl.getNumberOfAnalyzedAssets());
+        assertEquals(skipped + 2, riskAnalysisServiceImpl.getNumberOfSkippedAssets());
+        Asset asset = (Asset) loadElement(SOURCE_ID, EXT_ID_ASSET);
+        checkRiskValues(asset);
+        Set<CnALink> links = asset.getLinksUp();
+        for (CnALink link : links) {
+            if (IncidentScenario.REL_INCSCEN_ASSET.equals(link.getRelationId())) {
+                checkRiskValues(link);
+            }
+        }
+
+        // a control of the asset is changed, only this asset is analyzed
+        Control control = (Control) loadElement(SOURCE_ID, EXT_ID_CONTROL);
+        control.setNumericProperty(Control.PROP_EFFECTIVENESS_CONFIDENTIALITY, 1);
+        updateElement(control);
+        riskAnalysisService.runRiskAnalysis(configuration);
+        assertEquals(analyzed + 3, riskAnalysisServiceImpl.getNumberOfAnalyzedAssets());
+        assertEquals(skipped + 3, riskAnalysisServiceImpl.getNumberOfSkippedAssets());
+        asset = (Asset) loadElement(SOURCE_ID, EXT_ID_ASSET);
+        assertEquals(0, asset.getNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_CONTROLS));
+    }
+
     public void checkRiskValues(Asset asset) {
         assertEquals(1, asset.getNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_CONTROLS));
         assertEquals(2,
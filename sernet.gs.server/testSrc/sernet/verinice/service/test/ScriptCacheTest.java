@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sernet.verinice.oda.driver.impl.ScriptCache;
+
+/**
+ * Tests the cache of parsed BeanShell scripts of the ODA driver.
+ */
+public class ScriptCacheTest {
+
+    private static final int NUMBER_OF_THREADS = 8;
+    private static final int EVALUATIONS_PER_THREAD = 200;
+    private static final int NUMBER_OF_SCRIPTS = 10;
+
+    private final ScriptCache scriptCache = ScriptCache.getInstance();
+
+    private final ClassLoader classLoader = ScriptCacheTest.class.getClassLoader();
+
+    @Before
+    public void setUp() {
+        scriptCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        scriptCache.clear();
+    }
+
+    @Test
+    public void testParsedScriptIsCached() throws Exception {
+        long misses = scriptCache.getMisses();
+        long hits = scriptCache.getHits();
+        String script = "a = 20; b = 22; return a + b;";
+
+        assertEquals(42, eval(script));
+        assertEquals(42, eval(script));
+
+        assertEquals(misses + 1, scriptCache.getMisses());
+        assertEquals(hits + 1, scriptCache.getHits());
+        assertEquals(1, scriptCache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedScriptIsEvicted() throws Exception {
+        int maxSize = scriptCache.getMaxSize();
+        for (int i = 0; i < maxSize; i++) {
+            eval(i + ";");
+        }
+        assertEquals(maxSize, scriptCache.getSize());
+        eval("0;");
+
+        assertEquals(maxSize, eval(maxSize + ";"));
+        assertEquals(maxSize, scriptCache.getSize());
+
+        long misses = scriptCache.getMisses();
+        assertEquals(0, eval("0;"));
+        assertEquals("Recently used script was evicted", misses, scriptCache.getMisses());
+        assertEquals(1, eval("1;"));
+        assertEquals("Least recently used script was not evicted", misses + 1,
+                scriptCache.getMisses());
+    }
+
+    @Test
+    public void testScriptIsParsedPerClassManager() throws Exception {
+        String script = "a = 20; b = 22; return a + b;";
+        eval(script);
+        long misses = scriptCache.getMisses();
+        try (URLClassLoader otherClassLoader = new URLClassLoader(new URL[0], classLoader)) {
+            assertEquals(42, scriptCache.eval(scriptCache.createInterpreter(otherClassLoader),
+                    script, "test"));
+        }
+        assertEquals(misses + 1, scriptCache.getMisses());
+        assertEquals(1, scriptCache.getSize());
+    }
+
+    @Test
+    public void testClearClearsCachesOfAllThreads() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            executor.submit(() -> eval("1;")).get();
+            scriptCache.clear();
+            assertEquals(Integer.valueOf(0), executor.submit(scriptCache::getSize).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentEvaluation() throws Exception {
+        long evaluations = scriptCache.getHits() + scriptCache.getMisses();
+        long misses = scriptCache.getMisses();
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < NUMBER_OF_THREADS; t++) {
+                futures.add(executor.submit(new Evaluation()));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(Integer.valueOf(EVALUATIONS_PER_THREAD), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(evaluations + NUMBER_OF_THREADS * EVALUATIONS_PER_THREAD,
+                scriptCache.getHits() + scriptCache.getMisses());
+        // Parsed scripts are not shared between threads
+        assertEquals(misses + NUMBER_OF_THREADS * NUMBER_OF_SCRIPTS, scriptCache.getMisses());
+        assertEquals(0, scriptCache.getSize());
+    }
+
+    @Test
+    public void testClassManagerIsSharedPerClassLoader() throws Exception {
+        Object classManager = scriptCache.getClassManager(classLoader);
+        try (URLClassLoader otherClassLoader = new URLClassLoader(new URL[0], classLoader)) {
+            assertSame(classManager, scriptCache.getClassManager(classLoader));
+            assertNotSame(classManager, scriptCache.getClassManager(otherClassLoader));
+        }
+    }
+
+    private Object eval(String script) throws Exception {
+        return scriptCache.eval(scriptCache.createInterpreter(classLoader), script, "test");
+    }
+
+    /**
+     * Evaluates the scripts in new interpreters and returns the number of
+     * correct results. The results depend on the name of the thread. Every
+     * thread parses each script once and evaluates its own parsed nodes.
+     */
+    private final class Evaluation implements Callable<Integer> {
+
+        @Override
+        public Integer call() throws Exception {
+            String threadName = Thread.currentThread().getName();
+            int correctResults = 0;
+            for (int i = 0; i < EVALUATIONS_PER_THREAD; i++) {
+                int script = i % NUMBER_OF_SCRIPTS;
+                Object result = eval("name = Thread.currentThread().getName();"
+                        + " return name + \"-\" + " + script + ";");
+                if ((threadName + "-" + script).equals(result)) {
+                    correctResults++;
+                }
+            }
+            return correctResults;
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.search.ElementDaoDummy;
+import sernet.verinice.search.SearchIndexQueue;
+
+/**
+ * Tests coalescing, retries and transaction handling of
+ * {@link SearchIndexQueue}.
+ */
+public class SearchIndexQueueTest {
+
+    private static final long FLUSH_INTERVAL = 60000;
+
+    private RecordingSearchDao searchDao;
+
+    private InMemoryQueue queue;
+
+    /**
+     * Versions of the elements, the document of an element contains its
+     * version
+     */
+    private final Map<Integer, Integer> versions = new HashMap<>();
+
+    private int createdDocuments = 0;
+
+    @Before
+    public void setUp() {
+        searchDao = new RecordingSearchDao();
+        queue = new InMemoryQueue();
+        queue.setSearchDao(searchDao);
+        queue.setJsonBuilder(element -> {
+            createdDocuments++;
+            return "{\"v\":" + versions.get(element.getDbId()) + "}";
+        });
+        queue.setFlushInterval(FLUSH_INTERVAL);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        queue.destroy();
+    }
+
+    @Test
+    public void updatesAreSentDirectlyIfQueueIsNotStarted() {
+        queue.update(element(1, "a", 1));
+        assertEquals(1, searchDao.updates.size());
+        assertEquals("{\"v\":1}", searchDao.updates.get(0).get("a"));
+        assertTrue(searchDao.refreshed);
+    }
+
+    @Test
+    public void updatesOfSameUuidAreCoalesced() {
+        queue.start();
+        queue.update(element(1, "a", 1));
+        queue.update(element(1, "a", 2));
+        queue.delete(Collections.singletonList("b"));
+        assertEquals(2, queue.getQueueDepth());
+        assertEquals(1, queue.getCoalescedOperations());
+        assertTrue(searchDao.updates.isEmpty());
+
+        queue.flush();
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(0, queue.getLag());
+        assertEquals(1, searchDao.updates.size());
+        assertEquals("{\"v\":2}", searchDao.updates.get(0).get("a"));
+        assertEquals(Collections.singletonList("b"), searchDao.deletes.get(0));
+        assertEquals(2, queue.getProcessedOperations());
+    }
+
+    @Test
+    public void documentsAreCreatedWhenQueueIsFlushed() {
+        queue.start();
+        queue.update(element(1, "a", 1));
+        assertEquals(0, createdDocuments);
+
+        versions.put(1, 2);
+        queue.flush();
+        assertEquals(1, createdDocuments);
+        assertEquals("{\"v\":2}", searchDao.updates.get(0).get("a"));
+    }
+
+    @Test
+    public void failedOperationsAreRetried() {
+        queue.setMaxAttempts(2);
+        queue.start();
+        queue.update(element(1, "a", 1));
+        queue.update(element(2, "b", 1));
+
+        searchDao.failures = 1;
+        queue.flush();
+        assertEquals(2, queue.getQueueDepth());
+        assertEquals(0, queue.getFailedOperations());
+
+        queue.flush();
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(2, queue.getProcessedOperations());
+        assertEquals(2, searchDao.updates.get(0).size());
+    }
+
+    @Test
+    public void operationsAreDroppedAfterMaxAttempts() {
+        queue.setMaxAttempts(2);
+        queue.start();
+        queue.update(element(1, "a", 1));
+
+        searchDao.failures = 2;
+        queue.flush();
+        assertEquals(1, queue.getQueueDepth());
+        queue.flush();
+        assertEquals(0, queue.getQueueDepth());
+        assertEquals(1, queue.getFailedOperations());
+        assertEquals(0, queue.getProcessedOperations());
+        assertTrue(searchDao.updates.isEmpty());
+    }
+
+    @Test
+    public void updatesOfRolledBackTransactionAreDiscarded() {
+        queue.start();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            queue.update(element(1, "a", 1));
+            assertEquals(0, queue.getQueueDepth());
+            completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(0, queue.getQueueDepth());
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            queue.update(element(1, "a", 2));
+            completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertEquals(1, queue.getQueueDepth());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager
+                .getSynchronizations();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            synchronization.afterCompletion(status);
+        }
+    }
+
+    /**
+     * Stores an element with a version and returns it to be passed to
+     * {@link SearchIndexQueue#update(java.util.Collection)}
+     */
+    private List<CnATreeElement> element(Integer dbId, String uuid, int version) {
+        CnATreeElement element = new CnATreeElement() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public String getTypeId() {
+                return "test";
+            }
+        };
+        element.setDbId(dbId);
+        element.setUuid(uuid);
+        versions.put(dbId, version);
+        queue.elements.put(dbId, element);
+        return Collections.singletonList(element);
+    }
+
+    /**
+     * Queue which loads the elements from a map instead of the database
+     */
+    private static final class InMemoryQueue extends SearchIndexQueue {
+
+        private final Map<Integer, CnATreeElement> elements = new HashMap<>();
+
+        @Override
+        protected List<CnATreeElement> loadElements(List<Integer> dbIds) {
+            return dbIds.stream().map(elements::get).collect(Collectors.toList());
+        }
+    }
+
+    private static final class RecordingSearchDao extends ElementDaoDummy {
+
+        private final List<Map<String, String>> updates = new ArrayList<>();
+        private final List<List<String>> deletes = new ArrayList<>();
+        private boolean refreshed = false;
+        /**
+         * Number of following requests which fail
+         */
+        private int failures = 0;
+
+        @Override
+        public ActionResponse updateOrIndex(Map<String, String> idToJson, boolean refresh) {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("Index is not available");
+            }
+            updates.add(new HashMap<>(idToJson));
+            refreshed = refresh;
+            return null;
+        }
+
+        @Override
+        public BulkResponse delete(List<String> ids, boolean refresh) {
+            deletes.add(new ArrayList<>(ids));
+            refreshed = refresh;
+            return null;
+        }
+    }
+}
@@ -213,6 +213,33 @@ public class TaskServiceTest extends CommandServiceProvider {
         assertEquals("Size of task list is not 2", 2, taskListCheck.size());
     }
 
+    @Test
+    public void testPagingAndSorting() {
+        ITaskParameter searchParameter = new TaskParameter();
+        searchParameter.setProcessKey(IIndividualProcess.KEY);
+        searchParameter.setAllUser(true);
+        searchParameter.setSortBy(ITaskParameter.SORT_BY_CREATE_DATE);
+        searchParameter.setMaxResults(4);
+        Set<String> taskIds = new HashSet<String>();
+        Date lastCreateDate = null;
+        for (int firstResult = 0; firstResult < NUMBER_OF_ASSETS; firstResult += 4) {
+            searchParameter.setFirstResult(firstResult);
+            List<ITask> page = taskService.getTaskList(searchParameter);
+            int expectedSize = Math.min(4, NUMBER_OF_ASSETS - firstResult);
+            assertEquals("Size of page is not " + expectedSize, expectedSize, page.size());
+            for (ITask task : page) {
+                assertTrue("Task is on more than one page: " + task.getId(), taskIds.add(task.getId()));
+                assertTrue("Task has no outcomes: " + task.getId(), !task.getOutcomes().isEmpty());
+                assertEquals("Wrong group of task: " + task.getId(), organization.getUuid(), task.getUuidGroup());
+                if (lastCreateDate != null) {
+                    assertTrue("Tasks are not sorted by create date", !task.getCreateDate().before(lastCreateDate));
+                }
+                lastCreateDate = task.getCreateDate();
+            }
+        }
+        assertEquals("Number of paged tasks is not " + NUMBER_OF_ASSETS, NUMBER_OF_ASSETS, taskIds.size());
+    }
+
     private List<ITask> getTaskListForPerson(String login) {
         ITaskParameter searchParameter = new TaskParameter();
         searchParameter.setUsername(login);
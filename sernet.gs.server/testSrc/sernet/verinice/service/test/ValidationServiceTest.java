@@ -182,6 +182,32 @@ public class ValidationServiceTest extends AbstractModernizedBaseProtection {
         deleteElement(itNetwork);
     }
 
+    @Test
+    public void createValidationsForScope() throws Exception {
+        ItNetwork itNetwork = createNewBPOrganization();
+        RoomGroup rooms = createGroup(itNetwork, RoomGroup.class, "Rooms");
+        Room room = createElement(rooms, Room.class, "Room 1");
+        validationService.createValidationsForScope(itNetwork.getDbId());
+        assertEquals(2, getSingleElementValidations(room).size());
+        int numberOfValidations = validationService.getValidations(itNetwork.getDbId()).size();
+
+        // a second run does not create duplicates
+        validationService.createValidationsForScope(itNetwork.getDbId());
+        assertEquals(numberOfValidations,
+                validationService.getValidations(itNetwork.getDbId()).size());
+
+        room.setSimpleProperty(Room.PROP_ABBR, "R1");
+        room.getEntity().setPropertyValue("bp_room_user",
+                "bp_room_user_1,bp_room_user_2,bp_room_user_3");
+        room = update(room);
+        validationService.createValidationsForScope(itNetwork.getDbId(), true);
+        assertEquals(0, getSingleElementValidations(room).size());
+        assertEquals(numberOfValidations - 2,
+                validationService.getValidations(itNetwork.getDbId()).size());
+
+        deleteElement(itNetwork);
+    }
+
     @Test
     public void testGetPropertyTypesToValidate() throws CommandException {
         ItNetwork itNetwork = createNewBPOrganization();
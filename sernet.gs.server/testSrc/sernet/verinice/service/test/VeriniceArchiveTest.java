@@ -3,16 +3,28 @@ package sernet.verinice.service.test;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.junit.matchers.JUnitMatchers;
 
 import org.junit.Assert;
+import de.sernet.sync.data.SyncData;
+import de.sernet.sync.data.SyncLink;
+import de.sernet.sync.data.SyncObject;
+import sernet.verinice.interfaces.CommandException;
+import sernet.verinice.service.commands.SyncRequestReader;
 import sernet.verinice.service.sync.VeriniceArchive;
 
 public class VeriniceArchiveTest {
@@ -32,6 +44,62 @@ public class VeriniceArchiveTest {
         }
     }
 
+    @Test
+    public void testStreamingRead() throws IOException, CommandException {
+        VeriniceArchive archive = null;
+        try (InputStream is = VeriniceArchiveTest.class.getResourceAsStream("modplast-1.1.vna")) {
+            archive = new VeriniceArchive(is);
+
+            assertTrue(archive.isStreamingSupported());
+            assertEquals("SerNet-DM", archive.getSourceId());
+            assertNotNull(archive.getSyncMapping());
+            Set<String> linkedExtIds = new HashSet<>(archive.getLinkedExtIds());
+
+            AtomicInteger started = new AtomicInteger();
+            AtomicInteger ended = new AtomicInteger();
+            Set<SyncLink> links = new HashSet<>();
+            try (InputStream xml = archive.getVeriniceXml()) {
+                SyncRequestReader.read(xml, new SyncRequestReader.Handler() {
+
+                    @Override
+                    public void startObject(SyncObject syncObject) {
+                        assertNotNull(syncObject.getExtId());
+                        assertTrue(syncObject.getChildren().isEmpty());
+                        started.incrementAndGet();
+                    }
+
+                    @Override
+                    public void endObject(SyncObject syncObject) {
+                        ended.incrementAndGet();
+                    }
+
+                    @Override
+                    public void link(SyncLink syncLink) {
+                        links.add(syncLink);
+                    }
+                });
+            }
+
+            SyncData syncData = archive.getSyncData();
+            assertEquals(countObjects(syncData.getSyncObject()), started.get());
+            assertEquals(started.get(), ended.get());
+            assertEquals(new HashSet<>(syncData.getSyncLink()), links);
+            assertEquals(syncData.getSyncLink().stream()
+                    .flatMap(l -> Stream.of(l.getDependant(), l.getDependency()))
+                    .collect(Collectors.toSet()), linkedExtIds);
+        } finally {
+            Optional.ofNullable(archive).ifPresent(VeriniceArchive::clear);
+        }
+    }
+
+    private static int countObjects(List<SyncObject> syncObjects) {
+        int count = syncObjects.size();
+        for (SyncObject syncObject : syncObjects) {
+            count += countObjects(syncObject.getChildren());
+        }
+        return count;
+    }
+
     @Test
     public void queryInvalidFile() throws IOException {
         VeriniceArchive archive = null;
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.remoting;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+public class CompactObjectOutputStreamTest {
+
+    @Test
+    public void equalStringsAreWrittenOnce() throws Exception {
+        List<String> typeIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            typeIds.add(new String("bp_itnetwork"));
+        }
+
+        byte[] plain = serialize(typeIds, false);
+        byte[] compact = serialize(typeIds, true);
+        @SuppressWarnings("unchecked")
+        List<String> result = (List<String>) deserialize(compact);
+
+        assertTrue(compact.length < plain.length / 2);
+        assertEquals(typeIds, result);
+        assertSame(result.get(0), result.get(999));
+    }
+
+    @Test
+    public void longStringsAreNotShared() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i <= CompactObjectOutputStream.MAX_SHARED_STRING_LENGTH; i++) {
+            sb.append('x');
+        }
+        String[] texts = new String[] { sb.toString(), new String(sb.toString()) };
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CompactObjectOutputStream oos = new CompactObjectOutputStream(out)) {
+            oos.writeObject(texts);
+            assertEquals(0, oos.getNumberOfSharedStrings());
+        }
+        assertArrayEquals(texts, (String[]) deserialize(out.toByteArray()));
+    }
+
+    @Test
+    public void compressedDataIsDecompressed() throws IOException {
+        byte[] data = serialize(new ArrayList<>(Collections.nCopies(100, "org")), true);
+        byte[] compressed = CompressedTransport.compress(data);
+
+        ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                decompressed.write(buffer, 0, n);
+            }
+        }
+        assertArrayEquals(data, decompressed.toByteArray());
+    }
+
+    @Test
+    public void invocationNameContainsCommandClass() {
+        assertEquals("executeCommand(ArrayList)", TransportMetrics
+                .getInvocationName("executeCommand", new Object[] { new ArrayList<>() }));
+        assertEquals("getUsername", TransportMetrics.getInvocationName("getUsername", null));
+    }
+
+    private static byte[] serialize(Object object, boolean compact) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = compact ? new CompactObjectOutputStream(out)
+                : new ObjectOutputStream(out)) {
+            oos.writeObject(object);
+        }
+        return out.toByteArray();
+    }
+
+    private static Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return ois.readObject();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.tree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import sernet.gs.service.AbstractRequiresHUITypeFactoryTest;
+import sernet.verinice.model.bp.elements.ItSystem;
+import sernet.verinice.model.bp.groups.ItSystemGroup;
+
+public class ElementCacheTest extends AbstractRequiresHUITypeFactoryTest {
+
+    @Test
+    public void removedChildIsRemovedFromCachedParent() {
+        ElementCache cache = new ElementCache(100);
+        ItSystemGroup group = new ItSystemGroup(null);
+        ItSystem system = new ItSystem(group);
+        group.addChild(system);
+        cache.addObject(new CacheObject(group, true));
+
+        cache.remove(system);
+
+        assertFalse(cache.getElement(group.getUuid()).getChildren().contains(system));
+    }
+
+    @Test
+    public void parentIndexIsUpdatedWhenParentIsRemoved() {
+        ElementCache cache = new ElementCache(100);
+        ItSystemGroup group = new ItSystemGroup(null);
+        group.addChild(new ItSystem(group));
+        group.addChild(new ItSystem(group));
+        cache.addObject(new CacheObject(group, true));
+        assertEquals(2, cache.getParentIndexSize());
+
+        cache.remove(group);
+
+        assertEquals(0, cache.getParentIndexSize());
+    }
+
+    @Test
+    public void evictedElementIsRemovedFromParentIndex() {
+        ElementCache cache = new ElementCache(1);
+        ItSystemGroup group = new ItSystemGroup(null);
+        ItSystem system = new ItSystem(group);
+        group.addChild(system);
+        cache.addObject(new CacheObject(system, true));
+        assertEquals(1, cache.getParentIndexSize());
+
+        cache.addObject(new CacheObject(new ItSystemGroup(null), true));
+
+        assertEquals(0, cache.getParentIndexSize());
+    }
+
+    @Test
+    public void childAddedToCachedParentIsRemoved() {
+        ElementCache cache = new ElementCache(100);
+        ItSystemGroup group = new ItSystemGroup(null);
+        cache.addObject(new CacheObject(group, true));
+        ItSystem system = new ItSystem(group);
+        group.addChild(system);
+
+        cache.remove(system);
+
+        assertFalse(cache.getElement(group.getUuid()).getChildren().contains(system));
+    }
+
+    @Test
+    public void replacedChildrenAreRemovedFromParentIndex() {
+        ElementCache cache = new ElementCache(100);
+        ItSystemGroup group = new ItSystemGroup(null);
+        group.addChild(new ItSystem(group));
+        cache.addObject(new CacheObject(group, true));
+        assertEquals(1, cache.getParentIndexSize());
+
+        group.setChildren(new HashSet<>());
+        cache.addObject(new CacheObject(group, true));
+
+        assertEquals(0, cache.getParentIndexSize());
+    }
+
+    @Test
+    public void statistics() {
+        ElementCache cache = new ElementCache(100);
+        ItSystemGroup group = new ItSystemGroup(null);
+        cache.addObject(new CacheObject(group, true));
+
+        assertTrue(cache.getCachedObject(group) != null);
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getHits());
+        assertEquals(100, cache.getMaxElementsInMemory());
+    }
+}
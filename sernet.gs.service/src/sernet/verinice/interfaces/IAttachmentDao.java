@@ -19,6 +19,7 @@
  ******************************************************************************/
 package sernet.verinice.interfaces;
 
+import java.util.Collection;
 import java.util.List;
 
 import sernet.verinice.model.bsi.Attachment;
@@ -30,4 +31,10 @@ import sernet.verinice.model.bsi.Attachment;
 public interface IAttachmentDao extends IBaseDao<Attachment, Integer> {
 
     List<Attachment> loadAttachmentList(Integer cnAElementId);
+
+    /**
+     * Returns the attachments of all elements with the given db-ids with their
+     * entities and properties.
+     */
+    List<Attachment> loadAttachmentList(Collection<Integer> cnAElementIds);
 }
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.interfaces;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import sernet.verinice.model.bsi.AttachmentFile;
+
+/**
+ * DAO for the content of attachments. Contents are stored once per SHA-256
+ * hash, attachment files only reference them. Copying the file of an
+ * attachment adds a reference instead of duplicating the bytes. Contents are
+ * deleted if they are not referenced anymore.
+ *
+ * {@link #retrieve(Integer, IRetrieveInfo)} and {@link #findById(Integer)}
+ * load the whole content into {@link AttachmentFile#getFileData()}, use the
+ * streaming methods for large files.
+ */
+public interface IAttachmentFileDao extends IBaseDao<AttachmentFile, Integer> {
+
+    /**
+     * Writes the content of an attachment to a stream.
+     *
+     * @return The number of bytes written or -1 if the attachment has no
+     *         content
+     */
+    long writeFileData(Integer dbId, OutputStream out);
+
+    /**
+     * Writes a range of the content of an attachment to a stream.
+     *
+     * @param offset
+     *            Number of bytes to skip
+     * @param length
+     *            Maximum number of bytes to write, -1 for all remaining bytes
+     * @return The number of bytes written or -1 if the attachment has no
+     *         content
+     */
+    long writeFileData(Integer dbId, long offset, long length, OutputStream out);
+
+    /**
+     * @return The size of the content of an attachment in bytes or -1 if the
+     *         attachment has no content
+     */
+    long getFileSize(Integer dbId);
+
+    /**
+     * Reads the content of an attachment from a stream without loading it into
+     * memory. Creates the attachment file if it does not exist.
+     *
+     * @return The SHA-256 hash of the content
+     */
+    String saveFileData(Integer dbId, InputStream in);
+
+    /**
+     * Lets attachment targetId reference the content of attachment sourceId.
+     *
+     * @return true if the source attachment has content
+     */
+    boolean copyFileData(Integer sourceId, Integer targetId);
+
+    /**
+     * Deletes the contents which are not referenced by any attachment and
+     * which were referenced the last time before or at the given time.
+     *
+     * @param referencedUntil
+     *            Time in milliseconds, contents referenced later are kept
+     * @return The number of deleted contents
+     */
+    int deleteUnreferencedContent(long referencedUntil);
+}
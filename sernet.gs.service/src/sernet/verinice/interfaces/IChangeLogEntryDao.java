@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.interfaces;
+
+import java.util.Collection;
+
+import sernet.verinice.model.common.ChangeLogEntry;
+
+/**
+ * DAO for the append-only change log. New entries are buffered during a
+ * transaction and inserted in batches before the transaction commits.
+ * {@link #saveOrUpdate(Object)} and {@link #saveOrUpdateAll(Collection)}
+ * append new entries.
+ */
+public interface IChangeLogEntryDao extends IBaseDao<ChangeLogEntry, Integer> {
+
+    /**
+     * Appends entries to the change log. The entries are inserted when the
+     * current transaction commits or before entries are read.
+     */
+    void append(Collection<ChangeLogEntry> entries);
+
+    /**
+     * Inserts the pending entries of the current transaction.
+     */
+    void insertPendingEntries();
+
+    /**
+     * @return true if repeated updates of an element are stored only once per
+     *         transaction
+     */
+    boolean isCompact();
+
+    void setCompact(boolean compact);
+}
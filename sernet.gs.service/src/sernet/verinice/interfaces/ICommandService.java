@@ -17,6 +17,8 @@
  ******************************************************************************/
 package sernet.verinice.interfaces;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import sernet.verinice.service.sync.VnaSchemaVersion;
@@ -44,6 +46,43 @@ public interface ICommandService {
     
 	public  <T extends ICommand> T executeCommand(T command) throws CommandException;
 
+    /**
+     * Executes independent commands in one request. The server executes all
+     * commands in one transaction with one filter configuration. If a
+     * command fails the remaining commands are not executed and the
+     * exception is thrown.
+     * 
+     * @param commands
+     *            Commands which do not depend on each others results
+     * @return The commands after execution in the order of the parameter
+     */
+    default List<ICommand> executeCommands(List<? extends ICommand> commands)
+            throws CommandException {
+        return executeCommands(commands, false);
+    }
+
+    /**
+     * Executes independent commands in one request, see
+     * {@link #executeCommands(List)}. If parallel is true, commands which
+     * implement {@link IReadOnlyCommand} are executed in parallel, each in
+     * its own read-only transaction. All other commands are executed one
+     * after another in one transaction.
+     * 
+     * @param commands
+     *            Commands which do not depend on each others results
+     * @param parallel
+     *            true if read-only commands may be executed in parallel
+     * @return The commands after execution in the order of the parameter
+     */
+    default List<ICommand> executeCommands(List<? extends ICommand> commands,
+            boolean parallel) throws CommandException {
+        List<ICommand> results = new ArrayList<>(commands.size());
+        for (ICommand command : commands) {
+            results.add(executeCommand(command));
+        }
+        return results;
+    }
+
 	public void configureFilter(IBaseDao dao);
 	
 	public void disableFilter(IBaseDao dao);
@@ -61,7 +61,6 @@ import sernet.verinice.model.bsi.Addition;
 import sernet.verinice.model.bsi.Anwendung;
 import sernet.verinice.model.bsi.AnwendungenKategorie;
 import sernet.verinice.model.bsi.Attachment;
-import sernet.verinice.model.bsi.AttachmentFile;
 import sernet.verinice.model.bsi.BSIModel;
 import sernet.verinice.model.bsi.BausteinUmsetzung;
 import sernet.verinice.model.bsi.BausteinVorschlag;
@@ -373,7 +372,7 @@ public interface IDAOFactory {
 
     void setAdditionDAO(IBaseDao<Addition, Integer> daoToSet);
 
-    void setAttachmentFileDAO(IBaseDao<AttachmentFile, Integer> daoToSet);
+    void setAttachmentFileDAO(IAttachmentFileDao daoToSet);
 
     void setISO27KModelDAO(IBaseDao<ISO27KModel, Integer> daoToSet);
 
@@ -537,6 +536,18 @@ public interface IDAOFactory {
 
     void setAttachmentDao(IAttachmentDao attachmentDao);
 
+    /**
+     * @return The DAO for the deduplicated content of attachments
+     */
+    IAttachmentFileDao getAttachmentFileDao();
+
+    /**
+     * @return The index of the element hierarchy of the scopes
+     */
+    IHierarchyIndex getHierarchyIndex();
+
+    void setHierarchyIndex(IHierarchyIndex hierarchyIndex);
+
     IFinishedRiskAnalysisListsDao getFinishedRiskAnalysisListsDao();
 
     void setFinishedRiskAnalysisListsDao(IFinishedRiskAnalysisListsDao dao);
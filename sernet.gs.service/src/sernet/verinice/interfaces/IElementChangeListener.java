@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.interfaces;
+
+import java.util.Collection;
+
+import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * Listener which is notified by the tree element DAOs on the server whenever
+ * elements or links are saved, merged or deleted.
+ *
+ * Listeners are called synchronously inside the current transaction. They
+ * must be cheap and must not throw exceptions. Listeners which need to react
+ * on committed data only have to defer their work themselves.
+ */
+public interface IElementChangeListener {
+
+    void elementsChanged(Collection<CnATreeElement> elements);
+
+    void elementsRemoved(Collection<CnATreeElement> elements);
+
+    void linkChanged(CnALink link);
+
+    void linkRemoved(CnALink link);
+}
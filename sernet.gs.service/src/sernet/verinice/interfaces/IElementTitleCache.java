@@ -20,11 +20,39 @@
 package sernet.verinice.interfaces;
 
 /**
+ * Cache for the titles of elements, mostly used to get the titles of scopes
+ * while indexing and reporting. Implementations must be thread-safe.
+ *
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
 public interface IElementTitleCache {
 
+    /**
+     * Loads the titles of all elements of the given types into the cache.
+     */
     void load(String...typeIds);
+
+    /**
+     * Returns the title of an element. If the title is not cached it is
+     * loaded from the database.
+     *
+     * @return The title or null if the element does not exist
+     */
     String get(Integer dbId);
+
+    /**
+     * Puts the title of an element into the cache.
+     *
+     * @return The title which was cached before or null
+     */
     String update(Integer dbId, String title);
+
+    /**
+     * Replaces the title of an element only if the element is cached.
+     */
+    void replace(Integer dbId, String title);
+
+    void remove(Integer dbId);
+
+    void clear();
 }
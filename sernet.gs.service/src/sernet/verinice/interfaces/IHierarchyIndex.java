@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.interfaces;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Index of the parent-child hierarchy of the elements of a scope. The index
+ * answers subtree, ancestor and path queries without loading the elements.
+ * 
+ * All methods return null if the index can not answer the query, e.g. if the
+ * element is not in the given scope, the scope is null, access filters are
+ * enabled in the current session or the server runs in a cluster. Callers
+ * have to load the data from the database in this case.
+ */
+public interface IHierarchyIndex {
+
+    /**
+     * @param scopeId
+     *            The scope id of the root element
+     * @param dbId
+     *            The database id of the root element
+     * @param typeId
+     *            Type id of the returned elements or null for all types
+     * @return The database ids of the subtree including the root element or
+     *         null
+     */
+    Set<Integer> getSubtreeIds(Integer scopeId, Integer dbId, String typeId);
+
+    /**
+     * @return The database ids of the ancestors in the scope, the parent
+     *         first, or null
+     */
+    List<Integer> getAncestorIds(Integer scopeId, Integer dbId);
+
+    /**
+     * Removes the hierarchy of a scope from the index after the current
+     * transaction is completed. Call this method after changing parents,
+     * scopes or types of elements without Hibernate, e.g. by an SQL update.
+     */
+    void invalidate(Integer scopeId);
+
+    /**
+     * Removes all hierarchies from the index.
+     */
+    void clear();
+}
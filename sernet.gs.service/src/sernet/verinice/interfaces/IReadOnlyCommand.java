@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.interfaces;
+
+/**
+ * Marker interface for {@link ICommand} implementations which only read data.
+ * 
+ * <p>Commands of a batch which implement this interface may be executed in
+ * parallel, each in its own read-only transaction, see
+ * {@link ICommandService#executeCommands(java.util.List, boolean)}. A read-only
+ * command must not change any persistent object and must not depend on
+ * changes made by other commands of the same batch.</p>
+ */
+public interface IReadOnlyCommand {
+}
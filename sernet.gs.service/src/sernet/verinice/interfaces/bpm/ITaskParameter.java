@@ -29,6 +29,15 @@ import java.util.Set;
  *
  */
 public interface ITaskParameter extends Serializable {
+
+    /**
+     * Properties of a task which can be used to sort a task list, see
+     * {@link #setSortBy(String)}
+     */
+    String SORT_BY_CREATE_DATE = "createTime";
+    String SORT_BY_DUE_DATE = "duedate";
+    String SORT_BY_TYPE = "name";
+    String SORT_BY_ASSIGNEE = "assignee";
     
     String getUsername();
     
@@ -77,4 +86,31 @@ public interface ITaskParameter extends Serializable {
     public void setBlacklist(Set<String> blacklist);
     
     public Set<String> getBlacklist();
+
+    /**
+     * @return Index of the first task of a page, null to start with the first
+     *         task
+     */
+    Integer getFirstResult();
+
+    void setFirstResult(Integer firstResult);
+
+    /**
+     * @return Maximum number of tasks of a page, null to load all tasks
+     */
+    Integer getMaxResults();
+
+    void setMaxResults(Integer maxResults);
+
+    /**
+     * @return One of the SORT_BY_ constants or null if the tasks are not
+     *         sorted by the server
+     */
+    String getSortBy();
+
+    void setSortBy(String sortBy);
+
+    boolean isSortAscending();
+
+    void setSortAscending(boolean sortAscending);
 }
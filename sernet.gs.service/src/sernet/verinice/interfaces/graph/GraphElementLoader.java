@@ -21,6 +21,7 @@ package sernet.verinice.interfaces.graph;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -77,6 +78,25 @@ public class GraphElementLoader implements IGraphElementLoader, Serializable {
         return elementList;
     }
     
+    /**
+     * Loads the elements with the given database ids which match the scope
+     * and type restrictions of this loader. This is used to refresh single
+     * elements of a cached graph.
+     */
+    public List<CnATreeElement> loadElements(Collection<Integer> dbIds) {
+        DetachedCriteria crit = createDefaultCriteria();
+        crit.add(Restrictions.in("dbId", dbIds));
+        if (getScopeIds() != null && getScopeIds().length > 0) {
+            crit.add(Restrictions.in("scopeId", getScopeIds()));
+        }
+        if (getTypeIds() != null && getTypeIds().length > 0) {
+            crit.add(Restrictions.in("objectType", getTypeIds()));
+        }
+        @SuppressWarnings("unchecked") // daos does not use generics
+        List<CnATreeElement> elementList = getCnaTreeElementDao().findByCriteria(crit);
+        return filterElements(elementList);
+    }
+
     private List<CnATreeElement> filterElements(List<CnATreeElement> elementList) {
         if(getElementFilter()==null) {
             return elementList;
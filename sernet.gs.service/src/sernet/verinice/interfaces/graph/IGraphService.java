@@ -35,6 +35,12 @@ import java.util.List;
  * You have to call "create()" to initialize the service. After creation get the
  * result by calling getGraph()
  * 
+ * If the graph cache of the server is enabled, a returned graph and its
+ * elements are shared with other callers. The graph is returned as
+ * {@link UnmodifiableVeriniceGraph}, callers must not change the elements, edges
+ * and links in it. Server components which change elements use the bean
+ * "uncachedGraphService" which always loads a new graph.
+ * 
  * @see http://jgrapht.org/
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
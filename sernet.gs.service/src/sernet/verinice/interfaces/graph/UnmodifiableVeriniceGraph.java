@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.interfaces.graph;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.AsUnmodifiableGraph;
+
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * A read-only view of a {@link VeriniceGraph}. Methods which add vertices or
+ * edges throw an {@link UnsupportedOperationException}, the JGraphT graph
+ * returned by {@link #getGraph()} is unmodifiable.
+ *
+ * Graphs shared by the graph cache of the server are handed out as views.
+ * Note that the elements in the graph are not copied, a view does not prevent
+ * changes of element properties.
+ */
+public class UnmodifiableVeriniceGraph implements VeriniceGraph, Serializable {
+
+    private static final long serialVersionUID = -6320594713418003519L;
+
+    private final VeriniceGraph graph;
+    private final Graph<CnATreeElement, Edge> unmodifiableGraph;
+
+    public UnmodifiableVeriniceGraph(VeriniceGraph graph) {
+        this.graph = graph;
+        this.unmodifiableGraph = new AsUnmodifiableGraph<>(graph.getGraph());
+    }
+
+    @Override
+    public void addVertex(CnATreeElement element) {
+        throw new UnsupportedOperationException("Graph is read-only");
+    }
+
+    @Override
+    public void addEdge(Edge edge) {
+        throw new UnsupportedOperationException("Graph is read-only");
+    }
+
+    @Override
+    public Set<CnATreeElement> getElements() {
+        return unmodifiableGraph.vertexSet();
+    }
+
+    @Override
+    public Set<CnATreeElement> getElements(String typeId) {
+        return graph.getElements(typeId);
+    }
+
+    @Override
+    public <T> Set<T> getElements(Class<T> clazz) {
+        return graph.getElements(clazz);
+    }
+
+    @Override
+    public CnATreeElement getElement(String uuid) {
+        return graph.getElement(uuid);
+    }
+
+    @Override
+    public CnATreeElement getElement(Integer dbId) {
+        return graph.getElement(dbId);
+    }
+
+    @Override
+    public CnATreeElement getParent(CnATreeElement element) {
+        return graph.getParent(element);
+    }
+
+    @Override
+    public <T> Set<T> getChildren(CnATreeElement element, Class<T> type) {
+        return graph.getChildren(element, type);
+    }
+
+    @Override
+    public Set<CnATreeElement> getChildren(CnATreeElement element) {
+        return graph.getChildren(element);
+    }
+
+    @Override
+    public Set<CnATreeElement> getChildren(CnATreeElement element, String elementTypeId) {
+        return graph.getChildren(element, elementTypeId);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargets(String uuid) {
+        return graph.getLinkTargets(uuid);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargets(Integer dbId) {
+        return graph.getLinkTargets(dbId);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargets(String uuid, String typeId) {
+        return graph.getLinkTargets(uuid, typeId);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargets(Integer dbId, String typeId) {
+        return graph.getLinkTargets(dbId, typeId);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargets(CnATreeElement source) {
+        return graph.getLinkTargets(source);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargets(CnATreeElement source, String linkTypeId) {
+        return graph.getLinkTargets(source, linkTypeId);
+    }
+
+    @Override
+    public Set<Edge> getEdgesByElementType(CnATreeElement source, String elementTypeId) {
+        return graph.getEdgesByElementType(source, elementTypeId);
+    }
+
+    @Override
+    public Set<CnATreeElement> getLinkTargetsByElementType(CnATreeElement source,
+            String elementTypeId) {
+        return graph.getLinkTargetsByElementType(source, elementTypeId);
+    }
+
+    @Override
+    public Graph<CnATreeElement, Edge> getGraph() {
+        return unmodifiableGraph;
+    }
+
+    @Override
+    public Set<CnATreeElement> filter(VeriniceGraphFilter graphFilter) {
+        return graph.filter(graphFilter);
+    }
+
+    @Override
+    public void log() {
+        graph.log();
+    }
+}
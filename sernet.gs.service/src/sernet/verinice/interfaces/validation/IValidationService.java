@@ -53,6 +53,23 @@ public interface IValidationService {
      */
     void createValidationsForScope(Integer scope) throws CommandException;
 
+    /**
+     * validates a whole scope, in incremental mode only the elements which are
+     * changed since the last validation of the scope are validated. The first
+     * incremental validation of a scope validates all elements.
+     * 
+     * Changed elements are found by the change log. Properties written by the
+     * server without a change log entry are not detected in incremental mode,
+     * e.g. the results of the risk analysis and propagated protection
+     * requirements. Validate the scope completely after such changes.
+     * 
+     * @param scope
+     * @param incremental
+     *            true: validate changed elements only
+     * @throws CommandException
+     */
+    void createValidationsForScope(Integer scope, boolean incremental) throws CommandException;
+
     /**
      * creates validations for a cnatreeElement and all of its children
      * (recursivly)
@@ -17,16 +17,17 @@
  ******************************************************************************/
 package sernet.verinice.model.bp.risk.configuration;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Simple short-lived cache for risk configurations. There is no invalidation
- * done and the class is *not* thread-safe.
+ * done. The cache can be shared by threads which create a link table in
+ * parallel, null values are not supported.
  */
 public class RiskConfigurationCache {
 
-    private final Map<Integer, RiskConfiguration> cache = new HashMap<>();
+    private final Map<Integer, RiskConfiguration> cache = new ConcurrentHashMap<>();
 
     public RiskConfiguration findRiskConfiguration(Integer scopeId) {
         return cache.get(scopeId);
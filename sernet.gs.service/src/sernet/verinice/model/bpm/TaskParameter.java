@@ -44,6 +44,10 @@ public class TaskParameter implements ITaskParameter, Serializable {
     private String processKey;
     private String taskId;
     private Set<String> blacklist;
+    private Integer firstResult;
+    private Integer maxResults;
+    private String sortBy;
+    private boolean sortAscending = true;
     
     public TaskParameter() {
         super();
@@ -175,5 +179,44 @@ public class TaskParameter implements ITaskParameter, Serializable {
         this.blacklist = blacklist;
     }
 
+    @Override
+    public Integer getFirstResult() {
+        return firstResult;
+    }
+
+    @Override
+    public void setFirstResult(Integer firstResult) {
+        this.firstResult = firstResult;
+    }
+
+    @Override
+    public Integer getMaxResults() {
+        return maxResults;
+    }
+
+    @Override
+    public void setMaxResults(Integer maxResults) {
+        this.maxResults = maxResults;
+    }
+
+    @Override
+    public String getSortBy() {
+        return sortBy;
+    }
+
+    @Override
+    public void setSortBy(String sortBy) {
+        this.sortBy = sortBy;
+    }
+
+    @Override
+    public boolean isSortAscending() {
+        return sortAscending;
+    }
+
+    @Override
+    public void setSortAscending(boolean sortAscending) {
+        this.sortAscending = sortAscending;
+    }
 
 }
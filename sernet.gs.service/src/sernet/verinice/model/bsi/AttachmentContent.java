@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.model.bsi;
+
+import java.io.Serializable;
+
+/**
+ * Content of attachment files, stored once per SHA-256 hash of the content.
+ * {@link AttachmentFile}s reference the content by {@link #getHash()}. A
+ * content is deleted by a periodic sweep if it is not referenced anymore and
+ * {@link #getReferenced()} is older than a grace period.
+ *
+ * The data itself is not loaded by Hibernate, it is streamed via JDBC by the
+ * attachment file DAO.
+ */
+@SuppressWarnings("serial")
+public class AttachmentContent implements Serializable {
+
+    private String hash;
+
+    private long size;
+
+    /**
+     * Time in milliseconds the content was stored or referenced the last time
+     */
+    private Long referenced;
+
+    @SuppressWarnings("unused")
+    private byte[] data;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public Long getReferenced() {
+        return referenced;
+    }
+
+    public void setReferenced(Long referenced) {
+        this.referenced = referenced;
+    }
+
+    @Override
+    public int hashCode() {
+        return (hash == null) ? 0 : hash.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        AttachmentContent other = (AttachmentContent) obj;
+        return (hash == null) ? other.hash == null : hash.equals(other.hash);
+    }
+}
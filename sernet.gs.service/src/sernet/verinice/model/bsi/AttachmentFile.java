@@ -40,6 +40,16 @@ public class AttachmentFile implements Serializable, ITypedElement {
 
 	private byte[] fileData;
 
+    /**
+     * SHA-256 hash of the file data, references an {@link AttachmentContent}
+     */
+    private String contentHash;
+
+    /**
+     * File data saved before attachment contents were deduplicated, the server
+     * moves it to an {@link AttachmentContent} on the next write
+     */
+    private transient byte[] storedFileData;
 
     public static final String TYPE_ID = "attachmentfile";
 	
@@ -65,6 +75,14 @@ public class AttachmentFile implements Serializable, ITypedElement {
 	}
 	
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
 	public void writeFileData(String path) throws IOException {
 		FileOutputStream fos = new FileOutputStream(path);
 		fos.write(getFileData());
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.model.common;
+
+import java.io.Serializable;
+
+/**
+ * Notification that a cached collection was changed on one server node, so
+ * that the other nodes evict the collection from their second level cache.
+ *
+ * The collection is identified by its role (e.g.
+ * sernet.verinice.model.common.CnATreeElement.linksUp) and the db id of the
+ * owning element. The owner id is null if all collections of a role are
+ * invalidated.
+ */
+@SuppressWarnings("serial")
+public class CacheInvalidation implements Serializable {
+
+    private Integer dbId;
+    private String nodeId;
+    private String role;
+    private Integer ownerId;
+    private long created;
+
+    CacheInvalidation() {
+        // default constructor for hibernate
+    }
+
+    public CacheInvalidation(String role, Integer ownerId) {
+        this.role = role;
+        this.ownerId = ownerId;
+    }
+
+    public Integer getDbId() {
+        return dbId;
+    }
+
+    public void setDbId(Integer dbId) {
+        this.dbId = dbId;
+    }
+
+    /**
+     * @return Id of the server node which changed the collection
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public Integer getOwnerId() {
+        return ownerId;
+    }
+
+    public void setOwnerId(Integer ownerId) {
+        this.ownerId = ownerId;
+    }
+
+    /**
+     * @return Time of the change in milliseconds, set by the changing node
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public void setCreated(long created) {
+        this.created = created;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidation [role=" + role + ", ownerId=" + ownerId + ", nodeId=" + nodeId
+                + "]";
+    }
+}
@@ -24,6 +24,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -41,9 +42,12 @@ import org.hibernate.criterion.Restrictions;
 import sernet.gs.service.CollectionUtil;
 import sernet.gs.service.RetrieveInfo;
 import sernet.gs.service.RuntimeCommandException;
+import sernet.gs.service.TimeFormatter;
 import sernet.hui.common.connect.HitroUtil;
 import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.interfaces.GenericCommand;
+import sernet.verinice.interfaces.IAuthAwareCommand;
+import sernet.verinice.interfaces.IAuthService;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.IDao;
 import sernet.verinice.interfaces.IPostProcessor;
@@ -52,23 +56,33 @@ import sernet.verinice.model.bsi.AttachmentFile;
 import sernet.verinice.model.bsi.risikoanalyse.FinishedRiskAnalysis;
 import sernet.verinice.model.bsi.risikoanalyse.FinishedRiskAnalysisLists;
 import sernet.verinice.model.bsi.risikoanalyse.GefaehrdungsUmsetzung;
+import sernet.verinice.model.common.ChangeLogEntry;
 import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.model.common.Permission;
 
 /**
  * Copies a list of elements with all children to a group. Element types in
  * BLACKLIST are ignored.
  *
- * CopyCommand uses command SaveElement to save element copies. SaveElement is a
- * IChangeLoggingCommand and logs all changes from CopyCommand
+ * The copies are created directly with the DAO instead of executing a
+ * CreateElement and a SaveElement command for every element. All elements of
+ * the copied subtrees and their attachments are loaded in bulk before copying.
+ * The Hibernate session is flushed and cleared in batches and an insert entry
+ * is written to the change log for every copy batch by batch. The batch size
+ * is set by {@link #setBatchSize(int)} or command property "batchSize".
  *
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
-public class CopyCommand extends GenericCommand {
+public class CopyCommand extends GenericCommand implements IAuthAwareCommand {
 
     private static final long serialVersionUID = 4810890094775605851L;
 
     private static final Logger logger = Logger.getLogger(CopyCommand.class);
 
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final String PROPERTY_BATCH_SIZE = "batchSize";
+
     private String uuidGroup;
 
     private transient CnATreeElement groupToPasteTo;
@@ -81,11 +95,25 @@ public class CopyCommand extends GenericCommand {
 
     private transient IBaseDao<CnATreeElement, Serializable> dao;
 
+    private transient IAuthService authService;
+
     private List<String> newElements;
 
     private boolean copyAttachments = false;
 
-    private Map<Integer, List<CnATreeElement>> elementsByParentId;
+    private transient Map<Integer, List<CnATreeElement>> elementsByParentId;
+
+    private transient Map<Integer, List<Attachment>> attachmentsByElementId;
+
+    private transient List<CnATreeElement> copiesOfBatch;
+
+    private int batchSize;
+
+    private int configuredBatchSize = 0;
+
+    private int numberOfElements;
+
+    private long startTime;
 
     /**
      * @param uuidGroup
@@ -115,6 +143,9 @@ public class CopyCommand extends GenericCommand {
     public void execute() {
         try {
             number = 0;
+            startTime = System.currentTimeMillis();
+            batchSize = getBatchSize();
+            copiesOfBatch = new ArrayList<>(batchSize);
             List<CnATreeElement> allElements = getDao()
                     .findByCriteria(DetachedCriteria.forClass(CnATreeElement.class)
                             .add(Restrictions.in(CnATreeElement.UUID, uuidList)));
@@ -125,44 +156,27 @@ public class CopyCommand extends GenericCommand {
             } else {
                 rootElementsToCopy = filterRoots(allElements);
             }
-            elementsByParentId = new HashMap<>();
-
-            for (CnATreeElement cnATreeElement : rootElementsToCopy) {
-                LoadSubtreeIds loadSubtreeIds = new LoadSubtreeIds(cnATreeElement);
-                Set<Integer> subTreeIds = getCommandService().executeCommand(loadSubtreeIds)
-                        .getDbIdsOfSubtree();
-                CollectionUtil.partition(new ArrayList<>(subTreeIds), IDao.QUERY_MAX_ITEMS_IN_LIST)
-                        .stream().forEach(partition -> {
-                            DetachedCriteria crit = DetachedCriteria.forClass(CnATreeElement.class)
-                                    .add(Restrictions.in("dbId", partition));
-                            RetrieveInfo.getPropertyInstance().configureCriteria(crit);
-                            List<CnATreeElement> allElementsInPartition = dao.findByCriteria(crit);
-                            Map<Integer, List<CnATreeElement>> allElementsInPartitionByParentId = allElementsInPartition
-                                    .stream()
-                                    .collect(Collectors.groupingBy(CnATreeElement::getParentId));
-                            allElementsInPartitionByParentId.forEach(
-                                    (parentId, childrenInCurrentPartition) -> elementsByParentId
-                                            .merge(parentId, childrenInCurrentPartition,
-                                                    (l1, l2) -> Stream
-                                                            .concat(l1.stream(), l2.stream())
-                                                            .collect(Collectors.toList())));
-                        });
-            }
+            rootElementsToCopy = loadSubtrees(rootElementsToCopy);
 
             newElements = new ArrayList<>(rootElementsToCopy.size());
             groupToPasteTo = getDao().findByUuid(uuidGroup,
-                    RetrieveInfo.getChildrenInstance().setParent(true).setProperties(true));
+                    RetrieveInfo.getChildrenInstance().setParent(true).setProperties(true)
+                            .setChildrenProperties(true).setPermissions(true));
             boolean postProcessorsPresent = postProcessorList != null
                     && !postProcessorList.isEmpty();
             Optional<Map<Integer, Integer>> sourceDestMap = postProcessorsPresent
                     ? Optional.of(new HashMap<>())
                     : Optional.empty();
+            Map<String, Set<String>> titlesInGroup = createTitleIndex(
+                    groupToPasteTo.getChildren());
             for (final CnATreeElement copyElement : rootElementsToCopy) {
-                final CnATreeElement newElement = copy(groupToPasteTo, copyElement, sourceDestMap);
+                final CnATreeElement newElement = copy(groupToPasteTo, copyElement,
+                        sourceDestMap, titlesInGroup);
                 if (newElement != null && newElement.getUuid() != null) {
                     newElements.add(newElement.getUuid());
                 }
             }
+            writeChangeLog();
             if (postProcessorsPresent) {
                 getDao().flush();
                 getDao().clear();
@@ -173,25 +187,76 @@ public class CopyCommand extends GenericCommand {
                             sourceDestMap.get());
                 }
             }
+            logProgress();
         } catch (final Exception e) {
             logger.error("Error while copying element", e); //$NON-NLS-1$
             throw new RuntimeCommandException("Error while copying element", e); //$NON-NLS-1$
         }
     }
 
+    /**
+     * Loads all elements of the subtrees of the root elements with their
+     * properties and groups them by parent id. The returned root elements are
+     * the instances loaded with properties. If attachments are copied, the
+     * attachments of all elements are loaded as well.
+     */
+    private List<CnATreeElement> loadSubtrees(List<CnATreeElement> rootElementsToCopy)
+            throws CommandException {
+        elementsByParentId = new HashMap<>();
+        Map<Integer, CnATreeElement> loadedElementsById = new HashMap<>();
+        List<Integer> allSubtreeIds = new ArrayList<>();
+        for (CnATreeElement cnATreeElement : rootElementsToCopy) {
+            LoadSubtreeIds loadSubtreeIds = new LoadSubtreeIds(cnATreeElement);
+            Set<Integer> subTreeIds = getCommandService().executeCommand(loadSubtreeIds)
+                    .getDbIdsOfSubtree();
+            allSubtreeIds.addAll(subTreeIds);
+            CollectionUtil.partition(new ArrayList<>(subTreeIds), IDao.QUERY_MAX_ITEMS_IN_LIST)
+                    .stream().forEach(partition -> {
+                        DetachedCriteria crit = DetachedCriteria.forClass(CnATreeElement.class)
+                                .add(Restrictions.in("dbId", partition));
+                        RetrieveInfo.getPropertyInstance().configureCriteria(crit);
+                        List<CnATreeElement> allElementsInPartition = dao.findByCriteria(crit);
+                        allElementsInPartition.forEach(
+                                element -> loadedElementsById.put(element.getDbId(), element));
+                        Map<Integer, List<CnATreeElement>> allElementsInPartitionByParentId = allElementsInPartition
+                                .stream()
+                                .collect(Collectors.groupingBy(CnATreeElement::getParentId));
+                        allElementsInPartitionByParentId.forEach(
+                                (parentId, childrenInCurrentPartition) -> elementsByParentId
+                                        .merge(parentId, childrenInCurrentPartition,
+                                                (l1, l2) -> Stream
+                                                        .concat(l1.stream(), l2.stream())
+                                                        .collect(Collectors.toList())));
+                    });
+        }
+        numberOfElements = allSubtreeIds.size();
+        attachmentsByElementId = Collections.emptyMap();
+        if (copyAttachments && !allSubtreeIds.isEmpty()) {
+            attachmentsByElementId = getDaoFactory().getAttachmentDao()
+                    .loadAttachmentList(allSubtreeIds).stream()
+                    .collect(Collectors.groupingBy(
+                            attachment -> attachment.getCnATreeElement().getDbId()));
+        }
+        return rootElementsToCopy.stream()
+                .map(root -> loadedElementsById.getOrDefault(root.getDbId(), root))
+                .collect(Collectors.toList());
+    }
+
     private CnATreeElement copy(final CnATreeElement groupToCopyTo,
-            final CnATreeElement elementToCopy, final Optional<Map<Integer, Integer>> sourceDestMap)
-            throws CommandException, IOException {
+            final CnATreeElement elementToCopy, final Optional<Map<Integer, Integer>> sourceDestMap,
+            final Map<String, Set<String>> titlesInGroup) throws CommandException, IOException {
         CnATreeElement elementCopy = elementToCopy;
         if (elementToCopy != null && elementToCopy.getTypeId() != null
                 && groupToCopyTo.canContain(elementToCopy)) {
             if (elementToCopy instanceof FinishedRiskAnalysis) {
-                elementCopy = copyRiskAnalysis(groupToCopyTo, elementToCopy, sourceDestMap);
+                elementCopy = copyRiskAnalysis(groupToCopyTo, elementToCopy, sourceDestMap,
+                        titlesInGroup);
                 afterCopy(elementToCopy, elementCopy, sourceDestMap);
             } else {
-                elementCopy = saveCopy(groupToCopyTo, elementToCopy);
+                elementCopy = saveCopy(groupToCopyTo, elementToCopy, titlesInGroup);
                 number++;
                 afterCopy(elementToCopy, elementCopy, sourceDestMap);
+                countCopy(elementCopy);
                 copyChildrenIfExistant(elementToCopy, sourceDestMap, elementCopy);
             }
         } else if (elementToCopy != null) {
@@ -204,11 +269,13 @@ public class CopyCommand extends GenericCommand {
     }
 
     private CnATreeElement copyRiskAnalysis(CnATreeElement group,
-            CnATreeElement finishedRiskAnalysis, Optional<Map<Integer, Integer>> sourceDestMap)
-            throws CommandException, IOException {
+            CnATreeElement finishedRiskAnalysis, Optional<Map<Integer, Integer>> sourceDestMap,
+            Map<String, Set<String>> titlesInGroup) throws CommandException, IOException {
 
-        CnATreeElement copyOfFinishedRiskAnalysis = saveCopy(group, finishedRiskAnalysis);
+        CnATreeElement copyOfFinishedRiskAnalysis = saveCopy(group, finishedRiskAnalysis,
+                titlesInGroup);
         number++;
+        copiesOfBatch.add(copyOfFinishedRiskAnalysis);
         copyFinishedRiskAnalysisLists((FinishedRiskAnalysis) finishedRiskAnalysis,
                 (FinishedRiskAnalysis) copyOfFinishedRiskAnalysis, sourceDestMap);
 
@@ -237,11 +304,11 @@ public class CopyCommand extends GenericCommand {
     private void copyAssociatedGefaehrdungen(FinishedRiskAnalysis copyOfFinishedRiskAnalysis,
             Optional<Map<Integer, Integer>> sourceDestMap, FinishedRiskAnalysisLists listsToCopy,
             FinishedRiskAnalysisLists newLists) throws CommandException, IOException {
-
+        Map<String, Set<String>> titlesInRiskAnalysis = new HashMap<>();
         for (GefaehrdungsUmsetzung gefaehrdung : listsToCopy.getAssociatedGefaehrdungen()) {
 
             GefaehrdungsUmsetzung newGefaehrdung = (GefaehrdungsUmsetzung) copy(
-                    copyOfFinishedRiskAnalysis, gefaehrdung, sourceDestMap);
+                    copyOfFinishedRiskAnalysis, gefaehrdung, sourceDestMap, titlesInRiskAnalysis);
             newLists.getAssociatedGefaehrdungen().add(newGefaehrdung);
             addToRAWizardListsIfNeccessary(listsToCopy, newLists, gefaehrdung, newGefaehrdung);
 
@@ -287,9 +354,10 @@ public class CopyCommand extends GenericCommand {
             throws CommandException, IOException {
         List<CnATreeElement> children = elementsByParentId.remove(element.getDbId());
         if (children != null) {
+            Map<String, Set<String>> titlesOfCopies = new HashMap<>();
             for (CnATreeElement child : children) {
                 if (copyDescendant(child, elementCopy)) {
-                    copy(elementCopy, child, sourceDestMap);
+                    copy(elementCopy, child, sourceDestMap, titlesOfCopies);
                 }
             }
         }
@@ -312,42 +380,52 @@ public class CopyCommand extends GenericCommand {
         return true;
     }
 
-    private CnATreeElement saveCopy(CnATreeElement toGroup, CnATreeElement copyElement)
-            throws CommandException, IOException {
+    /**
+     * By default, the Hibernate session is cleared after every batch of
+     * copies. Overwrite this method and return false if the copies must stay
+     * attached to the session until the command is finished.
+     */
+    protected boolean isSessionClearedAfterBatch() {
+        return true;
+    }
+
+    private CnATreeElement saveCopy(CnATreeElement toGroup, CnATreeElement copyElement,
+            Map<String, Set<String>> titlesInGroup) throws CommandException, IOException {
         copyElement = getDao().initializeAndUnproxy(copyElement);
-        CnATreeElement newElement = saveNew(toGroup, copyElement);
+        CnATreeElement newElement = createCopy(toGroup, copyElement);
         if (newElement.getEntity() != null) {
             newElement.getEntity().copyEntity(copyElement.getEntity());
             if (copyElement.getIconPath() != null) {
                 newElement.setIconPath(copyElement.getIconPath());
             }
-
-            if (toGroup.getChildren() != null && !toGroup.getChildren().isEmpty()) {
+            if (!titlesInGroup.isEmpty()) {
                 final String title = newElement.getTitle();
                 String prospectiveTitle = title;
                 if (newElement instanceof GefaehrdungsUmsetzung) {
                     prospectiveTitle = ((GefaehrdungsUmsetzung) newElement).getText();
                 }
-                String typeId = newElement.getTypeId();
-                Set<CnATreeElement> siblings = new HashSet<>(toGroup.getChildren());
-                siblings.remove(newElement);
-                siblings.removeIf(element -> !typeId.equals(element.getTypeId()));
-                newElement.setTitel(getUniqueTitle(title, prospectiveTitle, siblings, 0));
+                Set<String> siblingTitles = titlesInGroup.getOrDefault(newElement.getTypeId(),
+                        Collections.emptySet());
+                newElement.setTitel(getUniqueTitle(title, prospectiveTitle, siblingTitles));
             }
+            newElement.getEntity().trackCreation(getAuthService().getUsername());
+        }
+        IBaseDao<CnATreeElement, Serializable> elementDao = getDaoFactory()
+                .getDAOforTypedElement(newElement);
+        elementDao.saveOrUpdate(newElement);
+        if (newElement.isScope()) {
+            newElement.setScopeId(newElement.getDbId());
+            elementDao.saveOrUpdate(newElement);
         }
-        SaveElement<CnATreeElement> saveCommand = new SaveElement<>(newElement);
-        saveCommand = getCommandService().executeCommand(saveCommand);
-        newElement = saveCommand.getElement();
-        newElement.setParentAndScope(toGroup);
+        toGroup.addChild(newElement);
+        addTitle(titlesInGroup, newElement);
         if (copyAttachments) {
-            LoadAttachments attachmentLoader = new LoadAttachments(copyElement.getDbId());
-            copyAttachments(newElement,
-                    getCommandService().executeCommand(attachmentLoader).getAttachmentList());
+            copyAttachments(newElement, attachmentsByElementId
+                    .getOrDefault(copyElement.getDbId(), Collections.emptyList()));
         }
         if (logger.isDebugEnabled()) {
             logger.debug("Copy created: " + newElement.getTitle()); //$NON-NLS-1$
         }
-        newElement.setChildren(new HashSet<CnATreeElement>());
         return newElement;
     }
 
@@ -372,10 +450,9 @@ public class CopyCommand extends GenericCommand {
             throws CommandException, IOException {
         final Attachment newAttachmentEntity = createAttachmentCopy(destinationElement, attachment);
         dao.saveOrUpdate(newAttachmentEntity);
-        LoadAttachmentFile attachmentFileLoader = new LoadAttachmentFile(attachment.getDbId());
-        attachmentFileLoader = getCommandService().executeCommand(attachmentFileLoader);
-        AttachmentFileCreationFactory.createAttachmentFile(newAttachmentEntity,
-                attachmentFileLoader.getAttachmentFile().getFileData());
+        // references the content of the source instead of copying the bytes
+        getDaoFactory().getAttachmentFileDao().copyFileData(attachment.getDbId(),
+                newAttachmentEntity.getDbId());
     }
 
     /**
@@ -391,21 +468,86 @@ public class CopyCommand extends GenericCommand {
         return newAttachmentEntity;
     }
 
-    @SuppressWarnings("unchecked")
-    private CnATreeElement saveNew(final CnATreeElement container, final CnATreeElement element)
-            throws CommandException {
-        final String title = HitroUtil.getInstance().getTypeFactory()
-                .getMessage(element.getTypeId());
-        CreateElement<CnATreeElement> saveCommand = new CreateElement<>(container,
-                (Class<CnATreeElement>) element.getClass(), title, true, false);
-        saveCommand.setInheritAuditPermissions(true);
-        saveCommand = getCommandService().executeCommand(saveCommand);
-        final CnATreeElement child = saveCommand.getNewElement();
-        container.addChild(child);
+    /**
+     * Creates a new instance of the class of element in the container with
+     * the same permissions CreateElement would grant. The instance is not
+     * saved.
+     */
+    private CnATreeElement createCopy(final CnATreeElement container,
+            final CnATreeElement element) throws CommandException {
+        CnATreeElement child;
+        try {
+            child = element.getClass().getConstructor(CnATreeElement.class)
+                    .newInstance(container);
+        } catch (ReflectiveOperationException e) {
+            throw new CommandException("Can not create copy of element: " + element.getUuid(), e);
+        }
+        child.setTitel(HitroUtil.getInstance().getTypeFactory().getMessage(element.getTypeId()));
         child.setParentAndScope(container);
+        if (getAuthService().isPermissionHandlingNeeded()) {
+            if (child.isScope()) {
+                Set<Permission> permissions = new HashSet<>();
+                permissions.add(Permission.createPermission(child,
+                        getAuthService().getUsername(), true, true));
+                child.setPermissions(permissions);
+            } else {
+                child.setPermissions(
+                        Permission.clonePermissionSet(child, container.getPermissions()));
+            }
+        }
         return child;
     }
 
+    /**
+     * Counts a copy and writes the change log and flushes the session if the
+     * batch is complete.
+     */
+    private void countCopy(CnATreeElement copy) {
+        copiesOfBatch.add(copy);
+        if (copiesOfBatch.size() >= batchSize) {
+            writeChangeLog();
+            getDao().flush();
+            if (isSessionClearedAfterBatch()) {
+                getDao().clear();
+            }
+            logProgress();
+        }
+    }
+
+    private void writeChangeLog() {
+        IBaseDao<ChangeLogEntry, Serializable> changeLogDao = getDaoFactory()
+                .getDAO(ChangeLogEntry.class);
+        Date now = new Date();
+        for (CnATreeElement copy : copiesOfBatch) {
+            changeLogDao.saveOrUpdate(new ChangeLogEntry(copy, ChangeLogEntry.TYPE_INSERT,
+                    getAuthService().getUsername(), ChangeLogEntry.STATION_ID, now));
+        }
+        copiesOfBatch.clear();
+    }
+
+    private void logProgress() {
+        if (logger.isInfoEnabled()) {
+            logger.info(number + " of " + numberOfElements + " elements copied in "
+                    + TimeFormatter.getHumanRedableTime(System.currentTimeMillis() - startTime));
+        }
+    }
+
+    private int getBatchSize() {
+        if (configuredBatchSize > 0) {
+            return configuredBatchSize;
+        }
+        String batchSizeProperty = getProperties().getProperty(PROPERTY_BATCH_SIZE);
+        if (batchSizeProperty == null || batchSizeProperty.trim().isEmpty()) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(batchSizeProperty.trim()));
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid copy batch size: " + batchSizeProperty + ", using default.");
+            return DEFAULT_BATCH_SIZE;
+        }
+    }
+
     /**
      * Returns a list with elements filtered out that are descendants of other
      * items of the list
@@ -423,25 +565,41 @@ public class CopyCommand extends GenericCommand {
         }).collect(Collectors.toList());
     }
 
+    /**
+     * Returns the titles of the elements grouped by type id.
+     */
+    private static Map<String, Set<String>> createTitleIndex(Collection<CnATreeElement> elements) {
+        Map<String, Set<String>> titlesByTypeId = new HashMap<>();
+        if (elements != null) {
+            elements.forEach(element -> addTitle(titlesByTypeId, element));
+        }
+        return titlesByTypeId;
+    }
+
+    private static void addTitle(Map<String, Set<String>> titlesByTypeId,
+            CnATreeElement element) {
+        if (element != null && element.getTitle() != null) {
+            titlesByTypeId.computeIfAbsent(element.getTypeId(), typeId -> new HashSet<>())
+                    .add(element.getTitle());
+        }
+    }
+
     /**
      * Returns a unique title compared to titles of all siblings
      * 
      * @param Title
      *            A title of an element
-     * @param siblings
-     *            Siblings of the element
+     * @param siblingTitles
+     *            Titles of the siblings of the element with the same type
      * @return A unique title
      */
     private String getUniqueTitle(final String title, final String copyTitle,
-            final Set<CnATreeElement> siblings, final int n) {
-        final String result = copyTitle;
-        int nLocal = n;
-        for (final CnATreeElement sibling : siblings) {
-            if (sibling != null && sibling.getTitle() != null
-                    && (sibling.getTitle().equals(copyTitle))) {
-                nLocal++;
-                return getUniqueTitle(title, getCopyTitle(title, nLocal), siblings, nLocal);
-            }
+            final Set<String> siblingTitles) {
+        String result = copyTitle;
+        int n = 0;
+        while (siblingTitles.contains(result)) {
+            n++;
+            result = getCopyTitle(title, n);
         }
         return result;
     }
@@ -492,6 +650,25 @@ public class CopyCommand extends GenericCommand {
         return dao;
     }
 
+    @Override
+    public IAuthService getAuthService() {
+        return authService;
+    }
+
+    @Override
+    public void setAuthService(IAuthService authService) {
+        this.authService = authService;
+    }
+
+    /**
+     * @param batchSize
+     *            Number of copies after which the session is flushed, if 0
+     *            command property "batchSize" is used
+     */
+    public void setBatchSize(int batchSize) {
+        this.configuredBatchSize = batchSize;
+    }
+
     public List<String> getNewElements() {
         return newElements;
     }
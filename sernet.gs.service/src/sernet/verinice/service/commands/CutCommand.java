@@ -22,6 +22,7 @@ package sernet.verinice.service.commands;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
@@ -38,6 +39,7 @@ import sernet.verinice.interfaces.ElementChange;
 import sernet.verinice.interfaces.GenericCommand;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.IChangeLoggingCommand;
+import sernet.verinice.interfaces.IHierarchyIndex;
 import sernet.verinice.interfaces.IPostProcessor;
 import sernet.verinice.model.common.ChangeLogEntry;
 import sernet.verinice.model.common.CnATreeElement;
@@ -210,11 +212,18 @@ public class CutCommand extends GenericCommand implements IChangeLoggingCommand
      * Creates a list of elements. First all elements are loaded by UUID. A
      * child will be removed from the list if it's parent is already a member.
      * 
+     * The ancestors are taken from the {@link IHierarchyIndex} if it is
+     * available, the subtrees of the elements are loaded otherwise.
+     * 
      * @param uuidList
      *            A list of element UUID
      * @return List of elements
      */
     protected List<CnATreeElement> createInsertList(List<String> uuidList) {
+        List<CnATreeElement> indexedList = createInsertListByIndex(uuidList);
+        if (indexedList != null) {
+            return indexedList;
+        }
         List<CnATreeElement> tempList = new ArrayList<>();
         List<CnATreeElement> insertList = new ArrayList<>();
         int depth = 0;
@@ -226,6 +235,38 @@ public class CutCommand extends GenericCommand implements IChangeLoggingCommand
         return insertList;
     }
 
+    /**
+     * @return The elements without ancestors in the list or null if the
+     *         hierarchy index can not answer for all elements
+     */
+    private List<CnATreeElement> createInsertListByIndex(List<String> uuidList) {
+        IHierarchyIndex hierarchyIndex = getDaoFactory().getHierarchyIndex();
+        if (hierarchyIndex == null) {
+            return null;
+        }
+        List<CnATreeElement> elements = new ArrayList<>(uuidList.size());
+        Set<Integer> dbIds = new HashSet<>();
+        for (String uuid : uuidList) {
+            CnATreeElement element = getDao().findByUuid(uuid,
+                    RetrieveInfo.getChildrenInstance().setParent(true));
+            if (dbIds.add(element.getDbId())) {
+                elements.add(element);
+            }
+        }
+        List<CnATreeElement> insertList = new ArrayList<>(elements.size());
+        for (CnATreeElement element : elements) {
+            List<Integer> ancestorIds = hierarchyIndex.getAncestorIds(element.getScopeId(),
+                    element.getDbId());
+            if (ancestorIds == null) {
+                return null;
+            }
+            if (Collections.disjoint(ancestorIds, dbIds)) {
+                insertList.add(element);
+            }
+        }
+        return insertList;
+    }
+
     private void createInsertList(CnATreeElement element, List<CnATreeElement> tempList,
             List<CnATreeElement> insertList, int depth) {
         if (!tempList.contains(element)) {
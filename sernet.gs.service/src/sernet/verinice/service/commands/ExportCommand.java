@@ -19,20 +19,24 @@
 
 package sernet.verinice.service.commands;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
@@ -41,13 +45,12 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Restrictions;
 
-import de.sernet.sync.data.SyncData;
+import de.sernet.sync.data.SyncLink;
 import de.sernet.sync.data.SyncObject;
 import de.sernet.sync.mapping.SyncMapping;
 import de.sernet.sync.mapping.SyncMapping.MapObjectType;
 import de.sernet.sync.mapping.SyncMapping.MapObjectType.MapAttributeType;
 import de.sernet.sync.risk.Risk;
-import de.sernet.sync.sync.SyncRequest;
 import de.sernet.sync.sync.SyncRequest.SyncVnaSchemaVersion;
 import sernet.gs.service.RetrieveInfo;
 import sernet.gs.service.RuntimeCommandException;
@@ -57,6 +60,7 @@ import sernet.hui.common.connect.HUITypeFactory;
 import sernet.hui.common.connect.PropertyType;
 import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.interfaces.GenericCommand;
+import sernet.verinice.interfaces.IAttachmentFileDao;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.IChangeLoggingCommand;
 import sernet.verinice.model.bsi.Attachment;
@@ -73,6 +77,17 @@ import sernet.verinice.service.sync.VnaSchemaVersion;
 /**
  * Creates an VNA or XML representation for the given list of CnATreeElements.
  * 
+ * The XML is streamed element by element with a {@link SyncRequestWriter}, the
+ * archive is written entry by entry. By default the result is buffered in a
+ * temporary file and returned as byte[] by {@link #getResult()}. Callers in
+ * the same VM as the command service (e.g. verinice standalone) can set an
+ * output stream with {@link #setOutputStream(OutputStream)} to write the
+ * export directly to a file without holding it in memory.
+ * 
+ * Links and attachment file names are kept as plain values, the Hibernate
+ * session is cleared after each exported scope and periodically while
+ * attachment files are written.
+ * 
  * @author <andreas[at]becker[dot]name>
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
@@ -88,6 +103,7 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
     private Integer exportFormat;
     private Map<String, String> entityTypesBlackList;
     private Map<Class, Class> entityClassBlackList;
+    private transient OutputStream outputStream;
 
     // Result fields
     private byte[] result;
@@ -95,8 +111,8 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
     private final String stationId;
 
     // Fields used on server only
-    private transient Set<CnALink> linkSet;
-    private transient Set<Attachment> attachmentSet;
+    private transient Map<CnALink.Id, SyncLink> syncLinksById;
+    private transient Map<Integer, String> attachmentFileNamesById;
     private transient Set<Integer> riskAnalysisIdSet;
     private transient Set<EntityType> exportedEntityTypes;
     private transient Set<String> exportedTypes;
@@ -105,6 +121,12 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
     private transient IBaseDao<CnATreeElement, Serializable> dao;
     private transient Map<Integer, Collection<CnATreeElement>> elementsByParentId;
 
+    /**
+     * Number of attachment files written to the archive before the Hibernate
+     * session is cleared
+     */
+    private static final int ATTACHMENT_FLUSH_SIZE = 20;
+
     public ExportCommand(final List<CnATreeElement> elements, final String sourceId,
             final boolean reImport) {
         this(elements, sourceId, reImport, SyncParameter.EXPORT_FORMAT_DEFAULT);
@@ -120,14 +142,13 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
         } else {
             this.exportFormat = SyncParameter.EXPORT_FORMAT_DEFAULT;
         }
-        this.attachmentSet = new HashSet<>();
         this.stationId = ChangeLogEntry.STATION_ID;
     }
 
     private void createFields() {
         this.changedElements = new LinkedList<>();
-        this.linkSet = new HashSet<>();
-        this.attachmentSet = new HashSet<>();
+        this.syncLinksById = new HashMap<>();
+        this.attachmentFileNamesById = new LinkedHashMap<>();
         this.exportedElementIds = new HashSet<>();
         this.riskAnalysisIdSet = new HashSet<>();
         this.exportedTypes = new HashSet<>();
@@ -144,23 +165,10 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
     public void execute() {
         try {
             createFields();
-            SyncRequest syncRequest = export();
-            Risk risk = exportRiskAnalyses();
-            if (isReImport()) {
-                if (log.isInfoEnabled()) {
-                    log.info("Prepare reimport is enabled. Saving the IDS of "
-                            + changedElements.size() + " elements ...");
-                }
-                saveChangedElements();
-            }
-
-            if (isVeriniceArchive()) {
-                result = createVeriniceArchive(syncRequest, risk);
+            if (outputStream != null) {
+                writeExport(outputStream);
             } else {
-                try (final ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-                    ExportFactory.marshal(syncRequest, bos);
-                    result = bos.toByteArray();
-                }
+                result = writeExportToByteArray();
             }
         } catch (final RuntimeException re) {
             log.error("Runtime exception while exporting", re);
@@ -175,21 +183,41 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
 
     }
 
+    private byte[] writeExportToByteArray() throws CommandException, IOException {
+        File tempFile = File.createTempFile("verinice-export-", ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                writeExport(out);
+            }
+            return FileUtils.readFileToByteArray(tempFile);
+        } finally {
+            FileUtils.deleteQuietly(tempFile);
+        }
+    }
+
+    private void writeExport(OutputStream out) throws CommandException, IOException {
+        if (isVeriniceArchive()) {
+            writeVeriniceArchive(out);
+        } else {
+            writeSyncRequest(out);
+            saveChangedElementsForReImport();
+        }
+        out.flush();
+    }
+
     /**
      * Export (i.e. "create XML representation of" the given cnATreeElement and
      * its successors. For this, child elements are exported recursively. All
-     * elements that have been processed are returned as a list of
-     * {@code syncObject}s with their respective attributes, represented as
-     * {@code syncAttribute}s.
+     * elements that have been processed are written as {@code syncObject}s
+     * with their respective attributes, represented as {@code syncAttribute}s.
      * 
-     * @return XML representation of elements
      * @throws CommandException
      */
-    private SyncRequest export() throws CommandException {
-
+    private void writeSyncRequest(OutputStream out) throws CommandException {
         final SyncVnaSchemaVersion formatVersion = createVersionData();
 
-        final SyncData syncData = new SyncData();
+        SyncRequestWriter writer = new SyncRequestWriter(out);
+        writer.startRequest(sourceId);
 
         if (log.isInfoEnabled()) {
             log.info("Exporting elements...");
@@ -201,26 +229,24 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
                     .stream().filter(e -> e.getDbId().equals(element.getDbId())).findFirst()
                     .orElseThrow(() -> new RuntimeException(
                             "Requested object with db ID " + element.getDbId() + " not found."));
-            SyncObject exported = exportElement(elementWithProperties);
-            syncData.getSyncObject().add(exported);
+            exportElement(elementWithProperties, writer);
+            elementsByParentId.clear();
+            attachmentsByElementId = null;
+            // The scope is written, release the loaded elements
+            flushAndClearHibernateSession();
         }
 
         if (log.isInfoEnabled()) {
             log.info("Exporting links...");
         }
-        elementsByParentId.clear();
-        exportLinks(syncData);
+        exportLinks(writer);
+        syncLinksById.clear();
 
         final SyncMapping syncMapping = new SyncMapping();
         createMapping(syncMapping.getMapObjectType());
 
-        final SyncRequest syncRequest = new SyncRequest();
-        syncRequest.setSourceId(sourceId);
-        syncRequest.setSyncData(syncData);
-        syncRequest.setSyncMapping(syncMapping);
-        syncRequest.setSyncVnaSchemaVersion(formatVersion);
-
-        return syncRequest;
+        writer.endRequest(syncMapping, formatVersion);
+        writer.close();
     }
 
     private void loadData(Integer scopeId) {
@@ -272,11 +298,21 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
         @SuppressWarnings("unchecked")
         List<CnATreeElement> elementsWithLinks = getDao().findByCriteria(criteria);
         elementsWithLinks.forEach(element -> {
-            linkSet.addAll(element.getLinksDown());
-            linkSet.addAll(element.getLinksUp());
+            addLinks(element.getLinksDown());
+            addLinks(element.getLinksUp());
         });
     }
 
+    /**
+     * Creates the XML representation of links while the linked elements are
+     * attached to the Hibernate session.
+     */
+    private void addLinks(Collection<CnALink> links) {
+        for (CnALink link : links) {
+            syncLinksById.computeIfAbsent(link.getId(), id -> ExportFactory.createSyncLink(link));
+        }
+    }
+
     private SyncVnaSchemaVersion createVersionData() {
 
         final VnaSchemaVersion vnaSchemaVersion = getCommandService().getVnaSchemaVersion();
@@ -313,45 +349,46 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
         this.exportRiskAnalysis = exportRiskAnalysis;
     }
 
-    private SyncObject exportElement(final CnATreeElement element) throws CommandException {
+    private void exportElement(final CnATreeElement element, final SyncRequestWriter writer)
+            throws CommandException {
         final ExportTask task = new ExportTask(element);
         configureTask(task);
         SyncObject syncObject = task.export();
         getValuesFromTask(task);
-        syncObject.getChildren().addAll(exportChildren(task.getElement()));
-        return syncObject;
+        if (syncObject != null) {
+            writer.startObject(syncObject);
+            exportChildren(task.getElement(), writer);
+            writer.endObject(syncObject);
+        }
     }
 
-    private void exportLinks(final SyncData syncData) {
-        for (final CnALink link : linkSet) {
-            if (!exportedElementIds.contains(link.getId().getDependantId())) {
-                log.warn("Dependant of link not found. Check access rights. " + link.getId());
+    private void exportLinks(final SyncRequestWriter writer) {
+        for (final Map.Entry<CnALink.Id, SyncLink> entry : syncLinksById.entrySet()) {
+            CnALink.Id linkId = entry.getKey();
+            if (!exportedElementIds.contains(linkId.getDependantId())) {
+                log.warn("Dependant of link not found. Check access rights. " + linkId);
                 continue;
             }
-            if (!exportedElementIds.contains(link.getId().getDependencyId())) {
-                log.warn("Dependency of link not found. Check access rights. " + link.getId());
+            if (!exportedElementIds.contains(linkId.getDependencyId())) {
+                log.warn("Dependency of link not found. Check access rights. " + linkId);
                 continue;
             }
-            ExportFactory.transform(link, syncData.getSyncLink());
+            writer.writeLink(entry.getValue());
         }
     }
 
-    private Collection<? extends SyncObject> exportChildren(final CnATreeElement element)
+    private void exportChildren(final CnATreeElement element, final SyncRequestWriter writer)
             throws CommandException {
         if (log.isDebugEnabled()) {
             log.debug("Call exportChildren in ExportCommand hashcode " + this.hashCode()
                     + "for object " + element.getTitle());
         }
-        final Collection<CnATreeElement> children = getElementChildren(element);
+        final Collection<CnATreeElement> children = new ArrayList<>(
+                getElementChildren(element));
         if (FinishedRiskAnalysis.TYPE_ID.equals(element.getTypeId())) {
             children.addAll(getRiskAnalysisOrphanElements(element));
         }
 
-        if (children.isEmpty()) {
-            return Collections.emptySet();
-        }
-        final List<SyncObject> exportedChildren = new ArrayList<>(children.size());
-
         for (final CnATreeElement child : children) {
             if (log.isDebugEnabled()) {
                 log.debug("Create export job for child " + child.getDbId());
@@ -361,15 +398,16 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
 
             SyncObject exportedChild = task.export();
             if (exportedChild != null) {
-                exportedChildren.add(exportedChild);
+                writer.startObject(exportedChild);
                 if (checkElement(child)) {
-                    exportedChild.getChildren().addAll(exportChildren(task.getElement()));
+                    exportChildren(task.getElement(), writer);
                 }
+                writer.endObject(exportedChild);
             }
             getValuesFromTask(task);
         }
-
-        return exportedChildren;
+        // The subtree is written, release the children
+        elementsByParentId.remove(element.getDbId());
     }
 
     protected Collection<CnATreeElement> getElementChildren(final CnATreeElement element) {
@@ -396,48 +434,67 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
     }
 
     /**
-     * Creates the verinice archive after createXmlData() was called.
+     * Writes the verinice archive entry by entry to the output stream. The
+     * stream is finished but not closed.
      * 
-     * @return the verinice archive as byte[]
      * @throws CommandException
+     * @throws IOException
      */
-    private byte[] createVeriniceArchive(SyncRequest syncRequest, Risk risk)
-            throws CommandException {
-        try (final ByteArrayOutputStream byteOut = new ByteArrayOutputStream()) {
-            try (final ZipOutputStream zipOut = new ZipOutputStream(byteOut)) {
+    private void writeVeriniceArchive(OutputStream out) throws CommandException, IOException {
+        final ZipOutputStream zipOut = new ZipOutputStream(out);
+        zipOut.putNextEntry(new ZipEntry(VeriniceArchive.VERINICE_XML));
+        writeSyncRequest(zipOut);
+        zipOut.closeEntry();
+
+        Risk risk = exportRiskAnalyses();
+        if (risk != null) {
+            ExportFactory.createZipEntry(zipOut, VeriniceArchive.RISK_XML, risk);
+        }
+        saveChangedElementsForReImport();
 
-                ExportFactory.createZipEntry(zipOut, VeriniceArchive.VERINICE_XML, syncRequest);
-                if (isRiskAnalysis()) {
-                    ExportFactory.createZipEntry(zipOut, VeriniceArchive.RISK_XML, risk);
-                }
-                ExportFactory.createZipEntry(zipOut, VeriniceArchive.DATA_XSD,
-                        StreamFactory.getDataXsdAsStream());
-                ExportFactory.createZipEntry(zipOut, VeriniceArchive.MAPPING_XSD,
-                        StreamFactory.getMappingXsdAsStream());
-                ExportFactory.createZipEntry(zipOut, VeriniceArchive.SYNC_XSD,
-                        StreamFactory.getSyncXsdAsStream());
-                ExportFactory.createZipEntry(zipOut, VeriniceArchive.RISK_XSD,
-                        StreamFactory.getRiskXsdAsStream());
-                ExportFactory.createZipEntry(zipOut, VeriniceArchive.README_TXT,
-                        StreamFactory.getReadmeAsStream());
-
-                for (final Attachment attachment : getAttachmentSet()) {
-                    LoadAttachmentFile command = new LoadAttachmentFile(attachment.getDbId(), true);
-                    command = getCommandService().executeCommand(command);
-                    if (command.getAttachmentFile() != null
-                            && command.getAttachmentFile().getFileData() != null) {
-                        ExportFactory.createZipEntry(zipOut,
-                                ExportFactory.createZipFileName(attachment),
-                                command.getAttachmentFile().getFileData());
-                    }
-                    command.setAttachmentFile(null);
-                }
-                zipOut.closeEntry();
+        ExportFactory.createZipEntry(zipOut, VeriniceArchive.DATA_XSD,
+                StreamFactory.getDataXsdAsStream());
+        ExportFactory.createZipEntry(zipOut, VeriniceArchive.MAPPING_XSD,
+                StreamFactory.getMappingXsdAsStream());
+        ExportFactory.createZipEntry(zipOut, VeriniceArchive.SYNC_XSD,
+                StreamFactory.getSyncXsdAsStream());
+        ExportFactory.createZipEntry(zipOut, VeriniceArchive.RISK_XSD,
+                StreamFactory.getRiskXsdAsStream());
+        ExportFactory.createZipEntry(zipOut, VeriniceArchive.README_TXT,
+                StreamFactory.getReadmeAsStream());
+
+        writeAttachmentFiles(zipOut);
+        zipOut.closeEntry();
+        zipOut.finish();
+    }
+
+    /**
+     * Writes the file data of all exported attachments to the archive. The
+     * file data is streamed from the attachment store one by one, the
+     * Hibernate session is cleared periodically.
+     */
+    private void writeAttachmentFiles(final ZipOutputStream zipOut) throws IOException {
+        IAttachmentFileDao attachmentFileDao = getDaoFactory().getAttachmentFileDao();
+        int i = 0;
+        for (final Map.Entry<Integer, String> entry : attachmentFileNamesById.entrySet()) {
+            if (attachmentFileDao.getFileSize(entry.getKey()) >= 0) {
+                zipOut.putNextEntry(new ZipEntry(entry.getValue()));
+                attachmentFileDao.writeFileData(entry.getKey(), zipOut);
+            }
+            i++;
+            if (i % ATTACHMENT_FLUSH_SIZE == 0) {
+                flushAndClearHibernateSession();
             }
-            return byteOut.toByteArray();
-        } catch (final IOException e) {
-            log.error("Error while creating zip output stream", e);
-            throw new RuntimeCommandException(e);
+        }
+    }
+
+    private void saveChangedElementsForReImport() {
+        if (isReImport()) {
+            if (log.isInfoEnabled()) {
+                log.info("Prepare reimport is enabled. Saving the IDS of "
+                        + changedElements.size() + " elements ...");
+            }
+            saveChangedElements();
         }
     }
 
@@ -522,7 +579,10 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
     }
 
     private void getValuesFromTask(final ExportTask exportTask) {
-        attachmentSet.addAll(exportTask.getAttachmentSet());
+        for (Attachment attachment : exportTask.getAttachmentSet()) {
+            attachmentFileNamesById.put(attachment.getDbId(),
+                    ExportFactory.createZipFileName(attachment));
+        }
         exportedEntityTypes.addAll(exportTask.getExportedEntityTypes());
         exportedTypes.addAll(exportTask.getExportedTypes());
         changedElements.addAll(exportTask.getChangedElementList());
@@ -591,10 +651,27 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
         return getDaoFactory().getDAO(CnATreeElement.class);
     }
 
+    /**
+     * Returns the export as byte[] or null if an output stream was set by
+     * {@link #setOutputStream(OutputStream)}.
+     */
     public byte[] getResult() {
         return result;
     }
 
+    /**
+     * Sets a stream the export is written to instead of returning it by
+     * {@link #getResult()}. The stream is flushed but not closed. This works
+     * only if the command service runs in the same VM as the caller, the
+     * stream is not transferred to a remote command service.
+     * 
+     * @param outputStream
+     *            A stream to a file or an HTTP response
+     */
+    public void setOutputStream(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
     protected HUITypeFactory getHuiTypeFactory() {
         return (HUITypeFactory) VeriniceContext.get(VeriniceContext.HUI_TYPE_FACTORY);
     }
@@ -641,11 +718,4 @@ public class ExportCommand extends GenericCommand implements IChangeLoggingComma
         this.exportFormat = exportFormat;
     }
 
-    public Set<Attachment> getAttachmentSet() {
-        if (attachmentSet == null) {
-            attachmentSet = new HashSet<>();
-        }
-        return attachmentSet;
-    }
-
 }
@@ -68,6 +68,16 @@ public final class ExportFactory {
      * @param link
      */
     public static void transform(CnALink link, List<SyncLink> syncLinkXmlList) {
+        syncLinkXmlList.add(createSyncLink(link));
+    }
+
+    /**
+     * Creates a SyncLink instance out of a {@link CnALink} instance.
+     * 
+     * @param link
+     * @return a SyncLink for the link
+     */
+    public static SyncLink createSyncLink(CnALink link) {
         SyncLink syncLink = new SyncLink();
         syncLink.setDependant(ExportFactory.createExtId(link.getDependant()));
         syncLink.setDependency(ExportFactory.createExtId(link.getDependency()));
@@ -75,7 +85,7 @@ public final class ExportFactory {
         if (link.getComment() != null && !link.getComment().isEmpty()) {
             syncLink.setComment(link.getComment());
         }
-        syncLinkXmlList.add(syncLink);
+        return syncLink;
     }
 
     /**
@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.commands;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
+
+import sernet.gs.service.RetrieveInfo;
+import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.model.common.CnATreeElement;
+
+/**
+ * A map from ext-id to element which keeps only the database id of the
+ * elements. Elements are loaded from the database when they are requested and
+ * cached until {@link #clearLoadedElements()} is called, which must be done
+ * whenever the Hibernate session is cleared.
+ * 
+ * This map is used by the streaming import instead of a map holding all
+ * imported elements.
+ */
+final class ExtIdElementMap extends AbstractMap<String, CnATreeElement> {
+
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final Map<String, Integer> dbIdsByExtId = new HashMap<>();
+    private final Map<Integer, CnATreeElement> loadedElements = new HashMap<>();
+    private final IBaseDao<CnATreeElement, Serializable> dao;
+
+    ExtIdElementMap(IBaseDao<CnATreeElement, Serializable> dao) {
+        this.dao = dao;
+    }
+
+    @Override
+    public CnATreeElement put(String extId, CnATreeElement element) {
+        Integer previousDbId = dbIdsByExtId.put(extId, element.getDbId());
+        loadedElements.put(element.getDbId(), element);
+        return previousDbId == null ? null : loadedElements.get(previousDbId);
+    }
+
+    @Override
+    public CnATreeElement get(Object extId) {
+        Integer dbId = dbIdsByExtId.get(extId);
+        if (dbId == null) {
+            return null;
+        }
+        return loadedElements.computeIfAbsent(dbId,
+                id -> dao.retrieve(id, RetrieveInfo.getPropertyInstance()));
+    }
+
+    @Override
+    public boolean containsKey(Object extId) {
+        return dbIdsByExtId.containsKey(extId);
+    }
+
+    @Override
+    public int size() {
+        return dbIdsByExtId.size();
+    }
+
+    /**
+     * Loads the elements with the given ext-ids which are not loaded yet with
+     * as few queries as possible.
+     */
+    void load(Collection<String> extIds, RetrieveInfo retrieveInfo) {
+        List<Integer> dbIds = extIds.stream().map(dbIdsByExtId::get)
+                .filter(dbId -> dbId != null && !loadedElements.containsKey(dbId)).distinct()
+                .collect(Collectors.toList());
+        for (int i = 0; i < dbIds.size(); i += MAX_IDS_PER_QUERY) {
+            List<Integer> partition = new ArrayList<>(
+                    dbIds.subList(i, Math.min(i + MAX_IDS_PER_QUERY, dbIds.size())));
+            DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class)
+                    .add(Restrictions.in("dbId", partition));
+            retrieveInfo.configureCriteria(criteria);
+            @SuppressWarnings("unchecked")
+            List<CnATreeElement> elements = dao.findByCriteria(criteria);
+            elements.forEach(element -> loadedElements.put(element.getDbId(), element));
+        }
+    }
+
+    /**
+     * Forgets the loaded elements. The ext-id index is kept.
+     */
+    void clearLoadedElements() {
+        loadedElements.clear();
+    }
+
+    @Override
+    public Set<Entry<String, CnATreeElement>> entrySet() {
+        return new AbstractSet<Entry<String, CnATreeElement>>() {
+
+            @Override
+            public Iterator<Entry<String, CnATreeElement>> iterator() {
+                Iterator<String> extIds = dbIdsByExtId.keySet().iterator();
+                return new Iterator<Entry<String, CnATreeElement>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return extIds.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, CnATreeElement> next() {
+                        String extId = extIds.next();
+                        return new SimpleImmutableEntry<>(extId, get(extId));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return dbIdsByExtId.size();
+            }
+        };
+    }
+}
@@ -22,9 +22,7 @@ import java.sql.SQLException;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 import org.hibernate.HibernateException;
 import org.hibernate.Query;
@@ -74,23 +72,16 @@ class GetChangedElementsSince extends GenericCommand {
     public void execute() {
         IBaseDao<ChangeLogEntry, Serializable> dao = getDaoFactory().getDAO(ChangeLogEntry.class);
 
-        List<ChangeLogEntry> entries = (List<ChangeLogEntry>) dao.findByCallback(new Callback(keydate, type, classNames));
+        List<Integer> ids = (List<Integer>) dao.findByCallback(new Callback(keydate, type, classNames));
 
         try {
-            hydrateChangedItems(entries);
+            hydrateChangedItems(ids);
         } catch (CommandException e) {
             throw new RuntimeException("Error retrieving changed elements.", e);
         }
     }
 
-    private void hydrateChangedItems(List<ChangeLogEntry> entries) throws CommandException {
-        Set<Integer> ids = new HashSet<Integer>(entries.size());
-        for (ChangeLogEntry logEntry : entries) {
-            if (logEntry.getElementId() != null){
-                ids.add(logEntry.getElementId());
-            }
-        }
-
+    private void hydrateChangedItems(List<Integer> ids) throws CommandException {
         if (ids.isEmpty()) {
             changedElements = Collections.emptyList();
         } else {        
@@ -117,7 +108,10 @@ class GetChangedElementsSince extends GenericCommand {
 
         public Object doInHibernate(Session session) throws HibernateException, SQLException {
 
-            Query query = session.createQuery("from ChangeLogEntry entry " +
+            // select the ids only, the range on the indexed changetime
+            // column restricts the scanned entries
+            Query query = session.createQuery("select distinct entry.elementId " +
+                    "from ChangeLogEntry entry " +
                     "where entry.changetime > :keydate " +
                     "and entry.elementId is not null " +
                     "and entry.change= :type " +
@@ -20,12 +20,26 @@
 package sernet.verinice.service.commands;
 
 import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
 
 import sernet.gs.service.RetrieveInfo;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IHierarchyIndex;
 import sernet.verinice.model.common.CnATreeElement;
 
 /**
+ * Loads an element and all of its ancestors up to the root of the tree.
+ * 
+ * The ancestors in the scope of the element are taken from the
+ * {@link IHierarchyIndex} and loaded with one query. Ancestors outside of the
+ * scope, or all ancestors if the index is not available, are loaded parent by
+ * parent.
+ * 
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  * 
  */
@@ -61,10 +75,45 @@ public class LoadAncestors extends LoadElementByUuid {
     public void execute() {
         super.execute();
         if (getElement() != null) {
-            loadParent(getElement());
+            loadParent(loadIndexedAncestors(getElement()));
         }
     }
 
+    /**
+     * Sets the ancestors in the scope of the element which are found in the
+     * hierarchy index.
+     * 
+     * @return The topmost ancestor which was set or the element
+     */
+    private CnATreeElement loadIndexedAncestors(CnATreeElement element) {
+        IHierarchyIndex hierarchyIndex = getDaoFactory().getHierarchyIndex();
+        List<Integer> ancestorIds = hierarchyIndex == null ? null
+                : hierarchyIndex.getAncestorIds(element.getScopeId(), element.getDbId());
+        if (ancestorIds == null || ancestorIds.isEmpty()) {
+            return element;
+        }
+        DetachedCriteria criteria = DetachedCriteria.forClass(CnATreeElement.class);
+        criteria.add(Restrictions.in("dbId", ancestorIds));
+        ri.configureCriteria(criteria);
+        @SuppressWarnings("unchecked")
+        List<CnATreeElement> ancestors = getElementDao().findByCriteria(criteria);
+        Map<Integer, CnATreeElement> ancestorsById = new HashMap<>(ancestors.size());
+        for (CnATreeElement ancestor : ancestors) {
+            ancestorsById.put(ancestor.getDbId(), ancestor);
+        }
+        CnATreeElement child = element;
+        for (Integer ancestorId : ancestorIds) {
+            CnATreeElement ancestor = ancestorsById.get(ancestorId);
+            if (ancestor == null) {
+                // changed since the index was loaded, load the rest by parent
+                break;
+            }
+            child.setParent(ancestor);
+            child = ancestor;
+        }
+        return child;
+    }
+
     /**
      * @param parent
      */
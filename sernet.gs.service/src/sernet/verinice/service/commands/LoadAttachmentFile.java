@@ -24,6 +24,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Iterator;
 
@@ -48,6 +49,10 @@ import sernet.verinice.model.common.CnATreeElement;
  * For images you can set a scale-size. If set images are scaled before send to the
  * client. Width or height is set to the scale-size by keeping the ratio.
  * 
+ * Server side callers can set an output stream with
+ * {@link #setOutputStream(OutputStream)}. The content is then streamed from the
+ * database to the stream without loading it into memory.
+ * 
  * @see LoadAttachment
  * @see AttachmentFile
  * @author Daniel Murygin <dm[at]sernet[dot]de>
@@ -67,6 +72,11 @@ public class LoadAttachmentFile extends GenericCommand {
 	// Width or height is set to the scale-size by keeping the ratio.
 	private Integer scaleSize;
 
+	private transient OutputStream outputStream;
+
+	// Number of bytes written to the output stream, -1 if there is no content
+	private long fileSize = -1;
+
 	public LoadAttachmentFile(Integer dbId) {
 		this(dbId,false);	
 	}
@@ -87,6 +97,10 @@ public class LoadAttachmentFile extends GenericCommand {
 		if (log.isDebugEnabled()) {
 			log.debug("executing, id is: " + getDbId() + "...");
 		}
+		if(getDbId()!=null && outputStream!=null && scaleSize==null) {
+		    fileSize = getDaoFactory().getAttachmentFileDao().writeFileData(getDbId(), outputStream);
+		    return;
+		}
 		if(getDbId()!=null) {
 			IBaseDao<AttachmentFile, Serializable> dao = getDaoFactory().getDAO(AttachmentFile.class);		
 			setAttachmentFile(dao.retrieve(getDbId(),null));	
@@ -231,4 +245,25 @@ public class LoadAttachmentFile extends GenericCommand {
 		this.attachmentFile = attachmentFile;
 	}
 
+    /**
+     * Sets a stream the content is written to instead of returning it by
+     * {@link #getAttachmentFile()}. The stream is not closed. This works only
+     * if the command is executed on the server side and if no scale-size is
+     * set.
+     * 
+     * @param outputStream
+     *            A stream to a file or an HTTP response
+     */
+    public void setOutputStream(OutputStream outputStream) {
+        this.outputStream = outputStream;
+    }
+
+    /**
+     * @return The number of bytes written to the output stream or -1 if the
+     *         attachment has no content
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
 }
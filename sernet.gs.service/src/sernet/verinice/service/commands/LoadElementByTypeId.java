@@ -21,10 +21,11 @@ import java.util.List;
 
 import sernet.gs.service.RetrieveInfo;
 import sernet.verinice.interfaces.GenericCommand;
+import sernet.verinice.interfaces.IReadOnlyCommand;
 import sernet.verinice.model.common.CnATreeElement;
 
 @SuppressWarnings("serial")
-public class LoadElementByTypeId extends GenericCommand {
+public class LoadElementByTypeId extends GenericCommand implements IReadOnlyCommand {
 
     private String typeId;
     private RetrieveInfo ri;
@@ -25,9 +25,11 @@ import sernet.gs.service.RetrieveInfo;
 import sernet.gs.service.TimeFormatter;
 import sernet.verinice.interfaces.GenericCommand;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IReadOnlyCommand;
 import sernet.verinice.model.common.CnATreeElement;
 
-public class LoadElementByUuid<T extends CnATreeElement> extends GenericCommand {
+public class LoadElementByUuid<T extends CnATreeElement> extends GenericCommand
+        implements IReadOnlyCommand {
 
     private static final Logger log = Logger.getLogger(LoadElementByUuid.class);
 
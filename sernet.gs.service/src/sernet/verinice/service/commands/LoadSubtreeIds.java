@@ -32,13 +32,15 @@ import org.hibernate.criterion.Restrictions;
 
 import sernet.verinice.interfaces.GenericCommand;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IHierarchyIndex;
 import sernet.verinice.model.common.CnATreeElement;
 
 /**
  * Loads the database IDs of the subtree with the given element as root.
  * 
- * The command does not use recursion to load the IDs. The IDs are loaded with
- * only one SQL statement.
+ * The IDs are taken from the {@link IHierarchyIndex} of the scope if the index
+ * is available. Otherwise the command does not use recursion to load the IDs.
+ * The IDs are loaded with only one SQL statement.
  */
 public class LoadSubtreeIds extends GenericCommand {
 
@@ -67,6 +69,16 @@ public class LoadSubtreeIds extends GenericCommand {
     public void execute() {
         validateElement(this.element);
 
+        IHierarchyIndex hierarchyIndex = getDaoFactory().getHierarchyIndex();
+        if (hierarchyIndex != null) {
+            Set<Integer> indexedIds = hierarchyIndex.getSubtreeIds(element.getScopeId(),
+                    element.getDbId(), typeId);
+            if (indexedIds != null) {
+                dbIdsOfSubtree = indexedIds;
+                return;
+            }
+        }
+
         List<Object[]> parentChildRelationships = loadDbAndParentIdsOfScope(element.getScopeId());
         Map<Object, List<Object[]>> childIdsByParentId = parentChildRelationships.stream()
                 .collect(Collectors.groupingBy(item -> (Integer) item[1]));
@@ -25,6 +25,7 @@ import java.util.Map;
 import sernet.gs.service.RetrieveInfo;
 import sernet.verinice.interfaces.GenericCommand;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IReadOnlyCommand;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.common.ElementFilter;
 
@@ -32,7 +33,7 @@ import sernet.verinice.model.common.ElementFilter;
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  *
  */
-public class RetrieveCnATreeElement extends GenericCommand {
+public class RetrieveCnATreeElement extends GenericCommand implements IReadOnlyCommand {
 
     private static final long serialVersionUID = -2402504404366837672L;
 
@@ -37,6 +37,7 @@ import de.sernet.sync.risk.SyncRiskAnalysis;
 import de.sernet.sync.risk.SyncScenario;
 import de.sernet.sync.risk.SyncScenarioList;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IHierarchyIndex;
 import sernet.verinice.model.bsi.MassnahmenUmsetzung;
 import sernet.verinice.model.bsi.risikoanalyse.FinishedRiskAnalysisLists;
 import sernet.verinice.model.bsi.risikoanalyse.GefaehrdungsUmsetzung;
@@ -65,6 +66,7 @@ public class RiskAnalysisImporter {
     private IBaseDao<OwnGefaehrdung, Serializable> ownGefaehrdungDao;
     private IBaseDao<RisikoMassnahme, Serializable> risikoMassnahmeDao;
     private IBaseDao<CnATreeElement, Serializable> elementDao;
+    private IHierarchyIndex hierarchyIndex;
     
     /**
      * @param syncRiskAnalysisList
@@ -143,6 +145,9 @@ public class RiskAnalysisImporter {
                             return q.executeUpdate();
                         }
                     });
+                    if (hierarchyIndex != null) {
+                        hierarchyIndex.invalidate(control.getScopeId());
+                    }
                 }
             }
         }
@@ -261,4 +266,8 @@ public class RiskAnalysisImporter {
         this.elementDao = dao;
      }
 
+    public void setHierarchyIndex(IHierarchyIndex hierarchyIndex) {
+        this.hierarchyIndex = hierarchyIndex;
+    }
+
 }
@@ -184,10 +184,16 @@ public class SyncCommand extends GenericCommand
     }
 
     private void doInsertAndUpdate() throws CommandException {
+        // A streamed verinice.xml is read incrementally by the sub-command
+        boolean streaming = veriniceArchive.isStreamingSupported();
         SyncInsertUpdateCommand cmdInsertUpdate = new SyncInsertUpdateCommand(
-                veriniceArchive.getSourceId(), veriniceArchive.getSyncData(),
+                veriniceArchive.getSourceId(), streaming ? null : veriniceArchive.getSyncData(),
                 veriniceArchive.getSyncMapping(), getAuthService().getUsername(), parameter,
                 errors);
+        if (streaming) {
+            cmdInsertUpdate.setVeriniceArchive(veriniceArchive);
+        }
+        cmdInsertUpdate.setStationId(stationId);
         cmdInsertUpdate.setRisk(veriniceArchive.getSyncRiskAnalysis());
         cmdInsertUpdate.setTempDirName(veriniceArchive.getTempDirName());
         cmdInsertUpdate = getCommandService().executeCommand(cmdInsertUpdate);
@@ -197,8 +203,8 @@ public class SyncCommand extends GenericCommand
 
         importRootObjects = new HashSet<>(cmdInsertUpdate.getContainerMap().values());
         elementSet = cmdInsertUpdate.getElementSet();
-        importedElementUUIDs = Collections.unmodifiableSet(
-                elementSet.stream().map(CnATreeElement::getUuid).collect(Collectors.toSet()));
+        importedElementUUIDs = Collections
+                .unmodifiableSet(new HashSet<>(cmdInsertUpdate.getImportedElementUuids()));
         importRootObjectUUIDs = Collections.unmodifiableSet(importRootObjects.stream()
                 .map(CnATreeElement::getUuid).collect(Collectors.toSet()));
         inserted += cmdInsertUpdate.getInserted();
@@ -21,10 +21,15 @@ package sernet.verinice.service.commands;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -51,11 +56,13 @@ import de.sernet.sync.mapping.SyncMapping.MapObjectType;
 import de.sernet.sync.mapping.SyncMapping.MapObjectType.MapAttributeType;
 import de.sernet.sync.risk.Risk;
 import de.sernet.sync.risk.SyncRiskAnalysis;
+import sernet.gs.service.RetrieveInfo;
 import sernet.gs.service.RuntimeCommandException;
 import sernet.hui.common.VeriniceContext;
 import sernet.hui.common.connect.HUITypeFactory;
 import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.interfaces.GenericCommand;
+import sernet.verinice.interfaces.IAttachmentFileDao;
 import sernet.verinice.interfaces.IAuthAwareCommand;
 import sernet.verinice.interfaces.IAuthService;
 import sernet.verinice.interfaces.IBaseDao;
@@ -67,7 +74,6 @@ import sernet.verinice.model.bp.elements.ItNetwork;
 import sernet.verinice.model.bp.elements.Safeguard;
 import sernet.verinice.model.bp.groups.ImportBpGroup;
 import sernet.verinice.model.bsi.Attachment;
-import sernet.verinice.model.bsi.AttachmentFile;
 import sernet.verinice.model.bsi.BSIModel;
 import sernet.verinice.model.bsi.BausteinUmsetzung;
 import sernet.verinice.model.bsi.IBSIStrukturElement;
@@ -79,6 +85,7 @@ import sernet.verinice.model.bsi.risikoanalyse.GefaehrdungsUmsetzung;
 import sernet.verinice.model.bsi.risikoanalyse.OwnGefaehrdung;
 import sernet.verinice.model.bsi.risikoanalyse.RisikoMassnahme;
 import sernet.verinice.model.catalog.CatalogModel;
+import sernet.verinice.model.common.ChangeLogEntry;
 import sernet.verinice.model.common.CnALink;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.common.Permission;
@@ -97,6 +104,13 @@ import sernet.verinice.service.sync.VeriniceArchiveNotValidException;
  * 
  * It's not a standalone-command.
  * 
+ * If no {@link SyncData} is passed but a verinice archive is set by
+ * {@link #setVeriniceArchive(IVeriniceArchive)}, verinice.xml is imported
+ * incrementally by a {@link SyncRequestReader}. In this mode elements are
+ * referenced by an ext-id to db-id index, the Hibernate session is flushed and
+ * cleared in batches and the change log is written batch by batch. The batch
+ * size is set by command property "batchSize".
+ * 
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
 @SuppressWarnings({ "serial" })
@@ -107,11 +121,17 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
     private static final Logger logrt = Logger
             .getLogger(SyncInsertUpdateCommand.class.getName() + ".rt");
 
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final String PROPERTY_BATCH_SIZE = "batchSize";
+
     private String sourceId;
     private boolean sourceIdExists;
     private transient SyncMapping syncMapping;
     private transient SyncData syncData;
     private transient Risk risk;
+    private transient IVeriniceArchive veriniceArchive;
+    private String stationId;
     private String userName;
     private String tempDirName;
 
@@ -127,9 +147,21 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
 
     private Set<CnATreeElement> elementSet = new HashSet<>();
 
+    private Set<String> importedElementUuids = new HashSet<>();
+
     private transient Map<String, CnATreeElement> idElementMap = new HashMap<>();
 
-    private transient Map<String, Attachment> attachmentMap;
+    private transient List<CnATreeElement> changedElementsOfBatch = new ArrayList<>();
+
+    private transient int elementsInBatch = 0;
+
+    /**
+     * Incremented whenever the session is cleared, elements loaded in an older
+     * generation are detached.
+     */
+    private transient int sessionGeneration = 0;
+
+    private transient Map<String, Integer> attachmentIdsByFileName;
 
     private transient IAuthService authService;
 
@@ -150,7 +182,7 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         this.userName = userName;
         this.parameter = parameter;
         this.errorList = errorList;
-        attachmentMap = new HashMap<>();
+        attachmentIdsByFileName = new HashMap<>();
     }
 
     /**
@@ -170,6 +202,9 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
     public void execute() {
 
         IBaseDao<CnATreeElement, Serializable> iBaseDao = getDao(CnATreeElement.class);
+        if (isStreaming()) {
+            idElementMap = new ExtIdElementMap(iBaseDao);
+        }
         importReferenceTypes = new ImportReferenceTypes(iBaseDao, getCommandService(),
                 idElementMap);
 
@@ -200,37 +235,11 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
                     existingElementsForScope = loadExistingElements(sourceId);
                 }
             }
-            List<SyncObject> soList = syncData.getSyncObject();
-            Set<String> idsOfObjectsWithLinks = syncData.getSyncLink().stream()
-                    .flatMap(l -> Stream.of(l.getDependant(), l.getDependency()))
-                    .collect(Collectors.toUnmodifiableSet());
-
-            for (SyncObject so : soList) {
-                importObject(null, so, idsOfObjectsWithLinks);
-            } // for <syncObject>
-
-            importReferenceTypes.replaceExternalIdsWithDbIds();
-
-            if (logrt.isDebugEnabled()) {
-                logrt.debug("Elements: " + merged);
-            }
-
-            Set<SyncLink> importedLinks = new HashSet<>(syncData.getSyncLink().size());
-            Set<CnALink> importedCnALinks = new HashSet<>(syncData.getSyncLink().size());
-            for (SyncLink syncLink : syncData.getSyncLink()) {
-                if (importedLinks.contains(syncLink)) {
-                    log.warn("Ignoring duplicate link " + syncLink);
-                    continue;
-                }
-                CnALink cnaLink = importLink(syncLink);
-                if (cnaLink != null) {
-                    importedCnALinks.add(cnaLink);
-                }
-                importedLinks.add(syncLink);
+            if (isStreaming()) {
+                importStreaming();
+            } else {
+                importSyncData();
             }
-
-            IBaseDao<CnALink, Serializable> linkDao = getDao(CnALink.class);
-            linkDao.saveOrUpdateAll(importedCnALinks);
             importRiskAnalysis();
 
             finalizeDaos();
@@ -243,6 +252,51 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         }
     }
 
+    private void importSyncData() throws CommandException {
+        List<SyncObject> soList = syncData.getSyncObject();
+        Set<String> idsOfObjectsWithLinks = syncData.getSyncLink().stream()
+                .flatMap(l -> Stream.of(l.getDependant(), l.getDependency()))
+                .collect(Collectors.toUnmodifiableSet());
+
+        for (SyncObject so : soList) {
+            importObject(null, so, idsOfObjectsWithLinks);
+        } // for <syncObject>
+
+        importReferenceTypes.replaceExternalIdsWithDbIds();
+
+        if (logrt.isDebugEnabled()) {
+            logrt.debug("Elements: " + merged);
+        }
+
+        Set<SyncLink> importedLinks = new HashSet<>(syncData.getSyncLink().size());
+        Set<CnALink> importedCnALinks = new HashSet<>(syncData.getSyncLink().size());
+        for (SyncLink syncLink : syncData.getSyncLink()) {
+            if (importedLinks.contains(syncLink)) {
+                log.warn("Ignoring duplicate link " + syncLink);
+                continue;
+            }
+            CnALink cnaLink = importLink(syncLink);
+            if (cnaLink != null) {
+                importedCnALinks.add(cnaLink);
+            }
+            importedLinks.add(syncLink);
+        }
+
+        IBaseDao<CnALink, Serializable> linkDao = getDao(CnALink.class);
+        linkDao.saveOrUpdateAll(importedCnALinks);
+    }
+
+    private void importStreaming() throws CommandException {
+        StreamingImport streamingImport = new StreamingImport(
+                veriniceArchive.getLinkedExtIds());
+        try (InputStream is = veriniceArchive.getVeriniceXml()) {
+            SyncRequestReader.read(is, streamingImport);
+        } catch (IOException e) {
+            throw new RuntimeCommandException("Error while reading verinice.xml", e);
+        }
+        streamingImport.finish();
+    }
+
     protected Map<String, List<CnATreeElement>> loadExistingElements(String sourceId) {
         log.info("Loading existing elements for scope " + sourceId);
         DetachedCriteria criteriaExistingElements = DetachedCriteria.forClass(CnATreeElement.class)
@@ -276,6 +330,44 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
 
     private void importObject(CnATreeElement parent, SyncObject so,
             Set<String> idsOfObjectsWithLinks) throws CommandException {
+        if (getMap(so.getExtObjectType()) == null) {
+            logMissingMapping(so);
+            return;
+        }
+        CnATreeElement elementInDB = importElement(parent, so, idsOfObjectsWithLinks);
+
+        if (isVeriniceArchive()) {
+            importFileList(elementInDB, so.getFile());
+        }
+
+        // Handle all the child objects.
+        for (SyncObject child : so.getChildren()) {
+            // The object that was created or modified during the course of
+            // this method call is the parent for the import of the
+            // child elements.
+            if (log.isDebugEnabled() && child != null) {
+                log.debug("Child found, type: " + child.getExtObjectType() + ", extId: "
+                        + child.getExtId());
+            }
+            importObject(elementInDB, child, idsOfObjectsWithLinks);
+        }
+    }
+
+    private void logMissingMapping(SyncObject so) {
+        final String message = "Could not find mapObjectType-Element" + " for XML type: "
+                + so.getExtObjectType();
+        log.error(message);
+        errorList.add(message);
+    }
+
+    /**
+     * Inserts or updates the element of a sync object without its children
+     * and files. The mapping of the object type must exist.
+     * 
+     * @return the imported element or null if it was not imported
+     */
+    private CnATreeElement importElement(CnATreeElement parent, SyncObject so,
+            Set<String> idsOfObjectsWithLinks) throws CommandException {
         String extId = so.getExtId();
         String extObjectType = so.getExtObjectType();
         long start = 0;
@@ -291,14 +383,6 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
 
         MapObjectType mot = getMap(extObjectType);
 
-        if (mot == null) {
-            final String message = "Could not find mapObjectType-Element" + " for XML type: "
-                    + extObjectType;
-            log.error(message);
-            errorList.add(message);
-            return;
-        }
-
         // this element "knows", which huientitytype is applicable and
         // how the associated properties have to be mapped!
         String veriniceObjectType = mot.getIntId();
@@ -306,6 +390,12 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         CnATreeElement elementInDB = null;
         if (sourceIdExists && !parameter.isImportAsCatalog()) {
             elementInDB = getExistingElement(extId);
+            if (isStreaming() && elementInDB != null
+                    && !getDao(CnATreeElement.class).contains(elementInDB)) {
+                // the existing elements are detached after the session was
+                // cleared
+                elementInDB = reload(elementInDB);
+            }
         }
 
         boolean updatingExistingElement = false;
@@ -421,7 +511,13 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
             // do not update the index for existing but unchanged elements
             boolean updateIndex = !(updatingExistingElement && !propertyValueChanged);
             elementInDB = dao.merge(elementInDB, false, updateIndex);
-            parent.addChild(elementInDB);
+            if (!isStreaming()) {
+                // children is the inverse side of the relation, the streaming
+                // import does not load the children of detached parents
+                parent.addChild(elementInDB);
+            } else if (importedElementUuids.contains(elementInDB.getUuid())) {
+                changedElementsOfBatch.add(elementInDB);
+            }
             elementInDB.setParentAndScope(parent);
 
             // set the scope id of scopes
@@ -432,10 +528,6 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
             merged++;
         }
 
-        if (isVeriniceArchive()) {
-            importFileList(elementInDB, so.getFile());
-        }
-
         if (elementInDB != null && idsOfObjectsWithLinks.contains(extId)
                 || elementInDB instanceof IBSIStrukturElement) {
             // we only need to look up elements with links and elements that
@@ -446,17 +538,7 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         if (logrt.isDebugEnabled()) {
             logRuntime(start);
         }
-        // Handle all the child objects.
-        for (SyncObject child : so.getChildren()) {
-            // The object that was created or modified during the course of
-            // this method call is the parent for the import of the
-            // child elements.
-            if (log.isDebugEnabled() && child != null) {
-                log.debug("Child found, type: " + child.getExtObjectType() + ", extId: "
-                        + child.getExtId());
-            }
-            importObject(elementInDB, child, idsOfObjectsWithLinks);
-        }
+        return elementInDB;
     }
 
     /**
@@ -585,7 +667,6 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
                 attachment.setExtId(fileXml.getExtId());
                 attachment.setSourceId(sourceId);
             }
-            attachmentMap.put(fileXml.getFile(), attachment);
             attachment.setCnATreeElement(elementInDB);
             attachment.setCnAElementTitel(elementInDB.getTitle());
             attachment.setTitel(fileXml.getFile());
@@ -598,6 +679,7 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
             SaveNote command = new SaveNote(attachment);
             command = getCommandService().executeCommand(command);
             attachment = (Attachment) command.getAddition();
+            attachmentIdsByFileName.put(fileXml.getFile(), attachment.getDbId());
 
             MapObjectType mot = getMap(Attachment.TYPE_ID);
             for (SyncAttribute sa : fileXml.getSyncAttribute()) {
@@ -637,7 +719,8 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
      * Imports all file data from a verinice Archive (zipFileData). Call
      * importFileList before calling this method!
      * 
-     * Danger: Out-of-memory trouble for large file...
+     * The files are streamed to the attachment store, files which are already
+     * stored are only referenced.
      * 
      * @param zipFileData
      *            a verinice Archive
@@ -645,14 +728,15 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
      * @throws CommandException
      */
     public void importFileData(IVeriniceArchive veriniceArchive) throws CommandException {
-        SaveAttachment saveFileCommand = new SaveAttachment();
-        IBaseDao<AttachmentFile, Serializable> dao = getDao(AttachmentFile.class);
-        for (Entry<String, Attachment> entry : attachmentMap.entrySet()) {
+        IAttachmentFileDao dao = getDaoFactory().getAttachmentFileDao();
+        for (Entry<String, Integer> entry : attachmentIdsByFileName.entrySet()) {
             String fileName = entry.getKey();
-            Attachment attachment = entry.getValue();
-            AttachmentFile attachmentFile = dao.findById(attachment.getDbId());
-            try {
-                attachmentFile.setFileData(veriniceArchive.getFileData(fileName).readAllBytes());
+            try (InputStream fileData = veriniceArchive.getFileData(fileName)) {
+                if (fileData == null) {
+                    log.warn("File was not imported. No file data: " + fileName);
+                    continue;
+                }
+                dao.saveFileData(entry.getValue(), fileData);
             } catch (IllegalArgumentException e) {
                 throw new VeriniceArchiveNotValidException(
                         "Unable to retrieve file data for " + fileName + ", VNA file is corrupt",
@@ -661,15 +745,8 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
                 throw new RuntimeCommandException("Unable to retrieve file data for " + fileName,
                         e);
             }
-            if (attachmentFile.getFileData() != null) {
-                saveFileCommand.setElement(attachmentFile);
-                saveFileCommand = getCommandService().executeCommand(saveFileCommand);
-                saveFileCommand.clear();
-                dao.flush();
-                dao.clear();
-            } else {
-                log.warn("File was not imported. No file data: " + fileName);
-            }
+            dao.flush();
+            dao.clear();
         }
     }
 
@@ -761,6 +838,7 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         riskAnalysisImporter.setOwnGefaehrdungDao(getDaoFactory().getDAO(OwnGefaehrdung.class));
         riskAnalysisImporter.setRisikoMassnahmeDao(getDaoFactory().getDAO(RisikoMassnahme.class));
         riskAnalysisImporter.setElementDao(getDaoFactory().getDAO(CnATreeElement.class));
+        riskAnalysisImporter.setHierarchyIndex(getDaoFactory().getHierarchyIndex());
         riskAnalysisImporter.setExtIdElementMap(idElementMap);
         riskAnalysisImporter.run();
 
@@ -912,6 +990,11 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         // Create the importRootObject if it does not exist yet
         // and set the 'importRootObject' variable.
         CnATreeElement container = containerMap.get(clazz);
+        if (container != null && isStreaming()
+                && !getDao(CnATreeElement.class).contains(container)) {
+            container = reload(container);
+            containerMap.put(clazz, container);
+        }
         if (container == null) {
             LoadImportObjectsHolder cmdLoadContainer = new LoadImportObjectsHolder(clazz);
             try {
@@ -1020,12 +1103,205 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
     }
 
     protected void addElement(CnATreeElement element) {
+        importedElementUuids.add(element.getUuid());
+        if (isStreaming()) {
+            // the change log is written batch by batch
+            return;
+        }
         if (elementSet == null) {
             elementSet = new HashSet<>();
         }
         elementSet.add(element);
     }
 
+    private CnATreeElement reload(CnATreeElement element) {
+        IBaseDao<CnATreeElement, Serializable> dao = getDao(CnATreeElement.class);
+        return dao.retrieve(element.getDbId(),
+                RetrieveInfo.getPropertyInstance().setPermissions(true));
+    }
+
+    /**
+     * Counts an imported element and flushes and clears the session if the
+     * batch is complete.
+     */
+    private void countElement() {
+        elementsInBatch++;
+        if (elementsInBatch >= getBatchSize()) {
+            flushAndClearSession();
+        }
+    }
+
+    private void flushAndClearSession() {
+        writeChangeLog();
+        IBaseDao<CnATreeElement, Serializable> dao = getDao(CnATreeElement.class);
+        dao.flush();
+        dao.clear();
+        ((ExtIdElementMap) idElementMap).clearLoadedElements();
+        sessionGeneration++;
+        elementsInBatch = 0;
+        if (logrt.isDebugEnabled()) {
+            logrt.debug("Session cleared, elements: " + merged);
+        }
+    }
+
+    private void writeChangeLog() {
+        IBaseDao<ChangeLogEntry, Serializable> dao = getDao(ChangeLogEntry.class);
+        Date now = new Date();
+        for (CnATreeElement element : changedElementsOfBatch) {
+            dao.saveOrUpdate(new ChangeLogEntry(element, ChangeLogEntry.TYPE_INSERT,
+                    authService.getUsername(), stationId, now));
+        }
+        changedElementsOfBatch.clear();
+    }
+
+    private int getBatchSize() {
+        String batchSize = getProperties().getProperty(PROPERTY_BATCH_SIZE);
+        if (batchSize == null || batchSize.trim().isEmpty()) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(batchSize.trim()));
+        } catch (NumberFormatException e) {
+            log.warn("Invalid import batch size: " + batchSize + ", using default.");
+            return DEFAULT_BATCH_SIZE;
+        }
+    }
+
+    private boolean isStreaming() {
+        return syncData == null && veriniceArchive != null;
+    }
+
+    /**
+     * Imports the elements and links passed by a {@link SyncRequestReader}.
+     * Only the path from the current element to the root is held in memory.
+     */
+    private final class StreamingImport implements SyncRequestReader.Handler {
+
+        private final Set<String> idsOfObjectsWithLinks;
+        private final Deque<ImportedObject> openObjects = new ArrayDeque<>();
+        private final Set<SyncLink> importedLinks = new HashSet<>();
+        private final List<SyncLink> linkBatch = new ArrayList<>();
+        private boolean objectsFinished = false;
+
+        private StreamingImport(Set<String> idsOfObjectsWithLinks) {
+            this.idsOfObjectsWithLinks = idsOfObjectsWithLinks;
+        }
+
+        @Override
+        public void startObject(SyncObject so) throws CommandException {
+            ImportedObject parent = openObjects.peek();
+            if (parent != null && parent.skipped) {
+                openObjects.push(ImportedObject.SKIPPED);
+                return;
+            }
+            if (getMap(so.getExtObjectType()) == null) {
+                logMissingMapping(so);
+                openObjects.push(ImportedObject.SKIPPED);
+                return;
+            }
+            CnATreeElement parentElement = (parent == null) ? null : getElement(parent);
+            CnATreeElement element = importElement(parentElement, so, idsOfObjectsWithLinks);
+            openObjects.push(new ImportedObject(element, sessionGeneration));
+        }
+
+        @Override
+        public void endObject(SyncObject so) throws CommandException {
+            ImportedObject importedObject = openObjects.pop();
+            if (importedObject.skipped) {
+                return;
+            }
+            if (isVeriniceArchive() && !so.getFile().isEmpty()) {
+                importFileList(getElement(importedObject), so.getFile());
+            }
+            countElement();
+        }
+
+        @Override
+        public void link(SyncLink syncLink) throws CommandException {
+            finishObjects();
+            if (!importedLinks.add(syncLink)) {
+                log.warn("Ignoring duplicate link " + syncLink);
+                return;
+            }
+            linkBatch.add(syncLink);
+            if (linkBatch.size() >= getBatchSize()) {
+                importLinkBatch();
+            }
+        }
+
+        private void finish() {
+            finishObjects();
+            importLinkBatch();
+            writeChangeLog();
+        }
+
+        private void finishObjects() {
+            if (objectsFinished) {
+                return;
+            }
+            objectsFinished = true;
+            flushAndClearSession();
+            importReferenceTypes.replaceExternalIdsWithDbIds();
+            if (logrt.isDebugEnabled()) {
+                logrt.debug("Elements: " + merged);
+            }
+        }
+
+        private void importLinkBatch() {
+            if (linkBatch.isEmpty()) {
+                return;
+            }
+            Set<String> extIds = linkBatch.stream()
+                    .flatMap(l -> Stream.of(l.getDependant(), l.getDependency()))
+                    .collect(Collectors.toSet());
+            ((ExtIdElementMap) idElementMap).load(extIds,
+                    new RetrieveInfo().setLinksUp(true).setLinksDown(true));
+            Set<CnALink> importedCnALinks = new HashSet<>(linkBatch.size());
+            for (SyncLink syncLink : linkBatch) {
+                CnALink cnaLink = importLink(syncLink);
+                if (cnaLink != null) {
+                    importedCnALinks.add(cnaLink);
+                }
+            }
+            IBaseDao<CnALink, Serializable> linkDao = getDao(CnALink.class);
+            linkDao.saveOrUpdateAll(importedCnALinks);
+            linkBatch.clear();
+            flushAndClearSession();
+        }
+
+        /**
+         * Returns the element of an open object, the element is reloaded if
+         * the session was cleared since it was imported.
+         */
+        private CnATreeElement getElement(ImportedObject importedObject) {
+            if (importedObject.element != null
+                    && importedObject.generation != sessionGeneration) {
+                importedObject.element = reload(importedObject.element);
+                importedObject.generation = sessionGeneration;
+            }
+            return importedObject.element;
+        }
+    }
+
+    private static final class ImportedObject {
+
+        private static final ImportedObject SKIPPED = new ImportedObject();
+
+        private CnATreeElement element;
+        private int generation;
+        private final boolean skipped;
+
+        private ImportedObject(CnATreeElement element, int generation) {
+            this.element = element;
+            this.generation = generation;
+            this.skipped = false;
+        }
+
+        private ImportedObject() {
+            this.skipped = true;
+        }
+    }
+
     public Risk getSyncRisk() {
         return risk;
     }
@@ -1054,6 +1330,31 @@ public class SyncInsertUpdateCommand extends GenericCommand implements IAuthAwar
         return elementSet;
     }
 
+    /**
+     * Returns the UUIDs of all imported elements. In contrast to
+     * {@link #getElementSet()} this also contains the elements of a streaming
+     * import.
+     */
+    public Set<String> getImportedElementUuids() {
+        return importedElementUuids;
+    }
+
+    /**
+     * Sets the archive verinice.xml is read from incrementally if no
+     * {@link SyncData} was passed to the constructor.
+     */
+    public void setVeriniceArchive(IVeriniceArchive veriniceArchive) {
+        this.veriniceArchive = veriniceArchive;
+    }
+
+    /**
+     * Sets the station id of the client for the change log of a streaming
+     * import.
+     */
+    public void setStationId(String stationId) {
+        this.stationId = stationId;
+    }
+
     protected String getUserName() {
         return userName;
     }
@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.commands;
+
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.bind.DataBindingException;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.sernet.sync.data.SyncAttribute;
+import de.sernet.sync.data.SyncFile;
+import de.sernet.sync.data.SyncLink;
+import de.sernet.sync.data.SyncObject;
+import de.sernet.sync.mapping.SyncMapping;
+import de.sernet.sync.sync.SyncRequest;
+import de.sernet.sync.sync.SyncRequest.SyncVnaSchemaVersion;
+import sernet.verinice.interfaces.CommandException;
+
+/**
+ * Reads a sync request (verinice.xml) incrementally with StAX. This is the
+ * counterpart of {@link SyncRequestWriter}.
+ * 
+ * {@link #readMetaData(InputStream)} reads everything but the elements: source
+ * id, mapping, schema version and the ext-ids of all linked elements.
+ * {@link #read(InputStream, Handler)} passes elements and links one by one to
+ * a {@link Handler}. A {@link SyncObject} passed to the handler never contains
+ * children, only one path of the element tree is held in memory.
+ */
+public class SyncRequestReader {
+
+    /**
+     * Receives the content of a sync request in document order.
+     */
+    public interface Handler {
+
+        /**
+         * Called when attributes, ext-id, type and icon of an element are read.
+         * Children and files are not read yet.
+         */
+        void startObject(SyncObject syncObject) throws CommandException;
+
+        /**
+         * Called after all children of an element are read. The files of the
+         * element are set now.
+         */
+        void endObject(SyncObject syncObject) throws CommandException;
+
+        void link(SyncLink syncLink) throws CommandException;
+    }
+
+    private static final String SYNC_OBJECT = "syncObject";
+    private static final String CHILDREN = "children";
+
+    private static JAXBContext context;
+
+    private String sourceId;
+    private SyncMapping syncMapping;
+    private SyncVnaSchemaVersion syncVnaSchemaVersion;
+    private final Set<String> linkedExtIds = new HashSet<>();
+
+    private SyncRequestReader() {
+        super();
+    }
+
+    /**
+     * Reads source id, mapping, schema version and the ext-ids of all linked
+     * elements. The elements are skipped.
+     */
+    public static SyncRequestReader readMetaData(InputStream in) {
+        SyncRequestReader metaData = new SyncRequestReader();
+        try {
+            Unmarshaller unmarshaller = getContext().createUnmarshaller();
+            XMLStreamReader reader = createReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+                        if (metaData.readMetaDataElement(reader, unmarshaller)) {
+                            // the unmarshaller moved the reader behind the
+                            // element
+                            continue;
+                        }
+                    }
+                    reader.next();
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new DataBindingException(e);
+        }
+        return metaData;
+    }
+
+    private boolean readMetaDataElement(XMLStreamReader reader, Unmarshaller unmarshaller)
+            throws JAXBException {
+        String name = reader.getLocalName();
+        if ("syncRequest".equals(name)) {
+            sourceId = reader.getAttributeValue(null, "sourceId");
+        } else if ("syncLink".equals(name)) {
+            SyncLink syncLink = unmarshaller.unmarshal(reader, SyncLink.class).getValue();
+            linkedExtIds.add(syncLink.getDependant());
+            linkedExtIds.add(syncLink.getDependency());
+            return true;
+        } else if ("syncMapping".equals(name)) {
+            syncMapping = unmarshaller.unmarshal(reader, SyncMapping.class).getValue();
+            return true;
+        } else if ("syncVnaSchemaVersion".equals(name)) {
+            syncVnaSchemaVersion = unmarshaller.unmarshal(reader, SyncVnaSchemaVersion.class)
+                    .getValue();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads all elements and links and passes them to the handler in document
+     * order.
+     */
+    public static void read(InputStream in, Handler handler) throws CommandException {
+        try {
+            Unmarshaller unmarshaller = getContext().createUnmarshaller();
+            XMLStreamReader reader = createReader(in);
+            try {
+                new ObjectReader(reader, unmarshaller, handler).read();
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException | JAXBException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    private static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory.createXMLStreamReader(in);
+    }
+
+    private static synchronized JAXBContext getContext() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(SyncRequest.class);
+        }
+        return context;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public SyncMapping getSyncMapping() {
+        return syncMapping;
+    }
+
+    public SyncVnaSchemaVersion getSyncVnaSchemaVersion() {
+        return syncVnaSchemaVersion;
+    }
+
+    public Set<String> getLinkedExtIds() {
+        return linkedExtIds;
+    }
+
+    /**
+     * Walks through syncData and keeps a stack of the currently open elements.
+     */
+    private static final class ObjectReader {
+
+        private final XMLStreamReader reader;
+        private final Unmarshaller unmarshaller;
+        private final Handler handler;
+        private final Deque<SyncObject> openObjects = new ArrayDeque<>();
+        private final Deque<Boolean> startedObjects = new ArrayDeque<>();
+
+        private ObjectReader(XMLStreamReader reader, Unmarshaller unmarshaller,
+                Handler handler) {
+            this.reader = reader;
+            this.unmarshaller = unmarshaller;
+            this.handler = handler;
+        }
+
+        private void read() throws XMLStreamException, JAXBException, CommandException {
+            while (reader.hasNext()) {
+                int event = reader.getEventType();
+                if (event == XMLStreamConstants.START_ELEMENT && readStartElement()) {
+                    // the reader is already behind the element
+                    continue;
+                }
+                if (event == XMLStreamConstants.END_ELEMENT && isObject(reader.getLocalName())) {
+                    endObject();
+                }
+                reader.next();
+            }
+        }
+
+        private boolean readStartElement()
+                throws XMLStreamException, JAXBException, CommandException {
+            String name = reader.getLocalName();
+            if (isObject(name)) {
+                startObjectIfPending();
+                openObjects.push(new SyncObject());
+                startedObjects.push(Boolean.FALSE);
+                return false;
+            }
+            if ("syncLink".equals(name)) {
+                handler.link(unmarshaller.unmarshal(reader, SyncLink.class).getValue());
+                return true;
+            }
+            SyncObject current = openObjects.peek();
+            if (current == null) {
+                return false;
+            }
+            switch (name) {
+            case "syncAttribute":
+                current.getSyncAttribute()
+                        .add(unmarshaller.unmarshal(reader, SyncAttribute.class).getValue());
+                return true;
+            case "file":
+                startObjectIfPending();
+                current.getFile().add(unmarshaller.unmarshal(reader, SyncFile.class).getValue());
+                return true;
+            case "extId":
+                current.setExtId(reader.getElementText());
+                return false;
+            case "extObjectType":
+                current.setExtObjectType(reader.getElementText());
+                return false;
+            case "icon":
+                current.setIcon(reader.getElementText());
+                return false;
+            default:
+                return false;
+            }
+        }
+
+        private void startObjectIfPending() throws CommandException {
+            if (!openObjects.isEmpty() && !startedObjects.peek()) {
+                startedObjects.pop();
+                startedObjects.push(Boolean.TRUE);
+                handler.startObject(openObjects.peek());
+            }
+        }
+
+        private void endObject() throws CommandException {
+            startObjectIfPending();
+            startedObjects.pop();
+            handler.endObject(openObjects.pop());
+        }
+
+        private static boolean isObject(String name) {
+            return SYNC_OBJECT.equals(name) || CHILDREN.equals(name);
+        }
+    }
+}
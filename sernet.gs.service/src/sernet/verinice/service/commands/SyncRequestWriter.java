@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.commands;
+
+import java.io.Closeable;
+import java.io.OutputStream;
+
+import javax.xml.bind.DataBindingException;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import de.sernet.sync.data.SyncAttribute;
+import de.sernet.sync.data.SyncFile;
+import de.sernet.sync.data.SyncLink;
+import de.sernet.sync.data.SyncObject;
+import de.sernet.sync.mapping.SyncMapping;
+import de.sernet.sync.sync.SyncRequest;
+import de.sernet.sync.sync.SyncRequest.SyncVnaSchemaVersion;
+import sernet.gs.service.VeriniceCharset;
+
+/**
+ * Writes a sync request (verinice.xml) to an output stream with StAX.
+ * 
+ * In contrast to {@link ExportFactory#marshal(Object, OutputStream)} the
+ * document is never held in memory as a whole. Elements are written one by
+ * one while the element tree is traversed: {@link #startObject(SyncObject)}
+ * writes the attributes of an element, its children are written by nested
+ * calls and {@link #endObject(SyncObject)} writes the files and closes the
+ * element. The generated document is equivalent to the one created by JAXB
+ * for a {@link SyncRequest}.
+ * 
+ * Call order: {@link #startRequest(String)}, objects, links,
+ * {@link #endRequest(SyncMapping, SyncVnaSchemaVersion)}.
+ */
+public class SyncRequestWriter implements Closeable {
+
+    public static final String NS_SYNC = "http://www.sernet.de/sync/sync";
+    public static final String NS_DATA = "http://www.sernet.de/sync/data";
+    public static final String NS_MAPPING = "http://www.sernet.de/sync/mapping";
+
+    private static final QName SYNC_ATTRIBUTE = new QName(NS_DATA, "syncAttribute");
+    private static final QName FILE = new QName(NS_DATA, "file");
+    private static final QName SYNC_LINK = new QName(NS_DATA, "syncLink");
+    private static final QName SYNC_VNA_SCHEMA_VERSION = new QName(NS_SYNC,
+            "syncVnaSchemaVersion");
+
+    private static JAXBContext context;
+
+    private final XMLStreamWriter writer;
+    private final Marshaller marshaller;
+    private int depth = 0;
+
+    public SyncRequestWriter(OutputStream out) {
+        try {
+            writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out,
+                    VeriniceCharset.CHARSET_UTF_8.name());
+            writer.setPrefix("sync", NS_SYNC);
+            writer.setPrefix("data", NS_DATA);
+            writer.setPrefix("map", NS_MAPPING);
+            marshaller = getContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        } catch (XMLStreamException | JAXBException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    private static synchronized JAXBContext getContext() throws JAXBException {
+        if (context == null) {
+            context = JAXBContext.newInstance(SyncRequest.class);
+        }
+        return context;
+    }
+
+    /**
+     * Writes the XML declaration and opens the elements syncRequest and
+     * syncData.
+     */
+    public void startRequest(String sourceId) {
+        try {
+            writer.writeStartDocument(VeriniceCharset.CHARSET_UTF_8.name(), "1.0");
+            writer.writeStartElement(NS_SYNC, "syncRequest");
+            writer.writeNamespace("sync", NS_SYNC);
+            writer.writeNamespace("data", NS_DATA);
+            writer.writeNamespace("map", NS_MAPPING);
+            if (sourceId != null) {
+                writer.writeAttribute("sourceId", sourceId);
+            }
+            writer.writeStartElement(NS_DATA, "syncData");
+        } catch (XMLStreamException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    /**
+     * Opens an element and writes its attributes, ext-id, type and icon. Top
+     * level elements are written as syncObject, nested elements as children.
+     * Call {@link #endObject(SyncObject)} after all children were written.
+     */
+    public void startObject(SyncObject syncObject) {
+        try {
+            writer.writeStartElement(NS_DATA, depth == 0 ? "syncObject" : "children");
+            depth++;
+            for (SyncAttribute attribute : syncObject.getSyncAttribute()) {
+                marshal(new JAXBElement<>(SYNC_ATTRIBUTE, SyncAttribute.class, attribute));
+            }
+            writeTextElement("extId", syncObject.getExtId());
+            writeTextElement("extObjectType", syncObject.getExtObjectType());
+            writeTextElement("icon", syncObject.getIcon());
+        } catch (XMLStreamException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    /**
+     * Writes the files of an element and closes it.
+     */
+    public void endObject(SyncObject syncObject) {
+        try {
+            for (SyncFile file : syncObject.getFile()) {
+                marshal(new JAXBElement<>(FILE, SyncFile.class, file));
+            }
+            writer.writeEndElement();
+            depth--;
+        } catch (XMLStreamException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    public void writeLink(SyncLink syncLink) {
+        marshal(new JAXBElement<>(SYNC_LINK, SyncLink.class, syncLink));
+    }
+
+    /**
+     * Closes syncData, writes the mapping and the schema version and closes
+     * the document. The underlying stream is flushed but not closed.
+     */
+    public void endRequest(SyncMapping syncMapping, SyncVnaSchemaVersion version) {
+        try {
+            writer.writeEndElement();
+            marshal(syncMapping);
+            marshal(new JAXBElement<>(SYNC_VNA_SCHEMA_VERSION, SyncVnaSchemaVersion.class,
+                    version));
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+        } catch (XMLStreamException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    private void writeTextElement(String localName, String text) throws XMLStreamException {
+        if (text != null) {
+            writer.writeStartElement(NS_DATA, localName);
+            writer.writeCharacters(text);
+            writer.writeEndElement();
+        }
+    }
+
+    private void marshal(Object jaxbObject) {
+        try {
+            marshaller.marshal(jaxbObject, writer);
+        } catch (JAXBException e) {
+            throw new DataBindingException(e);
+        }
+    }
+
+    /**
+     * Releases the StAX writer. The underlying stream is not closed.
+     */
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new DataBindingException(e);
+        }
+    }
+}
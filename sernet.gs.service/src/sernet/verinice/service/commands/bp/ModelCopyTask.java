@@ -348,6 +348,13 @@ public abstract class ModelCopyTask implements Runnable {
             return !isElementRemoved(descendant)
                     && (elementFilter == null || elementFilter.test(descendant));
         }
+
+        @Override
+        protected boolean isSessionClearedAfterBatch() {
+            // the modeling data references the copies until the modeling is
+            // finished
+            return false;
+        }
     }
 
 }
@@ -17,7 +17,6 @@
  ******************************************************************************/
 package sernet.verinice.service.commands.bp.converter;
 
-import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -40,7 +39,6 @@ import org.eclipse.jdt.annotation.NonNull;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Restrictions;
 
-import sernet.verinice.interfaces.CommandException;
 import sernet.verinice.interfaces.IBaseDao;
 import sernet.verinice.interfaces.IDAOFactory;
 import sernet.verinice.model.bp.IBpElement;
@@ -56,7 +54,6 @@ import sernet.verinice.model.bsi.Addition;
 import sernet.verinice.model.bsi.Anwendung;
 import sernet.verinice.model.bsi.AnwendungenKategorie;
 import sernet.verinice.model.bsi.Attachment;
-import sernet.verinice.model.bsi.AttachmentFile;
 import sernet.verinice.model.bsi.ClientsKategorie;
 import sernet.verinice.model.bsi.GebaeudeKategorie;
 import sernet.verinice.model.bsi.IBSIStrukturElement;
@@ -71,7 +68,6 @@ import sernet.verinice.model.common.CnALink;
 import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.common.Permission;
 import sernet.verinice.model.iso27k.Group;
-import sernet.verinice.service.commands.AttachmentFileCreationFactory;
 
 /**
  * Converts a whole ITVerbund from the old ITBP to an ITNetwork from the
@@ -297,18 +293,14 @@ public class MasterConverter {
                     if (addition instanceof Attachment) {
                         Attachment newAttachmeht = (Attachment) newAddition;
                         daoFactory.getAttachmentDao().saveOrUpdate(newAttachmeht);
-                        IBaseDao<AttachmentFile, Serializable> attachmentFileDao = daoFactory
-                                .getDAO(AttachmentFile.class);
-                        AttachmentFile attachmentFile = attachmentFileDao
-                                .findById(addition.getDbId());
-                        AttachmentFileCreationFactory.createAttachmentFile(newAttachmeht,
-                                attachmentFile.getFileData());
+                        daoFactory.getAttachmentFileDao().copyFileData(addition.getDbId(),
+                                newAttachmeht.getDbId());
 
                     } else {
                         daoFactory.getDAO(addition.getTypeId()).saveOrUpdate(newAddition);
                     }
-                } catch (InstantiationError | InstantiationException | IllegalAccessException
-                        | IOException | CommandException e) {
+                } catch (InstantiationError | InstantiationException
+                        | IllegalAccessException e) {
                     throw new RuntimeException("Failed to copy " + addition, e);
                 }
             }
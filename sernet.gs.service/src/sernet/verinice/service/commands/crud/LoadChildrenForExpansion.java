@@ -24,10 +24,11 @@ import java.util.Set;
 import sernet.gs.service.RetrieveInfo;
 import sernet.verinice.interfaces.GenericCommand;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IReadOnlyCommand;
 import sernet.verinice.model.common.CnATreeElement;
 
 @SuppressWarnings("serial")
-public class LoadChildrenForExpansion extends GenericCommand {
+public class LoadChildrenForExpansion extends GenericCommand implements IReadOnlyCommand {
 	
 	private CnATreeElement parent;
 	private Integer dbId;
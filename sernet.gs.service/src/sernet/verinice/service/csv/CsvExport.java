@@ -19,21 +19,20 @@
  ******************************************************************************/
 package sernet.verinice.service.csv;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.log4j.Logger;
-
-import com.opencsv.CSVWriter;
-
 
 /**
  * Exports a table (List<String[]>) to a CSV file.
+ * Rows are written one by one, see {@link CsvRowWriter}.
  *
  * This implementation uses opencsv to create CSV, see: http://opencsv.sourceforge.net/
  *
@@ -41,14 +40,13 @@ import com.opencsv.CSVWriter;
  */
 public class CsvExport implements ICsvExport {
 
-    private static final Logger LOG = Logger.getLogger(CsvExport.class);
-
     private static final String ERROR_MESSAGE = "Error while exporting to CSV"; //$NON-NLS-1$
 
     private String filePath = FILE_PATH_DEFAULT;
 
     private char seperator = SEPERATOR_DEFAULT;
     private Charset charset = CHARSET_DEFAULT;
+    private int bufferSize = BUFFER_SIZE_DEFAULT;
 
     public CsvExport() {
         super();
@@ -59,9 +57,20 @@ public class CsvExport implements ICsvExport {
      */
     @Override
     public void exportToFile(List<String[]> table) throws CsvExportException {
-        try {
-            FileUtils.writeByteArrayToFile(new File(filePath), export(table));
-        } catch (IOException e) {
+        exportToFile(table.iterator());
+    }
+
+    /* (non-Javadoc)
+     * @see sernet.verinice.service.csv.ICsvExport#exportToFile(java.util.Iterator)
+     */
+    @Override
+    public void exportToFile(Iterator<String[]> rows) throws CsvExportException {
+        try (CsvRowWriter writer = createRowWriter(
+                FileUtils.openOutputStream(new File(filePath)))) {
+            writer.writeRows(rows);
+        } catch (CsvExportException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
             throw new CsvExportException(ERROR_MESSAGE, e);
         }
     }
@@ -71,27 +80,36 @@ public class CsvExport implements ICsvExport {
      */
     @Override
     public byte[] export(List<String[]> table) throws CsvExportException {
-        CSVWriter writer = null;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        export(table.iterator(), out);
+        return out.toByteArray();
+    }
+
+    /* (non-Javadoc)
+     * @see sernet.verinice.service.csv.ICsvExport#export(java.util.Iterator, java.io.OutputStream)
+     */
+    @Override
+    public void export(Iterator<String[]> rows, OutputStream out) throws CsvExportException {
         try {
-            StringWriter stringWriter = new StringWriter();
-            writer = new CSVWriter(stringWriter, getSeperator());
-            writer.writeAll(table);
-            return stringWriter.toString().getBytes(getCharsetName());
+            CsvRowWriter writer = createRowWriter(out);
+            writer.writeRows(rows);
+            // the stream is not closed, it belongs to the caller
+            writer.flush();
+        } catch (CsvExportException e) {
+            throw e;
         } catch (RuntimeException e) {
             throw new CsvExportException(ERROR_MESSAGE, e);
-        } catch (Exception e) {
-            throw new CsvExportException(ERROR_MESSAGE, e);
-        } finally {
-            try {
-                if(writer!=null) {
-                    writer.close();
-                }
-            } catch (IOException e) {
-                LOG.error(ERROR_MESSAGE, e);
-            }
         }
     }
 
+    /* (non-Javadoc)
+     * @see sernet.verinice.service.csv.ICsvExport#createRowWriter(java.io.OutputStream)
+     */
+    @Override
+    public CsvRowWriter createRowWriter(OutputStream out) {
+        return new CsvRowWriter(out, getSeperator(), getCharset(), bufferSize);
+    }
+
     /* (non-Javadoc)
      * @see sernet.verinice.service.csv.ICsvExport#convert(java.util.List)
      */
@@ -140,4 +158,12 @@ public class CsvExport implements ICsvExport {
     public void setCharset(Charset charset) {
        this.charset = charset;
     }
+
+    /* (non-Javadoc)
+     * @see sernet.verinice.service.csv.ICsvExport#setBufferSize(int)
+     */
+    @Override
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
 }
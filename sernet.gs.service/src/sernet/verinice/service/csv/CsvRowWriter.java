@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.csv;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.opencsv.CSVWriter;
+
+/**
+ * Writes the rows of a CSV table one by one to an output stream. Rows are not
+ * kept in memory, so tables of any size can be written with constant memory.
+ * Closing the writer closes the stream.
+ *
+ * The writer is a consumer of rows and can be passed to producers like
+ * {@link sernet.verinice.service.linktable.ILinkTableService}.
+ */
+public class CsvRowWriter implements Consumer<List<String>>, Closeable {
+
+    private static final String ERROR_MESSAGE = "Error while writing CSV"; //$NON-NLS-1$
+
+    private final CSVWriter writer;
+
+    private long numberOfRows = 0;
+
+    /**
+     * @param out
+     *            Stream the CSV table is written to
+     * @param seperator
+     *            Seperator of the values
+     * @param charset
+     *            Charset of the CSV table
+     * @param bufferSize
+     *            Number of characters which are buffered before they are
+     *            written to the stream
+     */
+    public CsvRowWriter(OutputStream out, char seperator, Charset charset, int bufferSize) {
+        writer = new CSVWriter(
+                new BufferedWriter(new OutputStreamWriter(out, charset), bufferSize), seperator);
+    }
+
+    public void writeRow(String[] row) {
+        writer.writeNext(row);
+        numberOfRows++;
+    }
+
+    @Override
+    public void accept(List<String> row) {
+        writeRow(row.toArray(new String[row.size()]));
+    }
+
+    /**
+     * Writes all rows of an iterator
+     */
+    public void writeRows(Iterator<String[]> rows) {
+        while (rows.hasNext()) {
+            writeRow(rows.next());
+        }
+    }
+
+    /**
+     * Writes buffered characters to the stream
+     *
+     * @throws CsvExportException
+     *             If writing to the stream failed
+     */
+    public void flush() {
+        // writeNext does not throw exceptions, checkError flushes and reports them
+        if (writer.checkError()) {
+            throw new CsvExportException(ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * Flushes the writer and closes the stream
+     *
+     * @throws CsvExportException
+     *             If writing to the stream failed
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                throw new CsvExportException(ERROR_MESSAGE, e);
+            }
+        }
+    }
+
+    /**
+     * @return Number of written rows
+     */
+    public long getNumberOfRows() {
+        return numberOfRows;
+    }
+}
@@ -19,7 +19,9 @@
  ******************************************************************************/
 package sernet.verinice.service.csv;
 
+import java.io.OutputStream;
 import java.nio.charset.Charset;
+import java.util.Iterator;
 import java.util.List;
 
 
@@ -43,6 +45,7 @@ public interface ICsvExport {
     public static final char SEPERATOR_SEMICOLON = ';';
     public static final char SEPERATOR_COMMA = ',';
     public static final char SEPERATOR_DEFAULT = SEPERATOR_SEMICOLON;
+    public static final int BUFFER_SIZE_DEFAULT = 65536;
 
 
     /**
@@ -64,6 +67,37 @@ public interface ICsvExport {
      */
     void exportToFile(List<String[]> table)  throws CsvExportException;
 
+    /**
+     * Exports rows to a CSV table which is saved as a file.
+     * Rows are written one by one while iterating.
+     * Set file path with <code>setFilePath(path)</code>.
+     *
+     * @param rows Rows of the table
+     * @throws CsvExportException
+     */
+    void exportToFile(Iterator<String[]> rows) throws CsvExportException;
+
+    /**
+     * Exports rows to a CSV table which is written to a stream.
+     * Rows are written one by one while iterating. The stream is flushed
+     * but not closed.
+     *
+     * @param rows Rows of the table
+     * @param out Stream the CSV table is written to
+     * @throws CsvExportException
+     */
+    void export(Iterator<String[]> rows, OutputStream out) throws CsvExportException;
+
+    /**
+     * Creates a writer for rows which are produced one by one, e.g. by a
+     * consumer based API. The seperator, charset and buffer size of this
+     * export are used. Closing the writer closes the stream.
+     *
+     * @param out Stream the CSV table is written to
+     * @return A writer for the rows of the table
+     */
+    CsvRowWriter createRowWriter(OutputStream out);
+
     List<String[]> convert(List<List<String>> table);
 
     /**
@@ -82,4 +116,10 @@ public interface ICsvExport {
      *
      */
     void setCharset(Charset charset);
+
+    /**
+     * Sets the number of characters which are buffered before they are
+     * written to the file or stream.
+     */
+    void setBufferSize(int bufferSize);
 }
@@ -63,6 +63,22 @@ public class BpRiskValuePropertyAdapter implements IPropertyAdapter {
         this.riskConfigurationCache = riskConfigurationCache;
     }
 
+    /**
+     * Loads the risk configurations of the scopes of all threats into the
+     * cache. Loading a risk configuration executes a command, call this
+     * method in the thread of the caller before the cache is used by worker
+     * threads.
+     */
+    public static void loadRiskConfigurations(Collection<BpThreat> threats,
+            RiskConfigurationCache riskConfigurationCache) {
+        for (BpThreat threat : threats) {
+            if (threat.getScopeId() != null) {
+                new BpRiskValuePropertyAdapter(threat, riskConfigurationCache)
+                        .getRiskConfiguration(threat);
+            }
+        }
+    }
+
     @Override
     public String getPropertyValue(String propertyId) {
         switch (propertyId) {
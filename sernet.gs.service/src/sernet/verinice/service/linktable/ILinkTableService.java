@@ -20,6 +20,7 @@
 package sernet.verinice.service.linktable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * <p>
@@ -99,6 +100,34 @@ public interface ILinkTableService {
      * @return A Link Table
      */
     List<List<String>> createTable(String vltFilePath);
+
+    /**
+     * Creates a Link Table with the configuration defined in
+     * a configuration and passes the rows to a consumer instead of
+     * returning the complete table. The first row is the header,
+     * all other rows are passed in sorted order.
+     *
+     * Use this method if the table is written to a stream,
+     * e.g. a CSV file.
+     *
+     * @param configuration A Link Table configuration
+     * @param rowConsumer Consumer of the rows of the table
+     */
+    void createTable(ILinkTableConfiguration configuration, Consumer<List<String>> rowConsumer);
+
+    /**
+     * Creates a Link Table with the configuration defined in
+     * a configuration and returns an iterator over the rows instead of
+     * the complete table. The first row is the header,
+     * all other rows are returned in sorted order.
+     *
+     * Use this method if the rows are pulled by the caller,
+     * e.g. a result set. The iterator must be closed.
+     *
+     * @param configuration A Link Table configuration
+     * @return An iterator over the rows of the table
+     */
+    LinkTableRowIterator iterateTable(ILinkTableConfiguration configuration);
     
     /**
      * Sets strategy for calculating the linked table.
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.linktable;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Iterates over the rows of a link table without holding the complete table
+ * in memory. Call {@link #close()} to release the resources of the iterator,
+ * e.g. temporary files, even if not all rows were read.
+ */
+public interface LinkTableRowIterator extends Iterator<List<String>>, Closeable {
+
+    @Override
+    void close();
+
+    /**
+     * Returns an iterator over a table which is already in memory.
+     */
+    static LinkTableRowIterator of(Iterable<List<String>> table) {
+        Iterator<List<String>> iterator = table.iterator();
+        return new LinkTableRowIterator() {
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+                // nothing to do
+            }
+        };
+    }
+}
@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.linktable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Sorts the rows of a link table with the {@link RowComparator}.
+ *
+ * Rows are collected in memory until maxRowsInMemory is reached. The sorted
+ * rows are then written to a temporary file (a run) and the buffer is
+ * cleared. {@link #writeTo(Consumer)} merges all runs and the remaining rows
+ * in memory and passes the rows in sorted order to a consumer.
+ * {@link #iterator()} merges the runs lazily while the rows are read. Call
+ * {@link #close()} to delete the temporary files.
+ *
+ * Method {@link #add(List)} is thread-safe.
+ */
+public class LinkTableRowSorter implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(LinkTableRowSorter.class);
+
+    private static final int NULL_VALUE = -1;
+
+    private final Comparator<List<String>> comparator = new RowComparator();
+
+    private final int maxRowsInMemory;
+
+    private final List<List<String>> rows = new ArrayList<>();
+
+    private final List<File> runs = new ArrayList<>();
+
+    private int numberOfRows = 0;
+
+    public LinkTableRowSorter(int maxRowsInMemory) {
+        if (maxRowsInMemory < 1) {
+            throw new IllegalArgumentException(
+                    "Max rows in memory must be greater than 0: " + maxRowsInMemory);
+        }
+        this.maxRowsInMemory = maxRowsInMemory;
+    }
+
+    public synchronized void add(List<String> row) {
+        rows.add(row);
+        numberOfRows++;
+        if (rows.size() >= maxRowsInMemory) {
+            writeRun();
+        }
+    }
+
+    /**
+     * Passes all rows in sorted order to the consumer.
+     */
+    public synchronized void writeTo(Consumer<List<String>> consumer) {
+        try (LinkTableRowIterator iterator = iterator()) {
+            iterator.forEachRemaining(consumer);
+        }
+    }
+
+    /**
+     * Returns an iterator over all rows in sorted order. The runs are merged
+     * while the rows are read, so only one row per run is held in memory.
+     * Close the iterator to close the run files, {@link #close()} the sorter
+     * to delete them.
+     */
+    public synchronized LinkTableRowIterator iterator() {
+        rows.sort(comparator);
+        if (runs.isEmpty()) {
+            return LinkTableRowIterator.of(rows);
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Merging " + runs.size() + " runs, number of rows: " + numberOfRows);
+        }
+        List<RowSource> sources = new ArrayList<>(runs.size() + 1);
+        try {
+            for (File run : runs) {
+                sources.add(new RunReader(run));
+            }
+            sources.add(new ListSource(rows.iterator()));
+            return new MergeIterator(sources, comparator);
+        } catch (IOException e) {
+            sources.forEach(RowSource::close);
+            throw new LinkTableRuntimeException("Error while merging link table rows", e);
+        }
+    }
+
+    public synchronized int getNumberOfRows() {
+        return numberOfRows;
+    }
+
+    public synchronized int getNumberOfRuns() {
+        return runs.size();
+    }
+
+    private void writeRun() {
+        rows.sort(comparator);
+        File run = null;
+        try {
+            run = File.createTempFile("linktable-", ".run");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(run)))) {
+                for (List<String> row : rows) {
+                    writeRow(out, row);
+                }
+            }
+        } catch (IOException e) {
+            throw new LinkTableRuntimeException("Error while writing link table rows to: " + run,
+                    e);
+        }
+        rows.clear();
+    }
+
+    private static void writeRow(DataOutputStream out, List<String> row) throws IOException {
+        out.writeInt(row.size());
+        for (String value : row) {
+            if (value == null) {
+                out.writeInt(NULL_VALUE);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        for (File run : runs) {
+            if (!run.delete() && run.exists()) {
+                LOG.warn("Could not delete temporary file: " + run.getAbsolutePath());
+            }
+        }
+        runs.clear();
+        rows.clear();
+    }
+
+    private static final class MergeIterator implements LinkTableRowIterator {
+
+        private final List<RowSource> sources;
+        private final PriorityQueue<RowSource> queue;
+
+        private MergeIterator(List<RowSource> sources, Comparator<List<String>> comparator)
+                throws IOException {
+            this.sources = sources;
+            this.queue = new PriorityQueue<>(sources.size(),
+                    (s1, s2) -> comparator.compare(s1.current(), s2.current()));
+            for (RowSource source : sources) {
+                if (source.next()) {
+                    queue.add(source);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public List<String> next() {
+            RowSource source = queue.poll();
+            if (source == null) {
+                throw new NoSuchElementException();
+            }
+            List<String> row = source.current();
+            try {
+                if (source.next()) {
+                    queue.add(source);
+                }
+            } catch (IOException e) {
+                throw new LinkTableRuntimeException("Error while merging link table rows", e);
+            }
+            return row;
+        }
+
+        @Override
+        public void close() {
+            queue.clear();
+            sources.forEach(RowSource::close);
+        }
+    }
+
+    private interface RowSource extends Closeable {
+
+        boolean next() throws IOException;
+
+        List<String> current();
+
+        @Override
+        void close();
+    }
+
+    private static final class ListSource implements RowSource {
+
+        private final Iterator<List<String>> iterator;
+        private List<String> current;
+
+        private ListSource(Iterator<List<String>> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean next() {
+            current = iterator.hasNext() ? iterator.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public List<String> current() {
+            return current;
+        }
+
+        @Override
+        public void close() {
+            // nothing to do
+        }
+    }
+
+    private static final class RunReader implements RowSource {
+
+        private final DataInputStream in;
+        private List<String> current;
+
+        private RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run)));
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            int size;
+            try {
+                size = in.readInt();
+            } catch (EOFException e) {
+                current = null;
+                return false;
+            }
+            String[] row = new String[size];
+            for (int i = 0; i < size; i++) {
+                int length = in.readInt();
+                if (length != NULL_VALUE) {
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    row[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            current = Arrays.asList(row);
+            return true;
+        }
+
+        @Override
+        public List<String> current() {
+            return current;
+        }
+
+        @Override
+        public void close() {
+            try {
+                in.close();
+            } catch (IOException e) {
+                LOG.warn("Error while closing run file", e);
+            }
+        }
+    }
+}
@@ -21,6 +21,7 @@ package sernet.verinice.service.linktable;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.log4j.Logger;
@@ -61,6 +62,19 @@ public class LinkTableService implements ILinkTableService {
         return linkedTableCreator.createTable(graph, configuration);
     }
 
+    @Override
+    public void createTable(ILinkTableConfiguration configuration,
+            Consumer<List<String>> rowConsumer) {
+        VeriniceGraph graph = getVeriniceGraph(configuration);
+        linkedTableCreator.createTable(graph, configuration, rowConsumer);
+    }
+
+    @Override
+    public LinkTableRowIterator iterateTable(ILinkTableConfiguration configuration) {
+        VeriniceGraph graph = getVeriniceGraph(configuration);
+        return linkedTableCreator.iterateTable(graph, configuration);
+    }
+
     private VeriniceGraph getVeriniceGraph(ILinkTableConfiguration configuration) {
 
         GraphCommand graphCommand = createCommand(configuration);
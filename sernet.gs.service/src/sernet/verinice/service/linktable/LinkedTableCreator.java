@@ -20,6 +20,7 @@
 package sernet.verinice.service.linktable;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import sernet.gs.service.NumericStringComparator;
 import sernet.verinice.interfaces.graph.VeriniceGraph;
@@ -97,4 +98,45 @@ public interface LinkedTableCreator {
      *         of strings.
      */
     List<List<String>> createTable(VeriniceGraph veriniceGraph, ILinkTableConfiguration conf);
+
+    /**
+     * Creates table which contains all column pathes for a given
+     * {@link VeriniceGraph} and passes the rows to a consumer. The first row
+     * is the header of the table.
+     *
+     * The default implementation creates the complete table with
+     * {@link #createTable(VeriniceGraph, ILinkTableConfiguration)}.
+     *
+     * @param veriniceGraph
+     *            The graph the table is created for.
+     * @param conf
+     *            The configuration. Contains the column pathes, which are the
+     *            header of the table.
+     * @param rowConsumer
+     *            Consumer of the rows of the table
+     */
+    default void createTable(VeriniceGraph veriniceGraph, ILinkTableConfiguration conf,
+            Consumer<List<String>> rowConsumer) {
+        createTable(veriniceGraph, conf).forEach(rowConsumer);
+    }
+
+    /**
+     * Creates table which contains all column pathes for a given
+     * {@link VeriniceGraph} and returns an iterator over the rows. The first
+     * row is the header of the table. The iterator must be closed.
+     *
+     * The default implementation creates the complete table with
+     * {@link #createTable(VeriniceGraph, ILinkTableConfiguration)}.
+     *
+     * @param veriniceGraph
+     *            The graph the table is created for.
+     * @param conf
+     *            The configuration. Contains the column pathes, which are the
+     *            header of the table.
+     * @return An iterator over the rows of the table
+     */
+    default LinkTableRowIterator iterateTable(VeriniceGraph veriniceGraph,
+            ILinkTableConfiguration conf) {
+        return LinkTableRowIterator.of(createTable(veriniceGraph, conf));
+    }
 }
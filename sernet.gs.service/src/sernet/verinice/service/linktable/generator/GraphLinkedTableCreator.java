@@ -25,22 +25,30 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
+import sernet.hui.common.VeriniceContext;
 import sernet.verinice.interfaces.graph.DepthFirstConditionalSearchPathes;
 import sernet.verinice.interfaces.graph.VeriniceGraph;
 import sernet.verinice.interfaces.graph.VeriniceGraphFilter;
+import sernet.verinice.model.bp.elements.BpThreat;
 import sernet.verinice.model.bp.risk.configuration.RiskConfigurationCache;
 import sernet.verinice.model.common.CnATreeElement;
+import sernet.verinice.service.linktable.BpRiskValuePropertyAdapter;
 import sernet.verinice.service.linktable.ColumnPathParser;
 import sernet.verinice.service.linktable.ILinkTableConfiguration;
+import sernet.verinice.service.linktable.LinkTableRowIterator;
+import sernet.verinice.service.linktable.LinkTableRowSorter;
+import sernet.verinice.service.linktable.LinkTableRuntimeException;
 import sernet.verinice.service.linktable.LinkedTableCreator;
 import sernet.verinice.service.linktable.RowComparator;
 import sernet.verinice.service.linktable.generator.mergepath.VqlAst;
@@ -83,24 +91,83 @@ import sernet.verinice.service.linktable.generator.mergepath.VqlNode;
  * verinice graph are valid.
  * </p>
  *
+ * <h2>Parallel processing</h2>
+ *
+ * <p>
+ * The starting points are traversed in parallel in a {@link ForkJoinPool}.
+ * The rows of a starting point are stored as arrays which are indexed by the
+ * column position. Risk configurations are loaded in the calling thread
+ * before the traversal starts. When the table is passed to a row consumer
+ * the rows are sorted by a {@link LinkTableRowSorter}, which writes sorted
+ * runs to temporary files if there are more than maxRowsInMemory rows.
+ * </p>
+ *
  * 
  * @author Benjamin Weißenfels <bw[at]sernet[dot]de>
  *
  */
 public class GraphLinkedTableCreator implements LinkedTableCreator {
 
+    private static final Logger LOG = Logger.getLogger(GraphLinkedTableCreator.class);
+
+    public static final int DEFAULT_MAX_ROWS_IN_MEMORY = 100000;
+
     private VqlAst vqlAst;
     private VeriniceGraph veriniceDataGraph;
     private Map<String, String> columnHeader2Alias;
     private Map<String, Integer> columnPath2TablePosition;
 
-    private static final Logger LOG = Logger.getLogger(GraphLinkedTableCreator.class);
-    private LtrPrintRowsTraversalListener traversalListener;
-    private LtrTraversalFilter filter;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int maxRowsInMemory = DEFAULT_MAX_ROWS_IN_MEMORY;
 
     @Override
     public List<List<String>> createTable(VeriniceGraph veriniceGraph, ILinkTableConfiguration conf) {
+        Set<CnATreeElement> roots = init(veriniceGraph, conf);
+
+        List<List<String>> table = new ArrayList<>();
+        doCreateTable(roots, conf, Collections.synchronizedList(table)::add);
+
+        Collections.sort(table, new RowComparator());
+        table.add(0, getAliasHeader());
+        return table;
+    }
+
+    @Override
+    public void createTable(VeriniceGraph veriniceGraph, ILinkTableConfiguration conf,
+            Consumer<List<String>> rowConsumer) {
+        Set<CnATreeElement> roots = init(veriniceGraph, conf);
+
+        try (LinkTableRowSorter sorter = new LinkTableRowSorter(maxRowsInMemory)) {
+            doCreateTable(roots, conf, sorter::add);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Link table created, rows: " + sorter.getNumberOfRows() + ", runs: "
+                        + sorter.getNumberOfRuns());
+            }
+            rowConsumer.accept(getAliasHeader());
+            sorter.writeTo(rowConsumer);
+        }
+    }
+
+    @Override
+    public LinkTableRowIterator iterateTable(VeriniceGraph veriniceGraph,
+            ILinkTableConfiguration conf) {
+        Set<CnATreeElement> roots = init(veriniceGraph, conf);
+
+        LinkTableRowSorter sorter = new LinkTableRowSorter(maxRowsInMemory);
+        try {
+            doCreateTable(roots, conf, sorter::add);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Link table created, rows: " + sorter.getNumberOfRows() + ", runs: "
+                        + sorter.getNumberOfRuns());
+            }
+            return new SortedRowIterator(getAliasHeader(), sorter);
+        } catch (RuntimeException e) {
+            sorter.close();
+            throw e;
+        }
+    }
 
+    private Set<CnATreeElement> init(VeriniceGraph veriniceGraph, ILinkTableConfiguration conf) {
         this.veriniceDataGraph = veriniceGraph;
         this.vqlAst = new VqlAst(conf);
 
@@ -108,11 +175,7 @@ public class GraphLinkedTableCreator implements LinkedTableCreator {
         String typeId = root.getPath();
 
         storeColumnHeaderOrderAndAlias(conf);
-        Set<CnATreeElement> roots = getRootNodes(typeId);
-
-        List<Map<String, String>> table = doCreateTable(roots);
-
-        return convertToTable(table);
+        return getRootNodes(typeId);
     }
 
     private Set<CnATreeElement> getRootNodes(final String typeId) {
@@ -124,52 +187,100 @@ public class GraphLinkedTableCreator implements LinkedTableCreator {
         });
     }
 
-    private List<Map<String, String>> doCreateTable(Set<CnATreeElement> roots) {
-        List<Map<String, String>> table = new ArrayList<>();
+    private void doCreateTable(Set<CnATreeElement> roots, ILinkTableConfiguration conf,
+            Consumer<List<String>> rowSink) {
+        RiskConfigurationCache riskConfigurationCache = createRiskConfigurationCache(conf);
+        if (parallelism < 2 || roots.size() < 2) {
+            for (CnATreeElement potentialRoot : roots) {
+                scanVeriniceGraph(potentialRoot, riskConfigurationCache, rowSink);
+            }
+            return;
+        }
+        final VeriniceContext.State state = VeriniceContext.getState();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, roots.size()));
+        try {
+            pool.submit(() -> roots.parallelStream().forEach(potentialRoot -> {
+                VeriniceContext.setState(state);
+                scanVeriniceGraph(potentialRoot, riskConfigurationCache, rowSink);
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LinkTableRuntimeException("Interrupted while creating link table", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new LinkTableRuntimeException("Error while creating link table", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Loading a risk configuration executes a command which must not be
+     * done in a worker thread. If a risk property of a threat is part of the
+     * table the risk configurations are loaded in advance.
+     */
+    private RiskConfigurationCache createRiskConfigurationCache(ILinkTableConfiguration conf) {
         RiskConfigurationCache riskConfigurationCache = new RiskConfigurationCache();
-        for (CnATreeElement potentialRoot : roots) {
-            VeriniceGraphResult scanVeriniceGraph = scanVeriniceGraph(potentialRoot,
-                    riskConfigurationCache);
-            table.addAll(scanVeriniceGraph.getResult());
+        if (containsThreatRiskProperty(conf)) {
+            Set<CnATreeElement> threats = veriniceDataGraph.filter(new VeriniceGraphFilter() {
+                @Override
+                public boolean filter(CnATreeElement node) {
+                    return node instanceof BpThreat;
+                }
+            });
+            List<BpThreat> bpThreats = new ArrayList<>(threats.size());
+            for (CnATreeElement threat : threats) {
+                bpThreats.add((BpThreat) threat);
+            }
+            BpRiskValuePropertyAdapter.loadRiskConfigurations(bpThreats, riskConfigurationCache);
         }
-        return table;
+        return riskConfigurationCache;
+    }
+
+    private static boolean containsThreatRiskProperty(ILinkTableConfiguration conf) {
+        for (String columnPath : conf.getColumnPaths()) {
+            for (String property : BpRiskValuePropertyAdapter.riskPropertiesThreat) {
+                if (columnPath.contains(property)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
-    private VeriniceGraphResult scanVeriniceGraph(CnATreeElement potentialRoot,
-            RiskConfigurationCache riskConfigurationCache) {
+    private void scanVeriniceGraph(CnATreeElement potentialRoot,
+            RiskConfigurationCache riskConfigurationCache, Consumer<List<String>> rowSink) {
 
         VqlContext vqlNavigator = new VqlContext(vqlAst);
-        filter = new LtrTraversalFilter(vqlNavigator);
+        LtrTraversalFilter filter = new LtrTraversalFilter(vqlNavigator);
         VeriniceGraphResult result = new VeriniceGraphResult(riskConfigurationCache);
-        traversalListener = new LtrPrintRowsTraversalListener(vqlNavigator, filter, veriniceDataGraph, result);
+        LtrPrintRowsTraversalListener traversalListener = new LtrPrintRowsTraversalListener(
+                vqlNavigator, filter, veriniceDataGraph, result);
 
         traverse(veriniceDataGraph, potentialRoot, filter, traversalListener);
-        return traversalListener.getResult();
-    }
-
-    private List<List<String>> convertToTable(List<Map<String, String>> table) {
-
-        List<List<String>> stringTable = new LinkedList<>();
-
-        for (Map<String, String> map : table) {
-
-            String[] row = new String[columnPath2TablePosition.size()];
-
-            for(Entry<String, Integer> pos : columnPath2TablePosition.entrySet()){
-                row[pos.getValue()] = map.containsKey(pos.getKey()) ? map.get(pos.getKey()) : "";
-            }
 
+        for (Map<String, String> map : traversalListener.getResult().getResult()) {
+            rowSink.accept(toRow(map));
+        }
+    }
 
-            stringTable.add(Arrays.asList(row));
+    private List<String> toRow(Map<String, String> map) {
+        String[] row = new String[columnPath2TablePosition.size()];
 
-            if(LOG.isDebugEnabled()) {
-                LOG.debug("Add row to link table: [" + StringUtils.join(row, ", ") + "]");
-            }
+        for (Entry<String, Integer> pos : columnPath2TablePosition.entrySet()) {
+            row[pos.getValue()] = map.containsKey(pos.getKey()) ? map.get(pos.getKey()) : "";
         }
 
-        Collections.sort(stringTable, new RowComparator());
-        stringTable.add(0, getAliasHeader());
-        return stringTable;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Add row to link table: [" + StringUtils.join(row, ", ") + "]");
+        }
+        return Arrays.asList(row);
     }
 
     private void storeColumnHeaderOrderAndAlias(ILinkTableConfiguration conf) {
@@ -198,4 +309,60 @@ public class GraphLinkedTableCreator implements LinkedTableCreator {
         return Arrays.asList(aliasHeader);
     }
 
+    /**
+     * Sets the number of threads which traverse the graph. 1 disables
+     * parallel processing.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the maximum number of rows which are kept in memory when the table
+     * is passed to a row consumer.
+     */
+    public void setMaxRowsInMemory(int maxRowsInMemory) {
+        this.maxRowsInMemory = maxRowsInMemory;
+    }
+
+    /**
+     * Returns the header first and then the rows of a sorter. Closes the
+     * sorter when the iterator is closed.
+     */
+    private static final class SortedRowIterator implements LinkTableRowIterator {
+
+        private final LinkTableRowSorter sorter;
+        private final LinkTableRowIterator rows;
+        private List<String> header;
+
+        private SortedRowIterator(List<String> header, LinkTableRowSorter sorter) {
+            this.header = header;
+            this.sorter = sorter;
+            this.rows = sorter.iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return header != null || rows.hasNext();
+        }
+
+        @Override
+        public List<String> next() {
+            if (header != null) {
+                List<String> row = header;
+                header = null;
+                return row;
+            }
+            return rows.next();
+        }
+
+        @Override
+        public void close() {
+            try {
+                rows.close();
+            } finally {
+                sorter.close();
+            }
+        }
+    }
 }
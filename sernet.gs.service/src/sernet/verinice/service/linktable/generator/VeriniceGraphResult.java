@@ -57,6 +57,8 @@ final class VeriniceGraphResult {
 
     private VeriniceGraphResultRow currentLinkedTableRow;
 
+    private boolean currentRowAdded;
+
     private boolean justDuplicated;
 
     private Deque<VeriniceGraphResultEntry> entryStack = new LinkedList<>();
@@ -67,6 +69,7 @@ final class VeriniceGraphResult {
         linkedTableRows = new ArrayList<>();
         currentLinkedTableRow = new VeriniceGraphResultRow();
         linkedTableRows.add(currentLinkedTableRow);
+        currentRowAdded = true;
         this.riskConfigurationCache = riskConfigurationCache;
     }
 
@@ -78,8 +81,9 @@ final class VeriniceGraphResult {
 
         currentLinkedTableRow.addEntry(veriniceGraphResultEntry);
 
-        if (!linkedTableRows.contains(currentLinkedTableRow)) {
+        if (!currentRowAdded) {
             linkedTableRows.add(currentLinkedTableRow);
+            currentRowAdded = true;
         }
 
         entryStack.addFirst(veriniceGraphResultEntry);
@@ -96,6 +100,7 @@ final class VeriniceGraphResult {
 
         if (!justDuplicated && !pop.isParentRelation()) {
             currentLinkedTableRow = currentLinkedTableRow.duplicate();
+            currentRowAdded = false;
             justDuplicated = true;
         }
 
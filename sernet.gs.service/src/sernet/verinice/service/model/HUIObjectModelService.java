@@ -202,13 +202,13 @@ public class HUIObjectModelService implements IObjectModelService {
                 || getHuiTypeFactory().getEntityType(toEntityTypeID) == null) {
             return new HashSet<>();
         }
-        Set<HuiRelation> relations = getHuiTypeFactory().getPossibleRelations(fromEntityTypeID,
-                toEntityTypeID);
-        relations
-                .addAll(getHuiTypeFactory().getPossibleRelations(toEntityTypeID, fromEntityTypeID));
         HashSet<String> relationIds = new HashSet<>();
-        for (HuiRelation huiRelation : relations) {
-
+        for (HuiRelation huiRelation : getHuiTypeFactory().getPossibleRelations(fromEntityTypeID,
+                toEntityTypeID)) {
+            relationIds.add(huiRelation.getId());
+        }
+        for (HuiRelation huiRelation : getHuiTypeFactory().getPossibleRelations(toEntityTypeID,
+                fromEntityTypeID)) {
             relationIds.add(huiRelation.getId());
         }
 
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.remoting;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Object output stream which writes equal short strings only once.
+ *
+ * Type ids, property type ids and other short strings of
+ * {@link sernet.verinice.model.common.CnATreeElement}s, entities, property
+ * lists, properties and links are loaded as separate string instances for
+ * every row. Java serialization writes each instance again. This stream
+ * replaces equal strings with the first instance, the following ones are
+ * written as back references. The stream is read by a plain
+ * {@link java.io.ObjectInputStream}, on the receiving side equal strings
+ * are shared instances.
+ */
+public class CompactObjectOutputStream extends ObjectOutputStream {
+
+    /**
+     * Longer strings are texts which are rarely equal
+     */
+    public static final int MAX_SHARED_STRING_LENGTH = 128;
+
+    private final Map<String, String> sharedStrings = new HashMap<>();
+
+    public CompactObjectOutputStream(OutputStream out) throws IOException {
+        super(out);
+        enableReplaceObject(true);
+    }
+
+    @Override
+    protected Object replaceObject(Object obj) throws IOException {
+        if (obj instanceof String && ((String) obj).length() <= MAX_SHARED_STRING_LENGTH) {
+            String sharedString = sharedStrings.putIfAbsent((String) obj, (String) obj);
+            if (sharedString != null) {
+                return sharedString;
+            }
+        }
+        return obj;
+    }
+
+    public int getNumberOfSharedStrings() {
+        return sharedStrings.size();
+    }
+}
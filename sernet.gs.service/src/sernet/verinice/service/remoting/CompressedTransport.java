@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.remoting;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Constants and streams of the compressed transport mode between the
+ * verinice client and the HttpInvoker services of the server.
+ *
+ * The client always accepts gzip compressed responses. The server marks
+ * every response with header {@link #HEADER_TRANSPORT}. After the client
+ * has seen this header it sends request bodies larger than
+ * {@link #MIN_COMPRESSION_SIZE} compressed with gzip. Old servers never send
+ * the header and get uncompressed requests only.
+ */
+public final class CompressedTransport {
+
+    public static final String HEADER_TRANSPORT = "X-Verinice-Transport";
+    public static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    public static final String ENCODING_GZIP = "gzip";
+
+    /**
+     * System property to disable compression in the client, default: true
+     */
+    public static final String PROPERTY_COMPRESSION = "verinice.transport.compression";
+
+    /**
+     * Smaller request bodies are not compressed
+     */
+    public static final int MIN_COMPRESSION_SIZE = 1024;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private CompressedTransport() {
+        // do not instantiate this class
+    }
+
+    public static boolean isCompressionEnabled() {
+        return Boolean.parseBoolean(System.getProperty(PROPERTY_COMPRESSION, "true"));
+    }
+
+    public static boolean isGzip(String encodingHeader) {
+        return encodingHeader != null
+                && encodingHeader.toLowerCase().contains(ENCODING_GZIP);
+    }
+
+    /**
+     * Creates a gzip stream which favors speed over compression ratio.
+     */
+    public static OutputStream createGzipOutputStream(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(Deflater.BEST_SPEED);
+            }
+        };
+    }
+
+    public static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 4);
+        try (OutputStream out = createGzipOutputStream(compressed)) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * An input stream which counts the bytes read.
+     */
+    public static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        public CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * An output stream which counts the bytes written.
+     */
+    public static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
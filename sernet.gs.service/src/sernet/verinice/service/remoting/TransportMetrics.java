@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.service.remoting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Payload sizes and latencies of remote invocations, grouped by service
+ * method and command class. Every invocation is logged at debug level, a
+ * summary of all invocations is logged every {@link #SUMMARY_INTERVAL}
+ * invocations.
+ */
+public class TransportMetrics {
+
+    private static final Logger LOG = Logger.getLogger(TransportMetrics.class);
+
+    public static final int SUMMARY_INTERVAL = 1000;
+
+    private final String side;
+
+    private final Map<String, Invocations> invocationsByName = new ConcurrentHashMap<>();
+
+    private final LongAdder numberOfInvocations = new LongAdder();
+
+    /**
+     * @param side The side of the connection, e.g. client or server, used
+     *            in log messages
+     */
+    public TransportMetrics(String side) {
+        this.side = side;
+    }
+
+    /**
+     * Returns the name of an invocation, the method name followed by the
+     * class of the command for command service invocations.
+     */
+    public static String getInvocationName(String methodName, Object[] arguments) {
+        if (arguments != null && arguments.length == 1 && arguments[0] != null
+                && "executeCommand".equals(methodName)) {
+            return methodName + "(" + arguments[0].getClass().getSimpleName() + ")";
+        }
+        return methodName;
+    }
+
+    public void record(String name, long requestBytes, long responseBytes, long millis) {
+        Invocations invocations = invocationsByName.computeIfAbsent(name,
+                Invocations::new);
+        invocations.add(requestBytes, responseBytes, millis);
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(side + " " + name + ", request: " + requestBytes + " bytes, response: "
+                    + responseBytes + " bytes, time: " + millis + " ms");
+        }
+        numberOfInvocations.increment();
+        if (LOG.isDebugEnabled() && numberOfInvocations.sum() % SUMMARY_INTERVAL == 0) {
+            LOG.debug(getSummary());
+        }
+    }
+
+    /**
+     * @return A summary of all invocations ordered by total time descending
+     */
+    public String getSummary() {
+        List<Invocations> all = new ArrayList<>(invocationsByName.values());
+        all.sort(Comparator.comparingLong(Invocations::getTotalMillis).reversed());
+        StringBuilder sb = new StringBuilder(side).append(" transport metrics:");
+        for (Invocations invocations : all) {
+            sb.append(System.lineSeparator()).append(invocations);
+        }
+        return sb.toString();
+    }
+
+    public Invocations getInvocations(String name) {
+        return invocationsByName.get(name);
+    }
+
+    public void reset() {
+        invocationsByName.clear();
+        numberOfInvocations.reset();
+    }
+
+    /**
+     * Aggregated metrics of all invocations with the same name.
+     */
+    public static class Invocations {
+
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder requestBytes = new LongAdder();
+        private final LongAdder responseBytes = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+
+        Invocations(String name) {
+            this.name = name;
+        }
+
+        void add(long requestBytes, long responseBytes, long millis) {
+            this.count.increment();
+            this.requestBytes.add(requestBytes);
+            this.responseBytes.add(responseBytes);
+            this.totalMillis.add(millis);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getRequestBytes() {
+            return requestBytes.sum();
+        }
+
+        public long getResponseBytes() {
+            return responseBytes.sum();
+        }
+
+        public long getTotalMillis() {
+            return totalMillis.sum();
+        }
+
+        @Override
+        public String toString() {
+            long n = Math.max(1, getCount());
+            return name + ": " + getCount() + " invocations, avg. request: "
+                    + getRequestBytes() / n + " bytes, avg. response: " + getResponseBytes() / n
+                    + " bytes, avg. time: " + getTotalMillis() / n + " ms";
+        }
+    }
+}
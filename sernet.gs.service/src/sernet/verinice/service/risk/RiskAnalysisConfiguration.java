@@ -33,6 +33,8 @@ public class RiskAnalysisConfiguration implements Serializable {
     
     private Integer[] organizationDbIds;
 
+    private boolean incremental = false;
+
     public RiskAnalysisConfiguration(Integer... organizationDbIds) {
         super();
         this.organizationDbIds = organizationDbIds;
@@ -50,5 +52,19 @@ public class RiskAnalysisConfiguration implements Serializable {
     public void setOrganizationDbIds(Integer[] organizationDbIds) {
         this.organizationDbIds = organizationDbIds;
     }
-    
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * If true, only assets whose values, controls or scenarios have changed
+     * since the last risk analysis are analyzed again.
+     * 
+     * @param incremental Incremental mode, default is false
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
 }
@@ -20,12 +20,31 @@
 package sernet.verinice.service.risk;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import org.apache.log4j.Logger;
+import org.hibernate.criterion.DetachedCriteria;
+import org.hibernate.criterion.Restrictions;
 
-import sernet.verinice.interfaces.CommandException;
+import sernet.gs.service.CollectionUtil;
+import sernet.gs.service.RetrieveInfo;
+import sernet.gs.service.RuntimeCommandException;
+import sernet.hui.common.VeriniceContext;
 import sernet.verinice.interfaces.IBaseDao;
+import sernet.verinice.interfaces.IDao;
 import sernet.verinice.interfaces.graph.Edge;
 import sernet.verinice.interfaces.graph.VeriniceGraph;
 import sernet.verinice.model.common.CnALink;
@@ -44,6 +63,17 @@ import sernet.verinice.model.iso27k.Vulnerability;
  * RiskAnalysisServiceImpl is configured as a singleton. In contrast to this a
  * new instance of RiskAnalysisJob is created for every execution of a risk
  * analysis.
+ * 
+ * The job never modifies the elements and edges of the graph, the graph may be
+ * a shared graph of the graph cache. The probabilities of the scenarios and
+ * the risk values of the assets are calculated in memory in a
+ * {@link ForkJoinPool}. Each asset is analyzed independently of other assets.
+ * Afterwards only the elements and links with changed values are loaded in
+ * batches and saved in the calling thread.
+ * 
+ * If a map with fingerprints is set, the job stores a fingerprint of the
+ * input and result values of each analyzed asset. In incremental mode assets
+ * whose fingerprint has not changed since the last run are skipped.
  *
  * @author Daniel Murygin <dm{a}sernet{dot}de>
  */
@@ -53,6 +83,24 @@ public class RiskAnalysisJob {
 
     private static final RiskCalculator RISK_CALCULATOR_DEFAULT = new RiskAdder();
 
+    /**
+     * All risk values of an asset which are calculated by the risk analysis
+     */
+    private static final String[] ASSET_RISK_PROPERTIES = new String[] {
+            Asset.ASSET_CONFIDENTIALITY_WITH_CONTROLS, Asset.ASSET_INTEGRITY_WITH_CONTROLS,
+            Asset.ASSET_AVAILABILITY_WITH_CONTROLS,
+            Asset.ASSET_CONFIDENTIALITY_WITH_PLANNED_CONTROLS,
+            Asset.ASSET_INTEGRITY_WITH_PLANNED_CONTROLS,
+            Asset.ASSET_AVAILABILITY_WITH_PLANNED_CONTROLS,
+            Asset.ASSET_CONFIDENTIALITY_WITH_IMPLEMENTED_CONTROLS,
+            Asset.ASSET_INTEGRITY_WITH_IMPLEMENTED_CONTROLS,
+            Asset.ASSET_AVAILABILITY_WITH_IMPLEMENTED_CONTROLS, Asset.ASSET_RISK_C,
+            Asset.ASSET_RISK_I, Asset.ASSET_RISK_A, Asset.ASSET_CONTROLRISK_C,
+            Asset.ASSET_CONTROLRISK_I, Asset.ASSET_CONTROLRISK_A, Asset.ASSET_PLANCONTROLRISK_C,
+            Asset.ASSET_PLANCONTROLRISK_I, Asset.ASSET_PLANCONTROLRISK_A,
+            Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C, Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I,
+            Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A };
+
     /**
      * A verinice graph with all elements which are analyzed
      */
@@ -62,6 +110,24 @@ public class RiskAnalysisJob {
 
     private IBaseDao<CnALink, Serializable> cnaLinkDao;
 
+    private IBaseDao<CnATreeElement, Serializable> elementDao;
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private Map<Integer, Long> assetFingerprints;
+
+    private boolean incremental = false;
+
+    /**
+     * Fingerprints of the assets analyzed in this run, they are stored in
+     * assetFingerprints after the risk values are saved
+     */
+    private final Map<Integer, Long> newFingerprints = new ConcurrentHashMap<>();
+
+    private final AtomicInteger numberOfSkippedAssets = new AtomicInteger();
+
+    private int numberOfAnalyzedAssets = 0;
+
     public RiskAnalysisJob(VeriniceGraph graph, IBaseDao<CnALink, Serializable> cnaLinkDao) {
         super();
         this.graph = graph;
@@ -72,578 +138,488 @@ public class RiskAnalysisJob {
      * Runs a risk analysis by analyzing the risk of scenarios and assets.
      */
     public void runRiskAnalysis() {
-        resetRiskValuesOfAssets();
-        setProbabilityOfScenarios();
-        reduceRiskOfScenarios();
-        analyseRiskOfAssets();
+        Set<CnATreeElement> scenarios = graph.getElements(IncidentScenario.TYPE_ID);
+        Set<CnATreeElement> assets = graph.getElements(Asset.TYPE_ID);
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Number of scenarios: " + scenarios.size() + ", number of assets: "
+                    + assets.size() + ", incremental: " + incremental);
+        }
+        long time = RiskAnalysisServiceImpl.initRuntime();
+        Map<CnATreeElement, ScenarioRisk> scenarioRisks = analyse(scenarios,
+                scenario -> analyseRiskOfScenario((IncidentScenario) scenario));
+        Map<CnATreeElement, AssetRisk> assetRisks = analyse(assets,
+                asset -> analyseRiskOfAsset((Asset) asset, scenarioRisks));
+        RiskAnalysisServiceImpl.logRuntime("Calculating risk values runtime : ", time);
+
+        time = RiskAnalysisServiceImpl.initRuntime();
+        saveRiskValues(scenarioRisks.values(), assetRisks.values());
+        RiskAnalysisServiceImpl.logRuntime("Saving risk values runtime : ", time);
+        numberOfAnalyzedAssets = assetRisks.size();
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Analyzed assets: " + numberOfAnalyzedAssets + ", skipped assets: "
+                    + numberOfSkippedAssets.get());
+        }
+        storeFingerprints(assets);
     }
 
     /**
-     * Resets the risk values of all assets.
+     * Stores the fingerprints of this run. Fingerprints of assets which are
+     * not part of the analyzed graph anymore are removed.
      */
-    private void resetRiskValuesOfAssets() {
-        Set<CnATreeElement> assets = graph.getElements(Asset.TYPE_ID);
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Number of assets: " + assets.size());
+    private void storeFingerprints(Set<CnATreeElement> assets) {
+        if (assetFingerprints == null) {
+            return;
         }
+        Set<Integer> assetIds = new HashSet<>(assets.size());
         for (CnATreeElement asset : assets) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Resetting Risk for Asset: " + asset.getTitle());
-            }
-            resetRisks((Asset) asset);
+            assetIds.add(asset.getDbId());
         }
+        assetFingerprints.keySet().retainAll(assetIds);
+        assetFingerprints.putAll(newFingerprints);
     }
 
     /**
-     * Sets the probability of all incident scenarios.
+     * Applies function analysis to all elements in a {@link ForkJoinPool} and
+     * returns the results by element. Null results are omitted.
      */
-    private void setProbabilityOfScenarios() {
-        Set<CnATreeElement> scenarios = graph.getElements(IncidentScenario.TYPE_ID);
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Number of scenarios: " + scenarios.size());
+    private <R> Map<CnATreeElement, R> analyse(Set<CnATreeElement> elements,
+            Function<CnATreeElement, R> analysis) {
+        Map<CnATreeElement, R> results = new ConcurrentHashMap<>(elements.size());
+        if (parallelism < 2 || elements.size() < 2) {
+            for (CnATreeElement element : elements) {
+                addResult(results, element, analysis.apply(element));
+            }
+            return results;
         }
-        for (CnATreeElement scenario : scenarios) {
-            setProbabilityOfScenario((IncidentScenario) scenario);
+        final VeriniceContext.State state = VeriniceContext.getState();
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, elements.size()));
+        try {
+            pool.submit(() -> elements.parallelStream().forEach(element -> {
+                VeriniceContext.setState(state);
+                addResult(results, element, analysis.apply(element));
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeCommandException("Interrupted while running risk analysis", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeCommandException("Error while running risk analysis", e);
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    private static <R> void addResult(Map<CnATreeElement, R> results, CnATreeElement element,
+            R result) {
+        if (result != null) {
+            results.put(element, result);
         }
     }
 
     /**
-     * Sets the probability of an incident scenario.
+     * Calculates the probability of an incident scenario.
      * 
      * The probability of the scenario is set by addition of the probability of
-     * the threat and the vulnerability which are linked to the scenario.
+     * the threat and the vulnerability which are linked to the scenario. The
+     * probability is reduced by subtracting the effect of all linked and
+     * implemented controls.
      * 
      * @param scenario
      *            A single incident scenario which is analyzed
      */
-    private void setProbabilityOfScenario(IncidentScenario scenario) {
+    private ScenarioRisk analyseRiskOfScenario(IncidentScenario scenario) {
+        ScenarioRisk risk = new ScenarioRisk(scenario);
+        int threatProbability = scenario
+                .getNumericProperty(IncidentScenario.PROP_SCENARIO_THREAT_PROBABILITY);
+        int vulnerabilityProbability = scenario
+                .getNumericProperty(IncidentScenario.PROP_SCENARIO_VULN_PROBABILITY);
         // get values from linked threat & vulnerabilities, only if automatic
         // mode is activated:
         if (scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_METHOD) == 1) {
-            getProbabilityFromThreatAndVulnerability(graph, scenario);
+            int[] probabilities = getProbabilityFromThreatAndVulnerability(scenario);
+            if (probabilities != null) {
+                threatProbability = probabilities[0];
+                vulnerabilityProbability = probabilities[1];
+                risk.properties.put(IncidentScenario.PROP_SCENARIO_THREAT_PROBABILITY,
+                        threatProbability);
+                risk.properties.put(IncidentScenario.PROP_SCENARIO_VULN_PROBABILITY,
+                        vulnerabilityProbability);
+            }
         }
 
-        // calculate probability:
-        scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY, 0);
-        int myThreat = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_THREAT_PROBABILITY);
-        int myVuln = scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_VULN_PROBABILITY);
-        scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY, myThreat + myVuln);
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Scenario: " + scenario.getTitle() + ", probability set: "
-                    + scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY));
+        risk.probability = threatProbability + vulnerabilityProbability;
+        risk.probabilityWithControls = risk.probability;
+        risk.probabilityWithPlannedControls = risk.probability;
+        risk.probabilityWithoutNaControls = risk.probability;
+        // deduct controls from probability:
+        for (CnATreeElement control : graph.getLinkTargetsByElementType(scenario,
+                Control.TYPE_ID)) {
+            int controlEffect = control.getNumericProperty(Control.PROP_CONTROL_EFFECT_P);
+            // Risk with all controls
+            risk.probabilityWithPlannedControls = positiveOrZero(
+                    risk.probabilityWithPlannedControls - controlEffect);
+            // Risk with implemented controls
+            if (Control.isImplemented(control.getEntity())) {
+                risk.probabilityWithControls = positiveOrZero(
+                        risk.probabilityWithControls - controlEffect);
+            }
+            // Risk with planned implemented controls
+            if (Control.isPlanned(control.getEntity())) {
+                risk.probabilityWithoutNaControls = positiveOrZero(
+                        risk.probabilityWithoutNaControls - controlEffect);
+            }
         }
-    }
-
-    /**
-     * Reduces the probability of all incident scenarios by subtracting the
-     * effect of all linked and implemented controls.
-     */
-    private void reduceRiskOfScenarios() {
-        Set<CnATreeElement> scenarios = graph.getElements(IncidentScenario.TYPE_ID);
-        for (CnATreeElement scenario : scenarios) {
-            reduceRiskOfSzenario((IncidentScenario) scenario);
+        risk.properties.put(IncidentScenario.PROP_SCENARIO_PROBABILITY, risk.probability);
+        risk.properties.put(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS,
+                risk.probabilityWithControls);
+        risk.properties.put(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS,
+                risk.probabilityWithPlannedControls);
+        risk.properties.put(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS,
+                risk.probabilityWithoutNaControls);
+        risk.affectsConfidentiality = scenario
+                .getNumericProperty(IncidentScenario.PROP_SCENARIO_AFFECTS_C) == 1;
+        risk.affectsIntegrity = scenario
+                .getNumericProperty(IncidentScenario.PROP_SCENARIO_AFFECTS_I) == 1;
+        risk.affectsAvailability = scenario
+                .getNumericProperty(IncidentScenario.PROP_SCENARIO_AFFECTS_A) == 1;
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Scenario: " + scenario.getTitle() + ", probability: " + risk.probability);
         }
+        return risk;
     }
 
     /**
-     * Reduces the probability of a scenario by subtracting the effect of all
-     * linked and implemented controls.
-     *
-     * @param scenario
-     *            A single incident scenario
+     * Returns the highest threat level and the highest exploitability of the
+     * threats and vulnerabilities linked to a scenario or null if no threat or
+     * no vulnerability is linked.
      */
-    private void reduceRiskOfSzenario(IncidentScenario scenario) {
-        // init probability values to value without controls:
-        scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS,
-                scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY));
-        scenario.setNumericProperty(
-                IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS,
-                scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY));
-        scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS,
-                scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY));
-
-        Set<CnATreeElement> controlSet = graph.getLinkTargetsByElementType(scenario,
-                Control.TYPE_ID);
-        // deduct controls from probability:
-        for (CnATreeElement control : controlSet) {
-            reduceRiskOfSzenarioWithControl(scenario, control);
+    private int[] getProbabilityFromThreatAndVulnerability(IncidentScenario scenario) {
+        // only calculate if threat AND vulnerability is linked to scenario:
+        Set<CnATreeElement> threatSet = graph.getLinkTargetsByElementType(scenario, Threat.TYPE_ID);
+        Set<CnATreeElement> vulnerabilitySet = graph.getLinkTargetsByElementType(scenario,
+                Vulnerability.TYPE_ID);
+        if (threatSet.isEmpty() || vulnerabilitySet.isEmpty()) {
+            return null;
         }
-    }
-
-    private void reduceRiskOfSzenarioWithControl(IncidentScenario scenario,
-            CnATreeElement control) {
-        int controlEffect = control.getNumericProperty(Control.PROP_CONTROL_EFFECT_P);
-        int probAfterControl;
-
-        // Risk with all controls
-        probAfterControl = scenario.getNumericProperty(
-                IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS) - controlEffect;
-        scenario.setNumericProperty(
-                IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS,
-                positiveOrZero(probAfterControl));
-
-        // Risk with implemented controls
-        if (Control.isImplemented(control.getEntity())) {
-
-            probAfterControl = scenario.getNumericProperty(
-                    IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS) - controlEffect;
-            scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS,
-                    positiveOrZero(probAfterControl));
+        int threatImpact = 0;
+        for (CnATreeElement threat : threatSet) {
+            // use higher value of likelihood or impact:
+            int level1 = threat.getNumericProperty(Threat.PROP_THREAT_LIKELIHOOD);
+            int level2 = threat.getNumericProperty(Threat.PROP_THREAT_IMPACT);
+            int level = (level1 > level2) ? level1 : level2;
+            threatImpact = (level > threatImpact) ? level : threatImpact;
         }
 
-        // Risk with planned implemented controls
-        if (Control.isPlanned(control.getEntity())) {
-            probAfterControl = scenario.getNumericProperty(
-                    IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS) - controlEffect;
-            scenario.setNumericProperty(
-                    IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS,
-                    positiveOrZero(probAfterControl));
+        int exploitability = 0;
+        for (CnATreeElement vuln : vulnerabilitySet) {
+            int level = vuln.getNumericProperty(Vulnerability.PROP_VULNERABILITY_EXPLOITABILITY);
+            exploitability = (level > exploitability) ? level : exploitability;
         }
+        return new int[] { threatImpact, exploitability };
     }
 
     /**
-     * Returns the risk for a given business impact of an asset and a given
-     * probability of occurrence for a incident scenario.
-     * 
-     * @param businessImpact
-     *            A business impact of an asset
-     * @param probability
-     *            The probability of occurrence for a incident scenario
-     * @return A risk value for the given parameters
-     */
-    protected int calculateRisk(int businessImpact, int probability) {
-        return getRiskCalculator().calculateRiskFromBusinessImpactAndProbability(businessImpact,
-                probability);
-    }
-
-    /**
-     * Analyses the risk of all assets which are linked to incident scenarios in
-     * a given verinice graph.
+     * Analyses the risk of a single asset which is linked to incident
+     * scenarios. Returns null if the job runs in incremental mode and the
+     * fingerprint of the asset has not changed since the last run.
      * 
-     * @throws CommandException
+     * @param asset
+     *            An asset
+     * @param scenarioRisks
+     *            The calculated probabilities of all scenarios
      */
-    private void analyseRiskOfAssets() {
-        Set<CnATreeElement> scenarios = graph.getElements(IncidentScenario.TYPE_ID);
-        // determine risk originating from scenarios for all linked assets:
-        for (CnATreeElement scenario : scenarios) {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Determine Risk for Scenario: " + scenario.getTitle());
+    private AssetRisk analyseRiskOfAsset(Asset asset,
+            Map<CnATreeElement, ScenarioRisk> scenarioRisks) {
+        int[] reducedValues = reduceCIAValues(asset);
+        Set<Edge> edgesToScenarios = graph.getEdgesByElementType(asset, IncidentScenario.TYPE_ID);
+        Long fingerprint = null;
+        if (assetFingerprints != null) {
+            fingerprint = createFingerprint(asset, reducedValues, edgesToScenarios, scenarioRisks,
+                    null);
+            if (incremental && fingerprint.equals(assetFingerprints.get(asset.getDbId()))) {
+                numberOfSkippedAssets.incrementAndGet();
+                return null;
             }
-            analyseRiskOfAssets((IncidentScenario) scenario);
         }
-    }
-
-    /**
-     * Analyses the risk of all assets which are linked to a given incident
-     * scenario.
-     *
-     * @param graph
-     *            A verinice graph with all elements which are analyzed
-     * @param scenario
-     *            A single incident scenario
-     * @throws CommandException
-     */
-    private void analyseRiskOfAssets(IncidentScenario scenario) {
-        Set<Edge> edgesToAsset = graph.getEdgesByElementType(scenario, Asset.TYPE_ID);
 
-        for (Edge edge : edgesToAsset) {
-            analyseRiskOfAsset(graph, scenario, edge);
+        AssetRisk risk = new AssetRisk(asset);
+        for (String propertyId : ASSET_RISK_PROPERTIES) {
+            risk.properties.put(propertyId, 0);
         }
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Number of links from scenario to assets: " + edgesToAsset.size());
+        for (Edge edge : edgesToScenarios) {
+            ScenarioRisk scenarioRisk = scenarioRisks.get(getOtherElement(edge, asset));
+            if (scenarioRisk != null) {
+                risk.edgeRisks.put(edge, analyseRiskOfAsset(risk, reducedValues, scenarioRisk));
+            }
         }
-        long time = RiskAnalysisServiceImpl.initRuntime();
-        // Update cnalinks
-        for (Edge edge : edgesToAsset) {
-            saveLink(edge);
+        if (fingerprint != null) {
+            newFingerprints.put(asset.getDbId(), createFingerprint(asset, reducedValues,
+                    edgesToScenarios, scenarioRisks, risk));
         }
-        RiskAnalysisServiceImpl.logRuntime("Updating links from scenarios to assets runtime : ",
-                time);
+        return risk;
     }
 
     /**
-     * Analyses the risk of a single asset which is linked to an incident
-     * scenario.
-     * 
-     * @param scenario
-     *            An incident scenario
-     * @param edgeToAsset
-     *            An edge that connects an incident scenario with an asset
+     * Adds the risk originating from a scenario to the risk values of an asset
+     * and returns the risk values of the link between scenario and asset.
      */
-    private void analyseRiskOfAsset(VeriniceGraph graph, IncidentScenario scenario,
-            Edge edgeToAsset) {
-        Asset asset = (Asset) edgeToAsset.getTarget();
-        Asset assetWithReducedCIAValues = reduceCIAValues(graph, asset);
-
-        resetRisks(edgeToAsset);
-
-        if (scenarioAffectsConfidentiality(scenario)) {
-            analyseRiskCOfAsset(scenario, edgeToAsset, assetWithReducedCIAValues);
+    private int[] analyseRiskOfAsset(AssetRisk risk, int[] reducedValues,
+            ScenarioRisk scenarioRisk) {
+        int[] edgeRisk = new int[6];
+        if (scenarioRisk.affectsConfidentiality) {
+            analyseRisk(CiaValue.CONFIDENTIALITY, risk, reducedValues, scenarioRisk, edgeRisk);
         }
-
-        if (scenarioAffectsIntegrity(scenario)) {
-            analyseRiskIOfAsset(scenario, edgeToAsset, assetWithReducedCIAValues);
+        if (scenarioRisk.affectsIntegrity) {
+            analyseRisk(CiaValue.INTEGRITY, risk, reducedValues, scenarioRisk, edgeRisk);
         }
-
-        if (scenarioAffectsAvailability(scenario)) {
-            analyseRiskAOfAsset(scenario, edgeToAsset, assetWithReducedCIAValues);
+        if (scenarioRisk.affectsAvailability) {
+            analyseRisk(CiaValue.AVAILABILITY, risk, reducedValues, scenarioRisk, edgeRisk);
         }
+        return edgeRisk;
     }
 
     /**
      * Abbreviations used in this method to shorten in names of variables: -
-     * business impact: bi - confidentiality: C
-     * 
-     * @param scenario
-     * @param edgeToAsset
-     * @param assetWithReducedCIAValues
+     * business impact: bi
      */
-    private void analyseRiskCOfAsset(IncidentScenario scenario, Edge edgeToAsset,
-            Asset assetWithReducedCIAValues) {
-        Asset asset = (Asset) edgeToAsset.getTarget();
+    private void analyseRisk(CiaValue ciaValue, AssetRisk risk, int[] reducedValues,
+            ScenarioRisk scenarioRisk, int[] edgeRisk) {
+        int index = ciaValue.ordinal();
 
         // Without controls:
-        int biC = asset.getNumericProperty(Asset.ASSET_VALUE_CONFIDENTIALITY);
-        int probability = scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY);
-        int riskC = calculateRisk(biC, probability);
-        asset.setNumericProperty(Asset.ASSET_RISK_C,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_RISK_C) + riskC));
-        edgeToAsset.setRiskConfidentiality(positiveOrZero(riskC));
+        int bi = risk.asset.getNumericProperty(ciaValue.valueProperty);
+        int riskValue = calculateRisk(bi, scenarioRisk.probability);
+        risk.add(ciaValue.riskProperty, riskValue);
+        edgeRisk[2 * index] = positiveOrZero(riskValue);
 
         // With implemented controls
-        int biWithImplementedControlsC = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_CONTROLRISK_C);
-        int probabilityWithImplementedControls = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS);
-        int riskWithImplementedControlsC = calculateRisk(biWithImplementedControlsC,
-                probabilityWithImplementedControls);
-        asset.setNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_IMPLEMENTED_CONTROLS,
-                biWithImplementedControlsC);
-        asset.setNumericProperty(Asset.ASSET_CONTROLRISK_C,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_CONTROLRISK_C)
-                        + riskWithImplementedControlsC));
-        edgeToAsset
-                .setRiskConfidentialityWithControls(positiveOrZero(riskWithImplementedControlsC));
+        int biWithImplementedControls = reducedValues[CiaValue.IMPLEMENTED + index];
+        int riskWithImplementedControls = calculateRisk(biWithImplementedControls,
+                scenarioRisk.probabilityWithControls);
+        risk.properties.put(ciaValue.withImplementedControlsProperty, biWithImplementedControls);
+        risk.add(ciaValue.controlRiskProperty, riskWithImplementedControls);
+        edgeRisk[2 * index + 1] = positiveOrZero(riskWithImplementedControls);
 
         // With all controls
-        int biWithAllControlsC = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_PLANCONTROLRISK_C);
-        int probabilityWithAllControls = scenario.getNumericProperty(
-                IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS);
-        int riskWithAllControlsC = calculateRisk(biWithAllControlsC, probabilityWithAllControls);
-        asset.setNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_CONTROLS, biWithAllControlsC);
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_C, positiveOrZero(
-                asset.getNumericProperty(Asset.ASSET_PLANCONTROLRISK_C) + riskWithAllControlsC));
+        int biWithAllControls = reducedValues[CiaValue.ALL + index];
+        int riskWithAllControls = calculateRisk(biWithAllControls,
+                scenarioRisk.probabilityWithPlannedControls);
+        risk.properties.put(ciaValue.withControlsProperty, biWithAllControls);
+        risk.add(ciaValue.planControlRiskProperty, riskWithAllControls);
 
         // With planned controls
-        int biWithPlannedControlsC = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C);
-        int probabilityWithPlannedControls = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS);
-        int riskWithPlannedControlsC = calculateRisk(biWithPlannedControlsC,
-                probabilityWithPlannedControls);
-        asset.setNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_PLANNED_CONTROLS,
-                biWithPlannedControlsC);
-        asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C)
-                        + riskWithPlannedControlsC));
+        int biWithPlannedControls = reducedValues[CiaValue.PLANNED + index];
+        int riskWithPlannedControls = calculateRisk(biWithPlannedControls,
+                scenarioRisk.probabilityWithoutNaControls);
+        risk.properties.put(ciaValue.withPlannedControlsProperty, biWithPlannedControls);
+        risk.add(ciaValue.withoutNaPlanControlRiskProperty, riskWithPlannedControls);
     }
 
     /**
-     * Abbreviations used in this method to shorten in names of variables: -
-     * Business impact: bi - Integrity: I
+     * Reduce the CIA values of an given asset with the effect of all controls
+     * which are linked to this asset. Returns the reduced values indexed by
+     * {@link CiaValue#ALL}, {@link CiaValue#PLANNED} and
+     * {@link CiaValue#IMPLEMENTED} plus the ordinal of the {@link CiaValue}.
      * 
-     * @param scenario
-     * @param edgeToAsset
-     * @param assetWithReducedCIAValues
+     * @param asset
+     *            An asset with CIA values
+     * @return The reduced CIA values
      */
-    private void analyseRiskIOfAsset(IncidentScenario scenario, Edge edgeToAsset,
-            Asset assetWithReducedCIAValues) {
-        Asset asset = (Asset) edgeToAsset.getTarget();
-
-        // Without controls:
-        int biI = asset.getNumericProperty(Asset.ASSET_VALUE_INTEGRITY);
-        int probability = scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY);
-        int riskI = calculateRisk(biI, probability);
-        asset.setNumericProperty(Asset.ASSET_RISK_I,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_RISK_I) + riskI));
-        edgeToAsset.setRiskIntegrity(positiveOrZero(riskI));
-
-        // With implemented controls
-        int biWithImplementedControlsI = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_CONTROLRISK_I);
-        int probabilityWithImplementedControls = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS);
-        int riskWithImplementedControlsI = calculateRisk(biWithImplementedControlsI,
-                probabilityWithImplementedControls);
-        asset.setNumericProperty(Asset.ASSET_INTEGRITY_WITH_IMPLEMENTED_CONTROLS,
-                biWithImplementedControlsI);
-        asset.setNumericProperty(Asset.ASSET_CONTROLRISK_I,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_CONTROLRISK_I)
-                        + riskWithImplementedControlsI));
-        edgeToAsset.setRiskIntegrityWithControls(positiveOrZero(riskWithImplementedControlsI));
-
-        // With all controls
-        int biWithAllControlsI = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_PLANCONTROLRISK_I);
-        int probabilityWithAllControls = scenario.getNumericProperty(
-                IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS);
-        int riskWithAllControlsI = calculateRisk(biWithAllControlsI, probabilityWithAllControls);
-        asset.setNumericProperty(Asset.ASSET_INTEGRITY_WITH_CONTROLS, biWithAllControlsI);
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_I, positiveOrZero(
-                asset.getNumericProperty(Asset.ASSET_PLANCONTROLRISK_I) + riskWithAllControlsI));
+    private int[] reduceCIAValues(Asset asset) {
+        int[] reducedValues = new int[9];
+        for (CiaValue ciaValue : CiaValue.values()) {
+            int value = asset.getNumericProperty(ciaValue.valueProperty);
+            reducedValues[CiaValue.ALL + ciaValue.ordinal()] = value;
+            reducedValues[CiaValue.PLANNED + ciaValue.ordinal()] = value;
+            reducedValues[CiaValue.IMPLEMENTED + ciaValue.ordinal()] = value;
+        }
+        for (CnATreeElement control : graph.getLinkTargetsByElementType(asset,
+                Control.TYPE_ID)) {
+            boolean planned = Control.isPlanned(control.getEntity());
+            boolean implemented = Control.isImplemented(control.getEntity());
+            for (CiaValue ciaValue : CiaValue.values()) {
+                int controlEffect = control.getNumericProperty(ciaValue.effectivenessProperty);
+                // Reduce regardless of implementation status
+                reduce(reducedValues, CiaValue.ALL + ciaValue.ordinal(), controlEffect);
+                // Reduce if implementation status is "planned"
+                if (planned) {
+                    reduce(reducedValues, CiaValue.PLANNED + ciaValue.ordinal(), controlEffect);
+                }
+                // Reduce if implementation status is "implemented"
+                if (implemented) {
+                    reduce(reducedValues, CiaValue.IMPLEMENTED + ciaValue.ordinal(),
+                            controlEffect);
+                }
+            }
+        }
+        return reducedValues;
+    }
 
-        // With planned controls
-        int biWithPlannedControlsI = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I);
-        int probabilityWithPlannedControls = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS);
-        int riskWithPlannedControlsI = calculateRisk(biWithPlannedControlsI,
-                probabilityWithPlannedControls);
-        asset.setNumericProperty(Asset.ASSET_INTEGRITY_WITH_PLANNED_CONTROLS,
-                biWithPlannedControlsI);
-        asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I)
-                        + riskWithPlannedControlsI));
+    private static void reduce(int[] values, int index, int controlEffect) {
+        values[index] = positiveOrZero(values[index] - controlEffect);
     }
 
     /**
-     * Abbreviations used in this method to shorten in names of variables: -
-     * Business impact: bi - Availability: A
-     * 
-     * @param scenario
-     * @param edgeToAsset
-     * @param assetWithReducedCIAValues
+     * Returns a fingerprint of all values which are read and written by the
+     * analysis of an asset. If risk is null the current values of the asset
+     * and the links are used as result values.
      */
-    private void analyseRiskAOfAsset(IncidentScenario scenario, Edge edgeToAsset,
-            Asset assetWithReducedCIAValues) {
-        Asset asset = (Asset) edgeToAsset.getTarget();
+    private long createFingerprint(Asset asset, int[] reducedValues, Set<Edge> edgesToScenarios,
+            Map<CnATreeElement, ScenarioRisk> scenarioRisks, AssetRisk risk) {
+        long fingerprint = getRiskCalculator().getClass().getName().hashCode();
+        for (CiaValue ciaValue : CiaValue.values()) {
+            fingerprint = 31 * fingerprint + asset.getNumericProperty(ciaValue.valueProperty);
+        }
+        for (int value : reducedValues) {
+            fingerprint = 31 * fingerprint + value;
+        }
+        for (String propertyId : ASSET_RISK_PROPERTIES) {
+            int value = (risk != null) ? risk.properties.get(propertyId)
+                    : asset.getNumericProperty(propertyId);
+            fingerprint = 31 * fingerprint + value;
+        }
+        // the order of the edges is undefined, edge fingerprints are added
+        long edgeFingerprints = 0;
+        for (Edge edge : edgesToScenarios) {
+            ScenarioRisk scenarioRisk = scenarioRisks.get(getOtherElement(edge, asset));
+            if (scenarioRisk == null) {
+                continue;
+            }
+            long edgeFingerprint = Objects.hash(edge.getSource().getDbId(),
+                    edge.getTarget().getDbId(), edge.getType());
+            edgeFingerprint = 31 * edgeFingerprint + scenarioRisk.getFingerprint();
+            int[] edgeRisk = (risk != null) ? risk.edgeRisks.get(edge) : getRiskValues(edge);
+            for (int value : edgeRisk) {
+                edgeFingerprint = 31 * edgeFingerprint + value;
+            }
+            edgeFingerprints += edgeFingerprint * 0x9E3779B97F4A7C15L;
+        }
+        return 31 * fingerprint + edgeFingerprints;
+    }
 
-        // Without controls:
-        int biA = asset.getNumericProperty(Asset.ASSET_VALUE_AVAILABILITY);
-        int probability = scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY);
-        int riskA = calculateRisk(biA, probability);
-        asset.setNumericProperty(Asset.ASSET_RISK_A,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_RISK_A) + riskA));
-        edgeToAsset.setRiskAvailability(positiveOrZero(riskA));
+    private static CnATreeElement getOtherElement(Edge edge, CnATreeElement element) {
+        return element.equals(edge.getSource()) ? edge.getTarget() : edge.getSource();
+    }
 
-        // With implemented controls
-        int biWithImplementedControlsA = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_CONTROLRISK_A);
-        int probabilityWithImplementedControls = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_CONTROLS);
-        int riskWithImplementedControlsA = calculateRisk(biWithImplementedControlsA,
-                probabilityWithImplementedControls);
-        asset.setNumericProperty(Asset.ASSET_AVAILABILITY_WITH_IMPLEMENTED_CONTROLS,
-                biWithImplementedControlsA);
-        asset.setNumericProperty(Asset.ASSET_CONTROLRISK_A,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_CONTROLRISK_A)
-                        + riskWithImplementedControlsA));
-        edgeToAsset.setRiskAvailabilityWithControls(positiveOrZero(riskWithImplementedControlsA));
+    private static int[] getRiskValues(Edge edge) {
+        return new int[] { intValue(edge.getRiskConfidentiality()),
+                intValue(edge.getRiskConfidentialityWithControls()),
+                intValue(edge.getRiskIntegrity()), intValue(edge.getRiskIntegrityWithControls()),
+                intValue(edge.getRiskAvailability()),
+                intValue(edge.getRiskAvailabilityWithControls()) };
+    }
 
-        // With all controls
-        int biWithAllControlsA = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_PLANCONTROLRISK_A);
-        int probabilityWithAllControls = scenario.getNumericProperty(
-                IncidentScenario.PROP_SCENARIO_PROBABILITY_WITH_PLANNED_CONTROLS);
-        int riskWithAllControlsA = calculateRisk(biWithAllControlsA, probabilityWithAllControls);
-        asset.setNumericProperty(Asset.ASSET_AVAILABILITY_WITH_CONTROLS, biWithAllControlsA);
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_A, positiveOrZero(
-                asset.getNumericProperty(Asset.ASSET_PLANCONTROLRISK_A) + riskWithAllControlsA));
+    private static boolean isChanged(Edge edge, int[] edgeRisk) {
+        return !Objects.equals(edge.getRiskConfidentiality(), edgeRisk[0])
+                || !Objects.equals(edge.getRiskConfidentialityWithControls(), edgeRisk[1])
+                || !Objects.equals(edge.getRiskIntegrity(), edgeRisk[2])
+                || !Objects.equals(edge.getRiskIntegrityWithControls(), edgeRisk[3])
+                || !Objects.equals(edge.getRiskAvailability(), edgeRisk[4])
+                || !Objects.equals(edge.getRiskAvailabilityWithControls(), edgeRisk[5]);
+    }
 
-        // With planned controls
-        int biWithPlannedControlsA = assetWithReducedCIAValues
-                .getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A);
-        int probabilityWithPlannedControls = scenario
-                .getNumericProperty(IncidentScenario.PROP_SCENARIO_PROBABILITY_WITHOUT_NA_CONTROLS);
-        int riskWithPlannedControlsA = calculateRisk(biWithPlannedControlsA,
-                probabilityWithPlannedControls);
-        asset.setNumericProperty(Asset.ASSET_AVAILABILITY_WITH_PLANNED_CONTROLS,
-                biWithPlannedControlsA);
-        asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A,
-                positiveOrZero(asset.getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A)
-                        + riskWithPlannedControlsA));
+    private static int intValue(Integer value) {
+        return value == null ? 0 : value;
     }
 
     /**
-     * Reduce the CIA values of an given asset with the effect of all controls
-     * which are linked to this asset. Returns a copy of the given asset with
-     * reduced values.
+     * Returns the risk for a given business impact of an asset and a given
+     * probability of occurrence for a incident scenario.
      * 
-     * @param graph
-     *            A verinice graph with all elements which are analyzed
-     * @param asset
-     *            An asset with CIA values
-     * @return A copy of the given asset with reduced CIA values.
+     * @param businessImpact
+     *            A business impact of an asset
+     * @param probability
+     *            The probability of occurrence for a incident scenario
+     * @return A risk value for the given parameters
      */
-    private Asset reduceCIAValues(VeriniceGraph graph, Asset asset) {
-        Asset assetWithReducedCIAValues = new Asset();
-        assetWithReducedCIAValues.getEntity().copyEntity(asset.getEntity());
-
-        // Reset risk values to prevent summation when running risk analysis
-        // multiple times
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_C,
-                asset.getNumericProperty(Asset.ASSET_VALUE_CONFIDENTIALITY));
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_I,
-                asset.getNumericProperty(Asset.ASSET_VALUE_INTEGRITY));
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_A,
-                asset.getNumericProperty(Asset.ASSET_VALUE_AVAILABILITY));
-
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C,
-                asset.getNumericProperty(Asset.ASSET_VALUE_CONFIDENTIALITY));
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I,
-                asset.getNumericProperty(Asset.ASSET_VALUE_INTEGRITY));
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A,
-                asset.getNumericProperty(Asset.ASSET_VALUE_AVAILABILITY));
-
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_CONTROLRISK_C,
-                asset.getNumericProperty(Asset.ASSET_VALUE_CONFIDENTIALITY));
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_CONTROLRISK_I,
-                asset.getNumericProperty(Asset.ASSET_VALUE_INTEGRITY));
-        assetWithReducedCIAValues.setNumericProperty(Asset.ASSET_CONTROLRISK_A,
-                asset.getNumericProperty(Asset.ASSET_VALUE_AVAILABILITY));
-
-        Set<CnATreeElement> linkedControls = graph.getLinkTargetsByElementType(asset,
-                Control.TYPE_ID);
-        for (CnATreeElement control : linkedControls) {
-            reduceCIAValues(assetWithReducedCIAValues, control);
-        }
-        return assetWithReducedCIAValues;
+    protected int calculateRisk(int businessImpact, int probability) {
+        return getRiskCalculator().calculateRiskFromBusinessImpactAndProbability(businessImpact,
+                probability);
     }
 
     /**
-     * Reduce the CIA values of a given asset with the effect of a given
-     * control.
-     * 
-     * @param asset
-     *            An asset with CIA values
-     * @param control
-     *            A control which reduces the CIA values
+     * Saves the calculated values which differ from the values in the graph.
+     * Changed elements and links are loaded in batches and saved in the
+     * current transaction.
      */
-    private void reduceCIAValues(Asset asset, CnATreeElement control) {
-        int controlEffectC = control.getNumericProperty(Control.PROP_EFFECTIVENESS_CONFIDENTIALITY);
-        int controlEffectI = control.getNumericProperty(Control.PROP_EFFECTIVENESS_INTEGRITY);
-        int controlEffectA = control.getNumericProperty(Control.PROP_EFFECTIVENESS_AVAILABILITY);
-
-        // Reduce regardless of implementation status
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_C, positiveOrZero(
-                asset.getNumericProperty(Asset.ASSET_PLANCONTROLRISK_C) - controlEffectC));
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_I, positiveOrZero(
-                asset.getNumericProperty(Asset.ASSET_PLANCONTROLRISK_I) - controlEffectI));
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_A, positiveOrZero(
-                asset.getNumericProperty(Asset.ASSET_PLANCONTROLRISK_A) - controlEffectA));
-
-        // Reduce if implementation status is "planned"
-        if (Control.isPlanned(control.getEntity())) {
-            asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C,
-                    positiveOrZero(
-                            asset.getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C)
-                                    - controlEffectC));
-            asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I,
-                    positiveOrZero(
-                            asset.getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I)
-                                    - controlEffectI));
-            asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A,
-                    positiveOrZero(
-                            asset.getNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A)
-                                    - controlEffectA));
-        }
-
-        // Reduce if implementation status is "implemented"
-        if (Control.isImplemented(control.getEntity())) {
-            asset.setNumericProperty(Asset.ASSET_CONTROLRISK_C, positiveOrZero(
-                    asset.getNumericProperty(Asset.ASSET_CONTROLRISK_C) - controlEffectC));
-            asset.setNumericProperty(Asset.ASSET_CONTROLRISK_I, positiveOrZero(
-                    asset.getNumericProperty(Asset.ASSET_CONTROLRISK_I) - controlEffectI));
-            asset.setNumericProperty(Asset.ASSET_CONTROLRISK_A, positiveOrZero(
-                    asset.getNumericProperty(Asset.ASSET_CONTROLRISK_A) - controlEffectA));
+    private void saveRiskValues(Collection<ScenarioRisk> scenarioRisks,
+            Collection<AssetRisk> assetRisks) {
+        Map<Integer, Map<String, Integer>> changedProperties = new HashMap<>();
+        for (ScenarioRisk risk : scenarioRisks) {
+            addChangedProperties(changedProperties, risk.scenario, risk.properties);
         }
-
+        Map<CnALink.Id, int[]> changedLinks = new HashMap<>();
+        for (AssetRisk risk : assetRisks) {
+            addChangedProperties(changedProperties, risk.asset, risk.properties);
+            risk.edgeRisks.forEach((edge, edgeRisk) -> {
+                if (isChanged(edge, edgeRisk)) {
+                    changedLinks.put(new CnALink.Id(edge.getSource().getDbId(),
+                            edge.getTarget().getDbId(), edge.getType()), edgeRisk);
+                }
+            });
+        }
+        if (LOG.isInfoEnabled()) {
+            LOG.info("Analyzed assets: " + assetRisks.size() + ", changed elements: "
+                    + changedProperties.size() + ", changed links: " + changedLinks.size());
+        }
+        saveProperties(changedProperties);
+        saveLinks(changedLinks);
     }
 
-    /**
-     * Reset risk calculation, remove all calculated risk values in an asset.
-     * 
-     * @param asset
-     */
-    private void resetRisks(Asset asset) {
-        asset.setNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_INTEGRITY_WITH_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_AVAILABILITY_WITH_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_PLANNED_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_INTEGRITY_WITH_PLANNED_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_AVAILABILITY_WITH_PLANNED_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_CONFIDENTIALITY_WITH_IMPLEMENTED_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_INTEGRITY_WITH_IMPLEMENTED_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_AVAILABILITY_WITH_IMPLEMENTED_CONTROLS, 0);
-        asset.setNumericProperty(Asset.ASSET_RISK_C, 0);
-        asset.setNumericProperty(Asset.ASSET_RISK_I, 0);
-        asset.setNumericProperty(Asset.ASSET_RISK_A, 0);
-        asset.setNumericProperty(Asset.ASSET_CONTROLRISK_C, 0);
-        asset.setNumericProperty(Asset.ASSET_CONTROLRISK_I, 0);
-        asset.setNumericProperty(Asset.ASSET_CONTROLRISK_A, 0);
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_C, 0);
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_I, 0);
-        asset.setNumericProperty(Asset.ASSET_PLANCONTROLRISK_A, 0);
-        asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C, 0);
-        asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I, 0);
-        asset.setNumericProperty(Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A, 0);
-    }
-
-    private void resetRisks(Edge edgeToAsset) {
-        edgeToAsset.setRiskConfidentiality(0);
-        edgeToAsset.setRiskConfidentialityWithControls(0);
-
-        edgeToAsset.setRiskIntegrity(0);
-        edgeToAsset.setRiskIntegrityWithControls(0);
-
-        edgeToAsset.setRiskAvailability(0);
-        edgeToAsset.setRiskAvailabilityWithControls(0);
-    }
-
-    private void getProbabilityFromThreatAndVulnerability(VeriniceGraph graph,
-            IncidentScenario scenario) {
-        // only calculate if threat AND vulnerability is linked to scenario:
-        Set<CnATreeElement> threatSet = graph.getLinkTargetsByElementType(scenario, Threat.TYPE_ID);
-        Set<CnATreeElement> vulnerabilitySet = graph.getLinkTargetsByElementType(scenario,
-                Vulnerability.TYPE_ID);
-
-        if (!threatSet.isEmpty() && !vulnerabilitySet.isEmpty()) {
-            int threatImpact = 0;
-            for (CnATreeElement threat : threatSet) {
-                // use higher value of likelihood or impact:
-                int level1 = threat.getNumericProperty(Threat.PROP_THREAT_LIKELIHOOD);
-                int level2 = threat.getNumericProperty(Threat.PROP_THREAT_IMPACT);
-                int level = (level1 > level2) ? level1 : level2;
-                threatImpact = (level > threatImpact) ? level : threatImpact;
+    private static void addChangedProperties(Map<Integer, Map<String, Integer>> changedProperties,
+            CnATreeElement element, Map<String, Integer> properties) {
+        properties.forEach((propertyId, value) -> {
+            if (element.getNumericProperty(propertyId) != value) {
+                changedProperties.computeIfAbsent(element.getDbId(), id -> new HashMap<>())
+                        .put(propertyId, value);
             }
+        });
+    }
 
-            int exploitability = 0;
-            for (CnATreeElement vuln : vulnerabilitySet) {
-                int level = vuln
-                        .getNumericProperty(Vulnerability.PROP_VULNERABILITY_EXPLOITABILITY);
-                exploitability = (level > exploitability) ? level : exploitability;
+    @SuppressWarnings("unchecked")
+    private void saveProperties(Map<Integer, Map<String, Integer>> changedProperties) {
+        for (List<Integer> partition : CollectionUtil.partition(
+                new ArrayList<>(changedProperties.keySet()), IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            DetachedCriteria crit = DetachedCriteria.forClass(CnATreeElement.class)
+                    .add(Restrictions.in("dbId", partition));
+            RetrieveInfo.getPropertyInstance().configureCriteria(crit);
+            List<CnATreeElement> elements = getElementDao().findByCriteria(crit);
+            for (CnATreeElement element : elements) {
+                changedProperties.get(element.getDbId()).forEach(element::setNumericProperty);
             }
-
-            // set values to highest found:
-            scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_THREAT_PROBABILITY,
-                    threatImpact);
-            scenario.setNumericProperty(IncidentScenario.PROP_SCENARIO_VULN_PROBABILITY,
-                    exploitability);
+            getElementDao().saveOrUpdateAll(elements);
         }
     }
 
-    private boolean scenarioAffectsConfidentiality(IncidentScenario scenario) {
-        return scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_AFFECTS_C) == 1;
-    }
-
-    private boolean scenarioAffectsIntegrity(IncidentScenario scenario) {
-        return scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_AFFECTS_I) == 1;
-    }
-
-    private boolean scenarioAffectsAvailability(IncidentScenario scenario) {
-        return scenario.getNumericProperty(IncidentScenario.PROP_SCENARIO_AFFECTS_A) == 1;
+    @SuppressWarnings("unchecked")
+    private void saveLinks(Map<CnALink.Id, int[]> changedLinks) {
+        Set<Integer> dependantIds = new HashSet<>();
+        changedLinks.keySet().forEach(id -> dependantIds.add(id.getDependantId()));
+        for (List<Integer> partition : CollectionUtil.partition(new ArrayList<>(dependantIds),
+                IDao.QUERY_MAX_ITEMS_IN_LIST)) {
+            DetachedCriteria crit = DetachedCriteria.forClass(CnALink.class)
+                    .add(Restrictions.in("id.dependantId", partition));
+            List<CnALink> links = getCnaLinkDao().findByCriteria(crit);
+            for (CnALink link : links) {
+                int[] edgeRisk = changedLinks.get(link.getId());
+                if (edgeRisk != null) {
+                    link.setRiskConfidentiality(edgeRisk[0]);
+                    link.setRiskConfidentialityWithControls(edgeRisk[1]);
+                    link.setRiskIntegrity(edgeRisk[2]);
+                    link.setRiskIntegrityWithControls(edgeRisk[3]);
+                    link.setRiskAvailability(edgeRisk[4]);
+                    link.setRiskAvailabilityWithControls(edgeRisk[5]);
+                    getCnaLinkDao().saveOrUpdate(link);
+                }
+            }
+        }
     }
 
     /**
@@ -651,24 +627,10 @@ public class RiskAnalysisJob {
      *            A positive or negative number
      * @return The given number if n is positive or 0 if n is 0 or negative
      */
-    private int positiveOrZero(int n) {
+    private static int positiveOrZero(int n) {
         return n < 0 ? 0 : n;
     }
 
-    private void saveLink(Edge edge) {
-        CnALink link = new CnALink(edge.getSource(), edge.getTarget(), edge.getType(),
-                edge.getDescription());
-        link.setRiskConfidentiality(edge.getRiskConfidentiality());
-        link.setRiskIntegrity(edge.getRiskIntegrity());
-        link.setRiskAvailability(edge.getRiskAvailability());
-        link.setRiskConfidentialityWithControls(edge.getRiskConfidentialityWithControls());
-        link.setRiskIntegrityWithControls(edge.getRiskIntegrityWithControls());
-        link.setRiskAvailabilityWithControls(edge.getRiskAvailabilityWithControls());
-        link.setRiskTreatment(edge.getRiskTreatment());
-        cnaLinkDao.merge(link);
-
-    }
-
     public RiskCalculator getRiskCalculator() {
         if (riskCalculator == null) {
             riskCalculator = RISK_CALCULATOR_DEFAULT;
@@ -687,4 +649,159 @@ public class RiskAnalysisJob {
     public void setCnaLinkDao(IBaseDao<CnALink, Serializable> cnaLinkDao) {
         this.cnaLinkDao = cnaLinkDao;
     }
+
+    public IBaseDao<CnATreeElement, Serializable> getElementDao() {
+        return elementDao;
+    }
+
+    public void setElementDao(IBaseDao<CnATreeElement, Serializable> elementDao) {
+        this.elementDao = elementDao;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param assetFingerprints
+     *            A map to store the fingerprints of the analyzed assets by
+     *            database id. The map is shared between runs of the same
+     *            organizations and must be thread safe. The fingerprints are
+     *            stored after the risk values are saved, fingerprints of
+     *            assets which are not analyzed anymore are removed.
+     */
+    public void setAssetFingerprints(Map<Integer, Long> assetFingerprints) {
+        this.assetFingerprints = assetFingerprints;
+    }
+
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    /**
+     * @return The number of assets whose risk values were calculated in the
+     *         last run
+     */
+    public int getNumberOfAnalyzedAssets() {
+        return numberOfAnalyzedAssets;
+    }
+
+    /**
+     * @return The number of assets which were skipped in the last run because
+     *         their fingerprint has not changed
+     */
+    public int getNumberOfSkippedAssets() {
+        return numberOfSkippedAssets.get();
+    }
+
+    /**
+     * @param incremental
+     *            If true, assets whose fingerprint has not changed since the
+     *            last run are not analyzed again
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * The properties of an asset which are read and written for one of the
+     * values confidentiality, integrity and availability.
+     */
+    private enum CiaValue {
+        CONFIDENTIALITY(Asset.ASSET_VALUE_CONFIDENTIALITY,
+                Control.PROP_EFFECTIVENESS_CONFIDENTIALITY, Asset.ASSET_RISK_C,
+                Asset.ASSET_CONFIDENTIALITY_WITH_IMPLEMENTED_CONTROLS, Asset.ASSET_CONTROLRISK_C,
+                Asset.ASSET_CONFIDENTIALITY_WITH_CONTROLS, Asset.ASSET_PLANCONTROLRISK_C,
+                Asset.ASSET_CONFIDENTIALITY_WITH_PLANNED_CONTROLS,
+                Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_C),
+        INTEGRITY(Asset.ASSET_VALUE_INTEGRITY, Control.PROP_EFFECTIVENESS_INTEGRITY,
+                Asset.ASSET_RISK_I, Asset.ASSET_INTEGRITY_WITH_IMPLEMENTED_CONTROLS,
+                Asset.ASSET_CONTROLRISK_I, Asset.ASSET_INTEGRITY_WITH_CONTROLS,
+                Asset.ASSET_PLANCONTROLRISK_I, Asset.ASSET_INTEGRITY_WITH_PLANNED_CONTROLS,
+                Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_I),
+        AVAILABILITY(Asset.ASSET_VALUE_AVAILABILITY, Control.PROP_EFFECTIVENESS_AVAILABILITY,
+                Asset.ASSET_RISK_A, Asset.ASSET_AVAILABILITY_WITH_IMPLEMENTED_CONTROLS,
+                Asset.ASSET_CONTROLRISK_A, Asset.ASSET_AVAILABILITY_WITH_CONTROLS,
+                Asset.ASSET_PLANCONTROLRISK_A, Asset.ASSET_AVAILABILITY_WITH_PLANNED_CONTROLS,
+                Asset.ASSET_WITHOUT_NA_PLANCONTROLRISK_A);
+
+        /** Offset of the values reduced by all controls */
+        static final int ALL = 0;
+        /** Offset of the values reduced by planned controls */
+        static final int PLANNED = 3;
+        /** Offset of the values reduced by implemented controls */
+        static final int IMPLEMENTED = 6;
+
+        final String valueProperty;
+        final String effectivenessProperty;
+        final String riskProperty;
+        final String withImplementedControlsProperty;
+        final String controlRiskProperty;
+        final String withControlsProperty;
+        final String planControlRiskProperty;
+        final String withPlannedControlsProperty;
+        final String withoutNaPlanControlRiskProperty;
+
+        CiaValue(String valueProperty, String effectivenessProperty, String riskProperty,
+                String withImplementedControlsProperty, String controlRiskProperty,
+                String withControlsProperty, String planControlRiskProperty,
+                String withPlannedControlsProperty, String withoutNaPlanControlRiskProperty) {
+            this.valueProperty = valueProperty;
+            this.effectivenessProperty = effectivenessProperty;
+            this.riskProperty = riskProperty;
+            this.withImplementedControlsProperty = withImplementedControlsProperty;
+            this.controlRiskProperty = controlRiskProperty;
+            this.withControlsProperty = withControlsProperty;
+            this.planControlRiskProperty = planControlRiskProperty;
+            this.withPlannedControlsProperty = withPlannedControlsProperty;
+            this.withoutNaPlanControlRiskProperty = withoutNaPlanControlRiskProperty;
+        }
+    }
+
+    /**
+     * The calculated probabilities of an incident scenario
+     */
+    private static final class ScenarioRisk {
+        private final IncidentScenario scenario;
+        private final Map<String, Integer> properties = new LinkedHashMap<>();
+        private int probability;
+        private int probabilityWithControls;
+        private int probabilityWithPlannedControls;
+        private int probabilityWithoutNaControls;
+        private boolean affectsConfidentiality;
+        private boolean affectsIntegrity;
+        private boolean affectsAvailability;
+
+        private ScenarioRisk(IncidentScenario scenario) {
+            this.scenario = scenario;
+        }
+
+        private int getFingerprint() {
+            return Objects.hash(probability, probabilityWithControls,
+                    probabilityWithPlannedControls, probabilityWithoutNaControls,
+                    affectsConfidentiality, affectsIntegrity, affectsAvailability);
+        }
+    }
+
+    /**
+     * The calculated risk values of an asset and of the links to its incident
+     * scenarios
+     */
+    private static final class AssetRisk {
+        private final Asset asset;
+        private final Map<String, Integer> properties = new LinkedHashMap<>();
+        private final Map<Edge, int[]> edgeRisks = new HashMap<>();
+
+        private AssetRisk(Asset asset) {
+            this.asset = asset;
+        }
+
+        private void add(String propertyId, int value) {
+            properties.put(propertyId, positiveOrZero(properties.get(propertyId) + value));
+        }
+    }
 }
@@ -22,6 +22,10 @@ package sernet.verinice.service.risk;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 
@@ -32,6 +36,7 @@ import sernet.verinice.interfaces.graph.IGraphElementLoader;
 import sernet.verinice.interfaces.graph.IGraphService;
 import sernet.verinice.interfaces.graph.VeriniceGraph;
 import sernet.verinice.model.common.CnALink;
+import sernet.verinice.model.common.CnATreeElement;
 import sernet.verinice.model.iso27k.Asset;
 import sernet.verinice.model.iso27k.Control;
 import sernet.verinice.model.iso27k.IncidentScenario;
@@ -41,8 +46,8 @@ import sernet.verinice.model.iso27k.Vulnerability;
 /**
  * Service implementation to run a ISO/IEC 27005 risk analysis.
  * 
- * This implementation loads data by IGraphService and saves links by CnALink
- * dao.
+ * This implementation loads data by IGraphService and saves elements and links
+ * by CnATreeElement and CnALink dao.
  * 
  * This service is managed by the Spring framework. It is configured in file
  * veriniceserver-risk-analysis.xml (On the server / verinice.PRO) or
@@ -79,6 +84,38 @@ public class RiskAnalysisServiceImpl implements RiskAnalysisService {
 
     private IGraphService graphService;
     private IBaseDao<CnALink, Serializable> cnaLinkDao;
+    private IBaseDao<CnATreeElement, Serializable> cnaTreeElementDao;
+
+    /**
+     * Number of threads used to analyze scenarios and assets, if 0 the number
+     * of available processors is used.
+     */
+    private int parallelism = 0;
+
+    /**
+     * Maximum number of organization sets whose asset fingerprints are kept
+     */
+    private static final int MAX_FINGERPRINT_SCOPES = 64;
+
+    /**
+     * Fingerprints of the analyzed assets by database id and organization
+     * set, see {@link RiskAnalysisJob#setAssetFingerprints(Map)}. The
+     * fingerprints of the least recently analyzed organization set are removed
+     * if there are more than {@link #MAX_FINGERPRINT_SCOPES} sets.
+     */
+    private final Map<String, Map<Integer, Long>> assetFingerprints = Collections
+            .synchronizedMap(new LinkedHashMap<String, Map<Integer, Long>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, Map<Integer, Long>> eldest) {
+                    return size() > MAX_FINGERPRINT_SCOPES;
+                }
+            });
+
+    private final AtomicLong numberOfAnalyzedAssets = new AtomicLong();
+    private final AtomicLong numberOfSkippedAssets = new AtomicLong();
 
     public RiskAnalysisServiceImpl() {
         super();
@@ -108,12 +145,30 @@ public class RiskAnalysisServiceImpl implements RiskAnalysisService {
         VeriniceGraph graph = loadGraph(configuration.getOrganizationDbIds());
 
         RiskAnalysisJob job = new RiskAnalysisJob(graph, getCnaLinkDao());
+        job.setElementDao(getCnaTreeElementDao());
+        if (parallelism > 0) {
+            job.setParallelism(parallelism);
+        }
+        job.setAssetFingerprints(getAssetFingerprints(configuration.getOrganizationDbIds()));
+        job.setIncremental(configuration.isIncremental());
         configureRiskCalculator(job);
         job.runRiskAnalysis();
+        numberOfAnalyzedAssets.addAndGet(job.getNumberOfAnalyzedAssets());
+        numberOfSkippedAssets.addAndGet(job.getNumberOfSkippedAssets());
 
         logRuntime("runRiskAnalysis() runtime : ", time);
     }
 
+    private Map<Integer, Long> getAssetFingerprints(Integer[] organizationDbIds) {
+        String key = "all";
+        if (organizationDbIds != null && organizationDbIds.length > 0) {
+            Integer[] sortedIds = organizationDbIds.clone();
+            Arrays.sort(sortedIds);
+            key = Arrays.toString(sortedIds);
+        }
+        return assetFingerprints.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    }
+
     private void configureRiskCalculator(RiskAnalysisJob job) {
         if (LOG.isInfoEnabled()) {
             LOG.info("Risk calculation method is: " + riskCalculationMethod);
@@ -160,6 +215,38 @@ public class RiskAnalysisServiceImpl implements RiskAnalysisService {
         this.cnaLinkDao = cnaLinkDao;
     }
 
+    public IBaseDao<CnATreeElement, Serializable> getCnaTreeElementDao() {
+        return cnaTreeElementDao;
+    }
+
+    public void setCnaTreeElementDao(IBaseDao<CnATreeElement, Serializable> cnaTreeElementDao) {
+        this.cnaTreeElementDao = cnaTreeElementDao;
+    }
+
+    /**
+     * @return The number of assets whose risk values were calculated since
+     *         the service was started
+     */
+    public long getNumberOfAnalyzedAssets() {
+        return numberOfAnalyzedAssets.get();
+    }
+
+    /**
+     * @return The number of assets which were skipped by incremental runs
+     *         since the service was started
+     */
+    public long getNumberOfSkippedAssets() {
+        return numberOfSkippedAssets.get();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     public IGraphService getGraphService() {
         return graphService;
     }
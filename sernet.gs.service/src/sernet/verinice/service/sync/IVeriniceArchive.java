@@ -20,6 +20,7 @@
 package sernet.verinice.service.sync;
 
 import java.io.InputStream;
+import java.util.Set;
 
 import de.sernet.sync.data.SyncData;
 import de.sernet.sync.mapping.SyncMapping;
@@ -40,6 +41,19 @@ public interface IVeriniceArchive extends VnaSchemaChecker {
 
     SyncData getSyncData();
 
+    /**
+     * Returns true if verinice.xml can be read incrementally by a
+     * {@link sernet.verinice.service.commands.SyncRequestReader} instead of
+     * loading the complete {@link SyncData} by {@link #getSyncData()}.
+     */
+    boolean isStreamingSupported();
+
+    /**
+     * Returns the ext-ids of all elements which are dependant or dependency of
+     * a link.
+     */
+    Set<String> getLinkedExtIds();
+
     Risk getSyncRiskAnalysis();
 
     String getSourceId();
@@ -23,6 +23,8 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.xml.bind.JAXB;
 
@@ -34,6 +36,7 @@ import de.sernet.sync.mapping.SyncMapping;
 import de.sernet.sync.risk.Risk;
 import de.sernet.sync.sync.SyncRequest;
 import de.sernet.sync.sync.SyncRequest.SyncVnaSchemaVersion;
+import sernet.verinice.service.commands.SyncRequestReader;
 
 /**
  *
@@ -56,6 +59,8 @@ public class PureXml implements IVeriniceArchive {
 
     private SyncVnaSchemaVersion syncVnaSchemaVersion;
 
+    private SyncRequestReader metaData;
+
     private VnaSchemaVersion importedVnaSchemaVersion;
 
     private Exception error;
@@ -82,7 +87,7 @@ public class PureXml implements IVeriniceArchive {
     @Override
     public String getSourceId() {
         if (sourceId == null) {
-            unmarshal();
+            readMetaData();
         }
         return sourceId;
     }
@@ -108,7 +113,7 @@ public class PureXml implements IVeriniceArchive {
     @Override
     public SyncMapping getSyncMapping() {
         if (syncMapping == null) {
-            unmarshal();
+            readMetaData();
         }
         return syncMapping;
     }
@@ -118,6 +123,28 @@ public class PureXml implements IVeriniceArchive {
         this.syncMapping = syncMapping;
     }
 
+    @Override
+    public boolean isStreamingSupported() {
+        return syncRequest == null && syncData == null && hasVeriniceXml();
+    }
+
+    protected boolean hasVeriniceXml() {
+        return veriniceXml != null;
+    }
+
+    @Override
+    public Set<String> getLinkedExtIds() {
+        if (isStreamingSupported()) {
+            if (metaData == null) {
+                readMetaData();
+            }
+            return metaData.getLinkedExtIds();
+        }
+        return getSyncData().getSyncLink().stream()
+                .flatMap(link -> Stream.of(link.getDependant(), link.getDependency()))
+                .collect(Collectors.toSet());
+    }
+
     private void unmarshal() {
         syncRequest = JAXB.unmarshal(getVeriniceXml(), SyncRequest.class);
         sourceId = syncRequest.getSourceId();
@@ -125,6 +152,31 @@ public class PureXml implements IVeriniceArchive {
         syncMapping = syncRequest.getSyncMapping();
     }
 
+    /**
+     * Reads source id, mapping and schema version without loading the
+     * elements.
+     */
+    private void readMetaData() {
+        if (syncRequest != null) {
+            sourceId = syncRequest.getSourceId();
+            syncMapping = syncRequest.getSyncMapping();
+            syncVnaSchemaVersion = syncRequest.getSyncVnaSchemaVersion();
+            return;
+        }
+        try (InputStream is = getVeriniceXml()) {
+            metaData = SyncRequestReader.readMetaData(is);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error while reading verinice.xml", e);
+        }
+        if (sourceId == null) {
+            sourceId = metaData.getSourceId();
+        }
+        if (syncMapping == null) {
+            syncMapping = metaData.getSyncMapping();
+        }
+        syncVnaSchemaVersion = metaData.getSyncVnaSchemaVersion();
+    }
+
     /*
      * @see sernet.verinice.service.sync.IVeriniceArchive#getFileData(java.lang.
      * String )
@@ -174,12 +226,12 @@ public class PureXml implements IVeriniceArchive {
     @Override
     public boolean isCompatible(VnaSchemaVersion vnaSchemaVersion) {
 
-        if (syncRequest == null) {
-            unmarshal();
+        if (syncRequest != null) {
+            syncVnaSchemaVersion = syncRequest.getSyncVnaSchemaVersion();
+        } else if (metaData == null) {
+            readMetaData();
         }
 
-        syncVnaSchemaVersion = syncRequest.getSyncVnaSchemaVersion();
-
         // verinice versions which are older than 1.13 does not export schema
         // information. In order to support imports from older verinice versions
         // we skip the schema check.
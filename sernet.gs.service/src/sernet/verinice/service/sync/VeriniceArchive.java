@@ -171,6 +171,11 @@ public class VeriniceArchive extends PureXml implements IVeriniceArchive {
         return riskData;
     }
 
+    @Override
+    protected boolean hasVeriniceXml() {
+        return Files.exists(getFullPath(VERINICE_XML));
+    }
+
     private boolean isRiskAnalysis() {
         return Files.exists(getFullPath(RISK_XML));
     }
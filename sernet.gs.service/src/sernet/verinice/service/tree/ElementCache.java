@@ -19,16 +19,20 @@
  ******************************************************************************/
 package sernet.verinice.service.tree;
 
-import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.Statistics;
 import net.sf.ehcache.Status;
+import net.sf.ehcache.event.CacheEventListener;
 import sernet.verinice.model.common.CnATreeElement;
 
 /**
@@ -36,11 +40,19 @@ import sernet.verinice.model.common.CnATreeElement;
  * Elements are cached with ehcache: http://ehcache.org/
  * 
  * Cache is configured by parameter:
- * MAX_ELEMENTS_IN_MEMORY 
+ * MAX_MEMORY_PROPERTY
  * TIME_TO_LIVE_SECONDS  
  * TIME_TO_IDLE_SECONDS
  * See comments for details.
  * 
+ * The cache keeps an index from the uuid of a child to the uuid of its
+ * parent. Removed elements are removed from the children set of the cached
+ * parent without scanning the whole cache. The index contains the children
+ * of cached elements and the parents of cached elements. Entries are removed
+ * when an element is replaced, removed, evicted or expires. Elements which
+ * are not indexed are removed from the children set of the parent they
+ * reference.
+ * 
  * @author Daniel Murygin <dm[at]sernet[dot]de>
  */
 public class ElementCache {
@@ -50,8 +62,14 @@ public class ElementCache {
     /*
      * Configuration parameter
      */  
-    //Maximal number of elements in cache
-    private static final int MAX_ELEMENTS_IN_MEMORY = 5000;  
+    // System property with the memory in MB used by the cache,
+    // default is DEFAULT_MAX_MEMORY_PERCENT of the maximum heap size
+    public static final String MAX_MEMORY_PROPERTY = "verinice.tree.cache.maxMemory";
+    private static final int DEFAULT_MAX_MEMORY_PERCENT = 5;
+    // Estimated memory of an element with its entity and properties
+    private static final int ESTIMATED_ELEMENT_SIZE = 8 * 1024;
+    // Minimal number of elements in cache
+    private static final int MIN_ELEMENTS_IN_MEMORY = 5000;
     // Time to live in seconds, 7200s = 2h
     private static final int TIME_TO_LIVE_SECONDS = 7200;    
     // Time to idle in seconds, 7200s = 2h
@@ -60,10 +78,37 @@ public class ElementCache {
 	private transient CacheManager manager = null;
     private String cacheId = null;
     private transient Cache cache = null;
+    private final int maxElementsInMemory;
+
+    // Uuid of a child to the uuid of its parent
+    private final Map<String, String> parentIndex = new ConcurrentHashMap<>();
+    // Uuid of a parent to the uuids of its children in parentIndex
+    private final Map<String, Set<String>> childIndex = new ConcurrentHashMap<>();
 	
 	public ElementCache() {
-		createCache();
+		this(getMaxElementsInMemory(getConfiguredMaxMemory()));
+	}
+
+    /**
+     * @param maxElementsInMemory Maximal number of elements in cache
+     */
+	public ElementCache(int maxElementsInMemory) {
+	    this.maxElementsInMemory = maxElementsInMemory;
+	    createCache();
 	}
+
+    private static long getConfiguredMaxMemory() {
+        Long maxMemoryMb = Long.getLong(MAX_MEMORY_PROPERTY);
+        if (maxMemoryMb != null && maxMemoryMb > 0) {
+            return maxMemoryMb * 1024 * 1024;
+        }
+        return Runtime.getRuntime().maxMemory() / 100 * DEFAULT_MAX_MEMORY_PERCENT;
+    }
+
+    private static int getMaxElementsInMemory(long maxMemory) {
+        long maxElements = maxMemory / ESTIMATED_ELEMENT_SIZE;
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_ELEMENTS_IN_MEMORY, maxElements));
+    }
 	
 	public void addObject(Object o) {
 	    if(o!=null && o instanceof CnATreeElement) {
@@ -84,6 +129,9 @@ public class ElementCache {
                     ElementChecker.checkChildrenSet(cacheObject.getElement());
                 }
                 getCache().put(new Element(cacheObject.getElement().getUuid(), cacheObject));
+                // children of a replaced element may have changed
+                removeChildrenFromIndex(cacheObject.getElement().getUuid());
+                indexParent(cacheObject.getElement());
                 if (LOG.isInfoEnabled()) {               
                     if(replaced) {
                         LOG.info("Element replaced, uuid: " + cacheObject.getElement().getUuid() + ", has children: " + cacheObject.getHasChildren() + ", children loaded: " + cacheObject.isChildrenPropertiesLoaded() );
@@ -109,6 +157,7 @@ public class ElementCache {
             LOG.debug("Size of cache before clearing, size: " + s.getObjectCount() + ", hits: " + s.getCacheHits());
         }
         getManager().clearAll();
+        clearIndex();
 		if (LOG.isInfoEnabled()) {
             LOG.info("Cache cleared");
         }
@@ -141,6 +190,7 @@ public class ElementCache {
         try {
             removeFromParentChilds(element);
             getCache().remove(element.getUuid());
+            removeFromIndex(element.getUuid(), parentIndex.get(element.getUuid()));
             if (LOG.isInfoEnabled()) {
                 LOG.info("Element removed, uuid: " + element.getUuid());
             }
@@ -177,31 +227,142 @@ public class ElementCache {
 	    return element;
     }
 
-    @SuppressWarnings("unchecked")
     private void removeFromParentChilds(CnATreeElement element) {
         CacheObject cacheObject = getCachedObject(element);
-        if(cacheObject!=null) {
-            CnATreeElement oldElement = cacheObject.getElement();
-            CnATreeElement oldParent = oldElement.getParent();
-            CacheObject cacheObjectParent = getCachedObject(oldParent);
-            if(cacheObjectParent!=null) {
-                oldParent = cacheObjectParent.getElement();
-                boolean exists = oldParent.getChildren().remove(element);
-                if (exists && LOG.isDebugEnabled()) {
-                    LOG.debug("Element removed from parent child set in cache...");
-                }              
+        CnATreeElement oldParent = getParent(
+                (cacheObject!=null) ? cacheObject.getElement() : element);
+        if(oldParent!=null) {
+            removeFromChildren(oldParent.getUuid(), element);
+        }
+        String indexedParentUuid = parentIndex.get(element.getUuid());
+        if(indexedParentUuid!=null
+                && (oldParent==null || !indexedParentUuid.equals(oldParent.getUuid()))) {
+            removeFromChildren(indexedParentUuid, element);
+        }
+    }
+
+    private static CnATreeElement getParent(CnATreeElement element) {
+        try {
+            return element.getParent();
+        } catch(RuntimeException e) {
+            // Parent is not initialized, the index is used
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Parent not initialized, uuid: " + element.getUuid(), e);
             }
-        } else {            
-            List<String> keys = getCache().getKeys();
-            for (String key : keys) {
-                cacheObject = (CacheObject) getCache().get(key).getObjectValue();
-                cacheObject.getElement().getChildren().remove(element);
+            return null;
+        }
+    }
+
+    private void removeFromChildren(String parentUuid, CnATreeElement element) {
+        CnATreeElement parent = getElement(parentUuid);
+        if(parent!=null) {
+            boolean exists = parent.getChildren().remove(element);
+            if (exists && LOG.isDebugEnabled()) {
+                LOG.debug("Element removed from parent child set in cache...");
             }
         }
     }
 
-	
-	
+    private void indexParent(CnATreeElement element) {
+        CnATreeElement parent = getParent(element);
+        if(parent!=null) {
+            addToIndex(element.getUuid(), parent.getUuid());
+        }
+        try {
+            for (CnATreeElement child : element.getChildren()) {
+                addToIndex(child.getUuid(), element.getUuid());
+            }
+        } catch(RuntimeException e) {
+            // Parent or children are not initialized, index is updated when
+            // they are added
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Parent index not updated for uuid: " + element.getUuid(), e);
+            }
+        }
+    }
+
+    private void addToIndex(String uuid, String parentUuid) {
+        String oldParentUuid = parentIndex.put(uuid, parentUuid);
+        if(oldParentUuid!=null && !oldParentUuid.equals(parentUuid)) {
+            removeFromChildIndex(uuid, oldParentUuid);
+        }
+        childIndex.computeIfAbsent(parentUuid, key -> ConcurrentHashMap.newKeySet()).add(uuid);
+    }
+
+    private void removeFromIndex(String uuid, String parentUuid) {
+        if(parentUuid!=null && parentIndex.remove(uuid, parentUuid)) {
+            removeFromChildIndex(uuid, parentUuid);
+        }
+    }
+
+    private void removeFromChildIndex(String uuid, String parentUuid) {
+        childIndex.computeIfPresent(parentUuid, (key, childUuids) -> {
+            childUuids.remove(uuid);
+            return childUuids.isEmpty() ? null : childUuids;
+        });
+    }
+
+    private void removeChildrenFromIndex(String parentUuid) {
+        Set<String> childUuids = childIndex.remove(parentUuid);
+        if(childUuids!=null) {
+            for (String uuid : childUuids) {
+                parentIndex.remove(uuid, parentUuid);
+            }
+        }
+    }
+
+    /**
+     * Removes an evicted or expired element and its children from the parent
+     * index. The entry of the element itself is kept as long as its parent is
+     * cached, it is removed together with the children of the parent.
+     */
+    private void removeFromIndex(Element cachedElement) {
+        if(cachedElement==null) {
+            return;
+        }
+        String uuid = (String) cachedElement.getObjectKey();
+        removeChildrenFromIndex(uuid);
+        String parentUuid = parentIndex.get(uuid);
+        if(parentUuid!=null && getCache().getQuiet(parentUuid)==null) {
+            removeFromIndex(uuid, parentUuid);
+        }
+    }
+
+    private void clearIndex() {
+        parentIndex.clear();
+        childIndex.clear();
+    }
+
+    /**
+     * @return The number of cached elements
+     */
+    public long getSize() {
+        return getCache().getSize();
+    }
+
+    public int getMaxElementsInMemory() {
+        return maxElementsInMemory;
+    }
+
+    public long getHits() {
+        return getCache().getStatistics().getCacheHits();
+    }
+
+    public long getMisses() {
+        return getCache().getStatistics().getCacheMisses();
+    }
+
+    public long getEvictions() {
+        return getCache().getStatistics().getEvictionCount();
+    }
+
+    /**
+     * @return The number of entries in the child to parent index
+     */
+    public int getParentIndexSize() {
+        return parentIndex.size();
+    }
+
 	private Cache getCache() {     
         if(manager==null || Status.STATUS_SHUTDOWN.equals(manager.getStatus()) || cache==null || !Status.STATUS_ALIVE.equals(cache.getStatus())) {
             cache = createCache();
@@ -215,10 +376,12 @@ public class ElementCache {
         shutdownCache();
         cacheId = UUID.randomUUID().toString();
         manager = CacheManager.create();
-        cache = new Cache(cacheId, MAX_ELEMENTS_IN_MEMORY, false, false, TIME_TO_LIVE_SECONDS, TIME_TO_IDLE_SECONDS);
+        cache = new Cache(cacheId, maxElementsInMemory, false, false, TIME_TO_LIVE_SECONDS, TIME_TO_IDLE_SECONDS);
         manager.addCache(cache);
+        cache.getCacheEventNotificationService().registerListener(new ParentIndexUpdater());
+        clearIndex();
         if (LOG.isInfoEnabled()) {
-            LOG.info("In memory cache created. MAX_ELEMENTS_IN_MEMORY: " + MAX_ELEMENTS_IN_MEMORY + ", TIME_TO_LIVE_SECONDS: " + TIME_TO_LIVE_SECONDS + ", TIME_TO_IDLE_SECONDS: " + TIME_TO_IDLE_SECONDS + ", cacheId: " + cacheId );
+            LOG.info("In memory cache created. maxElementsInMemory: " + maxElementsInMemory + ", TIME_TO_LIVE_SECONDS: " + TIME_TO_LIVE_SECONDS + ", TIME_TO_IDLE_SECONDS: " + TIME_TO_IDLE_SECONDS + ", cacheId: " + cacheId );
         }
         return cache;
     }
@@ -247,5 +410,54 @@ public class ElementCache {
         shutdownCache();
         super.finalize();
     }
+
+    /**
+     * Removes evicted, expired and removed elements and their children from
+     * the parent index.
+     */
+    private final class ParentIndexUpdater implements CacheEventListener {
+
+        @Override
+        public void notifyElementRemoved(Ehcache ehcache, Element element) {
+            if(element!=null) {
+                removeChildrenFromIndex((String) element.getObjectKey());
+            }
+        }
+
+        @Override
+        public void notifyElementPut(Ehcache ehcache, Element element) {
+            // index is updated in addObject
+        }
+
+        @Override
+        public void notifyElementUpdated(Ehcache ehcache, Element element) {
+            // index is updated in addObject
+        }
+
+        @Override
+        public void notifyElementExpired(Ehcache ehcache, Element element) {
+            removeFromIndex(element);
+        }
+
+        @Override
+        public void notifyElementEvicted(Ehcache ehcache, Element element) {
+            removeFromIndex(element);
+        }
+
+        @Override
+        public void notifyRemoveAll(Ehcache ehcache) {
+            clearIndex();
+        }
+
+        @Override
+        public void dispose() {
+            clearIndex();
+        }
+
+        @Override
+        public Object clone() throws CloneNotSupportedException {
+            throw new CloneNotSupportedException();
+        }
+    }
 	
 }
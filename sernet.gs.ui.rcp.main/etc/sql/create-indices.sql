@@ -5,4 +5,5 @@ CREATE INDEX parent_idx ON cnatreeelement (parent);
 CREATE INDEX typedlist_id_idx ON propertylist (typedlist_id);
 CREATE INDEX properties_id_idx ON properties (properties_id);
 CREATE INDEX cte_id_idx ON permission (cte_id);
-CREATE INDEX cnatreeelement_id_idx ON note (cnatreeelement_id);
\ No newline at end of file
+CREATE INDEX cnatreeelement_id_idx ON note (cnatreeelement_id);
+CREATE INDEX changelog_time_idx ON changelogentry (changetime);
\ No newline at end of file
@@ -18,7 +18,10 @@
 
 package sernet.verinice.iso27k.rcp.action;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -164,19 +167,29 @@ public class ExportAction extends RightsEnabledActionDelegate implements IViewAc
                 internalSourceId = getSourceId();
             }
             Activator.inheritVeriniceContextState();
-            ExportCommand exportCommand;
-            if (Activator.getDefault().isStandalone() && !isEncryption()) {
-                exportCommand = new ExportCommand(new LinkedList<CnATreeElement>(getElementSet()),
-                        internalSourceId, isReImport(), getFileFormat());
-            } else {
-                exportCommand = new ExportCommand(new LinkedList<CnATreeElement>(getElementSet()),
-                        internalSourceId, isReImport(), getFileFormat());
-            }
+            ExportCommand exportCommand = new ExportCommand(
+                    new LinkedList<CnATreeElement>(getElementSet()), internalSourceId,
+                    isReImport(), getFileFormat());
             try {
                 boolean exportRiskAnalysis = Activator.getDefault().getPreferenceStore()
                         .getBoolean(PreferenceConstants.EXPORT_RISK_ANALYSIS);
                 exportCommand.setExportRiskAnalysis(exportRiskAnalysis);
-                exportCommand = ServiceFactory.lookupCommandService().executeCommand(exportCommand);
+                if (Activator.getDefault().isStandalone() && !isEncryption()) {
+                    // The internal server runs in this VM, the export is
+                    // written to the file without holding it in memory
+                    try (OutputStream out = new BufferedOutputStream(
+                            new FileOutputStream(filePath))) {
+                        exportCommand.setOutputStream(out);
+                        exportCommand = ServiceFactory.lookupCommandService()
+                                .executeCommand(exportCommand);
+                    } catch (Exception e) {
+                        FileUtils.deleteQuietly(new File(filePath));
+                        throw e;
+                    }
+                } else {
+                    exportCommand = ServiceFactory.lookupCommandService()
+                            .executeCommand(exportCommand);
+                }
                 if (exportCommand.getResult() != null) {
                     if (isEncryption()) {
                         String salt = RandomStringUtils
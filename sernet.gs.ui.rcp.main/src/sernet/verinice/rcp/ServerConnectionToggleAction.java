@@ -19,8 +19,11 @@
  ******************************************************************************/
 package sernet.verinice.rcp;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
@@ -96,7 +99,7 @@ public class ServerConnectionToggleAction extends RightsEnabledAction {
         dialog = new ServerConnectionToggleDialog(Display.getCurrent().getActiveShell());    
         if( dialog.open() == Dialog.OK ) {
             String title = Messages.ServerConnectionToggleAction_2;
-            if (Preferences.isStandalone()) {
+            if (Activator.getDefault().isStandalone()) {
                 title = Messages.ServerConnectionToggleAction_3;
             }
             WorkspaceJob exportJob = new WorkspaceJob(title) {
@@ -149,8 +152,19 @@ public class ServerConnectionToggleAction extends RightsEnabledAction {
         }
         Activator.inheritVeriniceContextState();
         ExportCommand exportCommand = new ExportCommand(elementList, sourceId, true, SyncParameter.EXPORT_FORMAT_VERINICE_ARCHIV);
-        exportCommand = ServiceFactory.lookupCommandService().executeCommand(exportCommand);
-        FileUtils.writeByteArrayToFile(new File(createFilePath(i)), exportCommand.getResult());      
+        if (Activator.getDefault().isStandalone()) {
+            // The internal server runs in this VM, the export is written to the file directly
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(createFilePath(i)))) {
+                exportCommand.setOutputStream(out);
+                ServiceFactory.lookupCommandService().executeCommand(exportCommand);
+            } catch (CommandException | IOException | RuntimeException e) {
+                FileUtils.deleteQuietly(new File(createFilePath(i)));
+                throw e;
+            }
+        } else {
+            exportCommand = ServiceFactory.lookupCommandService().executeCommand(exportCommand);
+            FileUtils.writeByteArrayToFile(new File(createFilePath(i)), exportCommand.getResult());
+        }
     }
 
     /**
@@ -199,7 +213,7 @@ public class ServerConnectionToggleAction extends RightsEnabledAction {
             public void run() {
                 IPreferenceStore prefs = Activator.getDefault().getPreferenceStore();    
                 
-                if (Preferences.isStandalone()) {
+                if (Activator.getDefault().isStandalone()) {
                     prefs.setValue(PreferenceConstants.VNSERVER_URI, dialog.getServerUrl());
                 }       
                 
@@ -22,8 +22,10 @@ package sernet.verinice.rcp.linktable.handlers;
 import static sernet.verinice.rcp.linktable.LinkTableUtil.createCsvFilePath;
 import static sernet.verinice.service.linktable.vlt.VeriniceLinkTableIO.createLinkTableConfiguration;
 
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
 
+import org.apache.commons.io.FileUtils;
 import org.eclipse.core.commands.ExecutionEvent;
 import org.eclipse.core.commands.ExecutionException;
 import org.eclipse.jface.dialogs.MessageDialog;
@@ -42,6 +44,8 @@ import sernet.verinice.rcp.jobs.VeriniceWorkspaceJob;
 import sernet.verinice.rcp.linktable.LinkTableUtil;
 import sernet.verinice.rcp.linktable.Messages;
 import sernet.verinice.service.csv.CsvExport;
+import sernet.verinice.service.csv.CsvExportException;
+import sernet.verinice.service.csv.CsvRowWriter;
 import sernet.verinice.service.csv.ICsvExport;
 import sernet.verinice.service.linktable.ILinkTableConfiguration;
 import sernet.verinice.service.linktable.LinkTableService;
@@ -145,10 +149,13 @@ public class ExportLinkTableHandler extends RightsEnabledHandler {
 
                         ILinkTableConfiguration conf = createLinkTableConfiguration(
                                 veriniceLinkTable);
-                        List<List<String>> table = linkTableService.createTable(conf);
-
-                        csvExportHandler.setFilePath(csvFilePath);
-                        csvExportHandler.exportToFile(csvExportHandler.convert(table));
+                        // rows are written to the file while they are created
+                        try (CsvRowWriter writer = csvExportHandler.createRowWriter(
+                                FileUtils.openOutputStream(new File(csvFilePath)))) {
+                            linkTableService.createTable(conf, writer);
+                        } catch (IOException e) {
+                            throw new CsvExportException("Error while exporting link table", e);
+                        }
                     }
                 }
             };
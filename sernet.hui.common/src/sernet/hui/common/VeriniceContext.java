@@ -152,8 +152,12 @@ public final class VeriniceContext {
 
     public static final String COUNT_SERVICE = "countService";
 
+    public static final String CHART_STATE_CACHE = "chartStateCache";
+
     public static final String SESSION_FACTORY = "sessionFactory";
 
+    public static final String CLUSTER_CACHE_INVALIDATOR = "clusterCacheInvalidator";
+
     private static String serverUrl = null;
 
     private ThreadLocal<Map<String, Object>> threadLocal = new InheritableThreadLocal<>();
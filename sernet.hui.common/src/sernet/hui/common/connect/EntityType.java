@@ -18,11 +18,11 @@
 package sernet.hui.common.connect;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
 /**
@@ -46,9 +46,23 @@ public class EntityType {
     // All properties of an entity type, Map of property ID : PropertyType
     private Map<String, PropertyType> propertyTypes = new HashMap<>();
 
+    // All properties including the properties of the groups, created on first
+    // lookup, Map of property ID : PropertyType
+    private volatile Map<String, PropertyType> propertyTypeIndex;
+
     // map of target EntityType ID : set of HuiRelations (links to EntityTypes)
     private Map<String, Set<HuiRelation>> relations = new HashMap<>();
 
+    // read-only views of the sets in relations
+    private Map<String, Set<HuiRelation>> relationViews = new HashMap<>();
+
+    // map of HuiRelation ID : HuiRelation
+    private Map<String, HuiRelation> relationsById = new HashMap<>();
+
+    private Set<HuiRelation> allRelations = new HashSet<>();
+
+    private Set<HuiRelation> allRelationsView = Collections.unmodifiableSet(allRelations);
+
     /**
      * A list with all property types of this entity type.
      *
@@ -97,7 +111,7 @@ public class EntityType {
     }
 
     public boolean hasPropertyType(String id) {
-        return getAllPropertyTypes().stream().anyMatch(p -> p.getId().equals(id));
+        return getPropertyType(id) != null;
     }
 
     /**
@@ -130,11 +144,22 @@ public class EntityType {
      * @return The property type with the given ID or null
      */
     public PropertyType getPropertyType(String id) {
-        PropertyType type = this.propertyTypes.get(id);
+        Map<String, PropertyType> index = propertyTypeIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (PropertyGroup group : this.propertyGroups) {
+                for (PropertyType type : group.getPropertyTypes()) {
+                    index.putIfAbsent(type.getId(), type);
+                }
+            }
+            index.putAll(this.propertyTypes);
+            propertyTypeIndex = index;
+        }
+        PropertyType type = index.get(id);
         if (type != null) {
             return type;
         }
-        // search in groups:
+        // groups may have been changed after the index was created:
         for (PropertyGroup group : this.propertyGroups) {
             if ((type = group.getPropertyType(id)) != null) {
                 return type;
@@ -200,8 +225,7 @@ public class EntityType {
      *         given ID.
      */
     public Set<HuiRelation> getPossibleRelations(String entityTypeId) {
-        return relations.get(entityTypeId) != null ? relations.get(entityTypeId)
-                : new HashSet<HuiRelation>(0);
+        return relationViews.getOrDefault(entityTypeId, Collections.emptySet());
     }
 
     /**
@@ -213,10 +237,15 @@ public class EntityType {
      *            type
      */
     public void addRelation(HuiRelation relation) {
-        if (relations.get(relation.getTo()) == null) {
-            this.relations.put(relation.getTo(), new HashSet<HuiRelation>());
+        Set<HuiRelation> relationsTo = relations.get(relation.getTo());
+        if (relationsTo == null) {
+            relationsTo = new HashSet<>();
+            this.relations.put(relation.getTo(), relationsTo);
+            this.relationViews.put(relation.getTo(), Collections.unmodifiableSet(relationsTo));
         }
-        this.relations.get(relation.getTo()).add(relation);
+        relationsTo.add(relation);
+        this.relationsById.putIfAbsent(relation.getId(), relation);
+        this.allRelations.add(relation);
     }
 
     /**
@@ -226,13 +255,7 @@ public class EntityType {
      * @return A set with all HuiRelations of this entity type
      */
     public Set<HuiRelation> getPossibleRelations() {
-        HashSet<HuiRelation> allRelations = new HashSet<>();
-        Set<Entry<String, Set<HuiRelation>>> entrySet = relations.entrySet();
-        for (Entry<String, Set<HuiRelation>> entry : entrySet) {
-            Set<HuiRelation> relationsToOneOtherType = entry.getValue();
-            allRelations.addAll(relationsToOneOtherType);
-        }
-        return allRelations;
+        return allRelationsView;
     }
 
     /**
@@ -244,16 +267,7 @@ public class EntityType {
      * @return The HuiRelation with the given ID or null
      */
     public HuiRelation getPossibleRelation(String relationTypeId) {
-        Set<Entry<String, Set<HuiRelation>>> entrySet = relations.entrySet();
-        for (Entry<String, Set<HuiRelation>> entry : entrySet) {
-            Set<HuiRelation> value = entry.getValue();
-            for (HuiRelation huiRelation : value) {
-                if (huiRelation.getId().equals(relationTypeId)) {
-                    return huiRelation;
-                }
-            }
-        }
-        return null;
+        return relationsById.get(relationTypeId);
     }
 
     public List<PropertyType> getObjectBrowserPropertyTypes() {
@@ -270,11 +284,13 @@ public class EntityType {
     public void addPropertyType(PropertyType prop) {
         propertyTypes.put(prop.getId(), prop);
         elements.add(prop);
+        propertyTypeIndex = null;
     }
 
     public void addPropertyGroup(PropertyGroup group) {
         propertyGroups.add(group);
         elements.add(group);
+        propertyTypeIndex = null;
     }
 
     public List<IEntityElement> getElements() {
@@ -25,6 +25,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -81,6 +82,12 @@ public class HUITypeFactory {
 
     private Map<String, EntityType> allEntities = null;
 
+    // map of HuiRelation ID : HuiRelation, of all entity types
+    private Map<String, HuiRelation> allRelations = Collections.emptyMap();
+
+    // map of target EntityType ID : read-only set of all HuiRelations to it
+    private Map<String, Set<HuiRelation>> relationsTo = Collections.emptyMap();
+
     private Map<String, String> defaultMessages = new HashMap<>();
 
     // loads translated messages for HUI entities from resource bundles
@@ -212,7 +219,26 @@ public class HUITypeFactory {
 
             readChildElements(entityObj, null);
         }
+        indexRelations();
+    }
 
+    /**
+     * Creates the indexes of the relations by ID and by target entity type,
+     * so that no lookup has to iterate over all entity types.
+     */
+    private void indexRelations() {
+        Map<String, HuiRelation> relationsById = new HashMap<>();
+        Map<String, Set<HuiRelation>> relationsByTarget = new HashMap<>();
+        for (EntityType entityType : allEntities.values()) {
+            for (HuiRelation relation : entityType.getPossibleRelations()) {
+                relationsById.putIfAbsent(relation.getId(), relation);
+                relationsByTarget.computeIfAbsent(relation.getTo(), to -> new HashSet<>())
+                        .add(relation);
+            }
+        }
+        relationsByTarget.replaceAll((to, relations) -> Collections.unmodifiableSet(relations));
+        this.allRelations = Collections.unmodifiableMap(relationsById);
+        this.relationsTo = Collections.unmodifiableMap(relationsByTarget);
     }
 
     public Set<String> getAllTypeIds() {
@@ -577,18 +603,7 @@ public class HUITypeFactory {
      * @return
      */
     public Set<HuiRelation> getPossibleRelationsTo(String toEntityTypeID) {
-        // for this reverse request we have to iterate through all entitytypes
-        // and search:
-        Set<HuiRelation> allRelations = new HashSet<>();
-        Set<Entry<String, EntityType>> entrySet = allEntities.entrySet();
-        for (Entry<String, EntityType> entry : entrySet) {
-            EntityType entityType = entry.getValue();
-            Set<HuiRelation> theseRelations = entityType.getPossibleRelations(toEntityTypeID);
-            if (theseRelations != null && !theseRelations.isEmpty()) {
-                allRelations.addAll(theseRelations);
-            }
-        }
-        return allRelations;
+        return relationsTo.getOrDefault(toEntityTypeID, Collections.emptySet());
     }
 
     /**
@@ -603,16 +618,7 @@ public class HUITypeFactory {
             LOG.debug("No entities in HUITypeFactory!! Instance: " + this);
             return null;
         }
-
-        Set<Entry<String, EntityType>> entrySet = allEntities.entrySet();
-        for (Entry<String, EntityType> entry : entrySet) {
-            EntityType entityType = entry.getValue();
-            HuiRelation possibleRelation = entityType.getPossibleRelation(huiRelationId);
-            if (possibleRelation != null) {
-                return possibleRelation;
-            }
-        }
-        return null;
+        return allRelations.get(huiRelationId);
     }
 
     /**
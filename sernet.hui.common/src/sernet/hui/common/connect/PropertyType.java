@@ -95,6 +95,9 @@ public class PropertyType implements IMLPropertyType, IEntityElement, Comparable
 
 	private List options = new ArrayList();
 
+	// options by ID and by value, created on first lookup
+	private transient volatile OptionIndex optionIndex;
+
 	private String tooltiptext = "";
 
 	private boolean initialfocus;
@@ -212,23 +215,20 @@ public class PropertyType implements IMLPropertyType, IEntityElement, Comparable
 	}
 
 	public PropertyOption getOption(String id) {
-		for (Iterator iter = options.iterator(); iter.hasNext();) {
-			PropertyOption option = (PropertyOption) iter.next();
-			if (option.getId().equals(id)) {
-				return option;
-			}
-		}
-		return null;
+		return getOptionIndex().optionsById.get(id);
 	}
 	
 	public PropertyOption getOption(Integer id) {
-        for (Iterator iter = options.iterator(); iter.hasNext();) {
-            PropertyOption option = (PropertyOption) iter.next();
-            if (option.getValue().equals(id)) {
-                return option;
-            }
+        return getOptionIndex().optionsByValue.get(id);
+    }
+
+    private OptionIndex getOptionIndex() {
+        OptionIndex index = optionIndex;
+        if (index == null) {
+            index = new OptionIndex(options);
+            optionIndex = index;
         }
-        return null;
+        return index;
     }
 
 	/**
@@ -239,6 +239,7 @@ public class PropertyType implements IMLPropertyType, IEntityElement, Comparable
 	 */
 	public void setPredefinedValues(List predefinedValues) {
 		this.options = predefinedValues;
+		this.optionIndex = null;
 	}
 
 	/**
@@ -496,11 +497,9 @@ public class PropertyType implements IMLPropertyType, IEntityElement, Comparable
      * @return
      */
     public String getNameForValue(int i) {
-        for (Iterator iterator = options.iterator(); iterator.hasNext();) {
-            PropertyOption option = (PropertyOption) iterator.next();
-            if (option.getValue() != null && option.getValue() == i) {
-                return option.getName();
-            }
+        PropertyOption option = getOption(i);
+        if (option != null) {
+            return option.getName();
         }
         return Integer.toString(i);
     }
@@ -614,4 +613,22 @@ public class PropertyType implements IMLPropertyType, IEntityElement, Comparable
                 + ", referenceResolver=" + referenceResolver + ", urlResolver=" + urlResolver + ", crudButtons=" + crudButtons + ", minValue=" + minValue + ", maxValue=" + maxValue + ", reportable=" + reportable + ", numericDefault=" + numericDefault + ", tags=" + tags + ", textrows=" + textrows + ", showInObjectBrowser=" + showInObjectBrowser + "]";
     }
 
+
+    private static final class OptionIndex {
+
+        private final Map<String, PropertyOption> optionsById = new HashMap<>();
+        private final Map<Integer, PropertyOption> optionsByValue = new HashMap<>();
+
+        private OptionIndex(List<?> options) {
+            for (Object object : options) {
+                PropertyOption option = (PropertyOption) object;
+                if (option.getId() != null) {
+                    optionsById.putIfAbsent(option.getId(), option);
+                }
+                if (option.getValue() != null) {
+                    optionsByValue.putIfAbsent(option.getValue(), option);
+                }
+            }
+        }
+    }
 }
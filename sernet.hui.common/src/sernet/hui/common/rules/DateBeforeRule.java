@@ -60,7 +60,11 @@ public class DateBeforeRule implements IValidationRule {
         }
         if(formatter != null && input != null){
             try {
-                Date userDate = formatter.parse(input);
+                Date userDate;
+                // SimpleDateFormat is not thread-safe
+                synchronized (formatter) {
+                    userDate = formatter.parse(input);
+                }
                 return userDate.before(compareDate);
             } catch (Exception e) {
                 log.error("user given date unparseable", e);
@@ -17,6 +17,8 @@
  ******************************************************************************/
 package sernet.hui.common.rules;
 
+import java.util.regex.Pattern;
+
 /**
  * parameter 0 is always the hint, parameter 1 needs to be the regex
  */
@@ -25,13 +27,19 @@ public class RegExRule implements IValidationRule {
     private String hint = Messages.RegExDefaultHint;
     
     private String regEx;
+
+    // compiled once, Pattern is thread-safe
+    private Pattern pattern;
     
     /* (non-Javadoc)
      * @see sernet.hui.common.rules.IValidationRule#validate(java.lang.String, java.lang.String[])
      */
     @Override
     public boolean validate(String userInput, String[] params) {
-        return userInput.matches(regEx);
+        if (pattern == null) {
+            return false;
+        }
+        return pattern.matcher(userInput != null ? userInput : "").matches();
     }
 
     /* (non-Javadoc)
@@ -49,6 +57,7 @@ public class RegExRule implements IValidationRule {
     public void init(String[] params, String hint) {
         if( params != null && params.length == 1){
             regEx = params[0];
+            pattern = Pattern.compile(regEx);
         }
         if(hint != null && !hint.equals("")){
             this.hint = hint;
@@ -1,15 +1,36 @@
 package sernet.springclient;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HostConfiguration;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.log4j.Logger;
 import org.springframework.remoting.httpinvoker.CommonsHttpInvokerRequestExecutor;
+import org.springframework.remoting.httpinvoker.HttpInvokerClientConfiguration;
+import org.springframework.remoting.support.RemoteInvocation;
+import org.springframework.remoting.support.RemoteInvocationResult;
 
 import sernet.verinice.interfaces.IVeriniceConstants;
 import sernet.verinice.service.auth.KerberosStatusService;
+import sernet.verinice.service.remoting.CompactObjectOutputStream;
+import sernet.verinice.service.remoting.CompressedTransport;
+import sernet.verinice.service.remoting.CompressedTransport.CountingInputStream;
+import sernet.verinice.service.remoting.TransportMetrics;
 
 public abstract class AbstractExecuter extends CommonsHttpInvokerRequestExecutor {
 
@@ -24,6 +45,15 @@ public abstract class AbstractExecuter extends CommonsHttpInvokerRequestExecutor
 
     private static final Logger LOG = Logger.getLogger(AbstractExecuter.class);
 
+    private static final TransportMetrics METRICS = new TransportMetrics("Client");
+
+    private static final ThreadLocal<String> INVOCATION_NAME = new ThreadLocal<>();
+
+    private Boolean compressionEnabled;
+
+    // Set when the server sent the header of the compressed transport mode
+    private volatile boolean compressedRequestsAccepted = false;
+
     public AbstractExecuter() {
         super();
         configureConnectionManager();
@@ -95,6 +125,103 @@ public abstract class AbstractExecuter extends CommonsHttpInvokerRequestExecutor
         }
     }
 
+    @Override
+    protected void writeRemoteInvocation(RemoteInvocation invocation, OutputStream os)
+            throws IOException {
+        INVOCATION_NAME.set(TransportMetrics.getInvocationName(invocation.getMethodName(),
+                invocation.getArguments()));
+        ObjectOutputStream oos = new CompactObjectOutputStream(decorateOutputStream(os));
+        try {
+            doWriteRemoteInvocation(invocation, oos);
+            oos.flush();
+        } finally {
+            oos.close();
+        }
+    }
+
+    /**
+     * Executes the request like the super class and additionally compresses
+     * the request body if the server accepts it. Payload sizes and latency
+     * are recorded in the {@link TransportMetrics}.
+     *
+     * @see sernet.verinice.service.remoting.CompressedTransport
+     */
+    @Override
+    protected RemoteInvocationResult doExecuteRequest(HttpInvokerClientConfiguration config,
+            ByteArrayOutputStream baos) throws IOException, ClassNotFoundException {
+        long start = System.currentTimeMillis();
+        boolean compression = isCompressionEnabled(config);
+        PostMethod postMethod = createPostMethod(config);
+        try {
+            if (!compression) {
+                postMethod.removeRequestHeader(CompressedTransport.HEADER_ACCEPT_ENCODING);
+            }
+            byte[] body = baos.toByteArray();
+            if (compression && compressedRequestsAccepted
+                    && body.length >= CompressedTransport.MIN_COMPRESSION_SIZE) {
+                body = CompressedTransport.compress(body);
+                postMethod.setRequestHeader(CompressedTransport.HEADER_CONTENT_ENCODING,
+                        CompressedTransport.ENCODING_GZIP);
+            }
+            postMethod.setRequestEntity(new ByteArrayRequestEntity(body, getContentType()));
+            executePostMethod(config, getHttpClient(), postMethod);
+            validateResponse(config, postMethod);
+            Header transportHeader = postMethod
+                    .getResponseHeader(CompressedTransport.HEADER_TRANSPORT);
+            if (transportHeader != null) {
+                compressedRequestsAccepted = CompressedTransport
+                        .isGzip(transportHeader.getValue());
+            }
+            CountingInputStream counter = new CountingInputStream(
+                    postMethod.getResponseBodyAsStream());
+            InputStream responseBody = isGzipResponse(postMethod) ? new GZIPInputStream(counter)
+                    : counter;
+            RemoteInvocationResult result = readRemoteInvocationResult(responseBody,
+                    config.getCodebaseUrl());
+            METRICS.record(getInvocationName(config), body.length, counter.getCount(),
+                    System.currentTimeMillis() - start);
+            return result;
+        } finally {
+            postMethod.releaseConnection();
+            INVOCATION_NAME.remove();
+        }
+    }
+
+    private static String getInvocationName(HttpInvokerClientConfiguration config) {
+        String name = INVOCATION_NAME.get();
+        return (name != null) ? name : config.getServiceUrl();
+    }
+
+    /**
+     * Compression is enabled unless it is disabled by system property
+     * {@link CompressedTransport#PROPERTY_COMPRESSION} or the server runs on
+     * the local machine.
+     */
+    private boolean isCompressionEnabled(HttpInvokerClientConfiguration config) {
+        if (compressionEnabled == null) {
+            compressionEnabled = CompressedTransport.isCompressionEnabled()
+                    && !isLocalServer(config.getServiceUrl());
+            if (LOG.isInfoEnabled()) {
+                LOG.info("Compressed transport enabled: " + compressionEnabled);
+            }
+        }
+        return compressionEnabled;
+    }
+
+    private static boolean isLocalServer(String serviceUrl) {
+        try {
+            String host = new URI(serviceUrl.trim()).getHost();
+            return host == null || InetAddress.getByName(host).isLoopbackAddress();
+        } catch (URISyntaxException | UnknownHostException e) {
+            LOG.warn("Can not determine if server is local, url: " + serviceUrl, e);
+            return false;
+        }
+    }
+
+    public static TransportMetrics getMetrics() {
+        return METRICS;
+    }
+
     public int getReadTimeout() {
         return readTimeout;
     }
@@ -18,6 +18,7 @@
 package sernet.springclient;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -137,6 +138,54 @@ public class CommandCacheClient implements ICommandCacheClient {
         return (T) executeCachableCommand(command);
     }
 
+    /**
+     * Injects cached results into cached commands and sends all other
+     * commands in one batch to the command service.
+     * 
+     * @see sernet.verinice.interfaces.ICommandService#executeCommands(java.util.List, boolean)
+     */
+    @Override
+    public List<ICommand> executeCommands(List<? extends ICommand> commands, boolean parallel)
+            throws CommandException {
+        List<ICommand> results = new ArrayList<>(commands);
+        List<Integer> uncachedIndexes = new ArrayList<>(commands.size());
+        List<ICommand> uncachedCommands = new ArrayList<>(commands.size());
+        for (int i = 0; i < commands.size(); i++) {
+            ICommand command = commands.get(i);
+            if (!injectCachedResult(command)) {
+                uncachedIndexes.add(i);
+                uncachedCommands.add(command);
+            }
+        }
+        if (uncachedCommands.isEmpty()) {
+            return results;
+        }
+        List<ICommand> executed = getCommandService().executeCommands(uncachedCommands, parallel);
+        for (int i = 0; i < executed.size(); i++) {
+            ICommand command = executed.get(i);
+            if (command instanceof ICachedCommand) {
+                ICachedCommand cacheCommand = (ICachedCommand) command;
+                getGlobalCache().put(new Element(cacheCommand.getCacheID(),
+                        cacheCommand.getCacheableResult()));
+            }
+            results.set(uncachedIndexes.get(i), command);
+        }
+        return results;
+    }
+
+    private boolean injectCachedResult(ICommand command) {
+        if (!(command instanceof ICachedCommand)) {
+            return false;
+        }
+        ICachedCommand cacheCommand = (ICachedCommand) command;
+        Element element = getGlobalCache().get(cacheCommand.getCacheID());
+        if (element == null || element.getValue() == null) {
+            return false;
+        }
+        cacheCommand.injectCacheResult(element.getValue());
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see sernet.verinice.interfaces.ICommandService#discardUserData()
      */
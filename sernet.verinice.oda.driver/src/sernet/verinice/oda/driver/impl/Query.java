@@ -61,6 +61,21 @@ public class Query implements IQuery {
 
     private static final Logger log = Logger.getLogger(Query.class);
 
+    private static final ReportClassLoader SECURED_CLASS_LOADER = new ReportClassLoader(
+            Query.class.getClassLoader());
+
+    private static final String SETUP_FUNCTIONS = "columns(c) { __columns = c; }"
+            + "inParameters(ip) { __inParameters = ip; }";
+
+    private static final String QUERY_FUNCTIONS = "inpv(s) {" + " v = _inpv.get(s);"
+            + " return (v == null) ? \"input parameter value \" + s + \" does not exist.\" : v;"
+            + "}"
+            + "vars(s) {" + " v = _vars.get(s);"
+            + " return (v == null) ? s + \" does not exist.\" : v;" + "}"
+            + "gpt(entityType) { return helper.getAllPropertyTypes(entityType); }";
+
+    private final ScriptCache scriptCache = ScriptCache.getInstance();
+
     private int maxRows;
     private String queryText;
 
@@ -99,36 +114,24 @@ public class Query implements IQuery {
 
     private void init() {
         IVeriniceOdaDriver odaDriver = Activator.getDefault().getOdaDriver();
-        ReportClassLoader securedClassLoader = new ReportClassLoader(Query.class.getClassLoader());
 
         try {
             // "Setup" BSH environment:
-            setupInterpreter = new Interpreter();
-            setupInterpreter.setClassLoader(securedClassLoader);
+            setupInterpreter = scriptCache.createInterpreter(SECURED_CLASS_LOADER);
 
             setupInterpreter.set("__columns", null);
-            setupInterpreter.eval("columns(c) { __columns = c; }");
-
             setupInterpreter.set("__inParameters", null);
-            setupInterpreter.eval("inParameters(ip) { __inParameters = ip; }");
             setupInterpreter.set("helper", new Helper());
+            scriptCache.eval(setupInterpreter, SETUP_FUNCTIONS, "setup functions");
 
             // BSH environment:
-            interpreter = new Interpreter();
-            interpreter.setClassLoader(securedClassLoader);
+            interpreter = scriptCache.createInterpreter(SECURED_CLASS_LOADER);
 
             interpreter.set("_inpv", inParameterValues);
-            interpreter.eval("inpv(s) {" + " v = _inpv.get(s);"
-                    + " return (v == null) ? \"input parameter value \" + s + \" does not exist.\" : v;"
-                    + "}");
-
             interpreter.set("_vars", odaDriver.getScriptVariables());
-            interpreter.eval("vars(s) {" + " v = _vars.get(s);"
-                    + " return (v == null) ? s + \" does not exist.\" : v;" + "}");
-
             interpreter.set("helper", new Helper());
-            interpreter.eval("gpt(entityType) { return helper.getAllPropertyTypes(entityType); }");
             interpreter.set("properties", properties);
+            scriptCache.eval(interpreter, QUERY_FUNCTIONS, "query functions");
 
         } catch (EvalError e) {
             log.error("Error while evaluating a BeanShell script for an ODA query.", e);
@@ -400,7 +403,7 @@ public class Query implements IQuery {
         if (setupQueryText == null) {
             return;
         }
-        setupInterpreter.eval(setupQueryText);
+        scriptCache.eval(setupInterpreter, setupQueryText, "setup query");
         Object cols = setupInterpreter.get("__columns");
         if (cols instanceof String[]) {
             columns = (String[]) cols;
@@ -424,7 +427,7 @@ public class Query implements IQuery {
     }
 
     private Object doRunQuery() throws EvalError {
-        result = interpreter.eval(queryText);
+        result = scriptCache.eval(interpreter, queryText, "query");
         return result;
     }
 
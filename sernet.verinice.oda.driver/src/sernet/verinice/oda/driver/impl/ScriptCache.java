@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2026 verinice.
+ *
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty
+ * of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.
+ * If not, see <http://www.gnu.org/licenses/>.
+ *
+ ******************************************************************************/
+package sernet.verinice.oda.driver.impl;
+
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import bsh.BshClassManager;
+import bsh.CallStack;
+import bsh.EvalError;
+import bsh.Interpreter;
+import bsh.InterpreterError;
+import bsh.NameSpace;
+import bsh.ParseException;
+import bsh.Parser;
+import bsh.Primitive;
+import bsh.TokenMgrError;
+
+/**
+ * Cache for parsed BeanShell scripts of ODA data sets.
+ *
+ * Scripts are parsed once and stored with the script text as key. Later
+ * executions of the same script evaluate the parsed syntax tree in the
+ * namespace of an interpreter without parsing the text again.
+ *
+ * The nodes of a BeanShell syntax tree are not thread-safe, some of them
+ * store state while they are evaluated, e.g. resolved types. Therefore every
+ * thread has its own cache and a parsed script is only reused by interpreters
+ * with the same class manager. {@link #clear()} clears the caches of all
+ * threads. Interpreters
+ * created by {@link #createInterpreter(ClassLoader)} with the same class
+ * loader share one BeanShell class manager, so classes are resolved only once.
+ *
+ * Interpreters are not pooled. A reused interpreter would keep the variables,
+ * methods and imports of the previous data set in its global namespace.
+ * Creating an interpreter with a shared class manager is cheap compared to
+ * parsing a script.
+ *
+ * BeanShell 2.0 has no public API to evaluate a parsed node, the nodes are
+ * evaluated by reflection. If this is not possible scripts are interpreted
+ * from source like before.
+ */
+public final class ScriptCache {
+
+    private static final Logger log = Logger.getLogger(ScriptCache.class);
+
+    private static final int MAX_SIZE = 256;
+
+    private static final ScriptCache INSTANCE = new ScriptCache();
+
+    private static Method evalMethod;
+    private static Method setSourceFileMethod;
+    private static Class<?> returnControlClass;
+    private static Field returnValueField;
+
+    static {
+        try {
+            ClassLoader bshClassLoader = Interpreter.class.getClassLoader();
+            Class<?> simpleNodeClass = bshClassLoader.loadClass("bsh.SimpleNode");
+            evalMethod = simpleNodeClass.getMethod("eval", CallStack.class, Interpreter.class);
+            evalMethod.setAccessible(true);
+            setSourceFileMethod = simpleNodeClass.getMethod("setSourceFile", String.class);
+            setSourceFileMethod.setAccessible(true);
+            returnControlClass = bshClassLoader.loadClass("bsh.ReturnControl");
+            returnValueField = returnControlClass.getField("value");
+            returnValueField.setAccessible(true);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Parsed BeanShell scripts can not be evaluated, "
+                    + "scripts are interpreted from source.", e);
+            evalMethod = null;
+        }
+    }
+
+    private final ThreadLocal<ThreadCache> cache = ThreadLocal.withInitial(ThreadCache::new);
+
+    // Incremented by clear(), the caches of all threads are cleared on next
+    // access
+    private final AtomicLong generation = new AtomicLong();
+
+    // The class managers are held weakly, a class manager references its
+    // class loader
+    private final Map<ClassLoader, WeakReference<BshClassManager>> classManagers =
+            new WeakHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong parseTime = new AtomicLong();
+    private final AtomicLong executionTime = new AtomicLong();
+
+    private ScriptCache() {
+        super();
+    }
+
+    public static ScriptCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a new interpreter with an empty global namespace. The
+     * interpreter uses the class manager of the class loader.
+     */
+    public Interpreter createInterpreter(ClassLoader classLoader) {
+        return new Interpreter(new StringReader(""), System.out, System.err, false,
+                new NameSpace(getClassManager(classLoader), "global"));
+    }
+
+    /**
+     * Returns the class manager which is shared by all interpreters of a class
+     * loader. The class manager is created if there is none for the class
+     * loader.
+     */
+    public synchronized BshClassManager getClassManager(ClassLoader classLoader) {
+        WeakReference<BshClassManager> reference = classManagers.get(classLoader);
+        BshClassManager classManager = (reference != null) ? reference.get() : null;
+        if (classManager == null) {
+            Interpreter interpreter = new Interpreter();
+            interpreter.setClassLoader(classLoader);
+            classManager = interpreter.getNameSpace().getClassManager();
+            classManagers.put(classLoader, new WeakReference<>(classManager));
+        }
+        return classManager;
+    }
+
+    /**
+     * Evaluates a script in the global namespace of an interpreter. Returns
+     * the same value as {@link Interpreter#eval(String)}.
+     *
+     * @param interpreter
+     *            The interpreter
+     * @param script
+     *            The text of the script
+     * @param name
+     *            A name of the script used for logging
+     */
+    public Object eval(Interpreter interpreter, String script, String name) throws EvalError {
+        long start = System.nanoTime();
+        if (evalMethod == null) {
+            Object result = interpreter.eval(script);
+            long duration = System.nanoTime() - start;
+            executionTime.addAndGet(duration);
+            logTimes(name, 0, duration);
+            return result;
+        }
+        List<Object> nodes = getNodes(interpreter, script);
+        long parsed = System.nanoTime();
+        Object result = evalNodes(interpreter, nodes);
+        long end = System.nanoTime();
+        executionTime.addAndGet(end - parsed);
+        logTimes(name, parsed - start, end - parsed);
+        return result;
+    }
+
+    private List<Object> getNodes(Interpreter interpreter, String script) throws EvalError {
+        BshClassManager classManager = interpreter.getNameSpace().getClassManager();
+        Map<String, ParsedScript> scripts = getThreadCache();
+        ParsedScript parsedScript = scripts.get(script);
+        if (parsedScript != null && parsedScript.isParsedFor(classManager)) {
+            hits.incrementAndGet();
+            return parsedScript.nodes;
+        }
+        misses.incrementAndGet();
+        long start = System.nanoTime();
+        List<Object> nodes = parse(script);
+        parseTime.addAndGet(System.nanoTime() - start);
+        scripts.put(script, new ParsedScript(classManager, nodes));
+        return nodes;
+    }
+
+    private Map<String, ParsedScript> getThreadCache() {
+        ThreadCache threadCache = cache.get();
+        long currentGeneration = generation.get();
+        if (threadCache.generation != currentGeneration) {
+            threadCache.clear();
+            threadCache.generation = currentGeneration;
+        }
+        return threadCache;
+    }
+
+    private static List<Object> parse(String script) throws EvalError {
+        Parser parser = new Parser(
+                new StringReader(script.endsWith(";") ? script : script + ";"));
+        String sourceFile = "inline evaluation of: ``" + shorten(script) + "''";
+        List<Object> nodes = new ArrayList<>();
+        try {
+            boolean eof = false;
+            while (!eof) {
+                eof = parser.Line();
+                Object node = parser.popNode();
+                if (node != null) {
+                    setSourceFileMethod.invoke(node, sourceFile);
+                    nodes.add(node);
+                }
+            }
+        } catch (TokenMgrError e) {
+            throw new ParseException("Token parsing error in " + sourceFile + ": "
+                    + e.getMessage());
+        } catch (ReflectiveOperationException e) {
+            throw new InterpreterError("Error while parsing " + sourceFile + ": " + e);
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+
+    private static Object evalNodes(Interpreter interpreter, List<Object> nodes)
+            throws EvalError {
+        NameSpace nameSpace = interpreter.getNameSpace();
+        CallStack callStack = new CallStack(nameSpace);
+        Object result = null;
+        try {
+            for (Object node : nodes) {
+                callStack.clear();
+                callStack.push(nameSpace);
+                result = evalMethod.invoke(node, callStack, interpreter);
+                if (returnControlClass.isInstance(result)) {
+                    result = returnValueField.get(result);
+                    break;
+                }
+            }
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof EvalError) {
+                throw (EvalError) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new EvalError("Error while evaluating script: " + cause, null, null);
+        } catch (IllegalAccessException e) {
+            throw new InterpreterError("Can not evaluate script: " + e);
+        }
+        return Primitive.unwrap(result);
+    }
+
+    private static String shorten(String script) {
+        return script.length() > 80 ? script.substring(0, 80) + " . . . " : script;
+    }
+
+    private static void logTimes(String name, long parseNanos, long executionNanos) {
+        if (log.isDebugEnabled()) {
+            log.debug("BeanShell script " + name + ", parse time: "
+                    + TimeUnit.NANOSECONDS.toMillis(parseNanos) + " ms, execution time: "
+                    + TimeUnit.NANOSECONDS.toMillis(executionNanos) + " ms");
+        }
+    }
+
+    /**
+     * @return The number of parsed scripts in the cache of the current thread
+     */
+    public int getSize() {
+        return getThreadCache().size();
+    }
+
+    /**
+     * @return The maximum number of parsed scripts in the cache of a thread
+     */
+    public int getMaxSize() {
+        return MAX_SIZE;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The time spent parsing scripts in milliseconds
+     */
+    public long getParseTime() {
+        return TimeUnit.NANOSECONDS.toMillis(parseTime.get());
+    }
+
+    /**
+     * @return The time spent evaluating scripts in milliseconds
+     */
+    public long getExecutionTime() {
+        return TimeUnit.NANOSECONDS.toMillis(executionTime.get());
+    }
+
+    /**
+     * Clears the caches of all threads.
+     */
+    public void clear() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * The parsed scripts of one thread, the least recently used script is
+     * removed if there are more than {@link #MAX_SIZE} scripts.
+     */
+    private static final class ThreadCache extends LinkedHashMap<String, ParsedScript> {
+
+        private static final long serialVersionUID = 1L;
+
+        private transient long generation;
+
+        private ThreadCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedScript> eldest) {
+            return size() > MAX_SIZE;
+        }
+    }
+
+    /**
+     * The nodes of a script and the class manager they were evaluated with.
+     * The class manager is held weakly, it references its class loader.
+     */
+    private static final class ParsedScript {
+
+        private final WeakReference<BshClassManager> classManager;
+        private final List<Object> nodes;
+
+        private ParsedScript(BshClassManager classManager, List<Object> nodes) {
+            this.classManager = new WeakReference<>(classManager);
+            this.nodes = nodes;
+        }
+
+        private boolean isParsedFor(BshClassManager classManager) {
+            return this.classManager.get() == classManager;
+        }
+    }
+}
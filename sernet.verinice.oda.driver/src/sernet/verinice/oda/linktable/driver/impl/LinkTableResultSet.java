@@ -32,6 +32,8 @@ import org.eclipse.datatools.connectivity.oda.IResultSet;
 import org.eclipse.datatools.connectivity.oda.IResultSetMetaData;
 import org.eclipse.datatools.connectivity.oda.OdaException;
 
+import sernet.verinice.service.linktable.LinkTableRowIterator;
+
 /**
  * A BIRT ODA result set for a link table 
  *
@@ -46,6 +48,8 @@ public class LinkTableResultSet implements IResultSet {
     private int currentRowId;
 
     private List<List<String>> linkTable;
+    private LinkTableRowIterator rows;
+    private List<String> currentRow;
     private IResultSetMetaData metaData;
 
     public LinkTableResultSet(List<List<String>> linkTable, IResultSetMetaData metaData) {
@@ -53,9 +57,20 @@ public class LinkTableResultSet implements IResultSet {
         this.metaData = metaData;
         if(linkTable!=null) {
             this.maxRows = linkTable.size();
+            this.rows = LinkTableRowIterator.of(linkTable);
         }
     }
 
+    /**
+     * Creates a result set which reads the rows from an iterator while
+     * {@link #next()} is called. The iterator is closed when the result set
+     * is closed. A max rows value of 0 means there is no limit.
+     */
+    public LinkTableResultSet(LinkTableRowIterator rows, IResultSetMetaData metaData) {
+        this.rows = rows;
+        this.metaData = metaData;
+    }
+
     /*
      * @see org.eclipse.datatools.connectivity.oda.IResultSet#getMetaData()
      */
@@ -87,16 +102,28 @@ public class LinkTableResultSet implements IResultSet {
      */
     @Override
     public boolean next() throws OdaException {
-        if (currentRowId < maxRows) {
-            currentRowId++;
-            return true;
+        if (rows == null || ((maxRows > 0 || linkTable != null) && currentRowId >= maxRows)
+                || !rows.hasNext()) {
+            currentRow = null;
+            return false;
         }
-        return false;
+        currentRow = rows.next();
+        currentRowId++;
+        return true;
     }
 
     @Override
     public void close() throws OdaException {
         currentRowId = 0; // reset row counter
+        currentRow = null;
+        if (rows != null) {
+            rows.close();
+        }
+        if (linkTable != null) {
+            rows = LinkTableRowIterator.of(linkTable);
+        } else {
+            rows = null;
+        }
     }
 
     @Override
@@ -107,7 +134,7 @@ public class LinkTableResultSet implements IResultSet {
     @Override
     public Object getObject(int index) throws OdaException { 
         try {
-            return linkTable.get(currentRowId-1).get(index-1);
+            return currentRow.get(index-1);
         } catch (Exception e){
             LOG.error("No value found for row: " + currentRowId + " and column: " + index, e);
             return null;
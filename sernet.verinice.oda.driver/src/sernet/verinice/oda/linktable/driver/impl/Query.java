@@ -25,6 +25,7 @@ import java.sql.Time;
 import java.sql.Timestamp;
 import java.text.Normalizer;
 import java.text.Normalizer.Form;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,6 +43,7 @@ import org.springframework.remoting.RemoteConnectFailureException;
 
 import sernet.verinice.service.linktable.ColumnPathParser;
 import sernet.verinice.service.linktable.ILinkTableConfiguration;
+import sernet.verinice.service.linktable.LinkTableRowIterator;
 import sernet.verinice.service.linktable.LinkTableService;
 import sernet.verinice.service.linktable.vlt.VeriniceLinkTable;
 import sernet.verinice.service.linktable.vlt.VeriniceLinkTableIO;
@@ -108,7 +110,11 @@ public class Query implements IQuery {
     @Override
     public IResultSet executeQuery() throws OdaException {
         try {
-            return new LinkTableResultSet(createMappedTable(), resultSetMetaData);
+            if (queryCache != null) {
+                return new LinkTableResultSet(queryCache.computeIfAbsent(vlt, k -> createTable()),
+                        resultSetMetaData);
+            }
+            return new LinkTableResultSet(iterateTable(), resultSetMetaData);
         } catch (RemoteConnectFailureException remoteConnectFailureException) {
             log.error(Messages.query_connection_error_title, remoteConnectFailureException);
             throw new OdaException(Messages.query_connection_error_msg);
@@ -116,28 +122,60 @@ public class Query implements IQuery {
 
     }
 
-    private List<List<String>> createMappedTable() {
-        if (queryCache != null) {
-            return queryCache.computeIfAbsent(vlt, (k) -> createTable());
+    /**
+     * Returns an iterator over the rows of the table without the heading
+     * line. The rows are passed through to the result set, the table is not
+     * held in memory.
+     */
+    private LinkTableRowIterator iterateTable() {
+        LinkTableService linkTableService = new LinkTableService();
+        LinkTableRowIterator rows = linkTableService
+                .iterateTable(createLinkTableConfiguration());
+        // Skip the heading line of the table
+        if (rows.hasNext()) {
+            rows.next();
         }
-        return createTable();
+        return new LinkTableRowIterator() {
+
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                return normalize(rows.next());
+            }
+
+            @Override
+            public void close() {
+                rows.close();
+            }
+        };
     }
 
+    /**
+     * Creates the complete table, the table is held in the query cache.
+     */
     private List<List<String>> createTable() {
         LinkTableService linkTableService = new LinkTableService();
-        List<List<String>> table = linkTableService.createTable(createLinkTableConfiguration());
+        List<List<String>> table = new ArrayList<>();
+        linkTableService.createTable(createLinkTableConfiguration(),
+                row -> table.add(normalize(row)));
         // Remove the heading line of the table
         table.remove(0);
+        return table;
+    }
+
+    private static List<String> normalize(List<String> row) {
         // VN-2495: NFC-normalize values
-        table.forEach(row -> {
-            for (int i = 0; i < row.size(); i++) {
-                String value = row.get(i);
-                if (value != null && !value.isEmpty()) {
-                    row.set(i, Normalizer.normalize(value, Form.NFC));
-                }
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            if (value != null && !value.isEmpty()) {
+                row.set(i, Normalizer.normalize(value, Form.NFC));
             }
-        });
-        return table;
+        }
+        return row;
     }
 
     public ILinkTableConfiguration createLinkTableConfiguration() {